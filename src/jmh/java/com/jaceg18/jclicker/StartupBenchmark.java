@@ -0,0 +1,113 @@
+package com.jaceg18.jclicker;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cold start of the packaged application, from launching {@code java} until the window's
+ * first frame and until the hotkeys are live, with and without an AppCDS archive.
+ * <p>
+ * Each invocation starts a fresh JVM with {@link StartupProbe} enabled. Needs a display and
+ * the jar plus {@code target/libs} from {@code package}, which the {@code bench} profile
+ * passes in as {@code jclicker.jar} and {@code jclicker.libs}. The archive for the
+ * {@code cds} runs comes from one training launch per trial, the same way the
+ * {@code fast-start} profile builds it.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    private static final long TIMEOUT_SECONDS = 60;
+
+    @Param({"first-frame", "hotkey-ready"})
+    public String milestone;
+
+    @Param({"false", "true"})
+    public boolean cds;
+
+    private Path workDir;
+    private Path archive;
+    private Process process;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workDir = Files.createTempDirectory("jclicker-startup");
+        if (cds) {
+            archive = workDir.resolve("jclicker.jsa");
+            Process training = launch("all", "-XX:ArchiveClassesAtExit=" + archive);
+            awaitLine(training, "startup hotkey-ready");
+            if (!training.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS) || !Files.exists(archive)) {
+                training.destroyForcibly();
+                throw new IllegalStateException("CDS training run did not produce " + archive);
+            }
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void awaitExit() throws InterruptedException {
+        if (process != null && !process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+        process = null;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(workDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public String startup() throws IOException {
+        process = cds ? launch(milestone, "-XX:SharedArchiveFile=" + archive) : launch(milestone);
+        return awaitLine(process, "startup " + milestone);
+    }
+
+    private Process launch(String probe, String... jvmOptions) throws IOException {
+        String jar = System.getProperty("jclicker.jar");
+        String libs = System.getProperty("jclicker.libs");
+        if (jar == null || libs == null) {
+            throw new IllegalStateException("Set jclicker.jar and jclicker.libs; run through mvn -P bench verify");
+        }
+
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(List.of(jvmOptions));
+        command.add("-D" + StartupProbe.PROPERTY + "=" + probe);
+        command.add("-Djclicker.home=" + workDir.resolve("home"));
+        command.add("--module-path");
+        command.add(jar + java.io.File.pathSeparator + libs);
+        command.add("--module");
+        command.add("com.jaceg18.jclicker/com.jaceg18.jclicker.App");
+        return new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+    }
+
+    /** Reads the process's output up to the line starting with {@code prefix}. */
+    private static String awaitLine(Process process, String prefix) throws IOException {
+        BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = out.readLine()) != null) {
+            if (line.startsWith(prefix)) return line;
+        }
+        throw new IllegalStateException("Application exited with " + process.onExit().join().exitValue()
+                + " before reaching " + prefix);
+    }
+}
@@ -0,0 +1,94 @@
+package com.jaceg18.jclicker.core;
+
+import com.jaceg18.jclicker.util.ClickType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Throughput of {@link ProfileStore} operations for each backend with differently sized
+ * profile sets.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProfileManagerBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    public int profileCount;
+
+    @Param({"properties", "binary"})
+    public String backend;
+
+    private Path baseDir;
+    private ProfileStore profileManager;
+    private Profile profile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        baseDir = Files.createTempDirectory("jclicker-bench");
+        profileManager = backend.equals("binary") ? new BinaryProfileStore(baseDir) : new ProfileManager(baseDir);
+        profileManager.init();
+
+        profile = new Profile();
+        profile.setClickType(ClickType.LEFT);
+        profile.setUseCurrentLocation(true);
+        profile.setCustomX(100);
+        profile.setCustomY(200);
+        profile.setToggleBind(64);
+        profile.setDelayMS(10.5);
+        profile.setRepeatTimes(100);
+
+        for (int i = 0; i < profileCount; i++) {
+            profileManager.saveProfile(name(i), profile);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        profileManager.close();
+        try (Stream<Path> files = Files.walk(baseDir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    private static String name(int i) {
+        return "Profile_" + i;
+    }
+
+    private String randomName() {
+        return name(ThreadLocalRandom.current().nextInt(profileCount));
+    }
+
+    @Benchmark
+    public void saveProfile() throws IOException {
+        profileManager.saveProfile(randomName(), profile);
+    }
+
+    @Benchmark
+    public Profile loadProfile() throws IOException {
+        return profileManager.loadProfile(randomName());
+    }
+
+    @Benchmark
+    public List<String> listProfiles() throws IOException {
+        return profileManager.listProfiles();
+    }
+
+    @Benchmark
+    public boolean containsProfile() {
+        return profileManager.containsProfile(randomName());
+    }
+}
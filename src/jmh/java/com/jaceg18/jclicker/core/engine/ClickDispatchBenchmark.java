@@ -0,0 +1,57 @@
+package com.jaceg18.jclicker.core.engine;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-click overhead of the engine's dispatch path, measured against sinks that do
+ * no real work so only the engine's own cost shows up.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ClickDispatchBenchmark {
+
+    @Param({"false", "true"})
+    public boolean customLocation;
+
+    private ClickConfig config;
+    private int buttonMask;
+    private ClickSink blackholeSink;
+
+    @Setup
+    public void setUp(Blackhole bh) {
+        config = ClickConfig.builder()
+                .delayMs(1)
+                .useCurrentLocation(!customLocation)
+                .useCustomLocation(customLocation)
+                .customLocation(10, 20)
+                .build();
+        buttonMask = config.buttonMask();
+        blackholeSink = new ClickSink() {
+            @Override
+            public void mouseMove(int x, int y) {bh.consume(x); bh.consume(y);}
+
+            @Override
+            public void mousePress(int mask) {bh.consume(mask);}
+
+            @Override
+            public void mouseRelease(int mask) {bh.consume(mask);}
+        };
+    }
+
+    @Benchmark
+    public void noOpSink() {
+        ClickEngine.dispatch(config, buttonMask, NoOpClickSink.INSTANCE);
+    }
+
+    @Benchmark
+    public void blackholeSink() {
+        ClickEngine.dispatch(config, buttonMask, blackholeSink);
+    }
+}
@@ -0,0 +1,40 @@
+package com.jaceg18.jclicker.core.engine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timing accuracy and jitter of {@link ClickScheduler}.
+ * <p>
+ * Each operation waits for exactly one deadline, so in an ideal world every sample
+ * equals the target period. The sampled percentiles therefore show the jitter, and the
+ * returned lateness keeps the JIT from eliding the wait.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xms256m")
+@State(Scope.Thread)
+public class ClickSchedulerBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    public long targetMicros;
+
+    @Param({"CATCH_UP", "SKIP"})
+    public ClickScheduler.OverrunPolicy policy;
+
+    private ClickScheduler scheduler;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        scheduler = new ClickScheduler(TimeUnit.MICROSECONDS.toNanos(targetMicros), policy);
+        scheduler.start(System.nanoTime());
+    }
+
+    @Benchmark
+    public long awaitNext() throws InterruptedException {
+        return scheduler.awaitNext();
+    }
+}
@@ -0,0 +1,84 @@
+package com.jaceg18.jclicker.core.target;
+
+import com.jaceg18.jclicker.core.trigger.ImageFrameSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of one target lookup on a 1920x1080 frame: a full-screen pyramid search on the
+ * common pool and on a single thread, and a repeat lookup answered from the window around
+ * the last hit. Frames come from an image, so the numbers include the copy out of it but
+ * not a real screen capture, which {@code TriggerMonitor}'s capture cost shows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TargetFinderBenchmark {
+
+    @Param({"32", "64", "128"})
+    public int templateSize;
+
+    private Template template;
+    private TargetFinder parallel;
+    private TargetFinder sequential;
+    private TargetFinder cached;
+    private ForkJoinPool singleThread;
+
+    @Setup
+    public void setUp() throws Exception {
+        BufferedImage screen = scene(1920, 1080);
+        template = Template.of(screen.getSubimage(1401, 703, templateSize, templateSize), "bench",
+                Template.DEFAULT_TOLERANCE);
+        ImageFrameSource source = new ImageFrameSource(screen);
+        singleThread = new ForkJoinPool(1);
+        parallel = new TargetFinder(source);
+        sequential = new TargetFinder(source, singleThread);
+        cached = new TargetFinder(source);
+        if (cached.locate(template) == null) throw new IllegalStateException("template not found");
+    }
+
+    @TearDown
+    public void tearDown() {
+        singleThread.shutdown();
+    }
+
+    @Benchmark
+    public Match fullSearch() throws Exception {
+        parallel.forget();
+        return parallel.locate(template);
+    }
+
+    @Benchmark
+    public Match fullSearchOneThread() throws Exception {
+        sequential.forget();
+        return sequential.locate(template);
+    }
+
+    @Benchmark
+    public Match lastHitWindow() throws Exception {
+        return cached.locate(template);
+    }
+
+    /** Blocks of colour with a little noise, so the frame has structure at every pyramid level. */
+    private static BufferedImage scene(int width, int height) {
+        Random random = new Random(42);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int block = 12;
+        int columns = (width + block - 1) / block;
+        int[] colours = new int[columns * ((height + block - 1) / block)];
+        for (int i = 0; i < colours.length; i++) colours[i] = random.nextInt(0x1000000) & 0xF0F0F0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, colours[(y / block) * columns + x / block] + random.nextInt(16) * 0x010101);
+            }
+        }
+        return image;
+    }
+}
@@ -1,5 +1,6 @@
 package com.jaceg18.jclicker;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -32,9 +33,21 @@ public class App extends Application {
         });
         
         stage.show();
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                stop();
+                StartupProbe.reached(StartupProbe.Milestone.FIRST_FRAME);
+            }
+        }.start();
     }
 
+    /** With arguments, runs headless through {@link Cli} instead of opening the window. */
     public static void main(String[] args) {
+        if (args.length > 0) {
+            Cli.main(args);
+            return;
+        }
         launch();
     }
 }
\ No newline at end of file
@@ -0,0 +1,292 @@
+package com.jaceg18.jclicker;
+
+import com.jaceg18.jclicker.core.Profile;
+import com.jaceg18.jclicker.core.ProfileStore;
+import com.jaceg18.jclicker.core.engine.ClickConfig;
+import com.jaceg18.jclicker.core.engine.ClickEngine;
+import com.jaceg18.jclicker.core.engine.ClickGovernor;
+import com.jaceg18.jclicker.core.engine.ClickTelemetry;
+import com.jaceg18.jclicker.core.input.BackendBenchmark;
+import com.jaceg18.jclicker.core.input.ClickBackend;
+import com.jaceg18.jclicker.core.input.ClickBackends;
+import com.jaceg18.jclicker.core.target.Template;
+import com.jaceg18.jclicker.core.trigger.RobotFrameSource;
+import com.jaceg18.jclicker.core.trigger.TriggerMonitor;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs a saved profile from the command line, without JavaFX.
+ * <pre>
+ * java -cp &lt;classpath&gt; com.jaceg18.jclicker.Cli --run "My Profile" --duration 60s --stats
+ * </pre>
+ * The profile runs until its repeat count is reached, {@code --duration} elapses or the
+ * process is interrupted, whichever comes first. {@code --sink noop} drives the engine
+ * without touching the OS, for build agents and machines without a display.
+ * {@code --benchmark-backends} measures each input backend on this machine and names the
+ * fastest.
+ * <p>
+ * Starting this class directly skips loading JavaFX entirely; {@link App#main} also
+ * forwards here when it is given arguments.
+ */
+public final class Cli {
+
+    static final int EXIT_OK = 0;
+    static final int EXIT_FAILED = 1;
+    static final int EXIT_USAGE = 2;
+
+    static final String USAGE = """
+            Usage: jclicker --run <profile> [options]
+                   jclicker --list [--profiles-dir <dir>]
+                   jclicker --benchmark-backends
+
+              --run <profile>       profile to run
+              --duration <time>     stop after this long, e.g. 500ms, 60s, 5m, 2h (default: until done or interrupted)
+              --stats               print timing statistics on exit
+              --sink <backend>      input backend: robot, jnativehook, noop or recording
+                                    (default: the profile's, else robot; noop sends nothing)
+              --max-cps <n>         never click faster than this (default: 5000; 0 for no limit)
+              --max-button-cps <n>  never click one button faster than this (default: 2500; 0 for no limit)
+              --profiles-dir <dir>  directory holding the profiles (default: the GUI's)
+              --list                list saved profiles
+              --benchmark-backends  measure each input backend here and recommend the fastest
+              --help                show this help
+            """;
+
+    private Cli(){}
+
+    public static void main(String[] args){
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Parsed command line. {@code durationNanos} is 0 when no duration was given, {@code maxCps}
+     * and {@code maxButtonCps} 0 when clicking is not capped, {@code sink} null when the profile picks the backend.
+     */
+    record Options(String profile, long durationNanos, boolean stats, String sink, double maxCps,
+                   double maxButtonCps, Path profilesDir, boolean list, boolean benchmarkBackends, boolean help) {}
+
+    /**
+     * @return the process exit code
+     */
+    static int run(String[] args, PrintStream out, PrintStream err){
+        Options options;
+        try {
+            options = parse(args);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.print(USAGE);
+            return EXIT_USAGE;
+        }
+        if (options.help()) {
+            out.print(USAGE);
+            return EXIT_OK;
+        }
+        if (options.benchmarkBackends()) {
+            out.println(BackendBenchmark.report(BackendBenchmark.run(ClickBackends.all(), BackendBenchmark.DEFAULT_EVENTS)));
+            return EXIT_OK;
+        }
+
+        Path baseDir = options.profilesDir() != null ? options.profilesDir() : ProfileStore.defaultBaseDir();
+        try (ProfileStore store = ProfileStore.create(baseDir)) {
+            store.init();
+            if (options.list()) {
+                store.listProfiles().forEach(out::println);
+                return EXIT_OK;
+            }
+            Profile profile = store.loadProfile(options.profile());
+            ClickConfig config = ClickConfig.fromProfile(profile, Template.loadIfSet(profile.getTarget()));
+            return runProfile(config, options, out, err);
+        } catch (FileNotFoundException e) {
+            err.println("No such profile: " + options.profile());
+            return EXIT_FAILED;
+        } catch (IOException | IllegalArgumentException e) {
+            err.println("Cannot run " + options.profile() + ": " + e.getMessage());
+            return EXIT_FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return EXIT_FAILED;
+        }
+    }
+
+    private static int runProfile(ClickConfig config, Options options, PrintStream out, PrintStream err)
+            throws InterruptedException {
+        // Only profiles with a trigger or target look at the screen
+        TriggerMonitor monitor = config.trigger() == null && config.target() == null ? null
+                : new TriggerMonitor(RobotFrameSource::new);
+        ClickGovernor governor = options.maxCps() > 0 || options.maxButtonCps() > 0
+                ? new ClickGovernor(options.maxCps(), options.maxButtonCps(), ClickGovernor.DEFAULT_BURST) : null;
+        ClickBackend backend = options.sink() != null ? ClickBackends.find(options.sink())
+                : config.backend() != null ? config.backend() : ClickBackends.find(ClickBackends.DEFAULT);
+        // The engine's own sink is the backend's, so the config does not need to name it
+        config = config.withBackend(null);
+        ClickEngine engine = new ClickEngine(backend::create, monitor, governor);
+        CountDownLatch finished = new CountDownLatch(1);
+        Exception[] failure = new Exception[1];
+        AtomicBoolean reported = new AtomicBoolean();
+        Instant triggered = Instant.now();
+
+        Runnable report = () -> {
+            if (reported.compareAndSet(false, true) && options.stats()) {
+                printStats(engine.getTelemetry().snapshot(), triggered, out);
+            }
+        };
+        // Ctrl+C: stop cleanly and still print what was measured
+        Thread onInterrupt = new Thread(() -> {
+            engine.stop();
+            try {
+                finished.await(1, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+                // Exiting anyway
+            }
+            report.run();
+        }, "jclicker-cli-shutdown");
+        Runtime.getRuntime().addShutdownHook(onInterrupt);
+
+        try {
+            engine.start(config, (clicks, error) -> {
+                failure[0] = error;
+                finished.countDown();
+            }, System.nanoTime());
+
+            boolean done = options.durationNanos() > 0
+                    ? finished.await(options.durationNanos(), TimeUnit.NANOSECONDS)
+                    : await(finished);
+            if (!done) {
+                engine.stopAndWait(TimeUnit.SECONDS.toNanos(1));
+                finished.await(1, TimeUnit.SECONDS);
+            }
+        } finally {
+            try {
+                Runtime.getRuntime().removeShutdownHook(onInterrupt);
+            } catch (IllegalStateException ignored) {
+                // Already shutting down; the hook reports
+            }
+            engine.shutdown();
+            if (monitor != null) monitor.close();
+        }
+
+        if (failure[0] != null) {
+            err.println("Clicking failed: " + failure[0].getMessage());
+            if (backend.postsInput()) {
+                err.println("Use --sink noop on machines without a display.");
+            }
+            return EXIT_FAILED;
+        }
+        report.run();
+        return EXIT_OK;
+    }
+
+    private static boolean await(CountDownLatch latch) throws InterruptedException {
+        latch.await();
+        return true;
+    }
+
+    private static void printStats(ClickTelemetry.Snapshot stats, Instant triggered, PrintStream out){
+        out.println(stats.toStatusString());
+        out.printf(Locale.ROOT, "dispatch mean %s / p99 %s, late mean %s / max %s%n",
+                ClickTelemetry.Snapshot.formatNanos((long) stats.dispatch().mean()),
+                ClickTelemetry.Snapshot.formatNanos(stats.dispatch().p99()),
+                ClickTelemetry.Snapshot.formatNanos((long) stats.lateness().mean()),
+                ClickTelemetry.Snapshot.formatNanos(stats.lateness().max()));
+        Optional<Instant> processStart = ProcessHandle.current().info().startInstant();
+        if (processStart.isPresent() && stats.firstClickLatency() >= 0) {
+            long startup = Duration.between(processStart.get(), triggered).toNanos() + stats.firstClickLatency();
+            out.println("startup " + ClickTelemetry.Snapshot.formatNanos(startup) + " from process start to first click");
+        }
+    }
+
+    static Options parse(String[] args){
+        String profile = null;
+        long durationNanos = 0;
+        boolean stats = false;
+        String sink = null;
+        double maxCps = ClickGovernor.DEFAULT_MAX_CPS;
+        double maxButtonCps = ClickGovernor.DEFAULT_MAX_BUTTON_CPS;
+        Path profilesDir = null;
+        boolean list = false;
+        boolean benchmarkBackends = false;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--run" -> profile = value(args, ++i, arg);
+                case "--duration" -> durationNanos = parseDuration(value(args, ++i, arg));
+                case "--stats" -> stats = true;
+                case "--sink" -> sink = ClickBackends.find(value(args, ++i, arg)).name();
+                case "--max-cps" -> maxCps = parseCps(value(args, ++i, arg), arg);
+                case "--max-button-cps" -> maxButtonCps = parseCps(value(args, ++i, arg), arg);
+                case "--profiles-dir" -> profilesDir = Path.of(value(args, ++i, arg));
+                case "--list" -> list = true;
+                case "--benchmark-backends" -> benchmarkBackends = true;
+                case "--help", "-h" -> {
+                    return new Options(null, 0, false, sink, maxCps, maxButtonCps, null, false, false, true);
+                }
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (profile == null && !list && !benchmarkBackends) {
+            throw new IllegalArgumentException("Missing --run <profile>");
+        }
+        return new Options(profile, durationNanos, stats, sink, maxCps, maxButtonCps, profilesDir, list, benchmarkBackends, false);
+    }
+
+    private static double parseCps(String text, String option){
+        try {
+            double cps = Double.parseDouble(text.trim());
+            if (cps >= 0 && !Double.isInfinite(cps)) return cps;
+        } catch (NumberFormatException ignored) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Invalid " + option + ": " + text);
+    }
+
+    private static String value(String[] args, int i, String option){
+        if (i >= args.length) throw new IllegalArgumentException(option + " needs a value");
+        return args[i];
+    }
+
+    /**
+     * Parses {@code 250ms}, {@code 60s}, {@code 5m} or {@code 2h}; a bare number is seconds.
+     */
+    static long parseDuration(String text){
+        String s = text.trim().toLowerCase(Locale.ROOT);
+        long unitNanos;
+        if (s.endsWith("ms")) {
+            unitNanos = TimeUnit.MILLISECONDS.toNanos(1);
+            s = s.substring(0, s.length() - 2);
+        } else if (s.endsWith("s")) {
+            unitNanos = TimeUnit.SECONDS.toNanos(1);
+            s = s.substring(0, s.length() - 1);
+        } else if (s.endsWith("m")) {
+            unitNanos = TimeUnit.MINUTES.toNanos(1);
+            s = s.substring(0, s.length() - 1);
+        } else if (s.endsWith("h")) {
+            unitNanos = TimeUnit.HOURS.toNanos(1);
+            s = s.substring(0, s.length() - 1);
+        } else {
+            unitNanos = TimeUnit.SECONDS.toNanos(1);
+        }
+        double value;
+        try {
+            value = Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid duration: " + text);
+        }
+        if (!(value > 0) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Duration must be positive: " + text);
+        }
+        double nanos = value * unitNanos;
+        return nanos >= Long.MAX_VALUE ? Long.MAX_VALUE : Math.max(1, Math.round(nanos));
+    }
+}
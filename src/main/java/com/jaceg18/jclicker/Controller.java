@@ -4,37 +4,86 @@ import com.github.kwhat.jnativehook.GlobalScreen;
 import com.github.kwhat.jnativehook.NativeHookException;
 import com.github.kwhat.jnativehook.keyboard.NativeKeyEvent;
 import com.github.kwhat.jnativehook.keyboard.NativeKeyListener;
+import com.jaceg18.jclicker.core.AsyncProfileWriter;
+import com.jaceg18.jclicker.core.Hotkeys;
 import com.jaceg18.jclicker.core.Profile;
-import com.jaceg18.jclicker.core.ProfileManager;
+import com.jaceg18.jclicker.core.ProfileHotkeys;
+import com.jaceg18.jclicker.core.ProfileStore;
+import com.jaceg18.jclicker.core.control.ControlServer;
+import com.jaceg18.jclicker.core.engine.ClickConfig;
+import com.jaceg18.jclicker.core.engine.ClickEngine;
+import com.jaceg18.jclicker.core.engine.ClickGovernor;
+import com.jaceg18.jclicker.core.engine.ClickStatus;
+import com.jaceg18.jclicker.core.engine.ClickTelemetry;
+import com.jaceg18.jclicker.core.engine.CompiledMacro;
+import com.jaceg18.jclicker.core.engine.LatencyHistogram;
+import com.jaceg18.jclicker.core.engine.MacroCompiler;
+import com.jaceg18.jclicker.core.engine.MultiClickEngine;
+import com.jaceg18.jclicker.core.engine.RobotClickSink;
+import com.jaceg18.jclicker.core.input.BackendBenchmark;
+import com.jaceg18.jclicker.core.input.ClickBackend;
+import com.jaceg18.jclicker.core.input.ClickBackends;
+import com.jaceg18.jclicker.core.record.InputLog;
+import com.jaceg18.jclicker.core.record.InputRecorder;
+import com.jaceg18.jclicker.core.target.Template;
+import com.jaceg18.jclicker.core.trigger.PixelTrigger;
+import com.jaceg18.jclicker.core.trigger.RobotFrameSource;
+import com.jaceg18.jclicker.core.trigger.TriggerMonitor;
 import com.jaceg18.jclicker.util.ClickType;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
+import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
+import javafx.stage.FileChooser;
 import javafx.scene.control.*;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.MenuBar;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.TextField;
+import javafx.scene.layout.VBox;
 
 import javax.swing.*;
-import java.awt.*;
-import java.awt.event.InputEvent;
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.LogManager;
 
 public class Controller implements NativeKeyListener {
 
 
-    private final ExecutorService clickExecutor = Executors.newSingleThreadExecutor();
-    private volatile boolean clicking = false;
+    /** Watches the screen for both engines' triggers; its thread only starts once a trigger is set. */
+    private final TriggerMonitor triggerMonitor = new TriggerMonitor(RobotFrameSource::new);
+    /** Caps the clicks of both engines together, so no profile can flood the OS input queue. */
+    private final ClickGovernor clickGovernor = ClickGovernor.fromSystemProperties();
+    private final ClickEngine clickEngine = new ClickEngine(RobotClickSink::new, triggerMonitor, clickGovernor);
+    /** Runs profiles started through their own hotkeys, side by side with the main engine. */
+    private final MultiClickEngine profileEngine = new MultiClickEngine(RobotClickSink::new, triggerMonitor, clickGovernor);
+    private final ProfileHotkeys profileHotkeys = new ProfileHotkeys(profileEngine);
+    /** Set while the user is asked to press a hotkey; completed by the native hook thread. */
+    private volatile CompletableFuture<Integer> hotkeyCapture;
+    private final InputRecorder inputRecorder = new InputRecorder();
+    /** Lets scripts drive {@link #clickEngine} over a local socket; {@code null} if it could not start. */
+    private ControlServer controlServer;
+    /** Samples the engine's live counters once per frame while clicking; the engine never posts to the FX thread per click. */
+    private final AnimationTimer statusTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            updateLiveStats();
+        }
+    };
+    private final Tooltip statsTooltip = new Tooltip();
+    private long tooltipUpdatedNanos;
 
     @FXML
     public ComboBox<ClickType> mouseButtonCombo;
@@ -51,15 +100,77 @@ public class Controller implements NativeKeyListener {
     @FXML
     public MenuBar menuBar;
     @FXML
-    public MenuItem saveProfile, openBindOptions, openAbout, openHelpProfile;
+    public MenuItem saveProfile, openBindOptions, openProfileHotkey, openMacro, openTrigger, openTarget,
+            openBackend, toggleRecording, loadRecording, openAbout, openHelpProfile;
 
-    private int toggleKey = NativeKeyEvent.VC_F6;
+    private static final long TOOLTIP_REFRESH_NANOS = 500_000_000L;
+    /** Ends a delay field that holds a target rate instead of a delay, as in {@code 25 cps}. */
+    private static final String CPS_SUFFIX = "cps";
+
+    private volatile int toggleKey = NativeKeyEvent.VC_F6;
     private boolean toggled = false;
 
-    private ProfileManager profileManager;
+    /**
+     * The UI's click settings, parsed and validated whenever a control changes, so the
+     * native hook thread can start the engine without touching the FX thread.
+     */
+    private volatile ConfigSnapshot configSnapshot = new ConfigSnapshot(null, "Select a click type first");
+    /** Set while a profile is being applied to the UI so its fields are published as one change. */
+    private boolean applyingProfile = false;
+    /** Macro that replaces the single click, or {@code null}; edited through Edit > Macro. */
+    private CompiledMacro macro;
+    /** Screen condition clicking waits for, or {@code null}; edited through Edit > Trigger. */
+    private PixelTrigger trigger;
+    /** Image clicked on instead of a fixed location, or {@code null}; chosen through Edit > Target. */
+    private Template target;
+    /** Backend clicks go through, or {@code null} for the default; chosen through Edit > Input Backend. */
+    private ClickBackend backend;
+
+    private ProfileStore profileManager;
+    /** Saves profiles off the FX thread. */
+    private AsyncProfileWriter profileWriter;
+    /** Registers the native hook and loads profiles while the window comes up. */
+    private Thread startupThread;
 
     public void initialize() {
         LogManager.getLogManager().reset();
+        profileManager = ProfileStore.create(getBaseDir());
+        profileWriter = new AsyncProfileWriter(profileManager);
+
+        mouseButtonCombo.getItems().addAll(
+                ClickType.LEFT,
+                ClickType.RIGHT,
+                ClickType.MIDDLE
+        );
+
+        saveProfile.setOnAction(e -> saveProfile());
+        openBindOptions.setOnAction(e -> handleBinds());
+        openProfileHotkey.setOnAction(e -> handleProfileHotkey());
+        openMacro.setOnAction(e -> handleMacro());
+        openTrigger.setOnAction(e -> handleTrigger());
+        openTarget.setOnAction(e -> handleTarget());
+        openBackend.setOnAction(e -> handleBackend());
+        toggleRecording.setOnAction(e -> handleToggleRecording());
+        loadRecording.setOnAction(e -> handleLoadRecording());
+        openAbout.setOnAction(e -> handleAbout());
+        openHelpProfile.setOnAction(e -> handleHelp());
+        updateToggleButtonText();
+
+        initUiBindings();
+
+        // Create the engine thread and input backend now and get the loop JIT-compiled
+        clickEngine.warmUp();
+
+        statusLabel.setText("Status: Off");
+
+        // Registering the native hook and indexing profiles both take a while; let the
+        // window come up first
+        startupThread = new Thread(this::initializeInBackground, "jclicker-startup");
+        startupThread.setDaemon(true);
+        startupThread.start();
+    }
+
+    private void initializeInBackground() {
         try {
             GlobalScreen.registerNativeHook();
         } catch (NativeHookException e) {
@@ -70,32 +181,18 @@ public class Controller implements NativeKeyListener {
         }
         GlobalScreen.addNativeKeyListener(this);
 
-        profileManager = new ProfileManager(getBaseDir());
         try {
             profileManager.init();
             refreshProfileList();
+            reloadProfileHotkeys();
         } catch (IOException e) {
             showErrorDialog("Profile Error",
                     "Failed to initialize profile system.\n" +
                             "Profiles may not be available.\n\n" +
                             "Error: " + e.getMessage());
         }
-
-        mouseButtonCombo.getItems().addAll(
-                ClickType.LEFT,
-                ClickType.RIGHT,
-                ClickType.MIDDLE
-        );
-
-        saveProfile.setOnAction(e -> saveProfile());
-        openBindOptions.setOnAction(e -> handleBinds());
-        openAbout.setOnAction(e -> handleAbout());
-        openHelpProfile.setOnAction(e -> handleHelp());
-        updateToggleButtonText();
-
-        initUiBindings();
-
-        statusLabel.setText("Status: Off");
+        startControlServer();
+        StartupProbe.reached(StartupProbe.Milestone.HOTKEY_READY);
     }
 
     private void initUiBindings() {
@@ -117,8 +214,43 @@ public class Controller implements NativeKeyListener {
             updateRepeatFieldEnabled();
         });
 
+        mouseButtonCombo.valueProperty().addListener((obs, oldVal, newVal) -> refreshConfigSnapshot());
+        for (CheckBox box : List.of(useCurrentBox, useCustomBox, untilStopBox)) {
+            box.selectedProperty().addListener((obs, oldVal, newVal) -> refreshConfigSnapshot());
+        }
+        for (TextField field : List.of(repeatField, delayField, xField, yField)) {
+            // Typing "250" passes through 2 and 25, so a running session only takes the
+            // field's value once it is committed with Enter or by leaving the field
+            field.textProperty().addListener((obs, oldVal, newVal) -> updateConfigSnapshot());
+            field.setOnAction(e -> refreshConfigSnapshot());
+            field.focusedProperty().addListener((obs, oldVal, focused) -> {
+                if (!focused) refreshConfigSnapshot();
+            });
+        }
+
         updateLocationFieldsEnabled();
         updateRepeatFieldEnabled();
+        refreshConfigSnapshot();
+    }
+
+    /** Rebuilds the settings snapshot and applies it to a running session. */
+    private void refreshConfigSnapshot() {
+        if (applyingProfile) return;
+        updateConfigSnapshot();
+        ClickConfig config = configSnapshot.config();
+        // A running session keeps its last valid settings
+        if (config != null && clickEngine.isRunning()) {
+            clickEngine.updateConfig(config);
+        }
+    }
+
+    /** Rebuilds the settings snapshot the next session starts with, leaving a running one alone. */
+    private void updateConfigSnapshot() {
+        if (applyingProfile) return;
+        String validationError = validateConfig();
+        configSnapshot = validationError != null
+                ? new ConfigSnapshot(null, validationError)
+                : new ConfigSnapshot(buildClickConfigFromUi(), null);
     }
 
     private void updateLocationFieldsEnabled() {
@@ -138,30 +270,26 @@ public class Controller implements NativeKeyListener {
     }
 
     private void refreshProfileList() throws IOException {
-        profileCombo.getItems().setAll(profileManager.listProfiles());
+        List<String> names = profileManager.listProfiles();
+        runOnFxThread(() -> profileCombo.getItems().setAll(names));
     }
 
     private ClickConfig buildClickConfigFromUi() {
-        ClickConfig c = new ClickConfig();
-        c.clickType = mouseButtonCombo.getValue();
-        c.repeatUntilStopped = untilStopBox.isSelected();
-        c.repeatTimes = parseIntOrDefault(repeatField.getText(), 0);
-        c.delayMs = parseDoubleOrDefault(delayField.getText(), 100.0);
-        c.useCurrentLocation = useCurrentBox.isSelected();
-        c.useCustomLocation = useCustomBox.isSelected();
-        c.customX = parseIntOrDefault(xField.getText(), 0);
-        c.customY = parseIntOrDefault(yField.getText(), 0);
-        return c;
-    }
-
-    private int getButtonMask(ClickType clickType) {
-        if (clickType == null) return InputEvent.BUTTON1_DOWN_MASK;
-
-        return switch (clickType) {
-            case LEFT -> InputEvent.BUTTON1_DOWN_MASK;
-            case RIGHT -> InputEvent.BUTTON2_DOWN_MASK;
-            case MIDDLE -> InputEvent.BUTTON3_DOWN_MASK;
-        };
+        double targetCps = parseTargetCps(delayField.getText());
+        return ClickConfig.builder()
+                .clickType(mouseButtonCombo.getValue())
+                .repeatUntilStopped(untilStopBox.isSelected())
+                .repeatTimes(parseIntOrDefault(repeatField.getText(), 0))
+                .delayMs(targetCps > 0 ? 1000 / targetCps : parseDoubleOrDefault(delayField.getText(), 100.0))
+                .useCurrentLocation(useCurrentBox.isSelected())
+                .useCustomLocation(useCustomBox.isSelected())
+                .customLocation(parseIntOrDefault(xField.getText(), 0), parseIntOrDefault(yField.getText(), 0))
+                .macro(macro)
+                .trigger(trigger)
+                .target(target)
+                .targetCps(Math.max(0, targetCps))
+                .backend(backend)
+                .build();
     }
 
 
@@ -172,16 +300,66 @@ public class Controller implements NativeKeyListener {
 
         try {
             Profile profile = profileManager.loadProfile(sel);
+            CompiledMacro profileMacro = null;
+            String macroError = null;
+            if (profile.getMacro() != null && !profile.getMacro().isBlank()) {
+                try {
+                    profileMacro = MacroCompiler.compile(profile.getMacro());
+                } catch (IllegalArgumentException e) {
+                    macroError = e.getMessage();
+                }
+            }
+            PixelTrigger profileTrigger = null;
+            String triggerError = null;
+            if (profile.getTrigger() != null && !profile.getTrigger().isBlank()) {
+                try {
+                    profileTrigger = PixelTrigger.parse(profile.getTrigger());
+                } catch (IllegalArgumentException e) {
+                    triggerError = e.getMessage();
+                }
+            }
+            Template profileTarget = null;
+            String targetError = null;
+            if (profile.getTarget() != null && !profile.getTarget().isBlank()) {
+                try {
+                    profileTarget = Template.load(Path.of(profile.getTarget()));
+                } catch (IOException | IllegalArgumentException e) {
+                    targetError = e.getMessage();
+                }
+            }
 
-            mouseButtonCombo.setValue(profile.getClickType());
-            useCurrentBox.setSelected(profile.isUseCurrentLocation());
-            useCustomBox.setSelected(profile.isUseCustomLocation());
-            untilStopBox.setSelected(profile.isRepeatTilStopped());
+            ClickBackend profileBackend = null;
+            String backendError = null;
+            if (profile.getBackend() != null && !profile.getBackend().isBlank()) {
+                try {
+                    profileBackend = ClickBackends.find(profile.getBackend());
+                } catch (IllegalArgumentException e) {
+                    backendError = e.getMessage();
+                }
+            }
 
-            xField.setText(String.valueOf(profile.getCustomX()));
-            yField.setText(String.valueOf(profile.getCustomY()));
-            repeatField.setText(String.valueOf(profile.getRepeatTimes()));
-            delayField.setText(String.valueOf(profile.getDelayMS()));
+            applyingProfile = true;
+            try {
+                mouseButtonCombo.setValue(profile.getClickType());
+                useCurrentBox.setSelected(profile.isUseCurrentLocation());
+                useCustomBox.setSelected(profile.isUseCustomLocation());
+                untilStopBox.setSelected(profile.isRepeatTilStopped());
+
+                xField.setText(String.valueOf(profile.getCustomX()));
+                yField.setText(String.valueOf(profile.getCustomY()));
+                repeatField.setText(String.valueOf(profile.getRepeatTimes()));
+                delayField.setText(profile.getTargetCps() > 0
+                        ? formatNumber(profile.getTargetCps()) + " " + CPS_SUFFIX
+                        : String.valueOf(profile.getDelayMS()));
+                macro = profileMacro;
+                trigger = profileTrigger;
+                target = profileTarget;
+                backend = profileBackend;
+            } finally {
+                applyingProfile = false;
+            }
+            // Publishes the whole profile at once, hot-swapping it into a running session
+            refreshConfigSnapshot();
 
             toggleKey = profile.getToggleBind();
             updateToggleButtonText();
@@ -190,6 +368,18 @@ public class Controller implements NativeKeyListener {
 
             profileLabel.setText("Profile Loaded: " + profile.getName());
             statusLabel.setText("Status: Profile loaded");
+            if (macroError != null) {
+                showErrorDialog("Macro Error", "The macro saved with " + sel + " was ignored.\n\n" + macroError);
+            }
+            if (triggerError != null) {
+                showErrorDialog("Trigger Error", "The trigger saved with " + sel + " was ignored.\n\n" + triggerError);
+            }
+            if (targetError != null) {
+                showErrorDialog("Target Error", "The target image saved with " + sel + " was ignored.\n\n" + targetError);
+            }
+            if (backendError != null) {
+                showErrorDialog("Input Backend Error", "The input backend saved with " + sel + " was ignored.\n\n" + backendError);
+            }
 
         } catch (IOException e) {
             showErrorDialog("Load Profile Error",
@@ -228,7 +418,7 @@ public class Controller implements NativeKeyListener {
                 continue;
             }
 
-            if (profileManager.containsProfile(name)) {
+            if (profileManager.containsProfile(name) || profileWriter.isPending(name)) {
                 showErrorDialog("Profile Exists",
                         "A profile with that name already exists.\n" +
                                 "Please choose a different name.");
@@ -246,8 +436,9 @@ public class Controller implements NativeKeyListener {
         p.setCustomX(x);
         p.setCustomY(y);
 
-        double delayMS = parseDoubleOrDefault(delayField.getText(), 100.0);
-        p.setDelayMS(delayMS);
+        double targetCps = Math.max(0, parseTargetCps(delayField.getText()));
+        p.setTargetCps(targetCps);
+        p.setDelayMS(targetCps > 0 ? 1000 / targetCps : parseDoubleOrDefault(delayField.getText(), 100.0));
 
         int repeatTimes = parseIntOrDefault(repeatField.getText(), 0);
         p.setRepeatTimes(repeatTimes);
@@ -256,16 +447,34 @@ public class Controller implements NativeKeyListener {
         p.setUseCurrentLocation(useCurrentBox.isSelected());
         p.setUseCustomLocation(useCustomBox.isSelected());
         p.setToggleBind(toggleKey);
-
-        try {
-            profileManager.saveProfile(name, p);
-            refreshProfileList();
-            statusLabel.setText("Status: Profile saved");
-        } catch (IOException e) {
-            showErrorDialog("Save Profile Error",
-                    "Failed to save profile: " + name + "\n\n" +
-                            "Error: " + e.getMessage());
-        }
+        // A loaded recording has no macro text and stays out of the profile
+        p.setMacro(macro == null ? null : macro.source());
+        p.setTrigger(trigger == null ? null : trigger.toString());
+        p.setTarget(target == null ? null : target.getSource());
+        p.setBackend(backend == null ? null : backend.name());
+
+        String savedName = name;
+        statusLabel.setText("Status: Saving profile...");
+        profileWriter.save(name, p).whenComplete((ignored, error) -> {
+            if (error instanceof CancellationException) return; // Deleted before it was written
+            if (error != null) {
+                showErrorDialog("Save Profile Error",
+                        "Failed to save profile: " + savedName + "\n\n" +
+                                "Error: " + error.getMessage());
+                return;
+            }
+            boolean hotkeyTaken = profileHotkeys.update(savedName, p);
+            runOnFxThread(() -> {
+                try {
+                    refreshProfileList();
+                } catch (IOException e) {
+                    // The profile is saved; the list catches up on the next refresh
+                }
+                statusLabel.setText(hotkeyTaken
+                        ? "Status: Profile saved, hotkey already used, ignored for " + savedName
+                        : "Status: Profile saved");
+            });
+        });
     }
 
     private int parseIntOrDefault(String text, int def) {
@@ -284,6 +493,25 @@ public class Controller implements NativeKeyListener {
         }
     }
 
+    /**
+     * The rate in a delay field that reads like {@code 25 cps}: 0 for a plain delay, -1 if
+     * it ends in cps but the number is not a usable rate.
+     */
+    private static double parseTargetCps(String text) {
+        String s = text.trim().toLowerCase(Locale.ROOT);
+        if (!s.endsWith(CPS_SUFFIX)) return 0;
+        try {
+            double cps = Double.parseDouble(s.substring(0, s.length() - CPS_SUFFIX.length()).trim());
+            return cps > 0 && !Double.isInfinite(cps) ? cps : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String formatNumber(double value) {
+        return value == Math.rint(value) ? Long.toString((long) value) : Double.toString(value);
+    }
+
     private void handleAbout() {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("About");
@@ -313,7 +541,44 @@ public class Controller implements NativeKeyListener {
                 Profiles:
                   - Save different combinations of click type, repeat, location, and delay.
                   - Toggle key is also stored per profile.
-                """;
+                
+                Macros (Edit > Macro):
+                  - Replace the single click with a sequence of clicks, moves and waits.
+                  - The repeat settings then count whole passes through the macro.
+
+                Rate:
+                  - The delay field takes milliseconds between clicks, or a rate
+                    such as '25 cps'. With a rate, JClicker measures the clicks it
+                    actually gets and adjusts the delay until they match; the status
+                    tooltip shows the remaining rate error.
+
+                Triggers (Edit > Trigger):
+                  - Only click while something is on screen: a pixel colour,
+                    a region that just changed, or a region that stopped changing.
+                  - Clicks that fall due while the trigger does not match are skipped.
+
+                Targets (Edit > Target):
+                  - Pick a small screenshot of what to click; each click looks for it
+                    on screen and clicks its centre instead of a fixed location.
+                  - Clicks are skipped while it cannot be found.
+
+                Input backend (Edit > Input Backend):
+                  - Choose how clicks reach the OS: AWT Robot (the default) or
+                    JNativeHook. Benchmark measures each one on this machine
+                    and selects the fastest. The choice applies from the next start.
+
+                Rate limit:
+                  - All clicking together is capped at %s, so even a zero delay
+                    cannot flood the desktop. Clicks over the limit are skipped
+                    and counted as throttled in the status tooltip. Start with
+                    -Djclicker.maxCps=<n> or -Djclicker.maxButtonCps=<n> to
+                    change the limits, 0 for none.
+
+                Scripting:
+                  - While JClicker runs, send commands to the control.sock socket
+                    in the profile folder, one per line: start, stop,
+                    load-profile <name>, update-delay <ms>, get-stats.
+                """.formatted(clickGovernor);
 
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Profile Help");
@@ -367,100 +632,440 @@ public class Controller implements NativeKeyListener {
     }
 
 
-    private Path getBaseDir() {
-        String appData = System.getenv("APPDATA");
-        Path base;
+    /**
+     * Binds the selected profile to the next key combination the user presses anywhere;
+     * Escape removes the binding.
+     */
+    private void handleProfileHotkey() {
+        String selected = profileCombo.getValue();
+        if (selected == null || selected.isEmpty() || !profileManager.containsProfile(selected)) {
+            showErrorDialog("Profile Hotkey", "Select a saved profile first.");
+            return;
+        }
 
-        if (appData != null && !appData.isBlank()) {
-            base = Paths.get(appData, "JClicker");
-        } else {
-            base = Paths.get(System.getProperty("user.home"), ".jclicker");
+        Alert prompt = new Alert(Alert.AlertType.NONE, "", ButtonType.CANCEL);
+        prompt.setTitle("Profile Hotkey");
+        prompt.setHeaderText("Press the hotkey for \"" + selected + "\"");
+        prompt.setContentText("Modifiers (Ctrl, Alt, Shift, Meta) can be combined with any key.\nEscape removes the hotkey.");
+
+        CompletableFuture<Integer> capture = new CompletableFuture<>();
+        capture.thenAccept(hotkey -> Platform.runLater(() -> {
+            prompt.setResult(ButtonType.OK);
+            prompt.close();
+            bindProfileHotkey(selected, hotkey);
+        }));
+        hotkeyCapture = capture;
+        try {
+            prompt.showAndWait();
+        } finally {
+            hotkeyCapture = null;
+            capture.cancel(false);
         }
+    }
 
+    private void bindProfileHotkey(String profileName, int hotkey) {
+        Profile profile;
         try {
-            Files.createDirectories(base);
+            profile = profileManager.loadProfile(profileName);
         } catch (IOException e) {
-            base = Paths.get("").toAbsolutePath();
+            showErrorDialog("Profile Hotkey", "Failed to load profile: " + profileName + "\n\nError: " + e.getMessage());
+            return;
         }
-
-        return base;
+        profile.setHotkey(hotkey);
+        profileWriter.save(profileName, profile).whenComplete((ignored, error) -> {
+            if (error instanceof CancellationException) return; // Deleted before it was written
+            if (error != null) {
+                showErrorDialog("Profile Hotkey", "Failed to save profile: " + profileName + "\n\nError: " + error.getMessage());
+                return;
+            }
+            boolean hotkeyTaken = profileHotkeys.update(profileName, profile);
+            runOnFxThread(() -> statusLabel.setText(hotkey == Hotkeys.NONE
+                    ? "Status: Hotkey removed from " + profileName
+                    : hotkeyTaken
+                    ? "Status: " + Hotkeys.toString(hotkey) + " is already used, ignored for " + profileName
+                    : "Status: " + Hotkeys.toString(hotkey) + " toggles " + profileName));
+        });
     }
 
+    /**
+     * Edits the macro that replaces the single click. Leaving the text empty goes back to
+     * plain clicking.
+     */
+    private void handleMacro() {
+        TextArea editor = new TextArea(macro == null || macro.source() == null ? "" : macro.source());
+        editor.setPrefRowCount(14);
+        editor.setPromptText("click left at 100 200\nwait 50\nloop 3\n  click right\n  wait 10\nend");
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Macro");
+        dialog.setHeaderText("One step per line: click, press, release, move, wait, loop N ... end");
+        dialog.getDialogPane().setContent(editor);
+        dialog.getDialogPane().getButtonTypes().setAll(ButtonType.OK, ButtonType.CANCEL);
+
+        // Keep the dialog open until the text compiles
+        Button ok = (Button) dialog.getDialogPane().lookupButton(ButtonType.OK);
+        CompiledMacro[] compiled = new CompiledMacro[1];
+        ok.addEventFilter(ActionEvent.ACTION, event -> {
+            String text = editor.getText();
+            if (text.isBlank()) {
+                compiled[0] = null;
+                return;
+            }
+            try {
+                compiled[0] = MacroCompiler.compile(text);
+            } catch (IllegalArgumentException e) {
+                showErrorDialog("Macro Error", e.getMessage());
+                event.consume();
+            }
+        });
+
+        if (dialog.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
+        macro = compiled[0];
+        refreshConfigSnapshot();
+        statusLabel.setText(macro == null
+                ? "Status: Macro cleared"
+                : "Status: Macro set, " + macro.length() + " steps");
+    }
 
+    /**
+     * Edits the screen trigger clicking waits for. Leaving the text empty clicks
+     * unconditionally again.
+     */
+    private void handleTrigger() {
+        TextField editor = new TextField(trigger == null ? "" : trigger.toString());
+        editor.setPromptText("color 640 360 #ff0000 tolerance 8");
+        editor.setPrefColumnCount(36);
+
+        LatencyHistogram.Snapshot cost = triggerMonitor.getCaptureCost().snapshot();
+        Label help = new Label("color <x> <y> <#rrggbb> [tolerance <0-255>] [every <ms>]\n"
+                + "changed <x> <y> <width> <height> [every <ms>]\n"
+                + "stable <x> <y> <width> <height> <ms> [every <ms>]\n\n"
+                + (cost.count() == 0 ? "No captures yet."
+                : String.format("Capture cost: %.2f ms typical, %.2f ms p99 over %d captures.",
+                        cost.p50() / 1e6, cost.p99() / 1e6, cost.count())));
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Trigger");
+        dialog.setHeaderText("Only click while the screen shows...");
+        dialog.getDialogPane().setContent(new VBox(8, editor, help));
+        dialog.getDialogPane().getButtonTypes().setAll(ButtonType.OK, ButtonType.CANCEL);
+
+        // Keep the dialog open until the text parses
+        Button ok = (Button) dialog.getDialogPane().lookupButton(ButtonType.OK);
+        PixelTrigger[] parsed = new PixelTrigger[1];
+        ok.addEventFilter(ActionEvent.ACTION, event -> {
+            String text = editor.getText();
+            if (text.isBlank()) {
+                parsed[0] = null;
+                return;
+            }
+            try {
+                parsed[0] = PixelTrigger.parse(text);
+            } catch (IllegalArgumentException e) {
+                showErrorDialog("Trigger Error", e.getMessage());
+                event.consume();
+            }
+        });
 
-    @FXML
-    public void onToggleButtonAction() {
-        performToggle();
+        if (dialog.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
+        trigger = parsed[0];
+        refreshConfigSnapshot();
+        statusLabel.setText(trigger == null
+                ? "Status: Trigger cleared"
+                : "Status: Clicking waits for " + trigger);
     }
 
-    private void performToggle() {
-        if (!toggled) {
-            String validationError = validateConfig();
-            if (validationError != null) {
-                statusLabel.setText("Status: " + validationError);
+    /**
+     * Picks the image clicks look for, copying it into the targets directory so the
+     * profile keeps working if the original moves. With a target already set, offers to
+     * clear it instead.
+     */
+    private void handleTarget() {
+        if (target != null) {
+            ButtonType choose = new ButtonType("Choose Image...");
+            ButtonType clear = new ButtonType("Clear");
+            Alert alert = new Alert(Alert.AlertType.CONFIRMATION,
+                    "Clicks currently look for " + Path.of(target.getSource()).getFileName() + ".",
+                    choose, clear, ButtonType.CANCEL);
+            alert.setTitle("Target");
+            alert.setHeaderText(null);
+            ButtonType answer = alert.showAndWait().orElse(ButtonType.CANCEL);
+            if (answer == clear) {
+                target = null;
+                refreshConfigSnapshot();
+                statusLabel.setText("Status: Target cleared");
                 return;
             }
+            if (answer != choose) return;
+        }
 
-            ClickConfig config = buildClickConfigFromUi();
-            toggled = true;
-            clicking = true;
-            updateToggleButtonText();
-            statusLabel.setText("Status: On");
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Choose Target Image");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Images", "*.png", "*.bmp", "*.jpg", "*.gif"));
+        File chosen = chooser.showOpenDialog(menuBar.getScene().getWindow());
+        if (chosen == null) return;
 
-            startClicker(config);
-        } else {
-            clicking = false;
-            toggled = false;
-            updateToggleButtonText();
-            statusLabel.setText("Status: Off");
+        try {
+            Path dir = getBaseDir().resolve("targets");
+            Files.createDirectories(dir);
+            Path copy = dir.resolve(chosen.getName());
+            if (!Files.exists(copy) || !Files.isSameFile(copy, chosen.toPath())) {
+                Files.copy(chosen.toPath(), copy, StandardCopyOption.REPLACE_EXISTING);
+            }
+            target = Template.load(copy);
+        } catch (IOException | IllegalArgumentException e) {
+            showErrorDialog("Target Error", "Failed to use " + chosen.getName() + " as the target.\n\nError: " + e.getMessage());
+            return;
         }
+        refreshConfigSnapshot();
+        statusLabel.setText("Status: Clicking on " + chosen.getName()
+                + " (" + target.getWidth() + "x" + target.getHeight() + ")");
     }
 
-    private void startClicker(ClickConfig config) {
-        clickExecutor.submit(() -> {
-            try {
-                Robot robot = new Robot();
-                int buttonMask = getButtonMask(config.clickType);
+    /**
+     * Picks the input backend clicks go through. Benchmark measures every backend on a
+     * background thread and selects the one it recommends. Choosing the default backend
+     * stores none, so the profile follows the default.
+     */
+    private void handleBackend() {
+        ChoiceBox<String> choice = new ChoiceBox<>();
+        for (ClickBackend b : ClickBackends.all()) choice.getItems().add(b.name());
+        choice.setValue(backend == null ? ClickBackends.DEFAULT : backend.name());
+        Label description = new Label();
+        choice.valueProperty().addListener((obs, oldVal, newVal) ->
+                description.setText(ClickBackends.find(newVal).description()));
+        description.setText(ClickBackends.find(choice.getValue()).description());
+
+        Label results = new Label("Benchmark posts pointer moves to where the pointer already is; nothing is clicked.");
+        results.setStyle("-fx-font-family: monospace;");
+        Button benchmark = new Button("Benchmark");
+        benchmark.setOnAction(e -> {
+            benchmark.setDisable(true);
+            results.setText("Measuring...");
+            Thread worker = new Thread(() -> {
+                List<BackendBenchmark.Result> measured = BackendBenchmark.run(ClickBackends.all(), BackendBenchmark.DEFAULT_EVENTS);
+                BackendBenchmark.Result best = BackendBenchmark.recommend(measured);
+                runOnFxThread(() -> {
+                    results.setText(BackendBenchmark.report(measured));
+                    if (best != null) choice.setValue(best.backend().name());
+                    benchmark.setDisable(false);
+                });
+            }, "jclicker-backend-benchmark");
+            worker.setDaemon(true);
+            worker.start();
+        });
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Input Backend");
+        dialog.setHeaderText("Send clicks through...");
+        dialog.getDialogPane().setContent(new VBox(8, choice, description, benchmark, results));
+        dialog.getDialogPane().getButtonTypes().setAll(ButtonType.OK, ButtonType.CANCEL);
+
+        if (dialog.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
+        String chosen = choice.getValue();
+        backend = chosen.equals(ClickBackends.DEFAULT) ? null : ClickBackends.find(chosen);
+        refreshConfigSnapshot();
+        statusLabel.setText("Status: Clicking through " + chosen
+                + (clickEngine.isRunning() ? " from the next start" : ""));
+    }
+
+    /**
+     * Starts or stops capturing mouse and keyboard input to a new file in the recordings
+     * directory.
+     */
+    private void handleToggleRecording() {
+        if (inputRecorder.isRecording()) {
+            stopRecording();
+            return;
+        }
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path target = getRecordingsDir().resolve("recording-" + stamp + InputLog.EXTENSION);
+        try {
+            inputRecorder.start(target);
+        } catch (IOException e) {
+            showErrorDialog("Recording Error", "Failed to start recording.\n\nError: " + e.getMessage());
+            return;
+        }
+        GlobalScreen.addNativeMouseListener(inputRecorder);
+        GlobalScreen.addNativeMouseMotionListener(inputRecorder);
+        GlobalScreen.addNativeKeyListener(inputRecorder);
+        toggleRecording.setText("Stop Recording");
+        statusLabel.setText("Status: Recording input...");
+    }
+
+    private void stopRecording() {
+        GlobalScreen.removeNativeMouseListener(inputRecorder);
+        GlobalScreen.removeNativeMouseMotionListener(inputRecorder);
+        GlobalScreen.removeNativeKeyListener(inputRecorder);
+        toggleRecording.setText("Start Recording");
+        try {
+            InputRecorder.Summary summary = inputRecorder.stop();
+            if (summary == null) return;
+            statusLabel.setText("Status: Recorded " + summary.events() + " events to " + summary.file().getFileName()
+                    + (summary.dropped() > 0 ? " (" + summary.dropped() + " dropped)" : ""));
+        } catch (IOException e) {
+            showErrorDialog("Recording Error", "Failed to write recording.\n\nError: " + e.getMessage());
+        }
+    }
 
-                int count = 0;
+    /**
+     * Loads a recording as the current macro, so the toggle key replays it with the
+     * recorded timing.
+     */
+    private void handleLoadRecording() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Load Recording");
+        chooser.setInitialDirectory(getRecordingsDir().toFile());
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("JClicker recordings", "*" + InputLog.EXTENSION));
+        File chosen = chooser.showOpenDialog(menuBar.getScene().getWindow());
+        if (chosen == null) return;
 
-                while (clicking) {
-                    if (!config.repeatUntilStopped && count >= config.repeatTimes) {
-                        break;
-                    }
+        try {
+            macro = InputLog.toMacro(chosen.toPath());
+        } catch (IOException e) {
+            showErrorDialog("Load Recording Error", "Failed to load recording: " + chosen.getName() + "\n\nError: " + e.getMessage());
+            return;
+        }
+        refreshConfigSnapshot();
+        statusLabel.setText("Status: Loaded " + chosen.getName() + ", toggle to replay");
+    }
 
-                    if (config.useCustomLocation) {
-                        robot.mouseMove(config.customX, config.customY);
-                    }
+    private Path getRecordingsDir() {
+        Path dir = getBaseDir().resolve("recordings");
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            // FileChooser and the recorder report the problem if the directory is unusable
+        }
+        return dir;
+    }
+
+    /** Preloads every profile that has its own hotkey. */
+    private void reloadProfileHotkeys() {
+        try {
+            List<String> conflicts = profileHotkeys.reload(profileManager);
+            if (!conflicts.isEmpty()) {
+                runOnFxThread(() -> statusLabel.setText(
+                        "Status: Hotkey already used, ignored for " + String.join(", ", conflicts)));
+            }
+        } catch (IOException e) {
+            showErrorDialog("Profile Hotkey", "Failed to load profile hotkeys.\n\nError: " + e.getMessage());
+        }
+    }
 
-                    robot.mousePress(buttonMask);
-                    robot.mouseRelease(buttonMask);
+    private void startControlServer() {
+        ControlServer server = new ControlServer(clickEngine, profileManager, () -> configSnapshot.config(),
+                this::onSessionFinished, this::onRemoteStart);
+        try {
+            server.start(getBaseDir().resolve(ControlServer.SOCKET_NAME));
+            controlServer = server;
+        } catch (IOException | UnsupportedOperationException e) {
+            // Another instance owns the socket, or the platform has no Unix domain sockets;
+            // everything but scripting still works
+        }
+    }
 
-                    count++;
+    /** A script started the engine; catch the UI up. */
+    private void onRemoteStart() {
+        Platform.runLater(() -> {
+            toggled = clickEngine.isRunning();
+            updateToggleButtonText();
+            if (toggled) {
+                statusLabel.setText("Status: On");
+                statusTimer.start();
+            }
+        });
+    }
 
-                    long sleepMillis = (long) config.delayMs;
-                    if (sleepMillis < 1) {
-                        sleepMillis = 1;
-                    }
+    private Path getBaseDir() {
+        return ProfileStore.defaultBaseDir();
+    }
 
-                    Thread.sleep(sleepMillis);
-                }
-            } catch (Exception ex) {
-                Platform.runLater(() ->
-                        statusLabel.setText("Status: Error: " + ex.getMessage()));
-            } finally {
-                clicking = false;
-                toggled = false;
-                Platform.runLater(() -> {
-                    updateToggleButtonText();
-                    if (!statusLabel.getText().startsWith("Status: Error")) {
-                        statusLabel.setText("Status: Off");
-                    }
-                });
+
+
+    @FXML
+    public void onToggleButtonAction() {
+        requestToggle(System.nanoTime());
+    }
+
+    /**
+     * Toggles the engine straight from the calling thread using the last validated
+     * config snapshot; the UI catches up asynchronously.
+     *
+     * @param triggerNanos when the toggle was requested, used to measure hotkey-to-first-click latency
+     */
+    private void requestToggle(long triggerNanos) {
+        ConfigSnapshot snapshot = configSnapshot;
+        if (snapshot.config() == null && !clickEngine.isRunning()) {
+            runOnFxThread(() -> statusLabel.setText("Status: " + snapshot.validationError()));
+            return;
+        }
+
+        boolean started = clickEngine.toggle(snapshot.config(), this::onSessionFinished, triggerNanos);
+        runOnFxThread(() -> {
+            // A short session may already be over by the time the UI gets here
+            toggled = started && clickEngine.isRunning();
+            updateToggleButtonText();
+            if (toggled) {
+                statusLabel.setText("Status: On");
+                statusTimer.start();
+            } else {
+                showFinalStats();
+            }
+        });
+    }
+
+    private void onSessionFinished(long clicks, Exception error) {
+        Platform.runLater(() -> {
+            if (error != null) {
+                statusLabel.setText("Status: Error: " + error.getMessage());
+            }
+            // A newer session may already be running if the user toggled quickly
+            if (clickEngine.isRunning()) {
+                return;
+            }
+            toggled = false;
+            updateToggleButtonText();
+            if (!statusLabel.getText().startsWith("Status: Error")) {
+                showFinalStats();
+            } else {
+                statusTimer.stop();
             }
         });
     }
 
+    private static void runOnFxThread(Runnable r) {
+        if (Platform.isFxApplicationThread()) {
+            r.run();
+        } else {
+            Platform.runLater(r);
+        }
+    }
+
+    private void updateLiveStats() {
+        if (!toggled) return;
+        ClickStatus status = clickEngine.getTelemetry().getStatus();
+        long now = System.nanoTime();
+        statusLabel.setText(String.format("Status: On | %d clicks | %.1fs | %.1f CPS | late %s",
+                status.getClicks(), status.getElapsedNanos(now) / 1e9, status.getAchievedCps(),
+                ClickTelemetry.Snapshot.formatNanos(status.getLastLatenessNanos())));
+
+        // The full summary walks every histogram; a couple of times a second is plenty
+        if (now - tooltipUpdatedNanos >= TOOLTIP_REFRESH_NANOS) {
+            tooltipUpdatedNanos = now;
+            statsTooltip.setText(clickEngine.getTelemetry().snapshot().toStatusString());
+            statusLabel.setTooltip(statsTooltip);
+        }
+    }
+
+    private void showFinalStats() {
+        statusTimer.stop();
+        ClickTelemetry.Snapshot stats = clickEngine.getTelemetry().snapshot();
+        statusLabel.setText(String.format("Status: Off | %d clicks @ %.1f CPS", stats.clicks(), stats.achievedCps()));
+        statsTooltip.setText(stats.toStatusString());
+        statusLabel.setTooltip(statsTooltip);
+    }
+
 
     private String validateConfig() {
 
@@ -475,6 +1080,10 @@ public class Controller implements NativeKeyListener {
             return "Set repeat count or enable 'until stopped'";
         }
 
+        if (parseTargetCps(delayField.getText()) < 0) {
+            return "Set the rate as clicks per second, e.g. 25 cps";
+        }
+
         boolean useCurrent = useCurrentBox.isSelected();
         boolean useCustom = useCustomBox.isSelected();
 
@@ -496,8 +1105,23 @@ public class Controller implements NativeKeyListener {
 
     @Override
     public void nativeKeyPressed(NativeKeyEvent e) {
+        CompletableFuture<Integer> capture = hotkeyCapture;
+        if (capture != null) {
+            if (!Hotkeys.isModifierKey(e.getKeyCode())) {
+                capture.complete(e.getKeyCode() == NativeKeyEvent.VC_ESCAPE ? Hotkeys.NONE : Hotkeys.of(e));
+            }
+            return;
+        }
+
+        ProfileHotkeys.Binding binding = profileHotkeys.toggle(Hotkeys.of(e));
+        if (binding != null) {
+            boolean running = binding.isRunning();
+            runOnFxThread(() -> statusLabel.setText("Status: " + binding.profileName() + (running ? " On" : " Off")));
+            return;
+        }
+
         if (e.getKeyCode() == toggleKey) {
-            Platform.runLater(this::performToggle);
+            requestToggle(System.nanoTime());
         }
     }
 
@@ -506,21 +1130,29 @@ public class Controller implements NativeKeyListener {
     public void onDeleteProfileClicked() {
         String selected = profileCombo.getValue();
         if (selected == null || selected.isEmpty()) return;
-        if (!profileManager.containsProfile(selected)) return;
-
-        try {
-            profileManager.deleteProfile(selected);
-            refreshProfileList();
-            statusLabel.setText("Status: Profile deleted");
-        } catch (RuntimeException e) {
-            showErrorDialog("Delete Profile Error",
-                    "Failed to delete profile: " + selected + "\n\n" +
-                            "Error: " + e.getMessage());
-        } catch (IOException e) {
-            showErrorDialog("Refresh Error",
-                    "Profile deleted but failed to refresh list.\n\n" +
-                            "Error: " + e.getMessage());
-        }
+        if (!profileManager.containsProfile(selected) && !profileWriter.isPending(selected)) return;
+
+        // Through the writer, so a save still waiting to be written cannot bring the profile back
+        statusLabel.setText("Status: Deleting profile...");
+        profileWriter.delete(selected).whenComplete((ignored, error) -> {
+            if (error != null) {
+                showErrorDialog("Delete Profile Error",
+                        "Failed to delete profile: " + selected + "\n\n" +
+                                "Error: " + error.getMessage());
+                return;
+            }
+            profileHotkeys.update(selected, null);
+            runOnFxThread(() -> {
+                try {
+                    refreshProfileList();
+                    statusLabel.setText("Status: Profile deleted");
+                } catch (IOException e) {
+                    showErrorDialog("Refresh Error",
+                            "Profile deleted but failed to refresh list.\n\n" +
+                                    "Error: " + e.getMessage());
+                }
+            });
+        });
     }
 
     private boolean isValidProfileName(String name) {
@@ -572,23 +1204,31 @@ public class Controller implements NativeKeyListener {
      * Should be called from App class on stage close.
      */
     public void cleanup() {
-        // Stop clicking if active
-        clicking = false;
+        // Stop clicking if active and shut the engine thread down
         toggled = false;
-
-        // Shutdown executor service
-        if (clickExecutor != null && !clickExecutor.isShutdown()) {
-            clickExecutor.shutdown();
+        if (startupThread != null) {
             try {
-                // Wait a short time for tasks to complete
-                if (!clickExecutor.awaitTermination(1, java.util.concurrent.TimeUnit.SECONDS)) {
-                    clickExecutor.shutdownNow();
-                }
+                startupThread.join(2000);
             } catch (InterruptedException e) {
-                clickExecutor.shutdownNow();
                 Thread.currentThread().interrupt();
             }
         }
+        if (inputRecorder.isRecording()) {
+            stopRecording();
+        }
+        if (controlServer != null) {
+            controlServer.close();
+        }
+        clickEngine.shutdown();
+        profileEngine.shutdown();
+        triggerMonitor.close();
+
+        if (profileWriter != null) {
+            profileWriter.close();
+        }
+        if (profileManager != null) {
+            profileManager.close();
+        }
 
         // Unregister native hook
         try {
@@ -599,15 +1239,5 @@ public class Controller implements NativeKeyListener {
         }
     }
 
-    private static class ClickConfig {
-        ClickType clickType;
-        boolean repeatUntilStopped;
-        int repeatTimes;
-        double delayMs;
-        boolean useCurrentLocation;
-        boolean useCustomLocation;
-        int customX;
-        int customY;
-    }
-
-}
+    private record ConfigSnapshot(ClickConfig config, String validationError) {}
+}
\ No newline at end of file
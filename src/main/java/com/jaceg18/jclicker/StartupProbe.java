@@ -0,0 +1,53 @@
+package com.jaceg18.jclicker;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.Locale;
+
+/**
+ * Startup milestones, timed from process start.
+ * <p>
+ * Run with {@code -Djclicker.startupProbe=<milestone>} to print a line per milestone as it
+ * is reached ({@code startup first-frame 412 ms}) and exit once the named one is; {@code all}
+ * waits for every milestone. The startup benchmark and the CDS training run use this to
+ * time and exercise a real launch. Without the property, {@link #reached} does nothing.
+ */
+final class StartupProbe {
+
+    static final String PROPERTY = "jclicker.startupProbe";
+
+    enum Milestone {
+        /** The window's first frame has been laid out. */
+        FIRST_FRAME,
+        /** The native hook is listening and every profile hotkey is loaded. */
+        HOTKEY_READY;
+
+        String label(){
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    private static final String TARGET = System.getProperty(PROPERTY);
+    private static final EnumSet<Milestone> REACHED = EnumSet.noneOf(Milestone.class);
+
+    private StartupProbe(){}
+
+    static void reached(Milestone milestone){
+        if (TARGET == null) return;
+        boolean done;
+        synchronized (REACHED) {
+            if (!REACHED.add(milestone)) return;
+            long millis = ProcessHandle.current().info().startInstant()
+                    .map(start -> Duration.between(start, Instant.now()).toMillis())
+                    .orElse(-1L);
+            System.out.println("startup " + milestone.label() + " " + millis + " ms");
+            System.out.flush();
+            done = TARGET.equals("all") ? REACHED.size() == Milestone.values().length
+                    : TARGET.equals(milestone.label());
+        }
+        if (done) {
+            System.exit(0);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.jaceg18.jclicker.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind front for a {@link ProfileStore}: saves return immediately and are written
+ * on a background thread.
+ * <p>
+ * Saves are held for a short coalescing window. Saving the same profile again inside the
+ * window replaces the pending copy and returns the same future, so only the last version
+ * is written. Everything pending when the window closes goes to the store as one
+ * {@link ProfileStore#saveProfiles(Map)} batch.
+ * <p>
+ * Deletes go through the same thread, so a save still waiting in the window cannot land
+ * after the delete and bring the profile back.
+ */
+public class AsyncProfileWriter implements AutoCloseable {
+
+    public static final long DEFAULT_COALESCE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final ProfileStore store;
+    private final long coalesceNanos;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "jclicker-profile-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Guarded by this. Keyed case-insensitively, the way stores look names up
+    private final Map<String, Pending> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    public AsyncProfileWriter(ProfileStore store){
+        this(store, DEFAULT_COALESCE_NANOS);
+    }
+
+    public AsyncProfileWriter(ProfileStore store, long coalesceNanos){
+        this.store = store;
+        this.coalesceNanos = Math.max(0, coalesceNanos);
+    }
+
+    /**
+     * Queues {@code profile} to be saved under {@code name}. The profile is copied, so the
+     * caller may keep modifying it.
+     *
+     * @return completes once the profile is on disk, or exceptionally if the write failed
+     */
+    public synchronized CompletableFuture<Void> save(String name, Profile profile){
+        CompletableFuture<Void> future = enqueue(name, profile);
+        if (scheduledFlush == null) {
+            scheduledFlush = executor.schedule(this::writePending, coalesceNanos, TimeUnit.NANOSECONDS);
+        }
+        return future;
+    }
+
+    /**
+     * Queues all {@code profiles} and writes them, together with anything else pending,
+     * in one batch without waiting for the coalescing window.
+     */
+    public synchronized CompletableFuture<Void> saveAll(Map<String, Profile> profiles){
+        List<CompletableFuture<Void>> futures = new ArrayList<>(profiles.size());
+        profiles.forEach((name, profile) -> futures.add(enqueue(name, profile)));
+        flush();
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Writes everything pending now.
+     *
+     * @return completes once the batch has been handed to the store
+     */
+    public synchronized CompletableFuture<Void> flush(){
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return CompletableFuture.runAsync(this::writePending, executor);
+    }
+
+    /**
+     * Deletes {@code name} on the writer thread, after any write already under way. A save
+     * of it still waiting in the coalescing window is dropped and its future cancelled.
+     *
+     * @return completes once the profile is gone from the store
+     */
+    public synchronized CompletableFuture<Void> delete(String name){
+        Pending dropped = pending.remove(key(name));
+        if (dropped != null) {
+            dropped.future.cancel(false);
+        }
+        return CompletableFuture.runAsync(() -> store.deleteProfile(name), executor);
+    }
+
+    /** Whether a save for {@code name} is queued but not yet being written. */
+    public synchronized boolean isPending(String name){
+        return name != null && pending.containsKey(key(name));
+    }
+
+    private static String key(String name){
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /** A later save under another spelling of the name replaces the pending one, name included. */
+    private CompletableFuture<Void> enqueue(String name, Profile profile){
+        Pending p = pending.computeIfAbsent(key(name), k -> new Pending());
+        p.name = name;
+        p.profile = new Profile(profile);
+        p.profile.setName(name);
+        return p.future;
+    }
+
+    private void writePending(){
+        Map<String, Pending> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) return;
+            batch = new LinkedHashMap<>(pending);
+            pending.clear();
+            scheduledFlush = null;
+        }
+
+        Map<String, Profile> profiles = new LinkedHashMap<>();
+        batch.values().forEach(p -> profiles.put(p.name, p.profile));
+        try {
+            store.saveProfiles(profiles);
+        } catch (Exception e) {
+            batch.values().forEach(p -> p.future.completeExceptionally(e));
+            return;
+        }
+        batch.values().forEach(p -> p.future.complete(null));
+    }
+
+    /**
+     * Writes whatever is still pending and stops the writer thread. Does not close the store.
+     */
+    @Override
+    public void close() {
+        if (executor.isShutdown()) return;
+        flush();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Pending {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        String name;
+        Profile profile;
+    }
+}
@@ -0,0 +1,487 @@
+package com.jaceg18.jclicker.core;
+
+import com.jaceg18.jclicker.util.ClickType;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Keeps every profile in one file, {@code <baseDir>/profiles.bin}, made of fixed-width
+ * records that are read straight out of a memory-mapped buffer.
+ * <p>
+ * Opening the store walks the records once to build the name index, which is not kept
+ * on disk: opening is O(n) in records, though it only reads each head's flag, name and
+ * lengths and skips continuations, so 5000 profiles open in a few milliseconds, and there
+ * is no separate index file to keep consistent through a crash. After
+ * that, listing and lookups are in-memory and loading a profile decodes a single record,
+ * with no parsing and no file opens. A profile with a macro, trigger, target or backend is followed by as many
+ * continuation records as their text needs. Saving appends the new records and then marks the old
+ * ones deleted, so a crash leaves either the old or the new version. Dead records are
+ * squeezed out once they outnumber the live ones.
+ * <p>
+ * If the file does not exist yet, {@link #init()} imports the profiles from the
+ * {@code .properties} directory used by {@link ProfileManager}. The old files are left
+ * where they are.
+ * <p>
+ * All methods are synchronized; the store is meant to be opened by one process at a time.
+ */
+public class BinaryProfileStore implements ProfileStore {
+
+    public static final String FILE_NAME = "profiles.bin";
+
+    private static final int MAGIC = 0x4A434C50; // "JCLP"
+    private static final int VERSION = 1;
+
+    // Header: magic, version, record count
+    private static final int HEADER_SIZE = 16;
+    private static final int COUNT_OFFSET = 8;
+
+    // Record layout
+    static final int RECORD_SIZE = 144;
+    static final int MAX_NAME_BYTES = 92;
+    private static final int FLAGS = 0;
+    private static final int CLICK_TYPE = 1;
+    private static final int OPTIONS = 2;
+    private static final int NAME_LENGTH = 3;
+    private static final int CUSTOM_X = 4;
+    private static final int CUSTOM_Y = 8;
+    private static final int TOGGLE_BIND = 12;
+    private static final int REPEAT_TIMES = 16;
+    private static final int HOTKEY = 20;
+    private static final int DELAY_MS = 24;
+    /** Clicks per second to aim for, a double; 0 to click every delay. */
+    private static final int TARGET_CPS = 32;
+    private static final int MACRO_LENGTH = 40;
+    /**
+     * Length of the other settings' text, an unsigned short. That text is the trigger,
+     * followed by a line with the target image path and one with the input backend's name,
+     * each if there is one or a later line is. Empty lines stand for none.
+     */
+    private static final int SETTINGS_LENGTH = 44;
+    // 46 and 47 are spare
+    private static final int NAME = 48;
+    static final int MAX_MACRO_BYTES = (1 << 24) - 1;
+    static final int MAX_SETTINGS_BYTES = 0xFFFF;
+    /** Continuation records carry the macro text, then the settings text, after their flags byte. */
+    private static final int CONTINUATION_PAYLOAD = RECORD_SIZE - 1;
+
+    private static final byte LIVE = 1;
+    private static final byte DELETED = 0;
+    private static final byte CONTINUATION = 2;
+
+    private static final int OPT_CURRENT_LOCATION = 1;
+    private static final int OPT_CUSTOM_LOCATION = 1 << 1;
+    private static final int OPT_REPEAT_UNTIL_STOPPED = 1 << 2;
+
+    /** The mapping grows in steps of this many records so appends rarely remap. */
+    private static final int GROWTH_RECORDS = 256;
+    /** Compaction only kicks in past this many dead records. */
+    private static final int COMPACT_THRESHOLD = 64;
+
+    private final Path baseDir;
+    private final Path file;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int recordCount;
+    private int deletedCount;
+
+    private final Map<String, Integer> slotsByKey = new HashMap<>();
+    private final TreeSet<String> names = new TreeSet<>();
+
+    public BinaryProfileStore(Path baseDir){
+        this.baseDir = baseDir;
+        this.file = baseDir.resolve(FILE_NAME);
+    }
+
+    @Override
+    public synchronized void init() throws IOException {
+        Files.createDirectories(baseDir);
+        boolean migrate = !Files.exists(file);
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < HEADER_SIZE) {
+            map(GROWTH_RECORDS);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(COUNT_OFFSET, 0);
+        } else {
+            map(Math.max(GROWTH_RECORDS, (int) ((channel.size() - HEADER_SIZE) / RECORD_SIZE)));
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                close();
+                throw new IOException("Not a JClicker profile store: " + file);
+            }
+        }
+        recordCount = buffer.getInt(COUNT_OFFSET);
+        if (recordCount < 0 || recordCount > capacity()) {
+            close();
+            throw new IOException("Corrupt profile store: " + file);
+        }
+        index();
+
+        if (migrate) {
+            try (ProfileManager legacy = new ProfileManager(baseDir)) {
+                migrateFrom(legacy);
+            }
+        }
+    }
+
+    /**
+     * Copies every profile from {@code source} that this store does not have yet.
+     *
+     * @return the number of profiles imported
+     */
+    public synchronized int migrateFrom(ProfileStore source) throws IOException {
+        int imported = 0;
+        for (String name : source.listProfiles()) {
+            if (containsProfile(name)) continue;
+            Profile profile;
+            try {
+                profile = source.loadProfile(name);
+            } catch (IOException | RuntimeException e) {
+                // Skip files that never parsed in the old format either
+                continue;
+            }
+            saveProfile(name, profile);
+            imported++;
+        }
+        return imported;
+    }
+
+    private void index(){
+        slotsByKey.clear();
+        names.clear();
+        deletedCount = 0;
+        int slot = 0;
+        while (slot < recordCount) {
+            int at = offset(slot);
+            byte flags = buffer.get(at + FLAGS);
+            if (flags != LIVE) {
+                if (flags == CONTINUATION) {
+                    // Left behind by a crash while its profile was being deleted
+                    buffer.put(at + FLAGS, DELETED);
+                }
+                deletedCount++;
+                slot++;
+                continue;
+            }
+            // A crash between appending a replacement and marking the original can
+            // leave two live records; the later one wins
+            Integer previous = slotsByKey.put(key(readName(at)), slot);
+            if (previous != null) {
+                names.remove(readName(offset(previous)));
+                tombstone(previous);
+            }
+            names.add(readName(at));
+            slot += recordsFor(at);
+        }
+    }
+
+    /** Number of records, continuations included, of the profile starting at {@code at}. */
+    private int recordsFor(int at){
+        return 1 + continuations(buffer.getInt(at + MACRO_LENGTH) + settingsLength(at));
+    }
+
+    private int settingsLength(int at){
+        return buffer.getShort(at + SETTINGS_LENGTH) & 0xFFFF;
+    }
+
+    private static int continuations(int textBytes){
+        return (textBytes + CONTINUATION_PAYLOAD - 1) / CONTINUATION_PAYLOAD;
+    }
+
+    private void tombstone(int slot){
+        int records = recordsFor(offset(slot));
+        for (int i = 0; i < records; i++) {
+            buffer.put(offset(slot + i) + FLAGS, DELETED);
+        }
+        deletedCount += records;
+    }
+
+    private static String key(String name){
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public synchronized List<String> listProfiles() {
+        return List.copyOf(names);
+    }
+
+    @Override
+    public synchronized boolean containsProfile(String name){
+        return name != null && slotsByKey.containsKey(key(name));
+    }
+
+    @Override
+    public synchronized Profile loadProfile(String name) throws IOException {
+        Integer slot = name == null ? null : slotsByKey.get(key(name));
+        if (slot == null) {
+            throw new FileNotFoundException("Profile not found: " + name);
+        }
+        return read(offset(slot));
+    }
+
+    @Override
+    public synchronized void saveProfile(String name, Profile profile) throws IOException {
+        if (name == null || profile == null) return;
+        byte[] encodedName = encodeName(name);
+        byte[] macro = encodeText(profile.getMacro(), MAX_MACRO_BYTES, "Macro");
+        byte[] settings = encodeText(settingsText(profile), MAX_SETTINGS_BYTES, "Trigger, target path and backend");
+        int records = 1 + continuations(macro.length + settings.length);
+        profile.setName(name);
+
+        if (recordCount + records > capacity()) {
+            if (deletedCount > 0) {
+                compact();
+            }
+            if (recordCount + records > capacity()) {
+                map(recordCount + records + GROWTH_RECORDS);
+            }
+        }
+
+        int slot = recordCount;
+        write(offset(slot), encodedName, macro, settings, profile);
+        // The new records only become visible once the count covers them
+        recordCount += records;
+        buffer.putInt(COUNT_OFFSET, recordCount);
+
+        Integer previous = slotsByKey.put(key(name), slot);
+        if (previous != null) {
+            names.remove(readName(offset(previous)));
+            tombstone(previous);
+        }
+        names.add(name);
+        compactIfSparse();
+    }
+
+    /**
+     * Appends all records, then syncs the mapping once.
+     */
+    @Override
+    public synchronized void saveProfiles(Map<String, Profile> profiles) throws IOException {
+        for (Map.Entry<String, Profile> e : profiles.entrySet()) {
+            saveProfile(e.getKey(), e.getValue());
+        }
+        force();
+    }
+
+    @Override
+    public synchronized void deleteProfile(String name){
+        Integer slot = name == null ? null : slotsByKey.remove(key(name));
+        if (slot == null) {
+            throw new RuntimeException(new FileNotFoundException("Profile not found: " + name));
+        }
+        names.remove(readName(offset(slot)));
+        tombstone(slot);
+        compactIfSparse();
+    }
+
+    /** Flushes pending writes to disk. */
+    public synchronized void force(){
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    private void compactIfSparse(){
+        if (deletedCount > COMPACT_THRESHOLD && deletedCount > recordCount - deletedCount) {
+            compact();
+        }
+    }
+
+    /**
+     * Slides the live profiles down over the dead records, in place, so the mapping never
+     * has to be released. Profiles keep their order and move whole: the continuations are
+     * copied first, the head last, and only then is the source marked dead, head first. A
+     * crash at any point leaves stray continuations, which {@link #index()} drops, or a
+     * profile live in both places, where the later copy wins; the count is lowered last. A
+     * profile whose new slots would overlap its old ones stays where it is.
+     */
+    private void compact(){
+        compact(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Compacts, but stops after {@code maxWrites} record writes without lowering the
+     * count, the way a crash would.
+     *
+     * @return whether compaction finished
+     */
+    synchronized boolean compact(int maxWrites){
+        byte[] record = new byte[RECORD_SIZE];
+        int writes = 0;
+        int live = 0;
+        int slot = 0;
+        while (slot < recordCount) {
+            int from = offset(slot);
+            if (buffer.get(from + FLAGS) != LIVE) {
+                slot++;
+                continue;
+            }
+            int records = recordsFor(from);
+            if (live + records <= slot) {
+                for (int i = records - 1; i >= 0; i--) {
+                    buffer.get(offset(slot + i), record);
+                    buffer.put(offset(live + i), record);
+                    if (++writes > maxWrites) return false;
+                }
+                for (int i = 0; i < records; i++) {
+                    buffer.put(offset(slot + i) + FLAGS, DELETED);
+                    if (++writes > maxWrites) return false;
+                }
+                live += records;
+            } else {
+                live = slot + records;
+            }
+            slot += records;
+        }
+        recordCount = live;
+        buffer.putInt(COUNT_OFFSET, recordCount);
+        index();
+        return true;
+    }
+
+    private void map(int records) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) records * RECORD_SIZE);
+    }
+
+    private int capacity(){
+        return (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE;
+    }
+
+    private static int offset(int slot){
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    private static byte[] encodeName(String name){
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length == 0 || bytes.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Profile name must be 1 to " + MAX_NAME_BYTES + " bytes: " + name);
+        }
+        return bytes;
+    }
+
+    private String readName(int at){
+        byte[] bytes = new byte[buffer.get(at + NAME_LENGTH) & 0xFF];
+        buffer.get(at + NAME, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String settingsText(Profile profile){
+        String trigger = profile.getTrigger() == null ? "" : profile.getTrigger();
+        String target = profile.getTarget() == null ? "" : profile.getTarget();
+        if (profile.getBackend() != null) return trigger + "\n" + target + "\n" + profile.getBackend();
+        return profile.getTarget() == null ? trigger : trigger + "\n" + target;
+    }
+
+    private static byte[] encodeText(String text, int maxBytes, String what) throws IOException {
+        if (text == null) return new byte[0];
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > maxBytes) {
+            throw new IOException(what + " is longer than " + maxBytes + " bytes");
+        }
+        return bytes;
+    }
+
+    private void write(int at, byte[] name, byte[] macro, byte[] settings, Profile profile){
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        ClickType clickType = profile.getClickType();
+        int options = (profile.isUseCurrentLocation() ? OPT_CURRENT_LOCATION : 0)
+                | (profile.isUseCustomLocation() ? OPT_CUSTOM_LOCATION : 0)
+                | (profile.isRepeatTilStopped() ? OPT_REPEAT_UNTIL_STOPPED : 0);
+
+        record.put(FLAGS, LIVE)
+                .put(CLICK_TYPE, (byte) (clickType == null ? -1 : clickType.ordinal()))
+                .put(OPTIONS, (byte) options)
+                .put(NAME_LENGTH, (byte) name.length)
+                .putInt(CUSTOM_X, profile.getCustomX())
+                .putInt(CUSTOM_Y, profile.getCustomY())
+                .putInt(TOGGLE_BIND, profile.getToggleBind())
+                .putInt(REPEAT_TIMES, profile.getRepeatTimes())
+                .putInt(HOTKEY, profile.getHotkey())
+                .putDouble(DELAY_MS, profile.getDelayMS())
+                .putDouble(TARGET_CPS, profile.getTargetCps())
+                .putInt(MACRO_LENGTH, macro.length)
+                .putShort(SETTINGS_LENGTH, (short) settings.length)
+                .put(NAME, name);
+        buffer.put(at, record, 0, RECORD_SIZE);
+
+        byte[] text = macro;
+        if (settings.length > 0) {
+            text = Arrays.copyOf(macro, macro.length + settings.length);
+            System.arraycopy(settings, 0, text, macro.length, settings.length);
+        }
+        for (int written = 0; written < text.length; written += CONTINUATION_PAYLOAD) {
+            at += RECORD_SIZE;
+            buffer.put(at + FLAGS, CONTINUATION);
+            buffer.put(at + 1, text, written, Math.min(CONTINUATION_PAYLOAD, text.length - written));
+        }
+    }
+
+    private Profile read(int at){
+        int clickType = buffer.get(at + CLICK_TYPE);
+        int options = buffer.get(at + OPTIONS);
+
+        Profile p = new Profile();
+        p.setName(readName(at));
+        p.setClickType(clickType < 0 ? null : ClickType.values()[clickType]);
+        p.setUseCurrentLocation((options & OPT_CURRENT_LOCATION) != 0);
+        p.setUseCustomLocation((options & OPT_CUSTOM_LOCATION) != 0);
+        p.setRepeatTilStopped((options & OPT_REPEAT_UNTIL_STOPPED) != 0);
+        p.setCustomX(buffer.getInt(at + CUSTOM_X));
+        p.setCustomY(buffer.getInt(at + CUSTOM_Y));
+        p.setToggleBind(buffer.getInt(at + TOGGLE_BIND));
+        p.setRepeatTimes(buffer.getInt(at + REPEAT_TIMES));
+        p.setHotkey(buffer.getInt(at + HOTKEY));
+        p.setDelayMS(buffer.getDouble(at + DELAY_MS));
+        p.setTargetCps(buffer.getDouble(at + TARGET_CPS));
+
+        int macroLength = buffer.getInt(at + MACRO_LENGTH);
+        int settingsLength = settingsLength(at);
+        if (macroLength + settingsLength > 0) {
+            byte[] text = new byte[macroLength + settingsLength];
+            int continuation = at;
+            for (int read = 0; read < text.length; read += CONTINUATION_PAYLOAD) {
+                continuation += RECORD_SIZE;
+                buffer.get(continuation + 1, text, read, Math.min(CONTINUATION_PAYLOAD, text.length - read));
+            }
+            if (macroLength > 0) p.setMacro(new String(text, 0, macroLength, StandardCharsets.UTF_8));
+            if (settingsLength > 0) {
+                String settings = new String(text, macroLength, settingsLength, StandardCharsets.UTF_8);
+                String[] lines = settings.split("\n", -1);
+                if (!lines[0].isEmpty()) p.setTrigger(lines[0]);
+                if (lines.length > 1 && !lines[1].isEmpty()) p.setTarget(lines[1]);
+                if (lines.length > 2 && !lines[2].isEmpty()) p.setBackend(lines[2]);
+            }
+        }
+        return p;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (channel == null) return;
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException ignored) {
+            // Nothing left to release
+        }
+        channel = null;
+        buffer = null;
+        slotsByKey.clear();
+        names.clear();
+    }
+}
@@ -0,0 +1,79 @@
+package com.jaceg18.jclicker.core;
+
+import com.github.kwhat.jnativehook.NativeInputEvent;
+import com.github.kwhat.jnativehook.keyboard.NativeKeyEvent;
+
+/**
+ * A hotkey is a key code plus modifiers packed into one {@code int}: the JNativeHook key
+ * code in the low 16 bits and the {@code MOD_*} flags above it. Left and right modifier
+ * keys are not told apart. A plain key packs to its own key code, so binds saved before
+ * modifiers were supported still read back unchanged. {@link #NONE} means unbound.
+ */
+public final class Hotkeys {
+
+    public static final int NONE = 0;
+
+    public static final int MOD_SHIFT = 1;
+    public static final int MOD_CTRL = 1 << 1;
+    public static final int MOD_ALT = 1 << 2;
+    public static final int MOD_META = 1 << 3;
+
+    private static final int KEY_BITS = 16;
+    private static final int KEY_MASK = (1 << KEY_BITS) - 1;
+
+    // Right-hand modifier key codes (no constants for them in JNativeHook 2.2)
+    private static final int VC_SHIFT_R = 0x0E36;
+    private static final int VC_CONTROL_R = 0x0E1D;
+    private static final int VC_ALT_R = 0x0E38;
+    private static final int VC_META_R = 0x0E5C;
+
+    private Hotkeys(){}
+
+    public static int pack(int keyCode, int modifiers){
+        return (modifiers & 0xF) << KEY_BITS | (keyCode & KEY_MASK);
+    }
+
+    public static int keyCode(int hotkey){
+        return hotkey & KEY_MASK;
+    }
+
+    public static int modifiers(int hotkey){
+        return hotkey >>> KEY_BITS;
+    }
+
+    /** Hotkey for a key event, as seen by the native hook thread. */
+    public static int of(NativeKeyEvent e){
+        return pack(e.getKeyCode(), fromNativeModifiers(e.getModifiers()));
+    }
+
+    /** Converts JNativeHook's modifier mask to {@code MOD_*} flags. */
+    public static int fromNativeModifiers(int nativeModifiers){
+        int modifiers = 0;
+        if ((nativeModifiers & NativeInputEvent.SHIFT_MASK) != 0) modifiers |= MOD_SHIFT;
+        if ((nativeModifiers & NativeInputEvent.CTRL_MASK) != 0) modifiers |= MOD_CTRL;
+        if ((nativeModifiers & NativeInputEvent.ALT_MASK) != 0) modifiers |= MOD_ALT;
+        if ((nativeModifiers & NativeInputEvent.META_MASK) != 0) modifiers |= MOD_META;
+        return modifiers;
+    }
+
+    /** Whether the key is a modifier on its own and cannot be bound. */
+    public static boolean isModifierKey(int keyCode){
+        return switch (keyCode) {
+            case NativeKeyEvent.VC_SHIFT, NativeKeyEvent.VC_CONTROL, NativeKeyEvent.VC_ALT, NativeKeyEvent.VC_META,
+                 VC_SHIFT_R, VC_CONTROL_R, VC_ALT_R, VC_META_R -> true;
+            default -> false;
+        };
+    }
+
+    /** e.g. {@code "Ctrl+Shift+F5"}. */
+    public static String toString(int hotkey){
+        if (hotkey == NONE) return "None";
+        int modifiers = modifiers(hotkey);
+        StringBuilder sb = new StringBuilder();
+        if ((modifiers & MOD_CTRL) != 0) sb.append("Ctrl+");
+        if ((modifiers & MOD_ALT) != 0) sb.append("Alt+");
+        if ((modifiers & MOD_SHIFT) != 0) sb.append("Shift+");
+        if ((modifiers & MOD_META) != 0) sb.append("Meta+");
+        return sb.append(NativeKeyEvent.getKeyText(keyCode(hotkey))).toString();
+    }
+}
@@ -14,13 +14,38 @@ public class Profile {
     private boolean useCurrentLocation, useCustomLocation, repeatTilStopped;
     private int customX = 0, customY = 0;
     private int toggleBind;
+    private int hotkey; // Packed per-profile hotkey, see Hotkeys; 0 if unbound
+    private String macro; // Macro source, see MacroCompiler; null if the profile is a plain clicker
+    private String trigger; // Screen trigger, see PixelTrigger; null if the profile always clicks
+    private String target; // Path of the image to click on, see Template; null to click at a fixed location
+    private String backend; // Name of the ClickBackend to click through; null for the default
     private double delayMS;
+    private double targetCps; // Clicks per second to aim for, see RateController; 0 to click every delayMS
     private int repeatTimes;
 
     public Profile(){}
 
     public Profile(String name){this.name = name;}
 
+    public Profile(Profile other){
+        this.name = other.name;
+        this.clickType = other.clickType;
+        this.useCurrentLocation = other.useCurrentLocation;
+        this.useCustomLocation = other.useCustomLocation;
+        this.repeatTilStopped = other.repeatTilStopped;
+        this.customX = other.customX;
+        this.customY = other.customY;
+        this.toggleBind = other.toggleBind;
+        this.hotkey = other.hotkey;
+        this.macro = other.macro;
+        this.trigger = other.trigger;
+        this.target = other.target;
+        this.backend = other.backend;
+        this.delayMS = other.delayMS;
+        this.targetCps = other.targetCps;
+        this.repeatTimes = other.repeatTimes;
+    }
+
     public void setClickType(ClickType clickType) {this.clickType = clickType;}
     public void setUseCurrentLocation(boolean useCurrentLocation) {this.useCurrentLocation = useCurrentLocation;}
     public void setUseCustomLocation(boolean useCustomLocation) {this.useCustomLocation = useCustomLocation;}
@@ -28,7 +53,13 @@ public class Profile {
     public void setCustomX(int customX) {this.customX = customX;}
     public void setCustomY(int customY) {this.customY = customY;}
     public void setToggleBind(int toggleBind) {this.toggleBind = toggleBind;}
+    public void setHotkey(int hotkey) {this.hotkey = hotkey;}
+    public void setMacro(String macro) {this.macro = macro;}
+    public void setTrigger(String trigger) {this.trigger = trigger;}
+    public void setTarget(String target) {this.target = target;}
+    public void setBackend(String backend) {this.backend = backend;}
     public void setDelayMS(double delayMS) {this.delayMS = delayMS;}
+    public void setTargetCps(double targetCps) {this.targetCps = targetCps;}
     public void setRepeatTimes(int repeatTimes) {this.repeatTimes = repeatTimes;}
     public void setName(String name){this.name = name;}
     public String getName(){return name;}
@@ -39,7 +70,13 @@ public class Profile {
     public int getCustomX() {return customX;}
     public int getCustomY() {return customY;}
     public int getToggleBind() {return toggleBind;}
+    public int getHotkey() {return hotkey;}
+    public String getMacro() {return macro;}
+    public String getTrigger() {return trigger;}
+    public String getTarget() {return target;}
+    public String getBackend() {return backend;}
     public double getDelayMS() {return delayMS;}
+    public double getTargetCps() {return targetCps;}
     public int getRepeatTimes() {return repeatTimes;}
 
 
@@ -0,0 +1,201 @@
+package com.jaceg18.jclicker.core;
+
+import com.jaceg18.jclicker.core.engine.ClickConfig;
+import com.jaceg18.jclicker.core.engine.ClickJob;
+import com.jaceg18.jclicker.core.engine.MultiClickEngine;
+import com.jaceg18.jclicker.core.target.Template;
+import com.jaceg18.jclicker.util.IntHashMap;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hotkey-to-profile table for starting and stopping profiles straight from the native
+ * hook thread.
+ * <p>
+ * {@link #reload(ProfileStore)} reads every profile that has a {@link Profile#getHotkey()}
+ * and keeps its {@link ClickConfig} in memory, so {@link #toggle(int)} is a primitive map
+ * lookup plus a job submit or cancel: no disk access and no FX thread involved. After a
+ * single profile is saved or deleted, {@link #update(String, Profile)} changes just its
+ * entry instead of reading every profile again. The table is copied on every change and
+ * published as a whole, so lookups never lock.
+ * <p>
+ * Each bound profile runs as its own job on a shared {@link MultiClickEngine}, which lets
+ * several profiles click at the same time.
+ */
+public class ProfileHotkeys {
+
+    private final MultiClickEngine engine;
+    private volatile IntHashMap<Binding> bindings = new IntHashMap<>();
+
+    public ProfileHotkeys(MultiClickEngine engine){
+        this.engine = engine;
+    }
+
+    /**
+     * Re-reads the bound profiles from {@code store}. Profiles that keep their binding
+     * keep running and pick up changed settings; profiles that lost it are stopped.
+     *
+     * @return names of profiles whose hotkey is already taken by another profile and was ignored
+     */
+    public synchronized List<String> reload(ProfileStore store) throws IOException {
+        Map<String, Binding> previous = new HashMap<>();
+        bindings.forEach((hotkey, b) -> previous.put(b.profileName(), b));
+
+        IntHashMap<Binding> next = new IntHashMap<>();
+        List<String> conflicts = new ArrayList<>();
+        for (String name : store.listProfiles()) {
+            Profile profile;
+            try {
+                profile = store.loadProfile(name);
+            } catch (IOException | RuntimeException e) {
+                continue;
+            }
+            Binding binding = bind(name, profile);
+            if (binding == null) continue;
+            if (next.containsKey(binding.hotkey())) {
+                conflicts.add(name);
+                continue;
+            }
+            Binding old = previous.remove(name);
+            if (old != null) {
+                binding.takeOver(old);
+            }
+            next.put(binding.hotkey(), binding);
+        }
+
+        bindings = next;
+        for (Binding gone : previous.values()) {
+            gone.stop();
+        }
+        return conflicts;
+    }
+
+    /**
+     * Binds, rebinds or unbinds one profile after it was saved or deleted, leaving the
+     * other bindings alone. A running profile that keeps its binding keeps running and
+     * picks up the changed settings; one that lost it is stopped.
+     *
+     * @param profile the saved profile, or {@code null} if it was deleted
+     * @return whether its hotkey is already taken by another profile and was ignored
+     */
+    public synchronized boolean update(String name, Profile profile){
+        IntHashMap<Binding> next = new IntHashMap<>(bindings.size() + 1);
+        Binding[] old = new Binding[1];
+        bindings.forEach((hotkey, b) -> {
+            if (b.profileName().equalsIgnoreCase(name)) {
+                old[0] = b;
+            } else {
+                next.put(hotkey, b);
+            }
+        });
+
+        Binding binding = profile == null ? null : bind(name, profile);
+        boolean conflict = binding != null && next.containsKey(binding.hotkey());
+        if (binding != null && !conflict) {
+            if (old[0] != null) {
+                binding.takeOver(old[0]);
+            }
+            next.put(binding.hotkey(), binding);
+        }
+        bindings = next;
+        if (old[0] != null && (binding == null || conflict || binding.job() == null)) {
+            old[0].stop();
+        }
+        return conflict;
+    }
+
+    /**
+     * The binding {@code profile} asks for, or {@code null} if it has none or cannot run
+     * until it is fixed: its macro does not compile or its target image is unreadable.
+     */
+    private static Binding bind(String name, Profile profile){
+        if (profile.getHotkey() == Hotkeys.NONE || profile.getClickType() == null) return null;
+        try {
+            return new Binding(name, profile.getHotkey(),
+                    ClickConfig.fromProfile(profile, Template.loadIfSet(profile.getTarget())));
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** The binding for a packed hotkey, or {@code null}. */
+    public Binding lookup(int hotkey){
+        return bindings.get(hotkey);
+    }
+
+    /**
+     * Starts the profile bound to {@code hotkey}, or stops it if it is running.
+     *
+     * @return the binding that was toggled, or {@code null} if the hotkey is not bound
+     */
+    public Binding toggle(int hotkey){
+        Binding binding = bindings.get(hotkey);
+        if (binding != null) {
+            binding.toggle(engine);
+        }
+        return binding;
+    }
+
+    /** Stops every profile started through a hotkey. */
+    public void stopAll(){
+        bindings.forEach((hotkey, b) -> b.stop());
+    }
+
+    public int size(){
+        return bindings.size();
+    }
+
+    /**
+     * A profile preloaded for its hotkey.
+     */
+    public static final class Binding {
+        private final String profileName;
+        private final int hotkey;
+        private final ClickConfig config;
+        private volatile ClickJob job;
+
+        Binding(String profileName, int hotkey, ClickConfig config){
+            this.profileName = profileName;
+            this.hotkey = hotkey;
+            this.config = config;
+        }
+
+        public String profileName() {return profileName;}
+        public int hotkey() {return hotkey;}
+        public ClickConfig config() {return config;}
+        public ClickJob job() {return job;}
+
+        public boolean isRunning(){
+            ClickJob j = job;
+            return j != null && j.isRunning();
+        }
+
+        synchronized void toggle(MultiClickEngine engine){
+            if (isRunning()) {
+                job.cancel();
+            } else {
+                job = engine.submit(profileName, config);
+            }
+        }
+
+        /** Adopts the job {@code old} is running, switching it to this binding's settings. */
+        void takeOver(Binding old){
+            synchronized (old) {
+                if (old.isRunning()) {
+                    job = old.job;
+                    if (!old.config().equals(config)) {
+                        job.updateConfig(config);
+                    }
+                }
+            }
+        }
+
+        synchronized void stop(){
+            if (isRunning()) job.cancel();
+        }
+    }
+}
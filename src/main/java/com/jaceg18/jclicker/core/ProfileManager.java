@@ -5,50 +5,163 @@ import com.jaceg18.jclicker.util.ClickType;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
-public class ProfileManager {
+/**
+ * Stores one {@code .properties} file per profile in {@code <baseDir>/profiles}.
+ * <p>
+ * After {@link #init()} the manager keeps the profile names (sorted, plus a
+ * case-insensitive index) and every profile it has parsed in memory, so listing,
+ * lookups and repeated loads do not touch the disk. A {@link WatchService} on the
+ * profiles directory keeps that state coherent with changes made by other processes;
+ * a cached profile is only re-read when its file actually changed.
+ * <p>
+ * Profiles are written to a temporary file and moved over the old one, so a crash
+ * mid-write never leaves a half-written profile behind.
+ */
+public class ProfileManager implements ProfileStore {
+
+    private static final String EXTENSION = ".properties";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * When profile writes are forced to disk. Writes are atomic either way; this only
+     * decides whether a saved profile survives a power loss right after the save.
+     */
+    public enum SyncPolicy {
+        /** fsync each file before it is moved into place, and the directory after. */
+        ALWAYS,
+        /** Leave flushing to the operating system. */
+        NEVER
+    }
 
     private final Path profilesDir;
 
+    private final ConcurrentSkipListSet<String> names = new ConcurrentSkipListSet<>();
+    private final Map<String, String> namesByKey = new ConcurrentHashMap<>();
+    private final Map<String, CachedProfile> cache = new ConcurrentHashMap<>();
+
+    private static final System.Logger LOG = System.getLogger(ProfileManager.class.getName());
+    /** How often a failed rescan is retried while no change events arrive. */
+    private static final long RESCAN_RETRY_SECONDS = 5;
+
+    private volatile boolean indexed = false;
+    private volatile boolean closed = false;
+    private volatile SyncPolicy syncPolicy = SyncPolicy.ALWAYS;
+    private WatchService watchService;
+    private Thread watchThread;
+
     public ProfileManager(Path baseDir){
         this.profilesDir = baseDir.resolve("profiles");
     }
 
+    @Override
     public void init() throws IOException {
         Files.createDirectories(profilesDir);
+        startWatching();
+        rescan();
+        indexed = true;
     }
 
     private Path getProfileFile(String name){
-        return profilesDir.resolve(name + ".properties");
+        return profilesDir.resolve(name + EXTENSION);
     }
 
+    private static String key(String name){
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
     public void deleteProfile(String name){
         try {
             Files.delete(getProfileFile(name));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        forget(name);
     }
 
+    @Override
     public boolean containsProfile(String name){
+        if (name == null) return false;
+        if (indexed) {
+            return namesByKey.containsKey(key(name));
+        }
         try {
-            return listProfiles().stream().anyMatch(p -> p.equalsIgnoreCase(name));
+            return scanDirectory().stream().anyMatch(p -> p.equalsIgnoreCase(name));
         } catch (IOException ignored) {return false;}
     }
 
 
+    @Override
     public void saveProfile(String name, Profile profile) throws IOException {
         if (name == null || profile == null) return;
-        Properties props = new Properties();
+        saveProfiles(Map.of(name, profile));
+    }
 
-        profile.setName(name);
+    /**
+     * Writes every profile to a temporary file, then moves them all into place. With
+     * {@link SyncPolicy#ALWAYS} the files are synced before the moves and the directory
+     * once after them, so the whole batch shares a single directory sync.
+     */
+    @Override
+    public void saveProfiles(Map<String, Profile> profiles) throws IOException {
+        Map<String, Path> written = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, Profile> e : profiles.entrySet()) {
+                String name = e.getKey();
+                Profile profile = e.getValue();
+                if (name == null || profile == null) continue;
+                profile.setName(name);
+                written.put(name, writeTemp(name, toProperties(profile)));
+            }
+            for (Map.Entry<String, Path> e : written.entrySet()) {
+                moveIntoPlace(e.getValue(), getProfileFile(e.getKey()));
+            }
+        } finally {
+            for (Path temp : written.values()) {
+                Files.deleteIfExists(temp);
+            }
+        }
+        if (syncPolicy == SyncPolicy.ALWAYS && !written.isEmpty()) {
+            syncDirectory();
+        }
+
+        if (indexed) {
+            for (String name : written.keySet()) {
+                remember(name);
+                cache.put(name, new CachedProfile(new Profile(profiles.get(name)), stamp(getProfileFile(name))));
+            }
+        }
+    }
 
+    private static Properties toProperties(Profile profile){
+        Properties props = new Properties();
         props.setProperty("clickType", profile.getClickType().name());
         props.setProperty("useCurrentLocation", Boolean.toString(profile.isUseCurrentLocation()));
         props.setProperty("useCustomLocation", Boolean.toString(profile.isUseCustomLocation()));
@@ -58,18 +171,77 @@ public class ProfileManager {
         props.setProperty("toggleBind", Integer.toString(profile.getToggleBind()));
         props.setProperty("delayMS", Double.toString(profile.getDelayMS()));
         props.setProperty("repeatTimes", Integer.toString(profile.getRepeatTimes()));
+        props.setProperty("hotkey", Integer.toString(profile.getHotkey()));
+        if (profile.getMacro() != null) {
+            props.setProperty("macro", profile.getMacro());
+        }
+        if (profile.getTrigger() != null) {
+            props.setProperty("trigger", profile.getTrigger());
+        }
+        if (profile.getTarget() != null) {
+            props.setProperty("target", profile.getTarget());
+        }
+        if (profile.getBackend() != null) {
+            props.setProperty("backend", profile.getBackend());
+        }
+        if (profile.getTargetCps() > 0) {
+            props.setProperty("targetCps", Double.toString(profile.getTargetCps()));
+        }
+        return props;
+    }
+
+    private Path writeTemp(String name, Properties props) throws IOException {
+        Path temp = profilesDir.resolve(name + EXTENSION + TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            props.store(Channels.newOutputStream(channel), "Profile: " + name);
+            if (syncPolicy == SyncPolicy.ALWAYS) {
+                channel.force(true);
+            }
+        }
+        return temp;
+    }
+
+    private static void moveIntoPlace(Path temp, Path file) throws IOException {
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
 
-        try (OutputStream out = Files.newOutputStream(getProfileFile(name))) {
-            props.store(out, "Profile: " + name);
+    /** Makes the renames durable. Not every platform can open a directory; that is not an error. */
+    private void syncDirectory(){
+        try (FileChannel dir = FileChannel.open(profilesDir, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException ignored) {
+            // e.g. Windows, where the rename is already durable once the move returns
         }
     }
 
+    public void setSyncPolicy(SyncPolicy syncPolicy){
+        this.syncPolicy = syncPolicy == null ? SyncPolicy.ALWAYS : syncPolicy;
+    }
+
+    public SyncPolicy getSyncPolicy(){
+        return syncPolicy;
+    }
+
+    @Override
     public Profile loadProfile(String name) throws IOException {
+        if (indexed) {
+            CachedProfile cached = cache.get(name);
+            if (cached != null) {
+                return new Profile(cached.profile());
+            }
+        }
+
         Path file = getProfileFile(name);
         if (!Files.exists(file)) {
             throw new FileNotFoundException("Profile not found: " + name);
         }
 
+        FileStamp stamp = stamp(file);
         Properties props = new Properties();
         try (InputStream in = Files.newInputStream(file)) {
             props.load(in);
@@ -86,26 +258,205 @@ public class ProfileManager {
         p.setToggleBind(Integer.parseInt(props.getProperty("toggleBind")));
         p.setDelayMS(Double.parseDouble(props.getProperty("delayMS")));
         p.setRepeatTimes(Integer.parseInt(props.getProperty("repeatTimes")));
+        // Not present in profiles saved before per-profile hotkeys
+        p.setHotkey(Integer.parseInt(props.getProperty("hotkey", "0")));
+        p.setMacro(props.getProperty("macro"));
+        p.setTrigger(props.getProperty("trigger"));
+        p.setTarget(props.getProperty("target"));
+        p.setBackend(props.getProperty("backend"));
+        p.setTargetCps(Double.parseDouble(props.getProperty("targetCps", "0")));
 
+        if (indexed) {
+            cache.put(name, new CachedProfile(new Profile(p), stamp));
+        }
         return p;
     }
 
+    @Override
     public List<String> listProfiles() throws IOException {
+        if (indexed) {
+            return List.copyOf(names);
+        }
+        return scanDirectory();
+    }
+
+    private List<String> scanDirectory() throws IOException {
         if (!Files.exists(profilesDir)) {
             return List.of();
         }
 
         try (var stream = Files.list(profilesDir)) {
             return stream
-                    .filter(p -> p.toString().endsWith(".properties"))
-                    .map(p -> {
-                        String fileName = p.getFileName().toString();
-                        return fileName.substring(0, fileName.length() - ".properties".length());
-                    })
+                    .map(ProfileManager::profileName)
+                    .filter(n -> n != null)
                     .sorted()
                     .collect(Collectors.toList());
         }
     }
 
+    /** Profile name for a file in the profiles directory, or {@code null} if it is not a profile. */
+    private static String profileName(Path file){
+        String fileName = file.getFileName().toString();
+        if (!fileName.endsWith(EXTENSION)) return null;
+        return fileName.substring(0, fileName.length() - EXTENSION.length());
+    }
+
+    // The listing is updated on the outer side of the key map, so a caller that sees a
+    // name through containsProfile also sees it in listProfiles, and the same when it goes
+    private void remember(String name){
+        names.add(name);
+        String previous = namesByKey.put(key(name), name);
+        if (previous != null && !previous.equals(name)) {
+            names.remove(previous);
+            cache.remove(previous);
+        }
+    }
+
+    private void forget(String name){
+        names.remove(name);
+        namesByKey.remove(key(name), name);
+        cache.remove(name);
+    }
+
+    /**
+     * Rebuilds the name index from the directory. Used at startup and whenever the
+     * watch service reports that it lost events.
+     */
+    private void rescan() throws IOException {
+        Set<String> onDisk = new HashSet<>(scanDirectory());
+        for (String name : names) {
+            if (!onDisk.contains(name)) {
+                forget(name);
+            }
+        }
+        for (String name : onDisk) {
+            remember(name);
+        }
+        cache.entrySet().removeIf(e -> !isCurrent(e.getKey(), e.getValue()));
+    }
+
+    // ---------------------------------------------------------------- watching
+
+    private void startWatching() {
+        try {
+            watchService = profilesDir.getFileSystem().newWatchService();
+            profilesDir.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | UnsupportedOperationException e) {
+            // No change notifications: the index still reflects our own writes
+            watchService = null;
+            return;
+        }
+        watchThread = new Thread(this::watchLoop, "jclicker-profile-watch");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                // While the index is stale, retry the rescan even if nothing changes
+                WatchKey watchKey = indexed ? watchService.take()
+                        : watchService.poll(RESCAN_RETRY_SECONDS, TimeUnit.SECONDS);
+                if (watchKey == null) {
+                    refreshIndex();
+                    continue;
+                }
+                boolean lostEvents = false;
+                for (WatchEvent<?> event : watchKey.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        lostEvents = true;
+                        continue;
+                    }
+                    Path file = profilesDir.resolve((Path) event.context());
+                    String name = profileName(file);
+                    if (name != null) {
+                        onFileChanged(name, file);
+                    }
+                }
+                if (!watchKey.reset()) {
+                    // Directory is gone; nothing more will be reported, so reads go to the disk
+                    indexed = false;
+                    names.clear();
+                    namesByKey.clear();
+                    cache.clear();
+                    return;
+                }
+                if (lostEvents || !indexed) {
+                    refreshIndex();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Shutting down
+        }
+    }
+
+    /**
+     * Rescans the directory. If that fails the index is marked stale, so reads go to the
+     * disk until a later rescan succeeds, instead of missing every change from then on.
+     */
+    private void refreshIndex(){
+        try {
+            rescan();
+            indexed = !closed;
+        } catch (IOException e) {
+            indexed = false;
+            LOG.log(System.Logger.Level.WARNING, "Cannot rescan " + profilesDir
+                    + "; reading profiles from disk until it succeeds", e);
+        }
+    }
+
+    private void onFileChanged(String name, Path file){
+        if (Files.exists(file)) {
+            remember(name);
+            CachedProfile cached = cache.get(name);
+            if (cached != null && !isCurrent(name, cached)) {
+                cache.remove(name, cached);
+            }
+        } else {
+            forget(name);
+        }
+    }
+
+    private boolean isCurrent(String name, CachedProfile cached){
+        try {
+            return cached.stamp().equals(stamp(getProfileFile(name)));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static FileStamp stamp(Path file) throws IOException {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            return new FileStamp(attrs.lastModifiedTime(), attrs.size());
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(e.getMessage());
+        }
+    }
+
+    /**
+     * Stops watching the profiles directory.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        indexed = false;
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+                // Nothing left to release
+            }
+        }
+        if (watchThread != null) {
+            watchThread.interrupt();
+        }
+    }
+
+    private record FileStamp(FileTime lastModified, long size) {}
 
+    private record CachedProfile(Profile profile, FileStamp stamp) {}
 }
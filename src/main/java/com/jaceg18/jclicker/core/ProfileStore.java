@@ -0,0 +1,96 @@
+package com.jaceg18.jclicker.core;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent storage for {@link Profile}s.
+ * <p>
+ * {@link ProfileManager} keeps one {@code .properties} file per profile;
+ * {@link BinaryProfileStore} keeps all of them in a single memory-mapped file.
+ */
+public interface ProfileStore extends AutoCloseable {
+
+    /** System property selecting the backend: {@code properties} (default) or {@code binary}. */
+    String BACKEND_PROPERTY = "jclicker.profileStore";
+
+    /**
+     * Creates the store configured by {@link #BACKEND_PROPERTY}. Call {@link #init()} before use.
+     */
+    static ProfileStore create(Path baseDir){
+        String backend = System.getProperty(BACKEND_PROPERTY, "properties");
+        return switch (backend) {
+            case "binary" -> new BinaryProfileStore(baseDir);
+            case "properties" -> new ProfileManager(baseDir);
+            default -> throw new IllegalArgumentException("Unknown profile store: " + backend);
+        };
+    }
+
+    /** System property overriding {@link #defaultBaseDir()}, e.g. for benchmark runs. */
+    String HOME_PROPERTY = "jclicker.home";
+
+    /**
+     * Where profiles live unless told otherwise: {@link #HOME_PROPERTY} if set,
+     * {@code %APPDATA%\JClicker} on Windows, {@code ~/.jclicker} elsewhere, or the working
+     * directory if that cannot be created.
+     */
+    static Path defaultBaseDir(){
+        String home = System.getProperty(HOME_PROPERTY);
+        String appData = System.getenv("APPDATA");
+        Path base;
+
+        if (home != null && !home.isBlank()) {
+            base = Paths.get(home);
+        } else if (appData != null && !appData.isBlank()) {
+            base = Paths.get(appData, "JClicker");
+        } else {
+            base = Paths.get(System.getProperty("user.home"), ".jclicker");
+        }
+
+        try {
+            Files.createDirectories(base);
+        } catch (IOException e) {
+            base = Paths.get("").toAbsolutePath();
+        }
+
+        return base;
+    }
+
+    void init() throws IOException;
+
+    /** @return profile names in ascending order */
+    List<String> listProfiles() throws IOException;
+
+    /** Case-insensitive. */
+    boolean containsProfile(String name);
+
+    /**
+     * @throws java.io.FileNotFoundException if there is no such profile
+     */
+    Profile loadProfile(String name) throws IOException;
+
+    /** Stores {@code profile} under {@code name}, replacing an existing one. Sets the profile's name. */
+    void saveProfile(String name, Profile profile) throws IOException;
+
+    /**
+     * Saves several profiles as one batch. Backends override this to share the cost of
+     * syncing to disk across the whole batch.
+     */
+    default void saveProfiles(Map<String, Profile> profiles) throws IOException {
+        for (Map.Entry<String, Profile> e : profiles.entrySet()) {
+            saveProfile(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * @throws RuntimeException wrapping the underlying I/O error if the profile cannot be deleted
+     */
+    void deleteProfile(String name);
+
+    @Override
+    void close();
+}
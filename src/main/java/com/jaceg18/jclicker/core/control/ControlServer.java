@@ -0,0 +1,426 @@
+package com.jaceg18.jclicker.core.control;
+
+import com.jaceg18.jclicker.core.Profile;
+import com.jaceg18.jclicker.core.ProfileStore;
+import com.jaceg18.jclicker.core.engine.ClickConfig;
+import com.jaceg18.jclicker.core.engine.ClickEngine;
+import com.jaceg18.jclicker.core.engine.ClickTelemetry;
+import com.jaceg18.jclicker.core.engine.LatencyHistogram;
+import com.jaceg18.jclicker.core.target.Template;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Local control endpoint for scripts and test harnesses, on a Unix domain socket.
+ * <p>
+ * The protocol is line based: each command is one line, each reply is one line starting
+ * with {@code OK} or {@code ERR}.
+ * <pre>
+ * start                  start clicking with the loaded profile, or the UI's settings
+ * stop                   stop clicking
+ * load-profile &lt;name&gt;    use a saved profile; applies to a running session right away
+ * update-delay &lt;ms&gt;      change the delay; applies to a running session right away
+ * get-stats              session telemetry and command latency as key=value pairs
+ * ping                   reply {@code OK pong}, for measuring round trips from the client
+ * </pre>
+ * One non-blocking selector thread serves every connection and calls the engine directly,
+ * so commands never wait on the FX thread. {@code load-profile} reads the profile and its
+ * target image on a separate loader thread, so a slow disk never stalls the selector; the
+ * connection stops reading until that reply is in, so replies stay in order while other
+ * clients are served meanwhile. The time from reading a command to having
+ * written its reply is recorded and reported by {@code get-stats}.
+ */
+public class ControlServer implements AutoCloseable {
+
+    /** File name of the socket inside the profile directory. */
+    public static final String SOCKET_NAME = "control.sock";
+    static final int MAX_LINE = 1024;
+    private static final int OUT_BUFFER_SIZE = 4096;
+
+    private final ClickEngine engine;
+    private final ProfileStore profiles;
+    private final Supplier<ClickConfig> defaultConfig;
+    private final ClickEngine.Listener listener;
+    private final Runnable onStarted;
+    private final LatencyHistogram commandLatency = new LatencyHistogram();
+
+    /** Selector thread only. Set by {@code load-profile} and {@code update-delay}. */
+    private ClickConfig config;
+    private String profileName;
+
+    /** Work handed back to the selector thread, run before each select. */
+    private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+    /** Reads profiles and target images, which can take long enough to stall every client. */
+    private ExecutorService loader;
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread thread;
+    private Path socket;
+    private volatile boolean closed;
+
+    /**
+     * @param defaultConfig settings used by {@code start} until a profile is loaded; may return {@code null}
+     * @param listener      told when a session started through this server ends
+     * @param onStarted     called on the selector thread after {@code start}
+     */
+    public ControlServer(ClickEngine engine, ProfileStore profiles, Supplier<ClickConfig> defaultConfig,
+                         ClickEngine.Listener listener, Runnable onStarted){
+        this.engine = engine;
+        this.profiles = profiles;
+        this.defaultConfig = defaultConfig;
+        this.listener = listener;
+        this.onStarted = onStarted;
+    }
+
+    /**
+     * Binds {@code socketPath} and starts serving. A socket file left behind by a crashed
+     * process is replaced.
+     *
+     * @throws IOException if another process is serving on the path, or binding fails
+     */
+    public synchronized void start(Path socketPath) throws IOException {
+        if (thread != null) throw new IllegalStateException("already serving on " + socket);
+        UnixDomainSocketAddress address = UnixDomainSocketAddress.of(socketPath);
+        if (Files.exists(socketPath)) {
+            if (isServing(address)) throw new IOException("Another instance is listening on " + socketPath);
+            Files.deleteIfExists(socketPath);
+        }
+
+        selector = Selector.open();
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            server.bind(address);
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            server.close();
+            selector.close();
+            throw e;
+        }
+        socket = socketPath;
+        loader = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "jclicker-control-loader");
+            t.setDaemon(true);
+            return t;
+        });
+        thread = new Thread(this::serve, "jclicker-control");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static boolean isServing(UnixDomainSocketAddress address){
+        try (SocketChannel probe = SocketChannel.open(address)) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /** Path being served, or {@code null} if not started. */
+    public Path getSocket(){
+        return socket;
+    }
+
+    /** Time from reading a command to having written its reply. */
+    public LatencyHistogram getCommandLatency(){
+        return commandLatency;
+    }
+
+    @Override
+    public synchronized void close(){
+        if (thread == null || closed) return;
+        closed = true;
+        loader.shutdownNow();
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+            Files.deleteIfExists(socket);
+        } catch (IOException | ClosedSelectorException e) {
+            // Nothing left to do
+        }
+    }
+
+    private void serve(){
+        try {
+            while (!closed) {
+                selector.select();
+                for (Runnable task; (task = selectorTasks.poll()) != null; ) {
+                    task.run();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            Connection c = (Connection) key.attachment();
+                            if (key.isReadable()) c.read(key);
+                            if (key.isValid() && key.isWritable()) c.write(key);
+                        }
+                    } catch (IOException e) {
+                        key.cancel();
+                        key.channel().close();
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            // Closed
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+    }
+
+    /**
+     * Runs one command on the selector thread. A command that throws is answered with
+     * {@code ERR} and the exception's message, so it cannot take the server down.
+     *
+     * @param later given the reply on the selector thread, if it is not returned
+     * @return the reply line, without the line break, or {@code null} if it goes to {@code later}
+     */
+    String execute(String line, Consumer<String> later){
+        return guarded(() -> dispatch(line, later));
+    }
+
+    private static String guarded(Supplier<String> command){
+        try {
+            return command.get();
+        } catch (RuntimeException e) {
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            return "ERR " + message.replace('\n', ' ');
+        }
+    }
+
+    /** Runs {@code command} on the selector thread and gives its reply to {@code later}. */
+    private void handBack(Consumer<String> later, Supplier<String> command){
+        selectorTasks.add(() -> later.accept(guarded(command)));
+        selector.wakeup();
+    }
+
+    private String dispatch(String line, Consumer<String> later){
+        String trimmed = line.strip();
+        int space = trimmed.indexOf(' ');
+        String command = (space < 0 ? trimmed : trimmed.substring(0, space)).toLowerCase(Locale.ROOT);
+        String arg = space < 0 ? "" : trimmed.substring(space + 1).strip();
+
+        return switch (command) {
+            case "start" -> startSession();
+            case "stop" -> {
+                engine.stop();
+                yield "OK stopped";
+            }
+            case "load-profile" -> loadProfile(arg, later);
+            case "update-delay" -> updateDelay(arg);
+            case "get-stats" -> stats();
+            case "ping" -> "OK pong";
+            case "" -> "ERR empty command";
+            default -> "ERR unknown command: " + command;
+        };
+    }
+
+    private String startSession(){
+        ClickConfig c = config != null ? config : defaultConfig.get();
+        if (c == null) return "ERR no profile loaded and the UI settings are invalid";
+        engine.start(c, listener, System.nanoTime());
+        onStarted.run();
+        return "OK started";
+    }
+
+    private String loadProfile(String name, Consumer<String> later){
+        if (name.isEmpty()) return "ERR usage: load-profile <name>";
+        loader.execute(() -> {
+            Profile profile;
+            try {
+                profile = profiles.loadProfile(name);
+            } catch (FileNotFoundException e) {
+                handBack(later, () -> "ERR no such profile: " + name);
+                return;
+            } catch (IOException | RuntimeException e) {
+                handBack(later, () -> "ERR cannot load " + name + ": " + e.getMessage());
+                return;
+            }
+            String target = profile.getTarget();
+            Template image;
+            try {
+                image = Template.loadIfSet(target);
+            } catch (IOException | RuntimeException e) {
+                handBack(later, () -> "ERR cannot load " + name + ": cannot read target image " + target
+                        + ": " + e.getMessage());
+                return;
+            }
+            handBack(later, () -> useProfile(name, profile, image));
+        });
+        return null;
+    }
+
+    private String useProfile(String name, Profile profile, Template target){
+        try {
+            config = ClickConfig.fromProfile(profile, target);
+        } catch (IllegalArgumentException e) {
+            return "ERR cannot load " + name + ": " + e.getMessage();
+        }
+        profileName = name;
+        if (engine.isRunning()) engine.updateConfig(config);
+        return "OK loaded " + name;
+    }
+
+    private String updateDelay(String arg){
+        double delayMs;
+        try {
+            delayMs = Double.parseDouble(arg);
+        } catch (NumberFormatException e) {
+            return "ERR usage: update-delay <ms>";
+        }
+        if (!(delayMs > 0) || Double.isInfinite(delayMs)) return "ERR delay must be positive";
+
+        ClickConfig base = engine.isRunning() && engine.getConfig() != null ? engine.getConfig()
+                : config != null ? config : defaultConfig.get();
+        if (base == null) return "ERR no profile loaded and the UI settings are invalid";
+        config = base.withDelayMs(delayMs);
+        if (engine.isRunning()) engine.updateConfig(config);
+        return "OK delay " + delayMs;
+    }
+
+    private String stats(){
+        ClickTelemetry.Snapshot s = engine.getTelemetry().snapshot();
+        LatencyHistogram.Snapshot cmd = commandLatency.snapshot();
+        return String.format(Locale.ROOT,
+                "OK running=%b profile=%s clicks=%d cps=%.1f interval_p50=%d interval_p99=%d late_p99=%d"
+                        + " first_click=%d commands=%d command_p50=%d command_p99=%d command_max=%d",
+                engine.isRunning(), profileName == null ? "-" : profileName.replace(' ', '_'),
+                s.clicks(), s.achievedCps(), s.interval().p50(), s.interval().p99(), s.lateness().p99(),
+                s.firstClickLatency(), cmd.count(), cmd.p50(), cmd.p99(), cmd.max());
+    }
+
+    /**
+     * Per-client buffers. Commands are answered in order; reading pauses while a reply is
+     * pending, or being prepared off the selector thread.
+     */
+    private final class Connection {
+        private final SocketChannel channel;
+        private final ByteBuffer in = ByteBuffer.allocate(MAX_LINE);
+        private final ByteBuffer out = ByteBuffer.allocate(OUT_BUFFER_SIZE);
+        /** When the commands whose replies are in {@link #out} were read. */
+        private long readNanos;
+        private int replies;
+        /** A command's reply is being prepared off the selector thread. */
+        private boolean waiting;
+
+        Connection(SocketChannel channel){
+            this.channel = channel;
+        }
+
+        void read(SelectionKey key) throws IOException {
+            int n = channel.read(in);
+            if (n < 0) {
+                key.cancel();
+                channel.close();
+                return;
+            }
+            readNanos = System.nanoTime();
+            process(key);
+        }
+
+        /** Answers the complete lines in {@link #in}, up to the first one that has to wait. */
+        private void process(SelectionKey key) throws IOException {
+            in.flip();
+            int start = 0;
+            for (int i = 0; i < in.limit() && !waiting; i++) {
+                if (in.get(i) == '\n') {
+                    String line = new String(in.array(), start, i - start, StandardCharsets.UTF_8);
+                    start = i + 1;
+                    String answer = execute(line, pending -> resume(key, pending));
+                    if (answer == null) {
+                        waiting = true;
+                    } else {
+                        reply(answer);
+                    }
+                }
+            }
+            in.position(start);
+            in.compact();
+            if (!waiting && !in.hasRemaining()) {
+                reply("ERR line too long");
+                in.clear();
+            }
+            write(key);
+        }
+
+        /** Selector thread: sends the reply that was waited for and goes on with the buffered lines. */
+        private void resume(SelectionKey key, String answer){
+            if (!key.isValid()) return;
+            waiting = false;
+            reply(answer);
+            try {
+                process(key);
+            } catch (IOException e) {
+                key.cancel();
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Already gone
+                }
+            }
+        }
+
+        private void reply(String line){
+            byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > out.remaining()) {
+                // Only a client that never reads its replies gets here
+                bytes = "ERR reply buffer full\n".getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > out.remaining()) return;
+            }
+            out.put(bytes);
+            replies++;
+        }
+
+        void write(SelectionKey key) throws IOException {
+            out.flip();
+            channel.write(out);
+            out.compact();
+            if (out.position() > 0) {
+                key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+            long now = System.nanoTime();
+            for (; replies > 0; replies--) {
+                commandLatency.record(now - readNanos);
+            }
+            key.interestOps(waiting ? 0 : SelectionKey.OP_READ);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.jaceg18.jclicker.core.engine;
+
+import com.jaceg18.jclicker.core.Profile;
+import com.jaceg18.jclicker.core.input.ClickBackend;
+import com.jaceg18.jclicker.core.input.ClickBackends;
+import com.jaceg18.jclicker.core.target.Template;
+import com.jaceg18.jclicker.core.trigger.PixelTrigger;
+import com.jaceg18.jclicker.util.ClickType;
+
+import java.awt.event.InputEvent;
+import java.nio.file.Path;
+
+/**
+ * Immutable description of one clicking session.
+ * <p>
+ * With a {@link #macro()} the session walks the macro instead of clicking
+ * {@link #clickType()} every {@link #delayMs()}; the repeat settings then count passes
+ * through the macro.
+ * <p>
+ * With a {@link #trigger()} the session only clicks while the trigger matches; clicks
+ * that fall due while it does not are skipped, and a macro only starts a pass while it does.
+ * <p>
+ * With a {@link #target()} each click first looks for the image on screen and clicks its
+ * centre, instead of the custom or current location; a click is skipped while the image
+ * is not found. Macros carry their own positions and ignore the target.
+ * <p>
+ * With a {@link #targetCps()} the session aims for that many clicks per second instead of
+ * clicking every {@link #delayMs()}: a {@link RateController} measures the rate it gets and
+ * corrects the period until the two agree. Macros carry their own timing and ignore it.
+ * <p>
+ * With a {@link #backend()} the session's events go to a sink of that backend instead of
+ * the engine's own. The backend is picked when a session starts; changing it mid-session
+ * takes effect with the next one.
+ */
+public record ClickConfig(ClickType clickType,
+                          boolean repeatUntilStopped,
+                          int repeatTimes,
+                          double delayMs,
+                          boolean useCurrentLocation,
+                          boolean useCustomLocation,
+                          int customX,
+                          int customY,
+                          ClickScheduler.OverrunPolicy overrunPolicy,
+                          CompiledMacro macro,
+                          PixelTrigger trigger,
+                          Template target,
+                          double targetCps,
+                          ClickBackend backend) {
+
+    public ClickConfig {
+        if (overrunPolicy == null) overrunPolicy = ClickScheduler.OverrunPolicy.CATCH_UP;
+        if (!(targetCps >= 0) || Double.isInfinite(targetCps)) {
+            throw new IllegalArgumentException("targetCps must be a positive number, or 0 for none");
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** A builder starting from this config's settings. */
+    public Builder toBuilder() {
+        return new Builder()
+                .clickType(clickType)
+                .repeatUntilStopped(repeatUntilStopped)
+                .repeatTimes(repeatTimes)
+                .delayMs(delayMs)
+                .useCurrentLocation(useCurrentLocation)
+                .useCustomLocation(useCustomLocation)
+                .customLocation(customX, customY)
+                .overrunPolicy(overrunPolicy)
+                .macro(macro)
+                .trigger(trigger)
+                .target(target)
+                .targetCps(targetCps)
+                .backend(backend);
+    }
+
+    /**
+     * Builds the config a profile describes. The target image is not read here, so this
+     * stays cheap enough for any thread; the caller loads it, typically with
+     * {@link Template#load(Path)} on {@link Profile#getTarget()}.
+     *
+     * @param target the profile's target image, or {@code null} to click without one
+     * @throws IllegalArgumentException if the profile's macro does not compile, its trigger does not
+     *                                  parse or its backend is unknown
+     */
+    public static ClickConfig fromProfile(Profile p, Template target) {
+        String macro = p.getMacro();
+        String trigger = p.getTrigger();
+        String backend = p.getBackend();
+        return builder()
+                .clickType(p.getClickType())
+                .repeatUntilStopped(p.isRepeatTilStopped())
+                .repeatTimes(p.getRepeatTimes())
+                .delayMs(p.getDelayMS())
+                .useCurrentLocation(p.isUseCurrentLocation())
+                .useCustomLocation(p.isUseCustomLocation())
+                .customLocation(p.getCustomX(), p.getCustomY())
+                .macro(macro == null || macro.isBlank() ? null : MacroCompiler.compile(macro))
+                .trigger(trigger == null || trigger.isBlank() ? null : PixelTrigger.parse(trigger))
+                .target(target)
+                .targetCps(p.getTargetCps())
+                .backend(backend == null || backend.isBlank() ? null : ClickBackends.find(backend))
+                .build();
+    }
+
+    public ClickConfig withMacro(CompiledMacro macro) {
+        return toBuilder().macro(macro).build();
+    }
+
+    public ClickConfig withTrigger(PixelTrigger trigger) {
+        return toBuilder().trigger(trigger).build();
+    }
+
+    public ClickConfig withTarget(Template target) {
+        return toBuilder().target(target).build();
+    }
+
+    /**
+     * Clicks every {@code delayMs}. This leaves target-rate mode: any {@link #targetCps()}
+     * is reset to 0, since a rate would otherwise keep overriding the delay.
+     */
+    public ClickConfig withDelayMs(double delayMs) {
+        return toBuilder().delayMs(delayMs).targetCps(0).build();
+    }
+
+    /** Aims for {@code targetCps} clicks per second; 0 goes back to {@link #delayMs()}. */
+    public ClickConfig withTargetCps(double targetCps) {
+        return toBuilder().targetCps(targetCps).build();
+    }
+
+    /** Sends the session's events to a sink of {@code backend}; {@code null} for the engine's own. */
+    public ClickConfig withBackend(ClickBackend backend) {
+        return toBuilder().backend(backend).build();
+    }
+
+    public int buttonMask() {
+        return buttonMask(clickType);
+    }
+
+    /** The period clicking starts at: the delay, or the target rate's period. */
+    public long periodNanos() {
+        return targetCps > 0 ? RateController.periodFor(targetCps) : ClickScheduler.periodFromMillis(delayMs);
+    }
+
+    public static int buttonMask(ClickType clickType) {
+        if (clickType == null) return InputEvent.BUTTON1_DOWN_MASK;
+
+        return switch (clickType) {
+            case LEFT -> InputEvent.BUTTON1_DOWN_MASK;
+            case RIGHT -> InputEvent.BUTTON3_DOWN_MASK;
+            case MIDDLE -> InputEvent.BUTTON2_DOWN_MASK;
+        };
+    }
+
+    /**
+     * Settings for a {@link ClickConfig}. Unset, a session clicks the left button every
+     * 100 ms at the current location until stopped, catching up on overruns.
+     */
+    public static final class Builder {
+        private ClickType clickType = ClickType.LEFT;
+        private boolean repeatUntilStopped = true;
+        private int repeatTimes;
+        private double delayMs = 100;
+        private boolean useCurrentLocation = true;
+        private boolean useCustomLocation;
+        private int customX;
+        private int customY;
+        private ClickScheduler.OverrunPolicy overrunPolicy = ClickScheduler.OverrunPolicy.CATCH_UP;
+        private CompiledMacro macro;
+        private PixelTrigger trigger;
+        private Template target;
+        private double targetCps;
+        private ClickBackend backend;
+
+        private Builder() {
+        }
+
+        public Builder clickType(ClickType clickType) {
+            this.clickType = clickType;
+            return this;
+        }
+
+        public Builder repeatUntilStopped(boolean repeatUntilStopped) {
+            this.repeatUntilStopped = repeatUntilStopped;
+            return this;
+        }
+
+        public Builder repeatTimes(int repeatTimes) {
+            this.repeatTimes = repeatTimes;
+            return this;
+        }
+
+        public Builder delayMs(double delayMs) {
+            this.delayMs = delayMs;
+            return this;
+        }
+
+        public Builder useCurrentLocation(boolean useCurrentLocation) {
+            this.useCurrentLocation = useCurrentLocation;
+            return this;
+        }
+
+        public Builder useCustomLocation(boolean useCustomLocation) {
+            this.useCustomLocation = useCustomLocation;
+            return this;
+        }
+
+        public Builder customLocation(int x, int y) {
+            this.customX = x;
+            this.customY = y;
+            return this;
+        }
+
+        public Builder overrunPolicy(ClickScheduler.OverrunPolicy overrunPolicy) {
+            this.overrunPolicy = overrunPolicy;
+            return this;
+        }
+
+        public Builder macro(CompiledMacro macro) {
+            this.macro = macro;
+            return this;
+        }
+
+        public Builder trigger(PixelTrigger trigger) {
+            this.trigger = trigger;
+            return this;
+        }
+
+        public Builder target(Template target) {
+            this.target = target;
+            return this;
+        }
+
+        public Builder targetCps(double targetCps) {
+            this.targetCps = targetCps;
+            return this;
+        }
+
+        public Builder backend(ClickBackend backend) {
+            this.backend = backend;
+            return this;
+        }
+
+        /** @throws IllegalArgumentException if the target rate is negative or not finite */
+        public ClickConfig build() {
+            return new ClickConfig(clickType, repeatUntilStopped, repeatTimes, delayMs, useCurrentLocation,
+                    useCustomLocation, customX, customY, overrunPolicy, macro, trigger, target, targetCps, backend);
+        }
+    }
+}
@@ -0,0 +1,632 @@
+package com.jaceg18.jclicker.core.engine;
+
+import com.jaceg18.jclicker.core.input.ClickBackend;
+import com.jaceg18.jclicker.core.trigger.TriggerMonitor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs click sessions on a dedicated thread and dispatches them to a {@link ClickSink}.
+ * <p>
+ * The engine knows nothing about JavaFX or AWT; callers get notified through a
+ * {@link Listener} and decide themselves which thread to react on.
+ * <p>
+ * Stopping is immediate: {@link #stop()} unparks the engine thread, which is waiting in
+ * {@link ClickScheduler#awaitNext(java.util.function.BooleanSupplier)}, so the stop takes
+ * effect in microseconds no matter how long the configured delay is. The active session
+ * is re-checked right before every dispatch, and {@link #stopAndWait(long)} only returns
+ * once the loop has exited, so no click is emitted after a stop has been acknowledged.
+ * <p>
+ * The sink is created once, on the engine thread, and reused by every session. Sessions
+ * whose config names a {@link ClickConfig#backend()} use a sink of that backend instead,
+ * likewise created on first use and kept.
+ * {@link #warmUp()} does that ahead of time and runs the loop against a
+ * {@link NoOpClickSink} until the JIT has compiled it, so the first real click after a
+ * hotkey press does not pay for thread creation, backend setup or interpretation.
+ * <p>
+ * The running session reads its settings through an atomically published
+ * {@link ClickConfig}; {@link #updateConfig(ClickConfig)} swaps in a new one that takes
+ * effect on the next click, without a stop/start gap and without locking the loop.
+ * <p>
+ * A config with a {@link ClickConfig#trigger()} is watched on the {@link TriggerMonitor}
+ * the engine was given; clicks that fall due while the trigger does not match are skipped.
+ * A {@link ClickConfig#target()} is looked up on the engine thread, through the monitor's
+ * frame source, right before each click.
+ * <p>
+ * With a {@link ClickGovernor}, every press goes through it first. A plain click it holds
+ * back is skipped like one whose trigger does not match; a macro step waits for its token.
+ * <p>
+ * A config with a {@link ClickConfig#targetCps()} has its period steered by a
+ * {@link RateController}; its steady-state error is published through the telemetry.
+ */
+public class ClickEngine {
+
+    /** Callback invoked on the engine thread once a session has ended. */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * @param clicks number of clicks dispatched during the session
+         * @param error  the failure that ended the session, or {@code null} on a normal stop
+         */
+        void onFinished(long clicks, Exception error);
+    }
+
+    private final ClickSink.Factory sinkFactory;
+    private final TriggerMonitor triggerMonitor;
+    private final ClickGovernor governor;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "jclicker-engine");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Id of the session allowed to click, 0 when stopped. This is the engine's whole
+     * run state: start, stop and toggle are CAS transitions on it, so they can be
+     * called from any thread (native hook, UI, control socket) without locking.
+     */
+    private final AtomicLong activeSession = new AtomicLong();
+    private final AtomicLong sessionCounter = new AtomicLong();
+    /** Highest session handed to the engine thread. */
+    private final AtomicLong launchedSession = new AtomicLong();
+    /** Highest session whose loop has exited. Guarded by {@code this}. */
+    private long finishedSession;
+
+    private volatile Thread engineThread;
+    private volatile long stopRequestedNanos;
+
+    private final ClickTelemetry telemetry = new ClickTelemetry();
+
+    /** Settings of the current session, swapped atomically by {@link #updateConfig(ClickConfig)}. */
+    private final AtomicReference<ClickConfig> liveConfig = new AtomicReference<>();
+
+    /** Created lazily and reused across sessions. Only touched on the engine thread. */
+    private ClickSink sink;
+    /** Sinks of the backends sessions asked for, by backend name. Only touched on the engine thread. */
+    private final Map<String, ClickSink> backendSinks = new HashMap<>();
+
+    /** A macro that falls further behind than this shifts its schedule instead of catching up. */
+    static final long MACRO_REBASE_NANOS = 50_000_000L;
+
+    /**
+     * How long {@link #warmUp()} runs the loop. At the scheduler's floor of
+     * {@link ClickScheduler#MIN_PERIOD_NANOS} that is a few thousand clicks, enough for the
+     * JIT to compile it, while the hot spin wait in between gets far more iterations.
+     */
+    static final long WARM_UP_NANOS = 200_000_000L;
+
+    public ClickEngine(ClickSink.Factory sinkFactory) {
+        this(sinkFactory, null);
+    }
+
+    /**
+     * @param triggerMonitor watches the triggers of sessions that have one and supplies the
+     *                       screen for targets; {@code null} if this engine never needs the screen
+     */
+    public ClickEngine(ClickSink.Factory sinkFactory, TriggerMonitor triggerMonitor) {
+        this(sinkFactory, triggerMonitor, null);
+    }
+
+    /**
+     * @param governor caps the click rate, shared with other producers; {@code null} for no cap
+     */
+    public ClickEngine(ClickSink.Factory sinkFactory, TriggerMonitor triggerMonitor, ClickGovernor governor) {
+        this.sinkFactory = sinkFactory;
+        this.triggerMonitor = triggerMonitor;
+        this.governor = governor;
+    }
+
+    /**
+     * Starts a new session. A session that is still winding down is superseded.
+     *
+     * @throws IllegalStateException if the config has a trigger and this engine has no monitor
+     */
+    public void start(ClickConfig config, Listener listener) {
+        start(config, listener, System.nanoTime());
+    }
+
+    /**
+     * Starts a new session on behalf of a trigger (hotkey press, button click...) that
+     * happened at {@code triggerNanos}; the time from there to the first
+     * {@link ClickSink#mousePress(int)} is recorded as the session's first-click latency.
+     */
+    public void start(ClickConfig config, Listener listener, long triggerNanos) {
+        TriggerGate.check(config, triggerMonitor);
+        long session = sessionCounter.incrementAndGet();
+        stopRequestedNanos = System.nanoTime();
+        activeSession.set(session);
+        launch(session, config, listener, triggerNanos);
+    }
+
+    /**
+     * Atomically starts a session if the engine is idle, or stops the running one.
+     * Concurrent toggles never both start or both stop.
+     *
+     * @param config settings to start with; may be {@code null} to only ever stop, for
+     *               callers whose settings are currently invalid
+     * @return {@code true} if a session was started, {@code false} if one was stopped
+     *         (or none was running and {@code config} is {@code null})
+     * @throws IllegalStateException if this would start a session with a trigger and the
+     *                               engine has no monitor
+     */
+    public boolean toggle(ClickConfig config, Listener listener, long triggerNanos) {
+        while (true) {
+            long current = activeSession.get();
+            if (current != 0) {
+                stopRequestedNanos = System.nanoTime();
+                if (activeSession.compareAndSet(current, 0)) {
+                    wakeEngineThread();
+                    return false;
+                }
+            } else {
+                if (config == null) return false;
+                // Only starting needs a usable config; a stop must always get through
+                TriggerGate.check(config, triggerMonitor);
+                long session = sessionCounter.incrementAndGet();
+                if (activeSession.compareAndSet(0, session)) {
+                    launch(session, config, listener, triggerNanos);
+                    return true;
+                }
+            }
+        }
+    }
+
+    private void launch(long session, ClickConfig config, Listener listener, long triggerNanos) {
+        liveConfig.set(config);
+        launchedSession.accumulateAndGet(session, Math::max);
+        executor.submit(() -> runSession(session, listener, triggerNanos));
+        // Cut a superseded session (or the warm-up) short
+        wakeEngineThread();
+    }
+
+    private void wakeEngineThread() {
+        Thread t = engineThread;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    /**
+     * Signals the running session to stop and wakes the engine thread. Does not wait;
+     * see {@link #stopAndWait(long)}.
+     */
+    public void stop() {
+        stopRequestedNanos = System.nanoTime();
+        activeSession.set(0);
+        wakeEngineThread();
+    }
+
+    /**
+     * Stops the running session and waits until its loop has exited.
+     *
+     * @return {@code true} if the stop was acknowledged within the timeout
+     */
+    public boolean stopAndWait(long timeoutNanos) throws InterruptedException {
+        long target = launchedSession.get();
+        stop();
+        long deadline = System.nanoTime() + timeoutNanos;
+        synchronized (this) {
+            while (finishedSession < target) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        }
+        return true;
+    }
+
+    private synchronized void markFinished(long session) {
+        finishedSession = Math.max(finishedSession, session);
+        notifyAll();
+    }
+
+    public boolean isRunning() {
+        return activeSession.get() != 0;
+    }
+
+    /**
+     * Publishes new settings for the running session. The change applies to the next
+     * click; a pending wait is re-timed against the new delay right away.
+     *
+     * @throws IllegalStateException if the config has a trigger and this engine has no monitor
+     */
+    public void updateConfig(ClickConfig config) {
+        if (config == null) return;
+        TriggerGate.check(config, triggerMonitor);
+        liveConfig.set(config);
+        wakeEngineThread();
+    }
+
+    /** Settings of the current (or most recent) session, {@code null} before the first one. */
+    public ClickConfig getConfig() {
+        return liveConfig.get();
+    }
+
+    /**
+     * Timing statistics of the current (or most recent) session. Safe to read from any thread.
+     */
+    public ClickTelemetry getTelemetry() {
+        return telemetry;
+    }
+
+    /**
+     * Creates the engine thread and the sink, then exercises the click loop against a
+     * {@link NoOpClickSink} for {@link #WARM_UP_NANOS} so it is JIT-compiled before the
+     * first real session. A session started in the meantime cuts the warm-up short.
+     */
+    public Future<?> warmUp() {
+        return executor.submit(() -> {
+            engineThread = Thread.currentThread();
+            try {
+                sink();
+            } catch (Exception ignored) {
+                // Reported to the listener when a real session tries again
+            }
+            ClickConfig warmUpConfig = ClickConfig.builder()
+                    .repeatUntilStopped(true)
+                    .delayMs(0)
+                    .useCurrentLocation(false)
+                    .useCustomLocation(true)
+                    .build();
+            try {
+                long until = System.nanoTime() + WARM_UP_NANOS;
+                runLoop(new AtomicReference<>(warmUpConfig), ClickScheduler.MIN_PERIOD_NANOS, NoOpClickSink.INSTANCE,
+                        () -> activeSession.get() == 0 && System.nanoTime() - until < 0, new TriggerGate(triggerMonitor), null, null, System.nanoTime());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            telemetry.reset();
+        });
+    }
+
+    private ClickSink sink() throws Exception {
+        if (sink == null) {
+            sink = sinkFactory.create();
+        }
+        return sink;
+    }
+
+    private ClickSink sink(ClickConfig config) throws Exception {
+        ClickBackend backend = config.backend();
+        if (backend == null) return sink();
+        ClickSink backendSink = backendSinks.get(backend.name());
+        if (backendSink == null) {
+            backendSink = backend.create();
+            backendSinks.put(backend.name(), backendSink);
+        }
+        return backendSink;
+    }
+
+    private void runSession(long session, Listener listener, long triggerNanos) {
+        long clicks = 0;
+        Exception error = null;
+        engineThread = Thread.currentThread();
+        TriggerGate gate = new TriggerGate(triggerMonitor);
+        try {
+            clicks = runLoop(liveConfig, 0, sink(liveConfig.get()),
+                    () -> activeSession.get() == session, gate, locator(), governor, triggerNanos);
+        } catch (Exception ex) {
+            error = ex;
+        } finally {
+            gate.close();
+            telemetry.recordEnd(System.nanoTime());
+            activeSession.compareAndSet(session, 0);
+            markFinished(session);
+        }
+        if (listener != null) {
+            listener.onFinished(clicks, error);
+        }
+    }
+
+    /**
+     * @param configRef           where the loop picks up its settings; re-read before every click
+     * @param periodOverrideNanos fixed period to use instead of the configured delay, 0 for none
+     * @param gate                holds back clicks while the config's trigger does not match
+     * @param locator             finds the config's target; {@code null} if there is no screen
+     * @param governor            caps the click rate; {@code null} for no cap
+     */
+    private long runLoop(AtomicReference<ClickConfig> configRef, long periodOverrideNanos, ClickSink sink,
+                         BooleanSupplier active, TriggerGate gate, TargetLocator locator,
+                         ClickGovernor governor, long triggerNanos) throws InterruptedException {
+        WaitCondition waitCondition = new WaitCondition(active, configRef);
+        ClickConfig config = waitCondition.applied;
+        if (config.macro() != null) {
+            return runMacro(configRef, sink, active, waitCondition, gate, governor, triggerNanos);
+        }
+        int buttonMask = config.buttonMask();
+        ClickScheduler scheduler = new ClickScheduler(
+                periodOverrideNanos > 0 ? periodOverrideNanos : config.periodNanos(), config.overrunPolicy());
+        RateController rate = periodOverrideNanos > 0 ? null : RateController.follow(null, config);
+
+        long count = 0;
+        telemetry.reset();
+        scheduler.start(System.nanoTime());
+
+        while (true) {
+            if (!active.getAsBoolean()) {
+                telemetry.recordStop(System.nanoTime() - stopRequestedNanos);
+                break;
+            }
+            ClickConfig latest = configRef.get();
+            if (latest != config) {
+                if (latest.macro() != null) {
+                    // Switched to a macro mid-session; the macro loop takes it from here
+                    return count + runMacro(configRef, sink, active, waitCondition, gate, governor, triggerNanos, count);
+                }
+                config = latest;
+                waitCondition.applied = latest;
+                buttonMask = latest.buttonMask();
+                if (periodOverrideNanos <= 0) {
+                    // An unchanged target keeps its controller, and the period it has settled on
+                    rate = RateController.follow(rate, latest);
+                    scheduler.reschedule(rate != null ? rate.getPeriodNanos() : latest.periodNanos());
+                }
+            }
+            if (!config.repeatUntilStopped() && count >= config.repeatTimes()) {
+                break;
+            }
+
+            long lateness = scheduler.awaitNext(waitCondition);
+            if (lateness == ClickScheduler.ABANDONED) {
+                // Either stopped or re-configured; the top of the loop sorts out which
+                continue;
+            }
+            // Last check before the click: once this fails, nothing more is dispatched
+            if (!active.getAsBoolean()) {
+                telemetry.recordStop(System.nanoTime() - stopRequestedNanos);
+                break;
+            }
+            if (!gate.isOpen(config)) {
+                // The trigger does not match: this click is skipped, not postponed
+                if (rate != null) rate.restart();
+                continue;
+            }
+            if (governor != null && governor.tryAcquire(buttonMask, System.nanoTime()) > 0) {
+                telemetry.recordThrottled();
+                if (rate != null) rate.restart();
+                continue;
+            }
+            if (config.target() != null) {
+                if (!locator.locate(config.target())) {
+                    if (rate != null) rate.restart();
+                    continue;
+                }
+                sink.mouseMove(locator.x(), locator.y());
+            }
+
+            long clickStart = System.nanoTime();
+            dispatch(config, buttonMask, sink);
+            telemetry.recordClick(clickStart, System.nanoTime() - clickStart, lateness);
+            if (count == 0) {
+                telemetry.recordFirstClick(clickStart - triggerNanos);
+            }
+            if (rate != null && rate.onClick(clickStart)) {
+                scheduler.setPeriodNanos(rate.getPeriodNanos());
+                telemetry.recordRateError(rate.getSteadyStateError());
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private long runMacro(AtomicReference<ClickConfig> configRef, ClickSink sink, BooleanSupplier active,
+                          WaitCondition waitCondition, TriggerGate gate, ClickGovernor governor,
+                          long triggerNanos) throws InterruptedException {
+        telemetry.reset();
+        return runMacro(configRef, sink, active, waitCondition, gate, governor, triggerNanos, 0);
+    }
+
+    /**
+     * Walks the session's {@link CompiledMacro} step by step against absolute deadlines.
+     * The loop body is an index increment and a switch on the step's op; nothing is
+     * allocated. A config change restarts the walk at the first step of the new macro, or
+     * at a single-click pass built from the new settings if they have no macro. A trigger is
+     * checked before each pass, never in the middle of one. A press the governor holds back
+     * is retried once its token is due.
+     *
+     * @param clicksBefore clicks already made by this session, for the repeat count
+     * @return clicks (button presses) dispatched by this loop
+     */
+    private long runMacro(AtomicReference<ClickConfig> configRef, ClickSink sink, BooleanSupplier active,
+                          WaitCondition waitCondition, TriggerGate gate, ClickGovernor governor,
+                          long triggerNanos, long clicksBefore) throws InterruptedException {
+        ClickConfig config = configRef.get();
+        waitCondition.applied = config;
+        CompiledMacro macro = macroOf(config);
+        ClickScheduler scheduler = new ClickScheduler(1, ClickScheduler.OverrunPolicy.CATCH_UP);
+
+        long clicks = 0;
+        long passes = 0;
+        int step = 0;
+        // The first pass waits before step 0 like every later one does
+        long deadline = System.nanoTime() + macro.nanos[0];
+
+        while (true) {
+            if (!active.getAsBoolean()) {
+                telemetry.recordStop(System.nanoTime() - stopRequestedNanos);
+                break;
+            }
+            ClickConfig latest = configRef.get();
+            if (latest != config) {
+                config = latest;
+                waitCondition.applied = latest;
+                macro = macroOf(latest);
+                step = 0;
+                passes = 0;
+            }
+            if (step == 0 && !config.repeatUntilStopped() && passes >= config.repeatTimes()) {
+                break;
+            }
+
+            scheduler.start(deadline);
+            long lateness = scheduler.awaitNext(waitCondition);
+            if (lateness == ClickScheduler.ABANDONED) {
+                continue;
+            }
+            if (!active.getAsBoolean()) {
+                telemetry.recordStop(System.nanoTime() - stopRequestedNanos);
+                break;
+            }
+            if (lateness > MACRO_REBASE_NANOS) {
+                // Fell far behind (suspend, long GC): carry on from now instead of bursting
+                deadline += lateness;
+            }
+            if (step == 0 && !gate.isOpen(config)) {
+                deadline = System.nanoTime() + gate.recheckNanos();
+                continue;
+            }
+
+            long stepStart = System.nanoTime();
+            if (governor != null && isPress(macro.op[step])) {
+                long wait = governor.tryAcquire(macro.mask[step], stepStart);
+                if (wait > 0) {
+                    telemetry.recordThrottled();
+                    deadline = stepStart + wait;
+                    continue;
+                }
+            }
+            switch (macro.op[step]) {
+                case CompiledMacro.MOVE -> sink.mouseMove(macro.x[step], macro.y[step]);
+                case CompiledMacro.PRESS -> {
+                    sink.mousePress(macro.mask[step]);
+                    telemetry.recordClick(stepStart, System.nanoTime() - stepStart, lateness);
+                    if (clicksBefore + clicks == 0) {
+                        telemetry.recordFirstClick(stepStart - triggerNanos);
+                    }
+                    clicks++;
+                }
+                case CompiledMacro.RELEASE -> sink.mouseRelease(macro.mask[step]);
+                case CompiledMacro.KEY_PRESS -> sink.keyPress(macro.mask[step]);
+                default -> sink.keyRelease(macro.mask[step]);
+            }
+
+            if (++step == macro.op.length) {
+                step = 0;
+                passes++;
+                deadline += macro.tailNanos;
+            }
+            deadline += macro.nanos[step];
+        }
+        return clicks;
+    }
+
+    /** Whether a macro step is one the {@link ClickGovernor} counts. */
+    static boolean isPress(byte op) {
+        return op == CompiledMacro.PRESS || op == CompiledMacro.KEY_PRESS;
+    }
+
+    private TargetLocator locator() {
+        return triggerMonitor == null ? null : new TargetLocator(triggerMonitor.getSourceFactory());
+    }
+
+    /** The macro to walk for {@code config}: its own, or one pass of its single-button click. */
+    static CompiledMacro macroOf(ClickConfig config) {
+        if (config.macro() != null) return config.macro();
+        int mask = config.buttonMask();
+        boolean move = config.useCustomLocation();
+        int steps = move ? 3 : 2;
+        byte[] op = new byte[steps];
+        int[] x = new int[steps];
+        int[] y = new int[steps];
+        int[] masks = new int[steps];
+        int i = 0;
+        if (move) {
+            op[i] = CompiledMacro.MOVE;
+            x[i] = config.customX();
+            y[i] = config.customY();
+            i++;
+        }
+        op[i] = CompiledMacro.PRESS;
+        masks[i++] = mask;
+        op[i] = CompiledMacro.RELEASE;
+        masks[i] = mask;
+        return new CompiledMacro(op, x, y, masks, new long[steps], config.periodNanos(), null);
+    }
+
+    /**
+     * Keeps the scheduler waiting while the session is active and its config unchanged.
+     * One instance per session, so the loop itself allocates nothing.
+     */
+    private static final class WaitCondition implements BooleanSupplier {
+        private final BooleanSupplier active;
+        private final AtomicReference<ClickConfig> configRef;
+        private ClickConfig applied;
+
+        WaitCondition(BooleanSupplier active, AtomicReference<ClickConfig> configRef) {
+            this.active = active;
+            this.configRef = configRef;
+            this.applied = configRef.get();
+        }
+
+        @Override
+        public boolean getAsBoolean() {
+            return configRef.get() == applied && active.getAsBoolean();
+        }
+    }
+
+    /**
+     * Emits one click for {@code config}. Kept separate from the loop so the dispatch
+     * cost can be measured on its own. A config with a target has already been moved to it.
+     */
+    static void dispatch(ClickConfig config, int buttonMask, ClickSink sink) {
+        if (config.useCustomLocation() && config.target() == null) {
+            sink.mouseMove(config.customX(), config.customY());
+        }
+
+        sink.mousePress(buttonMask);
+        sink.mouseRelease(buttonMask);
+    }
+
+    /**
+     * Runs a single session synchronously on the calling thread, bypassing the executor.
+     * Used by benchmarks and tests that want to drive the loop directly.
+     *
+     * @return number of clicks dispatched
+     */
+    public long runNow(ClickConfig config, ClickSink sink) throws InterruptedException {
+        TriggerGate.check(config, triggerMonitor);
+        long session = sessionCounter.incrementAndGet();
+        activeSession.set(session);
+        launchedSession.accumulateAndGet(session, Math::max);
+        liveConfig.set(config);
+        engineThread = Thread.currentThread();
+        TriggerGate gate = new TriggerGate(triggerMonitor);
+        try {
+            return runLoop(liveConfig, 0, sink,
+                    () -> activeSession.get() == session, gate, locator(), governor, System.nanoTime());
+        } finally {
+            gate.close();
+            telemetry.recordEnd(System.nanoTime());
+            activeSession.compareAndSet(session, 0);
+            markFinished(session);
+        }
+    }
+
+    /**
+     * Stops any running session and shuts the engine thread down.
+     */
+    public void shutdown() {
+        stop();
+        executor.shutdown();
+        try {
+            // The session wakes up immediately; only a sink stuck in native code can take longer
+            if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.jaceg18.jclicker.core.engine;
+
+import java.awt.event.InputEvent;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps how fast clicks reach the OS, across every engine and job that shares it.
+ * <p>
+ * There is one token bucket for all clicks and one per mouse button. A click needs a
+ * token from the global bucket and from its button's; up to {@code burst} tokens build up
+ * while clicking is slower than the limit, so short bursts pass untouched and longer ones
+ * are held to the limit. Each bucket is a single {@link AtomicLong} holding the time its
+ * next token is due (the "generic cell rate" form of a token bucket), so taking a token
+ * is one compare-and-set and producers on different threads never lock each other out.
+ * <p>
+ * A click that gets no token is counted as throttled. What happens to it is up to the
+ * producer: plain clicks are skipped and keep their schedule, macro steps wait for the
+ * token so the macro stays in order.
+ */
+public final class ClickGovernor {
+
+    /** System property overriding {@link #DEFAULT_MAX_CPS}; 0 for no limit. */
+    public static final String MAX_CPS_PROPERTY = "jclicker.maxCps";
+    /** System property overriding {@link #DEFAULT_MAX_BUTTON_CPS}; 0 for no limit. */
+    public static final String MAX_BUTTON_CPS_PROPERTY = "jclicker.maxButtonCps";
+    // Above the 2000 CPS one session is built for, so they only stop runaway clicking
+    public static final double DEFAULT_MAX_CPS = 5_000;
+    public static final double DEFAULT_MAX_BUTTON_CPS = 2_500;
+    public static final int DEFAULT_BURST = 20;
+
+    private static final int[] BUTTONS = {
+            InputEvent.BUTTON1_DOWN_MASK, InputEvent.BUTTON2_DOWN_MASK, InputEvent.BUTTON3_DOWN_MASK};
+
+    private final double maxCps;
+    private final double maxButtonCps;
+    private final int burst;
+    private final Bucket global;
+    private final Bucket[] buttons = new Bucket[BUTTONS.length];
+
+    /**
+     * @param maxCps       clicks per second over all buttons; 0 for no limit
+     * @param maxButtonCps clicks per second of any one button; 0 for no limit
+     * @param burst        clicks that may pass back to back after a pause, at least 1
+     */
+    public ClickGovernor(double maxCps, double maxButtonCps, int burst){
+        if (!(maxCps >= 0) || !(maxButtonCps >= 0)) throw new IllegalArgumentException("limits must not be negative");
+        if (burst < 1) throw new IllegalArgumentException("burst must be at least 1");
+        this.maxCps = maxCps;
+        this.maxButtonCps = maxButtonCps;
+        this.burst = burst;
+        long now = System.nanoTime();
+        this.global = maxCps > 0 ? new Bucket(maxCps, burst, now) : null;
+        if (maxButtonCps > 0) {
+            for (int i = 0; i < buttons.length; i++) buttons[i] = new Bucket(maxButtonCps, burst, now);
+        }
+    }
+
+    /**
+     * A governor with the limits set by {@link #MAX_CPS_PROPERTY} and
+     * {@link #MAX_BUTTON_CPS_PROPERTY}, or the defaults.
+     *
+     * @throws IllegalArgumentException if a property is not a number of at least 0
+     */
+    public static ClickGovernor fromSystemProperties(){
+        return new ClickGovernor(limit(MAX_CPS_PROPERTY, DEFAULT_MAX_CPS),
+                limit(MAX_BUTTON_CPS_PROPERTY, DEFAULT_MAX_BUTTON_CPS), DEFAULT_BURST);
+    }
+
+    private static double limit(String property, double fallback){
+        String value = System.getProperty(property);
+        if (value == null || value.isBlank()) return fallback;
+        try {
+            double cps = Double.parseDouble(value.trim());
+            if (cps >= 0 && !Double.isInfinite(cps)) return cps;
+        } catch (NumberFormatException ignored) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Invalid " + property + ": " + value);
+    }
+
+    /**
+     * Takes a token for one click.
+     *
+     * @param buttonMask the click's {@link InputEvent} button mask; any other value (a key,
+     *                   say) only counts against the global limit
+     * @param nowNanos   {@link System#nanoTime()}
+     * @return 0 if the click may go ahead, otherwise how long until a token is due
+     */
+    public long tryAcquire(int buttonMask, long nowNanos){
+        Bucket button = bucket(buttonMask);
+        if (global != null) {
+            long wait = global.acquire(nowNanos);
+            if (wait > 0) return wait;
+        }
+        if (button != null) {
+            long wait = button.acquire(nowNanos);
+            if (wait > 0) {
+                // Denied after all: the global token was not used
+                if (global != null) global.refund();
+                return wait;
+            }
+        }
+        return 0;
+    }
+
+    private Bucket bucket(int buttonMask){
+        for (int i = 0; i < BUTTONS.length; i++) {
+            if (BUTTONS[i] == buttonMask) return buttons[i];
+        }
+        return null;
+    }
+
+    public double getMaxCps(){return maxCps;}
+    public double getMaxButtonCps(){return maxButtonCps;}
+    public int getBurst(){return burst;}
+
+    /** Clicks denied by the global limit. */
+    public long getGlobalThrottled(){
+        return global == null ? 0 : global.throttled.sum();
+    }
+
+    /** Clicks of {@code buttonMask} denied by its button limit. */
+    public long getButtonThrottled(int buttonMask){
+        Bucket bucket = bucket(buttonMask);
+        return bucket == null ? 0 : bucket.throttled.sum();
+    }
+
+    /** Clicks denied by any limit. */
+    public long getThrottled(){
+        long total = getGlobalThrottled();
+        for (int mask : BUTTONS) total += getButtonThrottled(mask);
+        return total;
+    }
+
+    @Override
+    public String toString(){
+        return String.format("%s, %s per button, bursts of %d", rate(maxCps), rate(maxButtonCps), burst);
+    }
+
+    private static String rate(double cps){
+        return cps > 0 ? String.format(Locale.ROOT, "%.0f CPS", cps) : "no limit";
+    }
+
+    private static final class Bucket {
+        private final long intervalNanos;
+        /** How far ahead of now the next token may be due and still be granted. */
+        private final long toleranceNanos;
+        /** When the next token is due if clicks keep coming at the limit. */
+        private final AtomicLong nextDue;
+        private final LongAdder throttled = new LongAdder();
+
+        Bucket(double cps, int burst, long now){
+            this.intervalNanos = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / cps));
+            this.toleranceNanos = (burst - 1) * intervalNanos;
+            this.nextDue = new AtomicLong(now);
+        }
+
+        long acquire(long now){
+            while (true) {
+                long due = nextDue.get();
+                long start = due - now > 0 ? due : now;
+                long wait = start - now - toleranceNanos;
+                if (wait > 0) {
+                    throttled.increment();
+                    return wait;
+                }
+                if (nextDue.compareAndSet(due, start + intervalNanos)) return 0;
+            }
+        }
+
+        void refund(){
+            nextDue.addAndGet(-intervalNanos);
+        }
+    }
+}
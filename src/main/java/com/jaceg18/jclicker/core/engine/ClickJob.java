@@ -0,0 +1,98 @@
+package com.jaceg18.jclicker.core.engine;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One click schedule running on a {@link MultiClickEngine}.
+ * <p>
+ * The public methods may be called from any thread. Everything else belongs to the
+ * engine's timing thread.
+ */
+public final class ClickJob {
+
+    private final MultiClickEngine owner;
+    private final long id;
+    private final String name;
+    private final ClickTelemetry telemetry = new ClickTelemetry();
+    private final CompletableFuture<Long> finished = new CompletableFuture<>();
+    final long submittedNanos;
+
+    private volatile ClickConfig config;
+    private volatile boolean running = true;
+
+    // Timing thread only
+    ClickConfig applied;
+    ClickScheduler scheduler;
+    int buttonMask;
+    long clicks;
+    CompiledMacro macro;
+    int step;
+    long passes;
+    TriggerGate gate;
+    TargetLocator locator;
+    RateController rate;
+    ClickSink sink;
+
+    // Timer wheel links, see TimerWheel
+    ClickJob wheelPrev;
+    ClickJob wheelNext;
+    int wheelBucket = -1;
+    long wheelTick;
+
+    ClickJob(MultiClickEngine owner, long id, String name, ClickConfig config, long submittedNanos) {
+        this.owner = owner;
+        this.id = id;
+        this.name = name;
+        this.config = config;
+        this.submittedNanos = submittedNanos;
+    }
+
+    public long getId() {return id;}
+    public String getName() {return name;}
+    public ClickConfig getConfig() {return config;}
+    public ClickTelemetry getTelemetry() {return telemetry;}
+    public boolean isRunning() {return running;}
+
+    /**
+     * Completes with the number of clicks once the job has ended, or exceptionally if
+     * it could not click. Completed on the engine's timing thread.
+     */
+    public CompletableFuture<Long> finished() {
+        return finished;
+    }
+
+    /** Ends the job. No further click is started for it once this returns. */
+    public void cancel() {
+        if (!running) return;
+        running = false;
+        owner.requestCancel(this);
+    }
+
+    /**
+     * Swaps the job's settings without restarting it. The pending click is re-timed to one
+     * new period after the previous one.
+     *
+     * @throws IllegalStateException if the config has a trigger and the engine has no monitor
+     */
+    public void updateConfig(ClickConfig config) {
+        if (config == null) throw new IllegalArgumentException("config must not be null");
+        owner.checkConfig(config);
+        this.config = config;
+        owner.requestUpdate(this);
+    }
+
+    long deadline() {
+        return scheduler.getNextDeadline();
+    }
+
+    void finish(Exception error) {
+        running = false;
+        if (error != null) finished.completeExceptionally(error);
+        else finished.complete(clicks);
+    }
+
+    @Override
+    public String toString() {
+        return "ClickJob[" + id + " " + name + "]";
+    }
+}
@@ -0,0 +1,176 @@
+package com.jaceg18.jclicker.core.engine;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Paces clicks against absolute deadlines taken from {@link System#nanoTime()}.
+ * <p>
+ * Every deadline is derived from the previous deadline rather than from the time the
+ * last click actually happened, so wake-up overshoot never accumulates into drift.
+ * Waiting is hybrid: the thread parks until it is close to the deadline and then
+ * spins the remaining few microseconds, which is what makes sub-millisecond periods
+ * reachable at all.
+ * <p>
+ * A wait can be cut short: {@link #awaitNext(BooleanSupplier)} re-checks its condition
+ * every time the thread wakes up, so {@link LockSupport#unpark(Thread)} on the waiting
+ * thread ends the wait immediately instead of at the deadline.
+ */
+public class ClickScheduler {
+
+    /**
+     * What to do when the loop falls behind by more than one period
+     * (GC pause, slow dispatch, descheduled thread...).
+     */
+    public enum OverrunPolicy {
+        /** Fire the missed clicks back-to-back until the schedule is caught up. */
+        CATCH_UP,
+        /** Drop the missed clicks and continue on the next deadline in the future. */
+        SKIP
+    }
+
+    /** Shortest period a configured delay is clamped to (20,000 CPS). */
+    public static final long MIN_PERIOD_NANOS = 50_000L;
+
+    /** Default window before a deadline that is spun instead of parked. */
+    public static final long DEFAULT_SPIN_NANOS = 200_000L;
+
+    /** Returned by {@link #awaitNext(BooleanSupplier)} when the wait was abandoned. */
+    public static final long ABANDONED = -1L;
+
+    /** Catch-up bursts are capped at this many periods, after that the schedule is rebased. */
+    static final int MAX_CATCH_UP_PERIODS = 16;
+
+    private final OverrunPolicy overrunPolicy;
+    private final long spinNanos;
+
+    private long periodNanos;
+    private long nextDeadline;
+    private long skipped;
+
+    public ClickScheduler(long periodNanos, OverrunPolicy overrunPolicy) {
+        this(periodNanos, overrunPolicy, DEFAULT_SPIN_NANOS);
+    }
+
+    public ClickScheduler(long periodNanos, OverrunPolicy overrunPolicy, long spinNanos) {
+        if (overrunPolicy == null) throw new IllegalArgumentException("overrunPolicy must not be null");
+        if (spinNanos < 0) throw new IllegalArgumentException("spinNanos must not be negative");
+        this.overrunPolicy = overrunPolicy;
+        this.spinNanos = spinNanos;
+        setPeriodNanos(periodNanos);
+    }
+
+    /**
+     * Converts a delay in (possibly fractional) milliseconds to a period in nanoseconds,
+     * clamped to {@link #MIN_PERIOD_NANOS}.
+     */
+    public static long periodFromMillis(double delayMs) {
+        if (Double.isNaN(delayMs) || delayMs <= 0) return MIN_PERIOD_NANOS;
+        double nanos = delayMs * 1_000_000.0;
+        if (nanos >= Long.MAX_VALUE) return Long.MAX_VALUE;
+        return Math.max(MIN_PERIOD_NANOS, Math.round(nanos));
+    }
+
+    /**
+     * Anchors the schedule at {@code nowNanos}; the first deadline is due immediately.
+     */
+    public void start(long nowNanos) {
+        nextDeadline = nowNanos;
+        skipped = 0;
+    }
+
+    /**
+     * Blocks until the next deadline is reached and advances the schedule.
+     *
+     * @return how late (in nanoseconds) the deadline was actually reached, never negative
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public long awaitNext() throws InterruptedException {
+        return awaitNext(null);
+    }
+
+    /**
+     * Like {@link #awaitNext()}, but gives up as soon as {@code keepRunning} returns false
+     * (stop requested, settings changed...).
+     * The condition is checked before waiting and after every wake-up, so callers that
+     * unpark the waiting thread after flipping the condition get an immediate return.
+     *
+     * @return lateness in nanoseconds, or {@link #ABANDONED} if the wait was abandoned
+     *         (the schedule is not advanced in that case)
+     */
+    public long awaitNext(BooleanSupplier keepRunning) throws InterruptedException {
+        long deadline = nextDeadline;
+        long now = System.nanoTime();
+        long remaining = deadline - now;
+        while (remaining > 0) {
+            if (keepRunning != null && !keepRunning.getAsBoolean()) {
+                return ABANDONED;
+            }
+            if (remaining > spinNanos) {
+                LockSupport.parkNanos(this, remaining - spinNanos);
+            } else {
+                Thread.onSpinWait();
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            now = System.nanoTime();
+            remaining = deadline - now;
+        }
+        if (keepRunning != null && !keepRunning.getAsBoolean()) {
+            return ABANDONED;
+        }
+        advance(deadline, now);
+        return now - deadline;
+    }
+
+    /**
+     * Advances past the pending deadline without waiting, for callers that do their own
+     * timing (see {@link MultiClickEngine}). Overruns are handled as in {@link #awaitNext()}.
+     *
+     * @return how late {@code nowNanos} is relative to the deadline, never negative
+     */
+    public long markFired(long nowNanos) {
+        long deadline = nextDeadline;
+        advance(deadline, nowNanos);
+        return Math.max(0, nowNanos - deadline);
+    }
+
+    private void advance(long deadline, long now) {
+        long next = deadline + periodNanos;
+        long behind = now - next;
+        if (behind >= 0) {
+            long missed = behind / periodNanos + 1;
+            if (overrunPolicy == OverrunPolicy.SKIP || missed > MAX_CATCH_UP_PERIODS) {
+                next += missed * periodNanos;
+                skipped += missed;
+            }
+        }
+        nextDeadline = next;
+    }
+
+    /**
+     * Sets the period used from the next deadline on. Unlike {@link #periodFromMillis(double)}
+     * this does not apply the {@link #MIN_PERIOD_NANOS} floor, so callers that know what
+     * they are doing (benchmarks, replay) can go below it.
+     */
+    public void setPeriodNanos(long periodNanos) {
+        this.periodNanos = Math.max(1L, periodNanos);
+    }
+
+    /**
+     * Switches to a new period without losing the schedule: the pending deadline is
+     * moved to one new period after the previous deadline, which may put it in the past
+     * (the next wait then returns immediately).
+     */
+    public void reschedule(long periodNanos) {
+        long previousDeadline = nextDeadline - this.periodNanos;
+        setPeriodNanos(periodNanos);
+        nextDeadline = previousDeadline + this.periodNanos;
+    }
+
+    public long getPeriodNanos() {return periodNanos;}
+    public long getNextDeadline() {return nextDeadline;}
+    public long getSkipped() {return skipped;}
+    public OverrunPolicy getOverrunPolicy() {return overrunPolicy;}
+}
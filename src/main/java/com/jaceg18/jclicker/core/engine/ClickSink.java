@@ -0,0 +1,35 @@
+package com.jaceg18.jclicker.core.engine;
+
+/**
+ * Destination for the input events produced by the {@link ClickEngine}.
+ * <p>
+ * Button arguments are {@link java.awt.event.InputEvent} button masks, the same values
+ * {@link java.awt.Robot} expects. Implementations are only ever called from the engine
+ * thread, so they do not need to be thread safe, but they should be cheap: every call
+ * sits directly in the click loop.
+ */
+public interface ClickSink {
+
+    void mouseMove(int x, int y);
+
+    void mousePress(int buttonMask);
+
+    void mouseRelease(int buttonMask);
+
+    /**
+     * Key arguments are AWT {@link java.awt.event.KeyEvent} key codes. Only macros and
+     * recordings produce key events; sinks that cannot type ignore them.
+     */
+    default void keyPress(int keyCode) {}
+
+    default void keyRelease(int keyCode) {}
+
+    /**
+     * Creates a sink. Called on the engine thread, so backends that must be created on
+     * the thread that uses them (or that may fail) can be built lazily.
+     */
+    @FunctionalInterface
+    interface Factory {
+        ClickSink create() throws Exception;
+    }
+}
@@ -0,0 +1,128 @@
+package com.jaceg18.jclicker.core.engine;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Live counters of a session for status displays.
+ * <p>
+ * The engine thread publishes every click with a few release stores; nothing is queued
+ * and nothing is allocated. Displays sample the counters whenever they redraw (the UI
+ * does so on an {@code AnimationTimer}, once per frame), so the update rate follows the
+ * display instead of the click rate. The counters sit on their own cache lines, so the
+ * engine's writes do not contend with neighbouring objects.
+ * <p>
+ * Each counter is consistent on its own; a sample taken mid-click may pair a new click
+ * count with the previous click's timestamp.
+ */
+public final class ClickStatus extends ClickStatusCounters {
+
+    @SuppressWarnings("unused")
+    private long p10, p11, p12, p13, p14, p15, p16, p17;
+
+    /**
+     * Starts a new session at {@code nanos}. Engine thread only.
+     */
+    void reset(long nanos) {
+        CLICKS.setRelease(this, 0L);
+        FIRST_CLICK.setRelease(this, 0L);
+        LAST_CLICK.setRelease(this, 0L);
+        LAST_LATENESS.setRelease(this, 0L);
+        MAX_LATENESS.setRelease(this, 0L);
+        END.setRelease(this, 0L);
+        START.setRelease(this, nanos);
+    }
+
+    /** Engine thread only. */
+    void click(long clickNanos, long latenessNanos) {
+        long n = (long) CLICKS.getOpaque(this);
+        if (n == 0) FIRST_CLICK.setRelease(this, clickNanos);
+        LAST_CLICK.setRelease(this, clickNanos);
+        LAST_LATENESS.setRelease(this, latenessNanos);
+        if (latenessNanos > (long) MAX_LATENESS.getOpaque(this)) MAX_LATENESS.setRelease(this, latenessNanos);
+        // Last, so a reader that sees the count also sees the timestamps above
+        CLICKS.setRelease(this, n + 1);
+    }
+
+    /** Marks the session as over at {@code nanos}. */
+    void end(long nanos) {
+        END.setRelease(this, nanos);
+    }
+
+    public long getClicks() {
+        return (long) CLICKS.getAcquire(this);
+    }
+
+    public boolean isEnded() {
+        return (long) END.getAcquire(this) != 0;
+    }
+
+    /** Time since the session started, up to its end once it has ended. */
+    public long getElapsedNanos(long nowNanos) {
+        long end = (long) END.getAcquire(this);
+        return Math.max(0, (end != 0 ? end : nowNanos) - (long) START.getAcquire(this));
+    }
+
+    /** Clicks per second between the first and the latest click, 0 until there are two. */
+    public double getAchievedCps() {
+        long n = getClicks();
+        long span = (long) LAST_CLICK.getAcquire(this) - (long) FIRST_CLICK.getAcquire(this);
+        return n > 1 && span > 0 ? (n - 1) * 1_000_000_000.0 / span : 0;
+    }
+
+    /** How late the latest click was dispatched. */
+    public long getLastLatenessNanos() {
+        return (long) LAST_LATENESS.getAcquire(this);
+    }
+
+    public long getMaxLatenessNanos() {
+        return (long) MAX_LATENESS.getAcquire(this);
+    }
+
+    long getFirstClickNanos() {
+        return (long) FIRST_CLICK.getAcquire(this);
+    }
+
+    long getLastClickNanos() {
+        return (long) LAST_CLICK.getAcquire(this);
+    }
+}
+
+/** Keeps the counters clear of whatever the object header shares a cache line with. */
+abstract class ClickStatusPadding {
+    @SuppressWarnings("unused")
+    private long p00, p01, p02, p03, p04, p05, p06, p07;
+}
+
+/**
+ * The counters themselves. Superclass fields are laid out before subclass fields, which
+ * is what keeps the padding on either side of them.
+ */
+abstract class ClickStatusCounters extends ClickStatusPadding {
+
+    static final VarHandle CLICKS;
+    static final VarHandle START;
+    static final VarHandle END;
+    static final VarHandle FIRST_CLICK;
+    static final VarHandle LAST_CLICK;
+    static final VarHandle LAST_LATENESS;
+    static final VarHandle MAX_LATENESS;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            CLICKS = lookup.findVarHandle(ClickStatusCounters.class, "clicks", long.class);
+            START = lookup.findVarHandle(ClickStatusCounters.class, "startNanos", long.class);
+            END = lookup.findVarHandle(ClickStatusCounters.class, "endNanos", long.class);
+            FIRST_CLICK = lookup.findVarHandle(ClickStatusCounters.class, "firstClickNanos", long.class);
+            LAST_CLICK = lookup.findVarHandle(ClickStatusCounters.class, "lastClickNanos", long.class);
+            LAST_LATENESS = lookup.findVarHandle(ClickStatusCounters.class, "lastLatenessNanos", long.class);
+            MAX_LATENESS = lookup.findVarHandle(ClickStatusCounters.class, "maxLatenessNanos", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private long clicks, startNanos, endNanos, firstClickNanos, lastClickNanos, lastLatenessNanos, maxLatenessNanos;
+}
@@ -0,0 +1,153 @@
+package com.jaceg18.jclicker.core.engine;
+
+/**
+ * Timing statistics for the clicks of one engine session.
+ * <p>
+ * The engine thread calls {@link #recordClick(long, long, long)} once per click; any
+ * other thread may call {@link #snapshot()} at any time, or sample {@link #getStatus()},
+ * which is much cheaper. Recording is allocation free.
+ */
+public class ClickTelemetry {
+
+    private final LatencyHistogram interval = new LatencyHistogram();
+    private final LatencyHistogram dispatch = new LatencyHistogram();
+    private final LatencyHistogram lateness = new LatencyHistogram();
+
+    private final ClickStatus status = new ClickStatus();
+    private volatile long stopLatencyNanos = -1;
+    private volatile long firstClickLatencyNanos = -1;
+    /** Written by the engine thread only. */
+    private volatile long throttled;
+    private volatile double rateError = Double.NaN;
+
+    public ClickTelemetry() {
+        status.reset(System.nanoTime());
+    }
+
+    /**
+     * @param clickNanos    {@link System#nanoTime()} right before the click was dispatched
+     * @param dispatchNanos time spent inside the sink for this click
+     * @param latenessNanos how far past its deadline the click was dispatched
+     */
+    public void recordClick(long clickNanos, long dispatchNanos, long latenessNanos) {
+        if (status.getClicks() > 0) {
+            interval.record(clickNanos - status.getLastClickNanos());
+        }
+        dispatch.record(dispatchNanos);
+        lateness.record(latenessNanos);
+        status.click(clickNanos, latenessNanos);
+    }
+
+    /**
+     * Records a click held back by the {@link ClickGovernor}.
+     */
+    public void recordThrottled() {
+        throttled++;
+    }
+
+    /**
+     * Records the {@link RateController}'s latest steady-state error, the relative
+     * shortfall from the session's target rate.
+     */
+    public void recordRateError(double error) {
+        rateError = error;
+    }
+
+    /**
+     * Records that the session is over; its elapsed time stops counting.
+     */
+    public void recordEnd(long nanos) {
+        status.end(nanos);
+    }
+
+    /**
+     * Records how long it took from the stop request until the loop had exited.
+     */
+    public void recordStop(long latencyNanos) {
+        stopLatencyNanos = Math.max(0, latencyNanos);
+    }
+
+    /**
+     * Records how long it took from the session's trigger (e.g. the hotkey press) until
+     * the first click was handed to the sink.
+     */
+    public void recordFirstClick(long latencyNanos) {
+        firstClickLatencyNanos = Math.max(0, latencyNanos);
+    }
+
+    /**
+     * Clears everything for a new session, which starts now.
+     */
+    public void reset() {
+        stopLatencyNanos = -1;
+        firstClickLatencyNanos = -1;
+        throttled = 0;
+        rateError = Double.NaN;
+        status.reset(System.nanoTime());
+        interval.reset();
+        dispatch.reset();
+        lateness.reset();
+    }
+
+    public long getClicks() {
+        return status.getClicks();
+    }
+
+    /** Cheap live counters, for displays that refresh often. */
+    public ClickStatus getStatus() {
+        return status;
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(status.getClicks(), status.getAchievedCps(), interval.snapshot(), dispatch.snapshot(), lateness.snapshot(),
+                firstClickLatencyNanos, stopLatencyNanos, throttled, rateError);
+    }
+
+    /**
+     * Summary of a session so far.
+     *
+     * @param clicks      clicks dispatched
+     * @param achievedCps clicks per second actually achieved between the first and last click
+     * @param interval    time between consecutive clicks
+     * @param dispatch    time spent handing a click to the sink
+     * @param lateness    time between a click's deadline and its dispatch
+     * @param firstClickLatency time from the session trigger until the first click, -1 if no click yet
+     * @param stopLatency time from the stop request until the loop exited, -1 if not stopped by request
+     * @param throttled   clicks the {@link ClickGovernor} held back
+     * @param rateError   {@code (target - achieved) / target} in steady state, {@code NaN} without a target rate
+     */
+    public record Snapshot(long clicks,
+                           double achievedCps,
+                           LatencyHistogram.Snapshot interval,
+                           LatencyHistogram.Snapshot dispatch,
+                           LatencyHistogram.Snapshot lateness,
+                           long firstClickLatency,
+                           long stopLatency,
+                           long throttled,
+                           double rateError) {
+
+        public static final Snapshot EMPTY = new Snapshot(0, 0,
+                LatencyHistogram.Snapshot.EMPTY, LatencyHistogram.Snapshot.EMPTY, LatencyHistogram.Snapshot.EMPTY, -1, -1, 0, Double.NaN);
+
+        /** Short single-line form for status bars and logs. */
+        public String toStatusString() {
+            String s = String.format("%d clicks, %.1f CPS, interval p50 %s / p99 %s / p99.9 %s / max %s, late p99 %s",
+                    clicks, achievedCps,
+                    formatNanos(interval.p50()), formatNanos(interval.p99()),
+                    formatNanos(interval.p999()), formatNanos(interval.max()),
+                    formatNanos(lateness.p99()));
+            if (firstClickLatency >= 0) s += ", first click " + formatNanos(firstClickLatency);
+            if (stopLatency >= 0) s += ", stop " + formatNanos(stopLatency);
+            if (throttled > 0) s += ", " + throttled + " throttled";
+            if (!Double.isNaN(rateError)) s += String.format(", rate error %+.1f%%", rateError * 100);
+            return s;
+        }
+
+        public static String formatNanos(long nanos) {
+            if (nanos < 1_000) return nanos + "ns";
+            if (nanos < 1_000_000) return String.format("%.1fus", nanos / 1_000.0);
+            if (nanos < 1_000_000_000) return String.format("%.2fms", nanos / 1_000_000.0);
+            return String.format("%.2fs", nanos / 1_000_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.jaceg18.jclicker.core.engine;
+
+import java.util.Arrays;
+
+/**
+ * A macro flattened into parallel primitive arrays, ready for {@link ClickEngine} to walk.
+ * <p>
+ * Step {@code i} performs {@code op[i]} {@code nanos[i]} after step {@code i - 1}. Loops
+ * have been unrolled and waits folded into the step that follows them, so the engine
+ * never branches on anything but the op and never allocates. After the last step the
+ * walk starts over at step 0, {@link #tailNanos()} plus {@code nanos[0]} later.
+ * <p>
+ * Instances are immutable; build them with {@link MacroCompiler}, or with a {@link Builder}
+ * for macros that do not come from text, such as input recordings.
+ */
+public final class CompiledMacro {
+
+    public static final byte MOVE = 0;
+    public static final byte PRESS = 1;
+    public static final byte RELEASE = 2;
+    /** {@code mask} holds an AWT {@link java.awt.event.KeyEvent} key code. */
+    public static final byte KEY_PRESS = 3;
+    public static final byte KEY_RELEASE = 4;
+
+    final byte[] op;
+    final int[] x;
+    final int[] y;
+    final int[] mask;
+    final long[] nanos;
+    final long tailNanos;
+    private final int clicksPerPass;
+    private final long passNanos;
+    private final String source;
+
+    CompiledMacro(byte[] op, int[] x, int[] y, int[] mask, long[] nanos, long tailNanos, String source) {
+        if (op.length == 0) throw new IllegalArgumentException("macro has no steps");
+        this.op = op;
+        this.x = x;
+        this.y = y;
+        this.mask = mask;
+        this.nanos = nanos;
+        this.tailNanos = tailNanos;
+        this.source = source;
+
+        int clicks = 0;
+        long total = tailNanos;
+        for (int i = 0; i < op.length; i++) {
+            if (op[i] == PRESS) clicks++;
+            total = saturatedAdd(total, nanos[i]);
+        }
+        this.clicksPerPass = clicks;
+        this.passNanos = total;
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return ((a ^ sum) & (b ^ sum)) < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    /** Number of steps in one pass. */
+    public int length() {return op.length;}
+    /** Button presses in one pass. */
+    public int clicksPerPass() {return clicksPerPass;}
+    /** Duration of one pass, including the wait before the next one. */
+    public long passNanos() {return passNanos;}
+    public long tailNanos() {return tailNanos;}
+    /** The macro text this was compiled from, or {@code null} if it was built some other way. */
+    public String source() {return source;}
+
+    public byte op(int step) {return op[step];}
+    public int x(int step) {return x[step];}
+    public int y(int step) {return y[step];}
+    public int mask(int step) {return mask[step];}
+    public long nanos(int step) {return nanos[step];}
+
+    /**
+     * Growable struct-of-arrays that steps are appended to. Waits are folded into the step
+     * that follows them; a wait at the very end becomes {@link #tailNanos()}.
+     */
+    public static final class Builder {
+        private final int maxSteps;
+        private byte[] op = new byte[64];
+        private int[] x = new int[64];
+        private int[] y = new int[64];
+        private int[] mask = new int[64];
+        private long[] nanos = new long[64];
+        private int size;
+        private long pendingNanos;
+        private int waits;
+
+        /** @param maxSteps steps and waits allowed before {@link IllegalArgumentException} */
+        public Builder(int maxSteps) {
+            this.maxSteps = maxSteps;
+        }
+
+        public Builder await(long stepNanos) {
+            if (++waits > maxSteps) {
+                throw new IllegalArgumentException("macro expands to more than " + maxSteps + " waits");
+            }
+            pendingNanos = saturatedAdd(pendingNanos, stepNanos);
+            return this;
+        }
+
+        public Builder action(byte stepOp, int stepX, int stepY, int stepMask) {
+            if (size == maxSteps) {
+                throw new IllegalArgumentException("macro expands to more than " + maxSteps + " steps");
+            }
+            if (size == op.length) {
+                int capacity = (int) Math.min(maxSteps, size * 2L);
+                op = Arrays.copyOf(op, capacity);
+                x = Arrays.copyOf(x, capacity);
+                y = Arrays.copyOf(y, capacity);
+                mask = Arrays.copyOf(mask, capacity);
+                nanos = Arrays.copyOf(nanos, capacity);
+            }
+            op[size] = stepOp;
+            x[size] = stepX;
+            y[size] = stepY;
+            mask[size] = stepMask;
+            nanos[size] = pendingNanos;
+            pendingNanos = 0;
+            size++;
+            return this;
+        }
+
+        public int size() {return size;}
+
+        /** @throws IllegalArgumentException if no step was added */
+        public CompiledMacro build(String source) {
+            if (size == 0) throw new IllegalArgumentException("macro has no clicks or moves");
+            return new CompiledMacro(Arrays.copyOf(op, size), Arrays.copyOf(x, size), Arrays.copyOf(y, size),
+                    Arrays.copyOf(mask, size), Arrays.copyOf(nanos, size), pendingNanos, source);
+        }
+    }
+}
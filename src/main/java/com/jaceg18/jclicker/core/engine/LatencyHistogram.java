@@ -0,0 +1,102 @@
+package com.jaceg18.jclicker.core.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size, log-bucketed histogram of nanosecond values (HdrHistogram style).
+ * <p>
+ * Values below 64 get their own bucket; above that every power of two is split into 32
+ * linear sub-buckets, which bounds the relative error to about 3%. Everything lives in
+ * a preallocated primitive array, so {@link #record(long)} never allocates and never
+ * blocks. Readers take a {@link #snapshot()}, which may be slightly torn against a
+ * concurrent writer but is never corrupt.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKETS << 1;
+    static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts.incrementAndGet(bucketIndex(value));
+        total.incrementAndGet();
+        sum.addAndGet(value);
+        long m = max.get();
+        while (value > m && !max.compareAndSet(m, value)) {
+            m = max.get();
+        }
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        total.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    public long getCount() {
+        return total.get();
+    }
+
+    static int bucketIndex(long value) {
+        if (value < LINEAR_LIMIT) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    /** Largest value that falls into bucket {@code index}. */
+    static long bucketUpperBound(int index) {
+        if (index < LINEAR_LIMIT) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        long sub = index % SUB_BUCKETS + SUB_BUCKETS;
+        long upper = ((sub + 1) << shift) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        long maxValue = max.get();
+        double mean = count == 0 ? 0 : (double) sum.get() / total.get();
+        return new Snapshot(count, mean,
+                percentile(copy, count, 0.50, maxValue),
+                percentile(copy, count, 0.99, maxValue),
+                percentile(copy, count, 0.999, maxValue),
+                maxValue);
+    }
+
+    private static long percentile(long[] counts, long count, double percentile, long maxValue) {
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    /**
+     * Point-in-time summary of a histogram. All values are in nanoseconds.
+     */
+    public record Snapshot(long count, double mean, long p50, long p99, long p999, long max) {
+
+        public static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0, 0);
+    }
+}
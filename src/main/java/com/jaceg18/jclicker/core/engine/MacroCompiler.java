@@ -0,0 +1,228 @@
+package com.jaceg18.jclicker.core.engine;
+
+import com.jaceg18.jclicker.util.ClickType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parses the macro language stored with profiles and compiles it to a {@link CompiledMacro}.
+ * <p>
+ * One step per line; blank lines and text after {@code #} are ignored:
+ * <pre>
+ * click left                 # click where the cursor is
+ * click right at 100 200     # move, then click
+ * click left hold 50         # keep the button down for 50 ms
+ * press middle [at X Y]      # press without releasing
+ * release middle
+ * move 300 400
+ * wait 12.5                  # milliseconds, fractions allowed
+ * loop 3                     # repeat the block up to the matching end
+ *   click left
+ *   wait 10
+ * end
+ * </pre>
+ * Loops are unrolled, so the compiled form is a flat list of steps. How often the whole
+ * macro repeats is up to the profile's repeat settings.
+ */
+public final class MacroCompiler {
+
+    /**
+     * Upper bound on compiled steps, which guards against runaway nested loops. Loop
+     * iterations count too, so loops that emit nothing cannot spin either.
+     */
+    public static final int MAX_STEPS = 1 << 20;
+
+    private MacroCompiler() {}
+
+    /**
+     * @throws IllegalArgumentException with the offending line number if the macro does not parse
+     */
+    public static CompiledMacro compile(String source) {
+        if (source == null || source.isBlank()) {
+            throw new IllegalArgumentException("macro is empty");
+        }
+        CompiledMacro.Builder out = new CompiledMacro.Builder(MAX_STEPS);
+        List<Step> steps = parse(source);
+        // Checked before unrolling anything, so a huge loop fails at once instead of after minutes
+        if (cost(steps) > MAX_STEPS) {
+            throw new IllegalArgumentException("macro expands to more than " + MAX_STEPS + " steps");
+        }
+        for (Step step : steps) {
+            step.emit(out);
+        }
+        return out.build(source);
+    }
+
+    // ---------------------------------------------------------------- parsing
+
+    private static List<Step> parse(String source) {
+        List<List<Step>> blocks = new ArrayList<>();
+        List<Integer> loopCounts = new ArrayList<>();
+        blocks.add(new ArrayList<>());
+
+        String[] lines = source.split("\\R");
+        for (int n = 0; n < lines.length; n++) {
+            String line = lines[n];
+            int comment = line.indexOf('#');
+            if (comment >= 0) line = line.substring(0, comment);
+            String[] words = line.trim().toLowerCase(Locale.ROOT).split("\\s+");
+            if (words[0].isEmpty()) continue;
+
+            try {
+                List<Step> block = blocks.get(blocks.size() - 1);
+                switch (words[0]) {
+                    case "click" -> block.add(parseClick(words));
+                    case "press" -> block.add(parseButton(words, CompiledMacro.PRESS));
+                    case "release" -> block.add(parseButton(words, CompiledMacro.RELEASE));
+                    case "move" -> {
+                        expectLength(words, 3);
+                        block.add(new Action(CompiledMacro.MOVE, parseInt(words[1]), parseInt(words[2]), 0));
+                    }
+                    case "wait" -> {
+                        expectLength(words, 2);
+                        block.add(new Wait(parseMillis(words[1])));
+                    }
+                    case "loop" -> {
+                        expectLength(words, 2);
+                        int count = parseInt(words[1]);
+                        if (count < 0) throw new IllegalArgumentException("loop count must not be negative");
+                        loopCounts.add(count);
+                        blocks.add(new ArrayList<>());
+                    }
+                    case "end" -> {
+                        expectLength(words, 1);
+                        if (loopCounts.isEmpty()) throw new IllegalArgumentException("end without loop");
+                        List<Step> body = blocks.remove(blocks.size() - 1);
+                        int count = loopCounts.remove(loopCounts.size() - 1);
+                        blocks.get(blocks.size() - 1).add(new Loop(count, body));
+                    }
+                    default -> throw new IllegalArgumentException("unknown step '" + words[0] + "'");
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Line " + (n + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        if (!loopCounts.isEmpty()) {
+            throw new IllegalArgumentException("loop without end");
+        }
+        return blocks.get(0);
+    }
+
+    private static Step parseClick(String[] words) {
+        if (words.length < 2) throw new IllegalArgumentException("click needs a button");
+        int mask = parseMask(words[1]);
+        Integer atX = null, atY = null;
+        long holdNanos = 0;
+        for (int i = 2; i < words.length; i++) {
+            switch (words[i]) {
+                case "at" -> {
+                    if (i + 2 >= words.length) throw new IllegalArgumentException("at needs X and Y");
+                    atX = parseInt(words[++i]);
+                    atY = parseInt(words[++i]);
+                }
+                case "hold" -> {
+                    if (i + 1 >= words.length) throw new IllegalArgumentException("hold needs milliseconds");
+                    holdNanos = parseMillis(words[++i]);
+                }
+                default -> throw new IllegalArgumentException("unexpected '" + words[i] + "'");
+            }
+        }
+        List<Step> steps = new ArrayList<>(4);
+        if (atX != null) steps.add(new Action(CompiledMacro.MOVE, atX, atY, 0));
+        steps.add(new Action(CompiledMacro.PRESS, 0, 0, mask));
+        if (holdNanos > 0) steps.add(new Wait(holdNanos));
+        steps.add(new Action(CompiledMacro.RELEASE, 0, 0, mask));
+        return new Loop(1, steps);
+    }
+
+    private static Step parseButton(String[] words, byte op) {
+        if (words.length == 2) {
+            return new Action(op, 0, 0, parseMask(words[1]));
+        }
+        if (words.length == 5 && words[2].equals("at")) {
+            return new Loop(1, List.of(
+                    new Action(CompiledMacro.MOVE, parseInt(words[3]), parseInt(words[4]), 0),
+                    new Action(op, 0, 0, parseMask(words[1]))));
+        }
+        throw new IllegalArgumentException("expected '" + words[0] + " <button> [at X Y]'");
+    }
+
+    private static int parseMask(String button) {
+        ClickType type;
+        try {
+            type = ClickType.valueOf(button.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown button '" + button + "'");
+        }
+        return ClickConfig.buttonMask(type);
+    }
+
+    private static int parseInt(String word) {
+        try {
+            return Integer.parseInt(word);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("not a whole number: '" + word + "'");
+        }
+    }
+
+    private static long parseMillis(String word) {
+        double ms;
+        try {
+            ms = Double.parseDouble(word);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("not a number: '" + word + "'");
+        }
+        if (!(ms >= 0) || Double.isInfinite(ms)) {
+            throw new IllegalArgumentException("milliseconds must be zero or more: '" + word + "'");
+        }
+        return Math.round(ms * 1_000_000.0);
+    }
+
+    private static void expectLength(String[] words, int length) {
+        if (words.length != length) {
+            throw new IllegalArgumentException("wrong number of arguments for " + words[0]);
+        }
+    }
+
+    // ---------------------------------------------------------------- compiling
+
+    /** Steps, waits and loop iterations {@code steps} unroll to, capped just above {@link #MAX_STEPS}. */
+    private static long cost(List<Step> steps) {
+        long total = 0;
+        for (Step step : steps) {
+            total = Math.min(MAX_STEPS + 1L, total + step.cost());
+        }
+        return total;
+    }
+
+    private sealed interface Step permits Action, Wait, Loop {
+        void emit(CompiledMacro.Builder out);
+
+        default long cost() {return 1;}
+    }
+
+    private record Action(byte op, int x, int y, int mask) implements Step {
+        public void emit(CompiledMacro.Builder out) {out.action(op, x, y, mask);}
+    }
+
+    private record Wait(long nanos) implements Step {
+        public void emit(CompiledMacro.Builder out) {out.await(nanos);}
+    }
+
+    private record Loop(int count, List<Step> body) implements Step {
+        /** Every iteration counts at least once, even with nothing in the body. */
+        public long cost() {
+            return Math.min(MAX_STEPS + 1L, count * Math.max(1, MacroCompiler.cost(body)));
+        }
+
+        public void emit(CompiledMacro.Builder out) {
+            for (int i = 0; i < count; i++) {
+                for (Step step : body) {
+                    step.emit(out);
+                }
+            }
+        }
+    }
+}
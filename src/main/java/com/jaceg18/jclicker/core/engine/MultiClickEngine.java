@@ -0,0 +1,466 @@
+package com.jaceg18.jclicker.core.engine;
+
+import com.jaceg18.jclicker.core.input.ClickBackend;
+import com.jaceg18.jclicker.core.trigger.TriggerMonitor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs any number of {@link ClickJob}s side by side on a single timing thread.
+ * <p>
+ * Jobs are kept in a {@link TimerWheel}; the thread parks until the next occupied tick,
+ * expires it and fires the jobs that are due in deadline order, so clicks of different
+ * jobs interleave the way their schedules say. Each job keeps its own
+ * {@link ClickScheduler} for drift-free deadlines and overrun handling, and its own
+ * {@link ClickTelemetry}. Timing precision is one tick ({@link #DEFAULT_TICK_NANOS} by
+ * default) plus the thread's wake-up latency; clicks are never early.
+ * <p>
+ * Submitting, cancelling and updating jobs is lock-free: requests are queued and the
+ * timing thread is unparked to apply them.
+ * <p>
+ * Jobs with a trigger keep their schedule while it does not match; the clicks that fall
+ * due in the meantime are skipped. So are clicks whose target is not on screen. Target
+ * lookups run on the timing thread, so they hold up the other jobs' clicks while they run.
+ * <p>
+ * A {@link ClickGovernor} caps the rate of all jobs together (and of anything else that
+ * shares it). Plain clicks it holds back are skipped; macro steps are re-filed for when
+ * their token is due. Jobs with a target rate steer their own period with a
+ * {@link RateController}.
+ * <p>
+ * Jobs whose config names a {@link ClickConfig#backend()} click through a sink of that
+ * backend, shared with the other jobs that name it. The sink is chosen when the job starts.
+ */
+public class MultiClickEngine {
+
+    public static final long DEFAULT_TICK_NANOS = 100_000L;
+    public static final int DEFAULT_WHEEL_SIZE = 1024;
+
+    private final ClickSink.Factory sinkFactory;
+    private final TriggerMonitor triggerMonitor;
+    private final ClickGovernor governor;
+    private final long tickNanos;
+    private final int wheelSize;
+
+    private final Queue<Request> requests = new ConcurrentLinkedQueue<>();
+    private final List<ClickJob> jobs = new CopyOnWriteArrayList<>();
+    private final AtomicLong jobCounter = new AtomicLong();
+    private final AtomicLong totalClicks = new AtomicLong();
+
+    private volatile boolean shutdown;
+    private Thread timingThread;
+
+    // Timing thread only
+    private final PriorityQueue<ClickJob> due = new PriorityQueue<>(Comparator.comparingLong(ClickJob::deadline));
+    private TimerWheel wheel;
+    private ClickSink sink;
+    private final Map<String, ClickSink> backendSinks = new HashMap<>();
+
+    public MultiClickEngine(ClickSink.Factory sinkFactory) {
+        this(sinkFactory, null);
+    }
+
+    /**
+     * @param triggerMonitor watches the triggers of jobs that have one and supplies the
+     *                       screen for targets; {@code null} if this engine never needs the screen
+     */
+    public MultiClickEngine(ClickSink.Factory sinkFactory, TriggerMonitor triggerMonitor) {
+        this(sinkFactory, triggerMonitor, null);
+    }
+
+    /**
+     * @param governor caps the click rate, shared with other producers; {@code null} for no cap
+     */
+    public MultiClickEngine(ClickSink.Factory sinkFactory, TriggerMonitor triggerMonitor, ClickGovernor governor) {
+        this(sinkFactory, DEFAULT_TICK_NANOS, DEFAULT_WHEEL_SIZE, triggerMonitor, governor);
+    }
+
+    /**
+     * @param tickNanos timer resolution
+     * @param wheelSize number of buckets, a power of two; {@code tickNanos * wheelSize} is
+     *                  how far ahead a job can be filed without wrapping around
+     */
+    public MultiClickEngine(ClickSink.Factory sinkFactory, long tickNanos, int wheelSize) {
+        this(sinkFactory, tickNanos, wheelSize, null);
+    }
+
+    public MultiClickEngine(ClickSink.Factory sinkFactory, long tickNanos, int wheelSize,
+                            TriggerMonitor triggerMonitor) {
+        this(sinkFactory, tickNanos, wheelSize, triggerMonitor, null);
+    }
+
+    public MultiClickEngine(ClickSink.Factory sinkFactory, long tickNanos, int wheelSize,
+                            TriggerMonitor triggerMonitor, ClickGovernor governor) {
+        this.sinkFactory = sinkFactory;
+        this.triggerMonitor = triggerMonitor;
+        this.governor = governor;
+        this.tickNanos = tickNanos;
+        this.wheelSize = wheelSize;
+        // Validate eagerly rather than on the timing thread
+        new TimerWheel(0, tickNanos, wheelSize);
+    }
+
+    /**
+     * Starts a job. Its first click is due immediately.
+     *
+     * @throws IllegalStateException if the config has a trigger and this engine has no monitor
+     */
+    public ClickJob submit(String name, ClickConfig config) {
+        if (config == null) throw new IllegalArgumentException("config must not be null");
+        TriggerGate.check(config, triggerMonitor);
+        if (shutdown) throw new IllegalStateException("engine is shut down");
+        ClickJob job = new ClickJob(this, jobCounter.incrementAndGet(), name, config, System.nanoTime());
+        jobs.add(job);
+        request(new Request(RequestType.START, job));
+        return job;
+    }
+
+    /** Cancels every running job. */
+    public void cancelAll() {
+        for (ClickJob job : jobs) {
+            job.cancel();
+        }
+    }
+
+    /** Jobs that have not finished yet. */
+    public List<ClickJob> getJobs() {
+        return List.copyOf(jobs);
+    }
+
+    /** Clicks fired by all jobs since the engine was created. */
+    public long getTotalClicks() {
+        return totalClicks.get();
+    }
+
+    void requestCancel(ClickJob job) {
+        request(new Request(RequestType.CANCEL, job));
+    }
+
+    void checkConfig(ClickConfig config) {
+        TriggerGate.check(config, triggerMonitor);
+    }
+
+    void requestUpdate(ClickJob job) {
+        request(new Request(RequestType.UPDATE, job));
+    }
+
+    private void request(Request request) {
+        requests.add(request);
+        Thread t = ensureStarted();
+        if (t != null) LockSupport.unpark(t);
+    }
+
+    private synchronized Thread ensureStarted() {
+        if (timingThread == null && !shutdown) {
+            timingThread = new Thread(this::run, "jclicker-timer-wheel");
+            timingThread.setDaemon(true);
+            timingThread.start();
+        }
+        return timingThread;
+    }
+
+    // ---------------------------------------------------------------- timing thread
+
+    private void run() {
+        wheel = new TimerWheel(System.nanoTime(), tickNanos, wheelSize);
+        while (!shutdown) {
+            applyRequests();
+
+            long now = System.nanoTime();
+            wheel.expire(wheel.tickAt(now), due);
+            fireDue();
+
+            long next = wheel.nextOccupiedTick();
+            if (!requests.isEmpty()) continue;
+            if (next < 0) {
+                LockSupport.park(this);
+            } else {
+                long wait = wheel.timeOf(next) - System.nanoTime();
+                if (wait > 0) LockSupport.parkNanos(this, wait);
+            }
+        }
+
+        // Drop whatever is left
+        applyRequests();
+        while (!due.isEmpty()) end(due.poll(), null);
+        for (ClickJob job : jobs) {
+            wheel.remove(job);
+            end(job, null);
+        }
+    }
+
+    private void applyRequests() {
+        Request request;
+        while ((request = requests.poll()) != null) {
+            ClickJob job = request.job();
+            switch (request.type()) {
+                case START -> begin(job);
+                case CANCEL -> {
+                    wheel.remove(job);
+                    due.remove(job);
+                    end(job, null);
+                }
+                case UPDATE -> {
+                    if (job.scheduler == null || !jobs.contains(job)) continue;
+                    wheel.remove(job);
+                    due.remove(job);
+                    apply(job, job.getConfig());
+                    if (isComplete(job)) end(job, null);
+                    else file(job);
+                }
+            }
+        }
+    }
+
+    private void begin(ClickJob job) {
+        if (!job.isRunning()) {
+            end(job, null);
+            return;
+        }
+        try {
+            job.sink = sink(job.getConfig().backend());
+        } catch (Exception e) {
+            end(job, e);
+            return;
+        }
+        job.gate = new TriggerGate(triggerMonitor);
+        if (triggerMonitor != null) job.locator = new TargetLocator(triggerMonitor.getSourceFactory());
+        apply(job, job.getConfig());
+        if (isComplete(job)) {
+            end(job, null);
+            return;
+        }
+        // A macro's first pass waits before step 0 like every later one does
+        job.scheduler.start(System.nanoTime() + (job.macro != null ? job.macro.nanos[0] : 0));
+        file(job);
+    }
+
+    private ClickSink sink(ClickBackend backend) throws Exception {
+        if (backend == null) {
+            if (sink == null) sink = sinkFactory.create();
+            return sink;
+        }
+        ClickSink backendSink = backendSinks.get(backend.name());
+        if (backendSink == null) {
+            backendSink = backend.create();
+            backendSinks.put(backend.name(), backendSink);
+        }
+        return backendSink;
+    }
+
+    private void apply(ClickJob job, ClickConfig config) {
+        job.applied = config;
+        CompiledMacro macro = config.macro();
+        if (macro != null) {
+            // Macro steps carry their own timing; the scheduler only holds the pending deadline
+            if (job.scheduler == null) {
+                job.scheduler = new ClickScheduler(1, ClickScheduler.OverrunPolicy.CATCH_UP);
+            }
+            if (macro != job.macro) {
+                job.macro = macro;
+                job.step = 0;
+                job.passes = 0;
+            }
+            return;
+        }
+        job.macro = null;
+
+        job.rate = RateController.follow(job.rate, config);
+        long period = job.rate != null ? job.rate.getPeriodNanos() : config.periodNanos();
+        ClickScheduler current = job.scheduler;
+        if (current == null) {
+            job.scheduler = new ClickScheduler(period, config.overrunPolicy());
+        } else if (current.getOverrunPolicy() == config.overrunPolicy()) {
+            current.reschedule(period);
+        } else {
+            ClickScheduler replacement = new ClickScheduler(period, config.overrunPolicy());
+            replacement.start(current.getNextDeadline() - current.getPeriodNanos() + period);
+            job.scheduler = replacement;
+        }
+        job.buttonMask = config.buttonMask();
+    }
+
+    private void file(ClickJob job) {
+        if (!wheel.schedule(job)) {
+            due.add(job);
+        }
+    }
+
+    private void fireDue() {
+        ClickJob job;
+        while ((job = due.poll()) != null) {
+            if (!job.isRunning()) {
+                end(job, null);
+                continue;
+            }
+
+            if (job.macro != null) {
+                fireMacroStep(job);
+                continue;
+            }
+
+            long clickNanos = System.nanoTime();
+            try {
+                boolean skip = !job.gate.isOpen(job.applied);
+                if (!skip && governor != null && governor.tryAcquire(job.buttonMask, clickNanos) > 0) {
+                    job.getTelemetry().recordThrottled();
+                    skip = true;
+                }
+                if (!skip && job.applied.target() != null) {
+                    skip = !job.locator.locate(job.applied.target());
+                    if (!skip) job.sink.mouseMove(job.locator.x(), job.locator.y());
+                    clickNanos = System.nanoTime();
+                }
+                if (skip) {
+                    // Skipped, not postponed: the job stays on its schedule
+                    if (job.rate != null) job.rate.restart();
+                    job.scheduler.markFired(clickNanos);
+                    file(job);
+                    continue;
+                }
+            } catch (RuntimeException e) {
+                end(job, e);
+                continue;
+            }
+            long lateness = Math.max(0, clickNanos - job.deadline());
+            try {
+                ClickEngine.dispatch(job.applied, job.buttonMask, job.sink);
+            } catch (RuntimeException e) {
+                end(job, e);
+                continue;
+            }
+            long dispatched = System.nanoTime();
+
+            if (job.clicks == 0) {
+                job.getTelemetry().recordFirstClick(clickNanos - job.submittedNanos);
+            }
+            job.getTelemetry().recordClick(clickNanos, dispatched - clickNanos, lateness);
+            if (job.rate != null && job.rate.onClick(clickNanos)) {
+                job.scheduler.setPeriodNanos(job.rate.getPeriodNanos());
+                job.getTelemetry().recordRateError(job.rate.getSteadyStateError());
+            }
+            job.clicks++;
+            totalClicks.incrementAndGet();
+
+            if (isComplete(job)) {
+                end(job, null);
+                continue;
+            }
+            job.scheduler.markFired(dispatched);
+            // Catch-up clicks land in ticks that are already expired and come straight back
+            file(job);
+        }
+    }
+
+    /**
+     * Performs the job's current macro step and files it under the next one. Each step is
+     * a separate wheel entry, so steps of different jobs interleave like plain clicks do.
+     * A trigger is checked before each pass, never in the middle of one.
+     */
+    private void fireMacroStep(ClickJob job) {
+        CompiledMacro macro = job.macro;
+        int step = job.step;
+        long stepNanos = System.nanoTime();
+        long deadline = job.deadline();
+        try {
+            if (step == 0 && !job.gate.isOpen(job.applied)) {
+                job.scheduler.start(stepNanos + job.gate.recheckNanos());
+                file(job);
+                return;
+            }
+            if (governor != null && ClickEngine.isPress(macro.op[step])) {
+                long wait = governor.tryAcquire(macro.mask[step], stepNanos);
+                if (wait > 0) {
+                    job.getTelemetry().recordThrottled();
+                    job.scheduler.start(stepNanos + wait);
+                    file(job);
+                    return;
+                }
+            }
+            switch (macro.op[step]) {
+                case CompiledMacro.MOVE -> job.sink.mouseMove(macro.x[step], macro.y[step]);
+                case CompiledMacro.PRESS -> job.sink.mousePress(macro.mask[step]);
+                case CompiledMacro.RELEASE -> job.sink.mouseRelease(macro.mask[step]);
+                case CompiledMacro.KEY_PRESS -> job.sink.keyPress(macro.mask[step]);
+                default -> job.sink.keyRelease(macro.mask[step]);
+            }
+        } catch (RuntimeException e) {
+            end(job, e);
+            return;
+        }
+        if (macro.op[step] == CompiledMacro.PRESS) {
+            long dispatched = System.nanoTime();
+            if (job.clicks == 0) {
+                job.getTelemetry().recordFirstClick(stepNanos - job.submittedNanos);
+            }
+            job.getTelemetry().recordClick(stepNanos, dispatched - stepNanos, Math.max(0, stepNanos - deadline));
+            job.clicks++;
+            totalClicks.incrementAndGet();
+        }
+
+        if (++step == macro.op.length) {
+            step = 0;
+            job.passes++;
+            if (isComplete(job)) {
+                end(job, null);
+                return;
+            }
+            deadline += macro.tailNanos;
+        }
+        deadline += macro.nanos[step];
+        if (stepNanos - deadline > ClickEngine.MACRO_REBASE_NANOS) {
+            deadline = stepNanos;
+        }
+        job.step = step;
+        job.scheduler.start(deadline);
+        file(job);
+    }
+
+    private static boolean isComplete(ClickJob job) {
+        ClickConfig config = job.applied;
+        if (config.repeatUntilStopped()) return false;
+        return job.macro != null ? job.passes >= config.repeatTimes() : job.clicks >= config.repeatTimes();
+    }
+
+    private void end(ClickJob job, Exception error) {
+        if (jobs.remove(job)) {
+            if (job.gate != null) job.gate.close();
+            job.getTelemetry().recordEnd(System.nanoTime());
+            job.finish(error);
+        }
+    }
+
+    /**
+     * Ends every job and stops the timing thread.
+     */
+    public void shutdown() {
+        Thread t;
+        synchronized (this) {
+            shutdown = true;
+            t = timingThread;
+        }
+        if (t == null) {
+            for (ClickJob job : jobs) end(job, null);
+            return;
+        }
+        LockSupport.unpark(t);
+        try {
+            t.join(1_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private enum RequestType {START, CANCEL, UPDATE}
+
+    private record Request(RequestType type, ClickJob job) {}
+}
@@ -0,0 +1,27 @@
+package com.jaceg18.jclicker.core.engine;
+
+/**
+ * {@link ClickSink} that discards every event. Used for warm-up, benchmarks and
+ * dry runs where only the engine's own cost is of interest.
+ */
+public final class NoOpClickSink implements ClickSink {
+
+    public static final NoOpClickSink INSTANCE = new NoOpClickSink();
+
+    private NoOpClickSink() {}
+
+    @Override
+    public void mouseMove(int x, int y) {}
+
+    @Override
+    public void mousePress(int buttonMask) {}
+
+    @Override
+    public void mouseRelease(int buttonMask) {}
+
+    @Override
+    public void keyPress(int keyCode) {}
+
+    @Override
+    public void keyRelease(int keyCode) {}
+}
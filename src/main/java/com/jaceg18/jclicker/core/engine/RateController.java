@@ -0,0 +1,128 @@
+package com.jaceg18.jclicker.core.engine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Steers the period of a session that asks for a {@link ClickConfig#targetCps()}.
+ * <p>
+ * The scheduler's absolute deadlines already keep the time a click takes out of the
+ * period, but clicks can still go missing: overruns the scheduler gives up on, lookups
+ * that hold the loop up. Once per window the controller compares the clicks actually made
+ * with the target and corrects the period with a proportional-integral step. The
+ * correction is clamped, and the integral stops growing while it is, so a rate the
+ * machine cannot reach does not leave the period far off once it can. The relative error
+ * averaged over the last {@link #STEADY_WINDOWS} windows is reported as the session's
+ * steady-state error.
+ * <p>
+ * Engine thread only; nothing is allocated after construction.
+ */
+final class RateController {
+
+    /** Shortest time a measurement window spans. */
+    static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+    /** Fewest clicks a measurement window spans, so slow rates are not measured off one interval. */
+    static final int MIN_WINDOW_CLICKS = 10;
+    static final double GAIN_P = 0.3;
+    static final double GAIN_I = 0.5;
+    /** The period never drops below the target period divided by this. */
+    static final double MAX_SPEED_UP = 4;
+    /** The period never grows past the target period times this. */
+    static final double MAX_SLOW_DOWN = 2;
+    static final int STEADY_WINDOWS = 8;
+
+    private final double targetCps;
+    private final long targetPeriodNanos;
+    private final long windowNanos;
+    private final double[] errors = new double[STEADY_WINDOWS];
+
+    private long periodNanos;
+    private double integral;
+    private int windows;
+    private boolean windowOpen;
+    private long windowStart;
+    private long windowClicks;
+
+    RateController(double targetCps) {
+        if (!(targetCps > 0)) throw new IllegalArgumentException("targetCps must be positive");
+        this.targetCps = targetCps;
+        this.targetPeriodNanos = periodFor(targetCps);
+        this.windowNanos = Math.max(WINDOW_NANOS, MIN_WINDOW_CLICKS * targetPeriodNanos);
+        this.periodNanos = targetPeriodNanos;
+    }
+
+    /** The period of {@code cps} clicks per second, clamped like a configured delay. */
+    static long periodFor(double cps) {
+        double nanos = TimeUnit.SECONDS.toNanos(1) / cps;
+        return nanos >= Long.MAX_VALUE ? Long.MAX_VALUE : Math.max(ClickScheduler.MIN_PERIOD_NANOS, Math.round(nanos));
+    }
+
+    /**
+     * The controller to use for {@code config}: {@code current} if it already steers to the
+     * same target, a new one if the target changed, {@code null} without a target.
+     */
+    static RateController follow(RateController current, ClickConfig config) {
+        if (config.targetCps() <= 0 || config.macro() != null) return null;
+        if (current != null && current.targetCps == config.targetCps()) return current;
+        return new RateController(config.targetCps());
+    }
+
+    /**
+     * Counts a click made at {@code nanos}.
+     *
+     * @return {@code true} if this closed a window and {@link #getPeriodNanos()} changed
+     */
+    boolean onClick(long nanos) {
+        if (!windowOpen) {
+            // Windows run from click to click, so whole periods are measured
+            windowOpen = true;
+            windowStart = nanos;
+            windowClicks = 0;
+            return false;
+        }
+        windowClicks++;
+        long elapsed = nanos - windowStart;
+        if (elapsed < windowNanos) return false;
+
+        double achieved = windowClicks * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+        double error = (targetCps - achieved) / targetCps;
+        errors[windows % STEADY_WINDOWS] = error;
+        windows++;
+
+        integral += error;
+        double speedUp = 1 + GAIN_P * error + GAIN_I * integral;
+        double clamped = Math.max(1 / MAX_SLOW_DOWN, Math.min(MAX_SPEED_UP, speedUp));
+        long period = Math.max(ClickScheduler.MIN_PERIOD_NANOS, Math.round(targetPeriodNanos / clamped));
+        if (clamped != speedUp || period != Math.round(targetPeriodNanos / clamped)) {
+            // Saturated: growing the integral further would only make it overshoot later
+            integral -= error;
+        }
+        periodNanos = period;
+        windowStart = nanos;
+        windowClicks = 0;
+        return true;
+    }
+
+    /**
+     * Drops the window in progress. Called for clicks skipped on purpose (trigger, target,
+     * rate limit): the gap they leave is not something the period should make up for.
+     */
+    void restart() {
+        windowOpen = false;
+    }
+
+    double getTargetCps() {return targetCps;}
+    long getPeriodNanos() {return periodNanos;}
+    long getTargetPeriodNanos() {return targetPeriodNanos;}
+
+    /**
+     * Mean of {@code (target - achieved) / target} over the last few windows; positive when
+     * clicking falls short. {@code NaN} until the first window has closed.
+     */
+    double getSteadyStateError() {
+        int n = Math.min(windows, STEADY_WINDOWS);
+        if (n == 0) return Double.NaN;
+        double sum = 0;
+        for (int i = 0; i < n; i++) sum += errors[i];
+        return sum / n;
+    }
+}
@@ -0,0 +1,60 @@
+package com.jaceg18.jclicker.core.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ClickSink} that keeps every event in memory instead of touching the OS.
+ * Lets the engine run on machines without a display (tests, CI, benchmarks).
+ */
+public class RecordingClickSink implements ClickSink {
+
+    public enum Type {MOVE, PRESS, RELEASE, KEY_PRESS, KEY_RELEASE}
+
+    public record Event(Type type, int x, int y, int buttonMask, long nanoTime) {}
+
+    private final List<Event> events = new ArrayList<>();
+
+    @Override
+    public synchronized void mouseMove(int x, int y) {
+        events.add(new Event(Type.MOVE, x, y, 0, System.nanoTime()));
+    }
+
+    @Override
+    public synchronized void mousePress(int buttonMask) {
+        events.add(new Event(Type.PRESS, 0, 0, buttonMask, System.nanoTime()));
+    }
+
+    @Override
+    public synchronized void mouseRelease(int buttonMask) {
+        events.add(new Event(Type.RELEASE, 0, 0, buttonMask, System.nanoTime()));
+    }
+
+    /** Key events keep the key code in {@link Event#buttonMask()}. */
+    @Override
+    public synchronized void keyPress(int keyCode) {
+        events.add(new Event(Type.KEY_PRESS, 0, 0, keyCode, System.nanoTime()));
+    }
+
+    @Override
+    public synchronized void keyRelease(int keyCode) {
+        events.add(new Event(Type.KEY_RELEASE, 0, 0, keyCode, System.nanoTime()));
+    }
+
+    public synchronized List<Event> getEvents() {
+        return List.copyOf(events);
+    }
+
+    /** Number of completed clicks (press events) recorded so far. */
+    public synchronized int getClickCount() {
+        int clicks = 0;
+        for (Event e : events) {
+            if (e.type() == Type.PRESS) clicks++;
+        }
+        return clicks;
+    }
+
+    public synchronized void clear() {
+        events.clear();
+    }
+}
@@ -0,0 +1,35 @@
+package com.jaceg18.jclicker.core.engine;
+
+import java.awt.AWTException;
+import java.awt.Robot;
+
+/**
+ * {@link ClickSink} that posts real OS input through {@link java.awt.Robot}.
+ */
+public class RobotClickSink implements ClickSink {
+
+    private final Robot robot;
+
+    public RobotClickSink() throws AWTException {
+        this(new Robot());
+    }
+
+    public RobotClickSink(Robot robot) {
+        this.robot = robot;
+    }
+
+    @Override
+    public void mouseMove(int x, int y) {robot.mouseMove(x, y);}
+
+    @Override
+    public void mousePress(int buttonMask) {robot.mousePress(buttonMask);}
+
+    @Override
+    public void mouseRelease(int buttonMask) {robot.mouseRelease(buttonMask);}
+
+    @Override
+    public void keyPress(int keyCode) {robot.keyPress(keyCode);}
+
+    @Override
+    public void keyRelease(int keyCode) {robot.keyRelease(keyCode);}
+}
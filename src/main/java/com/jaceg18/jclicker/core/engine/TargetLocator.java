@@ -0,0 +1,46 @@
+package com.jaceg18.jclicker.core.engine;
+
+import com.jaceg18.jclicker.core.target.Match;
+import com.jaceg18.jclicker.core.target.TargetFinder;
+import com.jaceg18.jclicker.core.target.Template;
+import com.jaceg18.jclicker.core.trigger.FrameSource;
+
+/**
+ * Finds a session's {@link ClickConfig#target()} before each click. The
+ * {@link TargetFinder}, and with it the screen capture, is only set up by the first
+ * lookup. One instance per session, owned by the thread that runs it.
+ */
+final class TargetLocator {
+
+    private final FrameSource.Factory sources;
+    private TargetFinder finder;
+    private int x;
+    private int y;
+
+    TargetLocator(FrameSource.Factory sources) {
+        this.sources = sources;
+    }
+
+    /**
+     * Looks for {@code target}; on success its centre is available from {@link #x()} and {@link #y()}.
+     *
+     * @throws IllegalStateException if the screen cannot be captured
+     */
+    boolean locate(Template target) {
+        try {
+            if (finder == null) finder = new TargetFinder(sources.create());
+            Match match = finder.locate(target);
+            if (match == null) return false;
+            x = match.centerX();
+            y = match.centerY();
+            return true;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot capture the screen: " + e.getMessage(), e);
+        }
+    }
+
+    int x() {return x;}
+    int y() {return y;}
+}
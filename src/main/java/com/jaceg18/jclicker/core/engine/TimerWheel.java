@@ -0,0 +1,125 @@
+package com.jaceg18.jclicker.core.engine;
+
+import java.util.PriorityQueue;
+
+/**
+ * Hashed timer wheel over {@link ClickJob}s, owned by a single timing thread.
+ * <p>
+ * Time is cut into ticks of {@code tickNanos}; a job due in tick {@code t} lives in bucket
+ * {@code t & mask}. Buckets are intrusive doubly linked lists threaded through the jobs,
+ * so scheduling, cancelling and expiring never allocate. A job is never reported due
+ * before its deadline: deadlines are rounded up to the next tick.
+ */
+final class TimerWheel {
+
+    private final long origin;
+    private final long tickNanos;
+    private final int mask;
+    private final ClickJob[] buckets;
+
+    /** Every tick up to and including this one has been expired. */
+    private long processedTick;
+    private int size;
+
+    TimerWheel(long originNanos, long tickNanos, int wheelSize) {
+        if (tickNanos <= 0) throw new IllegalArgumentException("tickNanos must be positive");
+        if (wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize must be a power of two");
+        }
+        this.origin = originNanos;
+        this.tickNanos = tickNanos;
+        this.mask = wheelSize - 1;
+        this.buckets = new ClickJob[wheelSize];
+        this.processedTick = 0;
+    }
+
+    /** Tick that has fully elapsed at {@code nanos}. */
+    long tickAt(long nanos) {
+        return Math.floorDiv(nanos - origin, tickNanos);
+    }
+
+    /** Start time of {@code tick}. */
+    long timeOf(long tick) {
+        return origin + tick * tickNanos;
+    }
+
+    /** First tick that starts at or after {@code deadline}. */
+    private long tickFor(long deadline) {
+        return Math.ceilDiv(deadline - origin, tickNanos);
+    }
+
+    /**
+     * Files {@code job} under its current deadline.
+     *
+     * @return false if that deadline falls in a tick that has already been expired, in
+     *         which case the job is not added and is due right away
+     */
+    boolean schedule(ClickJob job) {
+        long tick = tickFor(job.deadline());
+        if (tick <= processedTick) return false;
+
+        int bucket = (int) (tick & mask);
+        job.wheelTick = tick;
+        job.wheelBucket = bucket;
+        job.wheelPrev = null;
+        job.wheelNext = buckets[bucket];
+        if (job.wheelNext != null) job.wheelNext.wheelPrev = job;
+        buckets[bucket] = job;
+        size++;
+        return true;
+    }
+
+    void remove(ClickJob job) {
+        if (job.wheelBucket < 0) return;
+        if (job.wheelPrev != null) job.wheelPrev.wheelNext = job.wheelNext;
+        else buckets[job.wheelBucket] = job.wheelNext;
+        if (job.wheelNext != null) job.wheelNext.wheelPrev = job.wheelPrev;
+        job.wheelPrev = null;
+        job.wheelNext = null;
+        job.wheelBucket = -1;
+        size--;
+    }
+
+    /**
+     * Expires every tick up to and including {@code tick}, moving the jobs that are due
+     * into {@code due}. After a stall longer than one revolution each bucket is visited
+     * once rather than once per missed tick.
+     */
+    void expire(long tick, PriorityQueue<ClickJob> due) {
+        if (tick <= processedTick) return;
+        long from = Math.max(processedTick + 1, tick - mask);
+        for (long t = from; t <= tick; t++) {
+            ClickJob job = buckets[(int) (t & mask)];
+            while (job != null) {
+                ClickJob next = job.wheelNext;
+                if (job.wheelTick <= tick) {
+                    remove(job);
+                    due.add(job);
+                }
+                job = next;
+            }
+        }
+        processedTick = tick;
+    }
+
+    /**
+     * Earliest tick after the processed one whose bucket holds a job, or -1 if the wheel
+     * is empty. The job found may belong to a later revolution, so this is a lower bound
+     * for the next expiry, which is all the timing thread needs to decide how long to park.
+     */
+    long nextOccupiedTick() {
+        if (size == 0) return -1;
+        for (long t = processedTick + 1; t <= processedTick + buckets.length; t++) {
+            if (buckets[(int) (t & mask)] != null) return t;
+        }
+        return -1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long tickNanos() {
+        return tickNanos;
+    }
+}
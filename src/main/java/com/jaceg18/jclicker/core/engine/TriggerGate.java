@@ -0,0 +1,62 @@
+package com.jaceg18.jclicker.core.engine;
+
+import com.jaceg18.jclicker.core.trigger.PixelTrigger;
+import com.jaceg18.jclicker.core.trigger.TriggerMonitor;
+
+import java.util.Objects;
+
+/**
+ * Decides, click by click, whether a session's {@link PixelTrigger} lets it click.
+ * <p>
+ * Holds the session's watch on the {@link TriggerMonitor} and swaps it when a config
+ * update changes the trigger. Checking an unchanged trigger is a reference comparison and
+ * a volatile read. One instance per session, owned by the thread that runs it.
+ */
+final class TriggerGate {
+
+    private final TriggerMonitor monitor;
+    private PixelTrigger trigger;
+    private TriggerMonitor.Watch watch;
+
+    TriggerGate(TriggerMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    /** Whether {@code config} may click now; always, if it has no trigger. */
+    boolean isOpen(ClickConfig config) {
+        PixelTrigger wanted = config.trigger();
+        if (wanted != trigger) {
+            switchTo(wanted);
+        }
+        return watch == null || watch.isMatched();
+    }
+
+    private void switchTo(PixelTrigger wanted) {
+        if (!Objects.equals(wanted, trigger)) {
+            if (watch != null) watch.cancel();
+            watch = wanted == null ? null : monitor.watch(wanted);
+        }
+        trigger = wanted;
+    }
+
+    /** How long to wait before checking a closed gate again. */
+    long recheckNanos() {
+        return trigger != null ? trigger.pollNanos() : 0;
+    }
+
+    void close() {
+        if (watch != null) watch.cancel();
+        watch = null;
+        trigger = null;
+    }
+
+    /**
+     * @throws IllegalStateException if {@code config} has a trigger or target but there is no
+     *                               monitor to read the screen through
+     */
+    static void check(ClickConfig config, TriggerMonitor monitor) {
+        if ((config.trigger() != null || config.target() != null) && monitor == null) {
+            throw new IllegalStateException("Screen triggers and targets are not available here");
+        }
+    }
+}
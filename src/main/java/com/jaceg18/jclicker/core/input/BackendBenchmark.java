@@ -0,0 +1,129 @@
+package com.jaceg18.jclicker.core.input;
+
+import com.jaceg18.jclicker.core.engine.ClickSink;
+import com.jaceg18.jclicker.core.engine.LatencyHistogram;
+
+import java.awt.MouseInfo;
+import java.awt.Point;
+import java.awt.PointerInfo;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what one event costs on each {@link ClickBackend} on this machine.
+ * <p>
+ * Every event is a pointer move to where the pointer already is, so nothing gets clicked
+ * and nothing moves. Each backend gets a warm-up, then {@code events} timed calls; the
+ * result holds the per-call cost and the throughput over the whole run. A backend that
+ * cannot be created here (no display, no native library) gets its error instead.
+ */
+public final class BackendBenchmark {
+
+    public static final int DEFAULT_EVENTS = 2_000;
+    static final int WARM_UP_EVENTS = 1_000;
+
+    private BackendBenchmark(){}
+
+    /**
+     * @param cost            per-event cost in nanoseconds
+     * @param eventsPerSecond events one thread can post back to back
+     * @param error           why the backend could not be measured, or {@code null}
+     */
+    public record Result(ClickBackend backend, LatencyHistogram.Snapshot cost, double eventsPerSecond, String error){
+
+        public boolean isAvailable(){return error == null;}
+
+        @Override
+        public String toString(){
+            if (!isAvailable()) return String.format("%-12s unavailable: %s", backend.name(), error);
+            return String.format(Locale.ROOT, "%-12s %,12.0f events/s   p50 %s   p99 %s   max %s",
+                    backend.name(), eventsPerSecond, micros(cost.p50()), micros(cost.p99()), micros(cost.max()));
+        }
+
+        private static String micros(long nanos){
+            return String.format(Locale.ROOT, "%.1f us", nanos / 1_000.0);
+        }
+    }
+
+    /** Measures each of {@code backends} in turn. */
+    public static List<Result> run(List<ClickBackend> backends, int events){
+        return run(backends, events, null);
+    }
+
+    /** @param at where the events point, or {@code null} for where the pointer is */
+    static List<Result> run(List<ClickBackend> backends, int events, Point at){
+        List<Result> results = new ArrayList<>(backends.size());
+        for (ClickBackend backend : backends) results.add(measure(backend, events, at));
+        return results;
+    }
+
+    public static Result measure(ClickBackend backend, int events){
+        return measure(backend, events, null);
+    }
+
+    static Result measure(ClickBackend backend, int events, Point at){
+        if (events < 1) throw new IllegalArgumentException("events must be positive");
+        ClickSink sink;
+        try {
+            sink = backend.create();
+        } catch (Exception | LinkageError e) {
+            return failed(backend, e);
+        }
+        if (at == null && !backend.postsInput()) at = new Point();
+        if (at == null) {
+            try {
+                PointerInfo pointer = MouseInfo.getPointerInfo();
+                if (pointer == null) return new Result(backend, LatencyHistogram.Snapshot.EMPTY, 0, "cannot find the pointer");
+                at = pointer.getLocation();
+            } catch (RuntimeException e) {
+                return failed(backend, e);
+            }
+        }
+
+        LatencyHistogram cost = new LatencyHistogram();
+        try {
+            for (int i = 0; i < WARM_UP_EVENTS; i++) sink.mouseMove(at.x, at.y);
+            long start = System.nanoTime();
+            long last = start;
+            for (int i = 0; i < events; i++) {
+                sink.mouseMove(at.x, at.y);
+                long now = System.nanoTime();
+                cost.record(now - last);
+                last = now;
+            }
+            double seconds = Math.max(1, last - start) / (double) TimeUnit.SECONDS.toNanos(1);
+            return new Result(backend, cost.snapshot(), events / seconds, null);
+        } catch (RuntimeException e) {
+            return failed(backend, e);
+        }
+    }
+
+    /** The fastest measured backend that posts input, or {@code null} if none could be measured. */
+    public static Result recommend(List<Result> results){
+        Result best = null;
+        for (Result result : results) {
+            if (!result.isAvailable() || !result.backend().postsInput()) continue;
+            if (best == null || result.eventsPerSecond() > best.eventsPerSecond()) best = result;
+        }
+        return best;
+    }
+
+    /** One line per result and a last one naming the recommendation. */
+    public static String report(List<Result> results){
+        StringBuilder out = new StringBuilder();
+        for (Result result : results) out.append(result).append('\n');
+        Result best = recommend(results);
+        out.append(best == null
+                ? "No backend that posts input works here."
+                : "Recommended: " + best.backend().name() + " (" + best.backend().description() + ")");
+        return out.toString();
+    }
+
+    private static Result failed(ClickBackend backend, Throwable e){
+        // Some messages, HeadlessException's for one, span several lines
+        String message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage().strip().replaceAll("\\s+", " ");
+        return new Result(backend, LatencyHistogram.Snapshot.EMPTY, 0, message);
+    }
+}
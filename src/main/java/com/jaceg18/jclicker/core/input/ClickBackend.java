@@ -0,0 +1,30 @@
+package com.jaceg18.jclicker.core.input;
+
+import com.jaceg18.jclicker.core.engine.ClickSink;
+
+/**
+ * A way of getting clicks to the OS, found through {@link java.util.ServiceLoader}.
+ * <p>
+ * Implementations need a public no-argument constructor and are listed as providers in
+ * {@code module-info.java}, and in {@code META-INF/services} for class-path runs. Profiles
+ * and the command line refer to a backend by its {@link #name()}; {@link ClickBackends}
+ * looks it up.
+ */
+public interface ClickBackend {
+
+    /** Short lower-case name, unique among the backends. */
+    String name();
+
+    /** One line for menus and reports. */
+    String description();
+
+    /** Whether events reach the OS. Stand-ins for tests and dry runs return {@code false}. */
+    boolean postsInput();
+
+    /**
+     * Creates a sink. Called on the thread that will use it.
+     *
+     * @throws Exception if the backend cannot work on this machine (no display, no native library...)
+     */
+    ClickSink create() throws Exception;
+}
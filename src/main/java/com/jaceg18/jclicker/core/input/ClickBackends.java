@@ -0,0 +1,50 @@
+package com.jaceg18.jclicker.core.input;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.stream.Collectors;
+
+/**
+ * The {@link ClickBackend}s on the module path, loaded once.
+ */
+public final class ClickBackends {
+
+    /** The backend used when a profile does not pick one. */
+    public static final String DEFAULT = RobotBackend.NAME;
+
+    private ClickBackends(){}
+
+    private static final class Loaded {
+        static final List<ClickBackend> ALL = load();
+    }
+
+    private static List<ClickBackend> load(){
+        List<ClickBackend> found = new ArrayList<>();
+        for (ClickBackend backend : ServiceLoader.load(ClickBackend.class, ClickBackend.class.getClassLoader())) {
+            // The first provider of a name wins
+            if (found.stream().noneMatch(b -> b.name().equals(backend.name()))) found.add(backend);
+        }
+        return List.copyOf(found);
+    }
+
+    /** Every backend, in the order the providers are declared. */
+    public static List<ClickBackend> all(){
+        return Loaded.ALL;
+    }
+
+    /**
+     * @throws IllegalArgumentException with a message fit for the user if there is no backend called {@code name}
+     */
+    public static ClickBackend find(String name){
+        for (ClickBackend backend : all()) {
+            if (backend.name().equals(name)) return backend;
+        }
+        throw new IllegalArgumentException("Unknown input backend '" + name + "', expected one of " + names());
+    }
+
+    /** The backend names, comma-separated, for messages. */
+    public static String names(){
+        return all().stream().map(ClickBackend::name).collect(Collectors.joining(", "));
+    }
+}
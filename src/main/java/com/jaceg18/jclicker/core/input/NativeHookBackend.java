@@ -0,0 +1,21 @@
+package com.jaceg18.jclicker.core.input;
+
+import com.jaceg18.jclicker.core.engine.ClickSink;
+
+/** Posts input through JNativeHook, without AWT. */
+public final class NativeHookBackend implements ClickBackend {
+
+    @Override
+    public String name(){return "jnativehook";}
+
+    @Override
+    public String description(){return "JNativeHook event posting";}
+
+    @Override
+    public boolean postsInput(){return true;}
+
+    @Override
+    public ClickSink create() throws Exception {
+        return new NativeHookClickSink();
+    }
+}
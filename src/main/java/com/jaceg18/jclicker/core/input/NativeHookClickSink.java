@@ -0,0 +1,158 @@
+package com.jaceg18.jclicker.core.input;
+
+import com.github.kwhat.jnativehook.GlobalScreen;
+import com.github.kwhat.jnativehook.keyboard.NativeKeyEvent;
+import com.github.kwhat.jnativehook.keyboard.SwingKeyAdapter;
+import com.github.kwhat.jnativehook.mouse.NativeMouseEvent;
+import com.jaceg18.jclicker.core.engine.ClickSink;
+
+import java.awt.GraphicsEnvironment;
+import java.awt.HeadlessException;
+import java.awt.MouseInfo;
+import java.awt.Point;
+import java.awt.PointerInfo;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.util.Arrays;
+
+/**
+ * {@link ClickSink} that posts events through {@link GlobalScreen#postNativeEvent}, the
+ * library the hotkeys already load, so clicks skip AWT's {@link java.awt.Robot} and its
+ * per-event locking.
+ * <p>
+ * Native presses and releases carry a position. The last {@link #mouseMove} is used while
+ * it applies; otherwise the pointer's position is read once per press, so plain clicks
+ * land wherever the user has moved the mouse to. Keys without a native code are ignored.
+ */
+final class NativeHookClickSink implements ClickSink {
+
+    private int x;
+    private int y;
+    /** Whether {@code x, y} is where the pointer is, as far as this sink knows. */
+    private boolean placed;
+    private int held;
+
+    NativeHookClickSink(){
+        if (GraphicsEnvironment.isHeadless()) throw new HeadlessException();
+        try {
+            // Loads the native library now rather than on the first click
+            GlobalScreen.isNativeHookRegistered();
+        } catch (LinkageError e) {
+            throw new IllegalStateException("JNativeHook is not available: " + e, e);
+        }
+    }
+
+    @Override
+    public void mouseMove(int x, int y){
+        this.x = x;
+        this.y = y;
+        placed = true;
+        post(NativeMouseEvent.NATIVE_MOUSE_MOVED, NativeMouseEvent.NOBUTTON);
+    }
+
+    @Override
+    public void mousePress(int buttonMask){
+        int button = nativeButton(buttonMask);
+        if (button == NativeMouseEvent.NOBUTTON) return;
+        if (!placed) locate();
+        held |= buttonMask;
+        post(NativeMouseEvent.NATIVE_MOUSE_PRESSED, button);
+    }
+
+    @Override
+    public void mouseRelease(int buttonMask){
+        int button = nativeButton(buttonMask);
+        if (button == NativeMouseEvent.NOBUTTON) return;
+        if (!placed) locate();
+        post(NativeMouseEvent.NATIVE_MOUSE_RELEASED, button);
+        held &= ~buttonMask;
+        // The user may move the mouse before the next click
+        if (held == 0) placed = false;
+    }
+
+    @Override
+    public void keyPress(int keyCode){
+        postKey(NativeKeyEvent.NATIVE_KEY_PRESSED, keyCode);
+    }
+
+    @Override
+    public void keyRelease(int keyCode){
+        postKey(NativeKeyEvent.NATIVE_KEY_RELEASED, keyCode);
+    }
+
+    private void locate(){
+        PointerInfo pointer = MouseInfo.getPointerInfo();
+        if (pointer == null) return;
+        Point at = pointer.getLocation();
+        x = at.x;
+        y = at.y;
+        placed = true;
+    }
+
+    private void post(int id, int button){
+        GlobalScreen.postNativeEvent(new NativeMouseEvent(id, 0, x, y, 1, button));
+    }
+
+    private static void postKey(int id, int keyCode){
+        int nativeCode = nativeKeyCode(keyCode);
+        if (nativeCode == NativeKeyEvent.VC_UNDEFINED) return;
+        GlobalScreen.postNativeEvent(new NativeKeyEvent(id, 0, 0, nativeCode,
+                NativeKeyEvent.CHAR_UNDEFINED, NativeKeyEvent.KEY_LOCATION_STANDARD));
+    }
+
+    /** JNativeHook button number for an AWT button mask, {@code NOBUTTON} for other masks. */
+    static int nativeButton(int buttonMask){
+        return switch (buttonMask) {
+            case InputEvent.BUTTON1_DOWN_MASK -> NativeMouseEvent.BUTTON1;
+            case InputEvent.BUTTON3_DOWN_MASK -> NativeMouseEvent.BUTTON2;
+            case InputEvent.BUTTON2_DOWN_MASK -> NativeMouseEvent.BUTTON3;
+            default -> NativeMouseEvent.NOBUTTON;
+        };
+    }
+
+    /** JNativeHook key code for an AWT key code, {@code VC_UNDEFINED} if there is none. */
+    static int nativeKeyCode(int keyCode){
+        return KeyTable.INSTANCE.toNative(keyCode);
+    }
+
+    /**
+     * JNativeHook only maps native key codes to AWT ones, so its table is run backwards:
+     * every native code is put through it once, on the first key event.
+     */
+    private static final class KeyTable extends SwingKeyAdapter {
+        static final KeyTable INSTANCE = new KeyTable();
+
+        /** AWT codes, sorted, and the native code of each. */
+        private final int[] javaCodes;
+        private final int[] nativeCodes;
+        private final int size;
+
+        private KeyTable(){
+            long[] pairs = new long[0x10000];
+            int found = 0;
+            for (int nativeCode = 1; nativeCode <= 0xFFFF; nativeCode++) {
+                NativeKeyEvent event = new NativeKeyEvent(NativeKeyEvent.NATIVE_KEY_PRESSED, 0, 0, nativeCode,
+                        NativeKeyEvent.CHAR_UNDEFINED, NativeKeyEvent.KEY_LOCATION_STANDARD);
+                int javaCode = getJavaKeyEvent(event).getKeyCode();
+                if (javaCode != KeyEvent.VK_UNDEFINED) pairs[found++] = (long) javaCode << 32 | nativeCode;
+            }
+            Arrays.sort(pairs, 0, found);
+            javaCodes = new int[found];
+            nativeCodes = new int[found];
+            int n = 0;
+            for (int i = 0; i < found; i++) {
+                int javaCode = (int) (pairs[i] >>> 32);
+                // Sorting puts the lowest native code of an AWT code first; that one is kept
+                if (n > 0 && javaCodes[n - 1] == javaCode) continue;
+                javaCodes[n] = javaCode;
+                nativeCodes[n++] = (int) pairs[i];
+            }
+            size = n;
+        }
+
+        int toNative(int javaCode){
+            int i = Arrays.binarySearch(javaCodes, 0, size, javaCode);
+            return i < 0 ? NativeKeyEvent.VC_UNDEFINED : nativeCodes[i];
+        }
+    }
+}
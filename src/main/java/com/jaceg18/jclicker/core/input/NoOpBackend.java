@@ -0,0 +1,22 @@
+package com.jaceg18.jclicker.core.input;
+
+import com.jaceg18.jclicker.core.engine.ClickSink;
+import com.jaceg18.jclicker.core.engine.NoOpClickSink;
+
+/** Sends nothing; for dry runs and machines without a display. */
+public final class NoOpBackend implements ClickBackend {
+
+    @Override
+    public String name(){return "noop";}
+
+    @Override
+    public String description(){return "Nothing (dry run)";}
+
+    @Override
+    public boolean postsInput(){return false;}
+
+    @Override
+    public ClickSink create(){
+        return NoOpClickSink.INSTANCE;
+    }
+}
@@ -0,0 +1,25 @@
+package com.jaceg18.jclicker.core.input;
+
+import com.jaceg18.jclicker.core.engine.ClickSink;
+import com.jaceg18.jclicker.core.engine.RecordingClickSink;
+
+/**
+ * Keeps every event in memory instead of sending it, for tests. Memory grows with every
+ * event, so it is no choice for endless sessions.
+ */
+public final class RecordingBackend implements ClickBackend {
+
+    @Override
+    public String name(){return "recording";}
+
+    @Override
+    public String description(){return "In-memory recording (tests)";}
+
+    @Override
+    public boolean postsInput(){return false;}
+
+    @Override
+    public ClickSink create(){
+        return new RecordingClickSink();
+    }
+}
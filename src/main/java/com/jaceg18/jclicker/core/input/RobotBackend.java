@@ -0,0 +1,24 @@
+package com.jaceg18.jclicker.core.input;
+
+import com.jaceg18.jclicker.core.engine.ClickSink;
+import com.jaceg18.jclicker.core.engine.RobotClickSink;
+
+/** Posts input through {@link java.awt.Robot}. */
+public final class RobotBackend implements ClickBackend {
+
+    static final String NAME = "robot";
+
+    @Override
+    public String name(){return NAME;}
+
+    @Override
+    public String description(){return "AWT Robot";}
+
+    @Override
+    public boolean postsInput(){return true;}
+
+    @Override
+    public ClickSink create() throws Exception {
+        return new RobotClickSink();
+    }
+}
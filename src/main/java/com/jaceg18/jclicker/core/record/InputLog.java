@@ -0,0 +1,284 @@
+package com.jaceg18.jclicker.core.record;
+
+import com.github.kwhat.jnativehook.keyboard.NativeKeyEvent;
+import com.github.kwhat.jnativehook.keyboard.SwingKeyAdapter;
+import com.github.kwhat.jnativehook.mouse.NativeMouseEvent;
+import com.jaceg18.jclicker.core.engine.CompiledMacro;
+
+import java.awt.event.InputEvent;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * File format of input recordings.
+ * <p>
+ * An 8-byte header ({@link #MAGIC}, version) is followed by one variable-length record per
+ * event: the type byte, the nanoseconds since the previous event as an unsigned varint,
+ * then for mouse events the position as zigzag varint deltas from the previous mouse
+ * event, and for everything but moves the native button or key code as a varint. A mouse
+ * move typically takes 4 to 7 bytes. Values are the ones JNativeHook reports; they are
+ * translated to AWT codes only when a recording is turned into a {@link CompiledMacro}.
+ * <p>
+ * There is no trailer, so a recording cut short by a crash reads back up to its last
+ * complete event.
+ */
+public final class InputLog {
+
+    /** "JCRL" */
+    public static final int MAGIC = 0x4A43524C;
+    public static final short VERSION = 1;
+    public static final String EXTENSION = ".jcr";
+    static final int HEADER_SIZE = 8;
+
+    public static final byte MOVE = 0;
+    public static final byte PRESS = 1;
+    public static final byte RELEASE = 2;
+    public static final byte KEY_PRESS = 3;
+    public static final byte KEY_RELEASE = 4;
+
+    /** Type byte, a 10-byte delta and three 5-byte varints. */
+    static final int MAX_EVENT_BYTES = 1 + 10 + 3 * 5;
+
+    /** Bound on replayed steps; a step takes 21 bytes in memory, so about 350 MB at most. */
+    public static final int MAX_REPLAY_STEPS = 1 << 24;
+
+    private InputLog(){}
+
+    static void writeHeader(ByteBuffer out){
+        out.putInt(MAGIC).putShort(VERSION).putShort((short) 0);
+    }
+
+    /**
+     * Delta-encodes events. Keeps only the previous timestamp and position, so encoding
+     * never allocates.
+     */
+    static final class Encoder {
+        private long lastNanos;
+        private int lastX;
+        private int lastY;
+
+        Encoder(long startNanos){
+            this.lastNanos = startNanos;
+        }
+
+        void encode(ByteBuffer out, byte type, long nanos, int x, int y, int code){
+            out.put(type);
+            putVarLong(out, Math.max(0, nanos - lastNanos));
+            lastNanos = Math.max(lastNanos, nanos);
+            if (type != KEY_PRESS && type != KEY_RELEASE) {
+                putVarLong(out, zigzag(x - lastX));
+                putVarLong(out, zigzag(y - lastY));
+                lastX = x;
+                lastY = y;
+            }
+            if (type != MOVE) {
+                putVarLong(out, code & 0xFFFFFFFFL);
+            }
+        }
+
+        private static long zigzag(int v){
+            return ((v << 1) ^ (v >> 31)) & 0xFFFFFFFFL;
+        }
+
+        private static void putVarLong(ByteBuffer out, long v){
+            while ((v & ~0x7FL) != 0) {
+                out.put((byte) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            out.put((byte) v);
+        }
+    }
+
+    public static Reader open(Path file) throws IOException {
+        return new Reader(FileChannel.open(file, StandardOpenOption.READ));
+    }
+
+    /**
+     * Reads a recording one event at a time into its own fields, without allocating per event.
+     */
+    public static final class Reader implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        private boolean eof;
+
+        private byte type;
+        private long deltaNanos;
+        private int x;
+        private int y;
+        private int code;
+
+        Reader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            buffer.flip();
+            try {
+                fill();
+                if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+                    throw new IOException("Not a JClicker recording");
+                }
+                short version = buffer.getShort();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported recording version " + version);
+                }
+                buffer.getShort();
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /** Advances to the next event; {@code false} at the end of the recording. */
+        public boolean next() throws IOException {
+            fill();
+            if (!buffer.hasRemaining()) return false;
+            int start = buffer.position();
+            try {
+                byte t = buffer.get();
+                long delta = getVarLong();
+                if (t != KEY_PRESS && t != KEY_RELEASE) {
+                    x += unzigzag(getVarLong());
+                    y += unzigzag(getVarLong());
+                }
+                code = t == MOVE ? 0 : (int) getVarLong();
+                type = t;
+                deltaNanos = delta;
+                return true;
+            } catch (EOFException e) {
+                // Last event was cut short
+                buffer.position(start);
+                return false;
+            }
+        }
+
+        public byte type() {return type;}
+        /** Nanoseconds since the previous event. */
+        public long deltaNanos() {return deltaNanos;}
+        /** Mouse position; for key events the position of the last mouse event. */
+        public int x() {return x;}
+        public int y() {return y;}
+        /** JNativeHook button number or key code. */
+        public int code() {return code;}
+
+        private void fill() throws IOException {
+            if (eof || buffer.remaining() >= MAX_EVENT_BYTES) return;
+            buffer.compact();
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    eof = true;
+                    break;
+                }
+            }
+            buffer.flip();
+        }
+
+        private long getVarLong() throws EOFException {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (!buffer.hasRemaining()) throw new EOFException();
+                byte b = buffer.get();
+                v |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return v;
+            }
+            throw new EOFException();
+        }
+
+        private static int unzigzag(long v){
+            int n = (int) v;
+            return (n >>> 1) ^ -(n & 1);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Turns a recording into a macro for the click engine, keeping every delay. Releases of
+     * buttons and keys that were already down when recording started are dropped, and
+     * anything still held at the end is released, so a replay never leaves input stuck.
+     * The returned macro has no {@link CompiledMacro#source() source} text.
+     *
+     * @throws IOException if the file is not a recording or holds no replayable events
+     */
+    public static CompiledMacro toMacro(Path file) throws IOException {
+        CompiledMacro.Builder out = new CompiledMacro.Builder(MAX_REPLAY_STEPS);
+        KeyMapper keys = new KeyMapper();
+        int heldButtons = 0;
+        BitSet heldKeys = new BitSet();
+        boolean positioned = false;
+        int mouseX = 0, mouseY = 0;
+
+        try (Reader in = open(file)) {
+            while (in.next()) {
+                out.await(in.deltaNanos());
+                switch (in.type()) {
+                    case MOVE -> {
+                        out.action(CompiledMacro.MOVE, in.x(), in.y(), 0);
+                        positioned = true;
+                        mouseX = in.x();
+                        mouseY = in.y();
+                    }
+                    case PRESS, RELEASE -> {
+                        int mask = buttonMask(in.code());
+                        boolean press = in.type() == PRESS;
+                        if (mask == 0 || (!press && (heldButtons & mask) == 0)) continue;
+                        if (!positioned || mouseX != in.x() || mouseY != in.y()) {
+                            out.action(CompiledMacro.MOVE, in.x(), in.y(), 0);
+                            positioned = true;
+                            mouseX = in.x();
+                            mouseY = in.y();
+                        }
+                        out.action(press ? CompiledMacro.PRESS : CompiledMacro.RELEASE, 0, 0, mask);
+                        heldButtons = press ? heldButtons | mask : heldButtons & ~mask;
+                    }
+                    case KEY_PRESS, KEY_RELEASE -> {
+                        int keyCode = keys.toJava(in.code());
+                        boolean press = in.type() == KEY_PRESS;
+                        if (keyCode == 0 || (!press && !heldKeys.get(keyCode))) continue;
+                        out.action(press ? CompiledMacro.KEY_PRESS : CompiledMacro.KEY_RELEASE, 0, 0, keyCode);
+                        heldKeys.set(keyCode, press);
+                    }
+                    default -> throw new IOException("Corrupt recording: unknown event type " + in.type());
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Recording is too long to replay: " + file, e);
+        }
+
+        for (int mask = Integer.lowestOneBit(heldButtons); mask != 0; mask = Integer.lowestOneBit(heldButtons)) {
+            out.action(CompiledMacro.RELEASE, 0, 0, mask);
+            heldButtons &= ~mask;
+        }
+        for (int key = heldKeys.nextSetBit(0); key >= 0; key = heldKeys.nextSetBit(key + 1)) {
+            out.action(CompiledMacro.KEY_RELEASE, 0, 0, key);
+        }
+        if (out.size() == 0) {
+            throw new IOException("Recording has nothing to replay: " + file);
+        }
+        return out.build(null);
+    }
+
+    /** AWT button mask for a JNativeHook button number, 0 for buttons the engine cannot press. */
+    static int buttonMask(int nativeButton){
+        return switch (nativeButton) {
+            case NativeMouseEvent.BUTTON1 -> InputEvent.BUTTON1_DOWN_MASK;
+            case NativeMouseEvent.BUTTON2 -> InputEvent.BUTTON3_DOWN_MASK;
+            case NativeMouseEvent.BUTTON3 -> InputEvent.BUTTON2_DOWN_MASK;
+            default -> 0;
+        };
+    }
+
+    /** Borrows JNativeHook's own native-to-AWT key code table. */
+    private static final class KeyMapper extends SwingKeyAdapter {
+        int toJava(int nativeKeyCode){
+            NativeKeyEvent event = new NativeKeyEvent(NativeKeyEvent.NATIVE_KEY_PRESSED, 0, 0, nativeKeyCode,
+                    NativeKeyEvent.CHAR_UNDEFINED, NativeKeyEvent.KEY_LOCATION_STANDARD);
+            return getJavaKeyEvent(event).getKeyCode();
+        }
+    }
+}
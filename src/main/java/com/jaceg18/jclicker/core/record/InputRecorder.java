@@ -0,0 +1,240 @@
+package com.jaceg18.jclicker.core.record;
+
+import com.github.kwhat.jnativehook.keyboard.NativeKeyEvent;
+import com.github.kwhat.jnativehook.keyboard.NativeKeyListener;
+import com.github.kwhat.jnativehook.mouse.NativeMouseEvent;
+import com.github.kwhat.jnativehook.mouse.NativeMouseInputListener;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records native mouse and keyboard input to an {@link InputLog} file.
+ * <p>
+ * Register it with {@code GlobalScreen} as a key, mouse and mouse motion listener while
+ * recording. The hook thread only copies each event into a preallocated ring of primitive
+ * arrays; a writer thread drains the ring every few milliseconds, delta-encodes the events
+ * into a reused direct buffer and appends them to the file. Neither side allocates per
+ * event, so recordings of any length run with a flat heap. If the writer falls more than
+ * a ring's worth of events behind, new events are dropped and counted rather than
+ * blocking the hook.
+ * <p>
+ * Events must come from a single thread at a time, which is how JNativeHook delivers them.
+ */
+public class InputRecorder implements NativeKeyListener, NativeMouseInputListener {
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    static final long DRAIN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final int mask;
+    private final long[] times;
+    private final byte[] types;
+    private final int[] xs;
+    private final int[] ys;
+    private final int[] codes;
+    /** Next slot the hook thread fills; published with release semantics. */
+    private final AtomicLong head = new AtomicLong();
+    /** Next slot the writer drains. */
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    /** Hook thread only: last tail seen, so a full check rarely touches the shared counter. */
+    private long tailCache;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private volatile boolean recording;
+    private volatile IOException writeError;
+    private Thread writer;
+    private FileChannel channel;
+    private Path file;
+    private long recordedFrom;
+    private long bytesWritten;
+
+    public InputRecorder(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /** @param capacity events the ring holds, a power of two */
+    public InputRecorder(int capacity){
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        mask = capacity - 1;
+        times = new long[capacity];
+        types = new byte[capacity];
+        xs = new int[capacity];
+        ys = new int[capacity];
+        codes = new int[capacity];
+    }
+
+    /**
+     * Starts recording into {@code target}, replacing it if it exists.
+     */
+    public synchronized void start(Path target) throws IOException {
+        if (writer != null) throw new IllegalStateException("already recording to " + file);
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+
+        channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        file = target;
+        bytesWritten = 0;
+        writeError = null;
+        dropped.set(0);
+        recordedFrom = head.get();
+        tail.set(recordedFrom);
+        tailCache = recordedFrom;
+
+        buffer.clear();
+        InputLog.writeHeader(buffer);
+        InputLog.Encoder encoder = new InputLog.Encoder(System.nanoTime());
+        recording = true;
+        writer = new Thread(() -> drain(encoder), "jclicker-recorder");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Stops recording, writes out everything captured so far and closes the file.
+     *
+     * @return what was recorded, or {@code null} if not recording
+     * @throws IOException if writing the recording failed at any point
+     */
+    public synchronized Summary stop() throws IOException {
+        if (writer == null) return null;
+        recording = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+        try {
+            channel.close();
+        } finally {
+            channel = null;
+        }
+        if (writeError != null) throw writeError;
+        return new Summary(file, tail.get() - recordedFrom, dropped.get(), bytesWritten);
+    }
+
+    public boolean isRecording(){
+        return recording;
+    }
+
+    /** Events dropped because the ring was full, since recording started. */
+    public long getDropped(){
+        return dropped.get();
+    }
+
+    /**
+     * Captures one event. Called on the hook thread; never blocks and never allocates.
+     *
+     * @param type  one of the {@link InputLog} event types
+     * @param code  JNativeHook button number or key code
+     * @param nanos {@link System#nanoTime()} of the event
+     */
+    public void record(byte type, int x, int y, int code, long nanos){
+        if (!recording) return;
+        long h = head.get();
+        if (h - tailCache > mask) {
+            tailCache = tail.get();
+            if (h - tailCache > mask) {
+                dropped.lazySet(dropped.get() + 1);
+                return;
+            }
+        }
+        int i = (int) h & mask;
+        times[i] = nanos;
+        types[i] = type;
+        xs[i] = x;
+        ys[i] = y;
+        codes[i] = code;
+        head.lazySet(h + 1);
+    }
+
+    private void drain(InputLog.Encoder encoder){
+        try {
+            while (true) {
+                // Read the flag first so that everything recorded before stop() is written
+                boolean stopping = !recording;
+                long t = tail.get();
+                long h = head.get();
+                for (; t < h; t++) {
+                    if (buffer.remaining() < InputLog.MAX_EVENT_BYTES) flush();
+                    int i = (int) t & mask;
+                    encoder.encode(buffer, types[i], times[i], xs[i], ys[i], codes[i]);
+                }
+                tail.lazySet(t);
+                if (stopping) {
+                    flush();
+                    return;
+                }
+                if (buffer.position() > 0 && head.get() == t) {
+                    // Idle: keep the file current in case the process dies
+                    flush();
+                }
+                LockSupport.parkNanos(this, DRAIN_INTERVAL_NANOS);
+            }
+        } catch (IOException e) {
+            writeError = e;
+            recording = false;
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // ---------------------------------------------------------------- native hook
+
+    @Override
+    public void nativeMouseMoved(NativeMouseEvent e){
+        record(InputLog.MOVE, e.getX(), e.getY(), 0, System.nanoTime());
+    }
+
+    @Override
+    public void nativeMouseDragged(NativeMouseEvent e){
+        record(InputLog.MOVE, e.getX(), e.getY(), 0, System.nanoTime());
+    }
+
+    @Override
+    public void nativeMousePressed(NativeMouseEvent e){
+        record(InputLog.PRESS, e.getX(), e.getY(), e.getButton(), System.nanoTime());
+    }
+
+    @Override
+    public void nativeMouseReleased(NativeMouseEvent e){
+        record(InputLog.RELEASE, e.getX(), e.getY(), e.getButton(), System.nanoTime());
+    }
+
+    @Override
+    public void nativeKeyPressed(NativeKeyEvent e){
+        record(InputLog.KEY_PRESS, 0, 0, e.getKeyCode(), System.nanoTime());
+    }
+
+    @Override
+    public void nativeKeyReleased(NativeKeyEvent e){
+        record(InputLog.KEY_RELEASE, 0, 0, e.getKeyCode(), System.nanoTime());
+    }
+
+    /**
+     * @param events  events written to the file
+     * @param dropped events lost because the writer could not keep up
+     * @param bytes   size of the file
+     */
+    public record Summary(Path file, long events, long dropped, long bytes) {}
+}
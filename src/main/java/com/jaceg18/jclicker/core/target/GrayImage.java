@@ -0,0 +1,89 @@
+package com.jaceg18.jclicker.core.target;
+
+import java.util.Arrays;
+
+/**
+ * A grey-level image, one 0-255 value per {@code int}, row by row.
+ * <p>
+ * Buffers only grow, so the same instance can hold a new frame each lookup without
+ * allocating. {@code int} rather than {@code byte} keeps the matching loops free of sign
+ * masking, which lets the JIT vectorise them.
+ */
+final class GrayImage {
+
+    int width;
+    int height;
+    int[] pixels = new int[0];
+    /** Summed-area table, {@code (width + 1) * (height + 1)}; only valid after {@link #integrate()}. */
+    private int[] integral = new int[0];
+
+    private void resize(int width, int height){
+        this.width = width;
+        this.height = height;
+        if (pixels.length < width * height) pixels = new int[width * height];
+    }
+
+    /**
+     * Converts {@code 0xRRGGBB} pixels to grey in place and adopts the array as this
+     * image's buffer.
+     */
+    void wrapRgb(int[] rgb, int width, int height){
+        this.width = width;
+        this.height = height;
+        this.pixels = rgb;
+        for (int i = 0, n = width * height; i < n; i++) {
+            int p = rgb[i];
+            // Rec. 601 luma in fixed point
+            rgb[i] = (((p >> 16) & 0xFF) * 77 + ((p >> 8) & 0xFF) * 150 + (p & 0xFF) * 29) >> 8;
+        }
+    }
+
+    /** Makes this image {@code source} at half the size, each pixel the mean of a 2x2 block. */
+    void downsample(GrayImage source){
+        resize(source.width >> 1, source.height >> 1);
+        int[] src = source.pixels;
+        int stride = source.width;
+        for (int y = 0; y < height; y++) {
+            int top = (y << 1) * stride;
+            int bottom = top + stride;
+            int out = y * width;
+            for (int x = 0; x < width; x++) {
+                int sx = x << 1;
+                pixels[out + x] = (src[top + sx] + src[top + sx + 1] + src[bottom + sx] + src[bottom + sx + 1] + 2) >> 2;
+            }
+        }
+    }
+
+    /**
+     * Builds the summed-area table, after which {@link #sum(int, int, int, int)} is O(1).
+     * 255 times the largest capture still fits in an {@code int}.
+     */
+    void integrate(){
+        int stride = width + 1;
+        if (integral.length < stride * (height + 1)) integral = new int[stride * (height + 1)];
+        Arrays.fill(integral, 0, stride, 0);
+        for (int y = 0; y < height; y++) {
+            int row = 0;
+            int in = y * width;
+            int out = (y + 1) * stride;
+            integral[out] = 0;
+            for (int x = 0; x < width; x++) {
+                row += pixels[in + x];
+                integral[out + x + 1] = integral[out - stride + x + 1] + row;
+            }
+        }
+    }
+
+    int sum(int x, int y, int w, int h){
+        int stride = width + 1;
+        int top = y * stride;
+        int bottom = (y + h) * stride;
+        return integral[bottom + x + w] - integral[bottom + x] - integral[top + x + w] + integral[top + x];
+    }
+
+    long sum(){
+        long total = 0;
+        for (int i = 0, n = width * height; i < n; i++) total += pixels[i];
+        return total;
+    }
+}
@@ -0,0 +1,19 @@
+package com.jaceg18.jclicker.core.target;
+
+/**
+ * Where a {@link Template} was found on screen.
+ *
+ * @param x          screen x of the match's top-left corner
+ * @param y          screen y of the match's top-left corner
+ * @param difference mean absolute grey-level difference per pixel, 0 for an exact match
+ */
+public record Match(int x, int y, int width, int height, double difference) {
+
+    public int centerX(){
+        return x + width / 2;
+    }
+
+    public int centerY(){
+        return y + height / 2;
+    }
+}
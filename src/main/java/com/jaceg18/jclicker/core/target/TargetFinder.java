@@ -0,0 +1,141 @@
+package com.jaceg18.jclicker.core.target;
+
+import com.jaceg18.jclicker.core.engine.LatencyHistogram;
+import com.jaceg18.jclicker.core.trigger.FrameSource;
+
+import java.awt.Rectangle;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Finds {@link Template}s on screen.
+ * <p>
+ * A lookup first captures just a window around where the same template was found last
+ * time and searches that; a target that has not moved far costs a capture of a few
+ * template sizes. Only when that misses does it capture the whole screen. Both run the
+ * pyramid search of {@link TemplateMatcher} on the fork-join pool.
+ * Capture and pyramid buffers are kept between lookups, and the full-screen capture is
+ * turned to grey in place.
+ * <p>
+ * Not thread-safe; each click thread uses its own finder.
+ */
+public class TargetFinder {
+
+    /** Smallest distance, in pixels, the last-hit window extends past the template. */
+    static final int MIN_WINDOW_MARGIN = 16;
+
+    private final FrameSource source;
+    private final ForkJoinPool pool;
+    private final LatencyHistogram lookupLatency = new LatencyHistogram();
+
+    private final GrayImage[] frames = new GrayImage[Template.MAX_LEVELS];
+    private final GrayImage[] windowFrames = new GrayImage[Template.MAX_LEVELS];
+    private int[] screen = new int[0];
+    private int[] windowPixels = new int[0];
+
+    private Template lastTemplate;
+    private int lastX;
+    private int lastY;
+    private long windowHits;
+    private long fullSearches;
+
+    public TargetFinder(FrameSource source){
+        this(source, ForkJoinPool.commonPool());
+    }
+
+    public TargetFinder(FrameSource source, ForkJoinPool pool){
+        this.source = source;
+        this.pool = pool;
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = new GrayImage();
+            windowFrames[i] = new GrayImage();
+        }
+    }
+
+    /**
+     * Looks for {@code template} on screen.
+     *
+     * @return where it is, or {@code null} if nothing on screen is within its tolerance
+     * @throws Exception if the screen cannot be captured
+     */
+    public Match locate(Template template) throws Exception {
+        long started = System.nanoTime();
+        try {
+            Match match = template == lastTemplate ? searchWindow(template) : null;
+            if (match == null) {
+                fullSearches++;
+                match = searchScreen(template);
+            } else {
+                windowHits++;
+            }
+            if (match != null) {
+                lastTemplate = template;
+                lastX = match.x();
+                lastY = match.y();
+            } else {
+                lastTemplate = null;
+            }
+            return match;
+        } finally {
+            lookupLatency.record(System.nanoTime() - started);
+        }
+    }
+
+    private Match searchWindow(Template template) throws Exception {
+        Rectangle bounds = source.getBounds();
+        int tw = template.getWidth();
+        int th = template.getHeight();
+        int margin = Math.max(MIN_WINDOW_MARGIN, Math.max(tw, th) / 2);
+        int x0 = Math.max(bounds.x, lastX - margin);
+        int y0 = Math.max(bounds.y, lastY - margin);
+        int x1 = Math.min(bounds.x + bounds.width, lastX + tw + margin);
+        int y1 = Math.min(bounds.y + bounds.height, lastY + th + margin);
+        int w = x1 - x0;
+        int h = y1 - y0;
+        if (w < tw || h < th) return null;
+
+        if (windowPixels.length < w * h) windowPixels = new int[w * h];
+        source.capture(x0, y0, w, h, windowPixels);
+        return accept(template, search(template, windowPixels, w, h, windowFrames), x0, y0);
+    }
+
+    private Match searchScreen(Template template) throws Exception {
+        Rectangle bounds = source.getBounds();
+        int w = bounds.width;
+        int h = bounds.height;
+        if (screen.length < w * h) screen = new int[w * h];
+        source.capture(bounds.x, bounds.y, w, h, screen);
+        return accept(template, search(template, screen, w, h, frames), bounds.x, bounds.y);
+    }
+
+    /** Builds the capture's side of the pyramid in {@code pyramid} and searches it. */
+    private TemplateMatcher.Candidates search(Template template, int[] rgb, int width, int height, GrayImage[] pyramid){
+        pyramid[0].wrapRgb(rgb, width, height);
+        int levels = 1;
+        while (levels < template.levels.length) {
+            pyramid[levels].downsample(pyramid[levels - 1]);
+            levels++;
+        }
+        pyramid[levels - 1].integrate();
+        return TemplateMatcher.search(template, pyramid, levels, pool);
+    }
+
+    private static Match accept(Template template, TemplateMatcher.Candidates found, int offsetX, int offsetY){
+        if (found == null || found.difference[0] > template.maxDifference(0)) return null;
+        int tw = template.getWidth();
+        int th = template.getHeight();
+        return new Match(offsetX + found.x[0], offsetY + found.y[0], tw, th,
+                found.difference[0] / (double) (tw * th));
+    }
+
+    /** Drops the last hit, so the next lookup searches the whole screen. */
+    public void forget(){
+        lastTemplate = null;
+    }
+
+    /** Time per lookup, in nanoseconds, capture included. */
+    public LatencyHistogram getLookupLatency(){return lookupLatency;}
+    /** Lookups answered from the window around the last hit. */
+    public long getWindowHits(){return windowHits;}
+    /** Lookups that searched the whole screen. */
+    public long getFullSearches(){return fullSearches;}
+}
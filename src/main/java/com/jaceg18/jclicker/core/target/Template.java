@@ -0,0 +1,106 @@
+package com.jaceg18.jclicker.core.target;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A small reference image to look for on screen.
+ * <p>
+ * The image is turned to grey and halved into a pyramid once, when the template is
+ * created, so lookups only ever build the screen's side of the pyramid. A screen
+ * region matches when its mean absolute grey difference to the template is at most
+ * {@link #getTolerance()}.
+ */
+public final class Template {
+
+    public static final int MIN_SIDE = 4;
+    public static final int MAX_SIDE = 512;
+    public static final int DEFAULT_TOLERANCE = 24;
+    /** Pyramid levels stop halving before a side gets shorter than this. */
+    static final int MIN_LEVEL_SIDE = 8;
+    static final int MAX_LEVELS = 4;
+
+    private final String source;
+    private final int tolerance;
+    /** Level 0 is the full-size image, each further level half the previous one. */
+    final GrayImage[] levels;
+    final long[] sums;
+
+    private Template(String source, BufferedImage image, int tolerance){
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (width < MIN_SIDE || height < MIN_SIDE || width > MAX_SIDE || height > MAX_SIDE) {
+            throw new IllegalArgumentException("Target image must be " + MIN_SIDE + "-" + MAX_SIDE
+                    + " pixels on each side, " + source + " is " + width + "x" + height);
+        }
+        if (tolerance < 0 || tolerance > 255) throw new IllegalArgumentException("tolerance must be 0-255");
+        this.source = source;
+        this.tolerance = tolerance;
+
+        int count = 1;
+        while (count < MAX_LEVELS && (width >> count) >= MIN_LEVEL_SIDE && (height >> count) >= MIN_LEVEL_SIDE) {
+            count++;
+        }
+        levels = new GrayImage[count];
+        sums = new long[count];
+        levels[0] = new GrayImage();
+        levels[0].wrapRgb(image.getRGB(0, 0, width, height, null, 0, width), width, height);
+        for (int i = 1; i < count; i++) {
+            levels[i] = new GrayImage();
+            levels[i].downsample(levels[i - 1]);
+        }
+        for (int i = 0; i < count; i++) {
+            sums[i] = levels[i].sum();
+        }
+    }
+
+    /**
+     * @param source what the template was made from, for messages
+     * @throws IllegalArgumentException if the image is too small or too large
+     */
+    public static Template of(BufferedImage image, String source, int tolerance){
+        return new Template(source, image, tolerance);
+    }
+
+    /**
+     * Reads a template from an image file ImageIO can decode (PNG, BMP, JPEG...).
+     *
+     * @throws IOException              if the file cannot be read or is not an image
+     * @throws IllegalArgumentException if the image is too small or too large
+     */
+    public static Template load(Path file) throws IOException {
+        BufferedImage image;
+        try (var in = Files.newInputStream(file)) {
+            image = ImageIO.read(in);
+        }
+        if (image == null) throw new IOException(file.getFileName() + " is not an image");
+        return new Template(file.toString(), image, DEFAULT_TOLERANCE);
+    }
+
+    /**
+     * {@link #load(Path)} for a setting that may be empty.
+     *
+     * @return {@code null} if {@code file} is {@code null} or blank
+     */
+    public static Template loadIfSet(String file) throws IOException {
+        return file == null || file.isBlank() ? null : load(Path.of(file));
+    }
+
+    public int getWidth(){return levels[0].width;}
+    public int getHeight(){return levels[0].height;}
+    public int getTolerance(){return tolerance;}
+    public String getSource(){return source;}
+
+    /** Largest sum of absolute differences that still counts as a match at {@code level}. */
+    long maxDifference(int level){
+        return (long) tolerance * levels[level].width * levels[level].height;
+    }
+
+    @Override
+    public String toString(){
+        return source;
+    }
+}
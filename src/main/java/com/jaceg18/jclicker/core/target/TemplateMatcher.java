@@ -0,0 +1,202 @@
+package com.jaceg18.jclicker.core.target;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Sum-of-absolute-differences search for a {@link Template} in a {@link GrayImage}.
+ * <p>
+ * A full search runs on the top of both pyramids, where a 1920x1080 frame is down to
+ * 240x135, and splits the rows across a {@link ForkJoinPool}. It keeps the few best
+ * positions that are not next to each other, then refines each of them one level down at
+ * a time, searching only a few pixels around twice its position. Positions are skipped
+ * without comparing pixels when the difference of the region's and the template's pixel
+ * sums, read from the frame's summed-area table, already exceeds the best difference
+ * found so far: that difference is a lower bound of the SAD. Comparisons that pass stop
+ * at the first row that goes over it.
+ */
+final class TemplateMatcher {
+
+    /** Best coarse positions carried down the pyramid. */
+    static final int CANDIDATES = 4;
+    /** Candidates closer than this, in pixels on either axis, are the same spot. */
+    static final int SEPARATION = 2;
+    /** Pixels searched around a candidate's position on the next finer level. */
+    static final int REFINE_RADIUS = 2;
+    /** Rows of positions one fork-join task scans without splitting further. */
+    static final int ROWS_PER_TASK = 8;
+
+    private TemplateMatcher(){}
+
+    /**
+     * Searches all of {@code frames}. {@code frames[i]} is the frame at the template's
+     * level {@code i}; the top one must be {@link GrayImage#integrate() integrated}.
+     *
+     * @param levels how many levels of both pyramids to use
+     * @return the best position at level 0, or {@code null} if the template does not fit
+     */
+    static Candidates search(Template template, GrayImage[] frames, int levels, ForkJoinPool pool){
+        int top = levels - 1;
+        GrayImage frame = frames[top];
+        GrayImage tpl = template.levels[top];
+        int lastX = frame.width - tpl.width;
+        int lastY = frame.height - tpl.height;
+        if (lastX < 0 || lastY < 0) return null;
+
+        Candidates coarse = pool.invoke(new ScanTask(frame, tpl, template.sums[top], 0, lastX, 0, lastY));
+        Candidates best = new Candidates(1);
+        Candidates refined = new Candidates(1);
+        for (int c = 0; c < coarse.size; c++) {
+            int x = coarse.x[c];
+            int y = coarse.y[c];
+            long difference = coarse.difference[c];
+            for (int level = top - 1; level >= 0; level--) {
+                GrayImage f = frames[level];
+                GrayImage t = template.levels[level];
+                int cx = x << 1;
+                int cy = y << 1;
+                refined.clear();
+                scan(f, t, -1, Math.max(0, cx - REFINE_RADIUS), Math.min(f.width - t.width, cx + REFINE_RADIUS),
+                        Math.max(0, cy - REFINE_RADIUS), Math.min(f.height - t.height, cy + REFINE_RADIUS), refined);
+                if (refined.size == 0) break;
+                x = refined.x[0];
+                y = refined.y[0];
+                difference = refined.difference[0];
+            }
+            if (top == 0 || refined.size > 0) best.offer(x, y, difference);
+        }
+        return best.size == 0 ? null : best;
+    }
+
+    /**
+     * Offers every position in {@code [x0, x1] x [y0, y1]} to {@code out}.
+     *
+     * @param templateSum the template's pixel sum, or -1 to skip the summed-area bound
+     *                    (for frames that are not integrated)
+     */
+    static void scan(GrayImage frame, GrayImage template, long templateSum,
+                     int x0, int x1, int y0, int y1, Candidates out){
+        int tw = template.width;
+        int th = template.height;
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                long bound = out.bound();
+                if (templateSum >= 0 && Math.abs(frame.sum(x, y, tw, th) - templateSum) >= bound) continue;
+                long difference = difference(frame, template, x, y, bound);
+                if (difference < bound) out.offer(x, y, difference);
+            }
+        }
+    }
+
+    /**
+     * Sum of absolute differences of {@code template} placed at {@code (x, y)}, or some
+     * value of at least {@code limit} once it is known to reach it.
+     */
+    static long difference(GrayImage frame, GrayImage template, int x, int y, long limit){
+        int[] f = frame.pixels;
+        int[] t = template.pixels;
+        int fw = frame.width;
+        int tw = template.width;
+        long total = 0;
+        for (int row = 0; row < template.height; row++) {
+            int fo = (y + row) * fw + x;
+            int to = row * tw;
+            int sum = 0;
+            for (int i = 0; i < tw; i++) {
+                sum += Math.abs(f[fo + i] - t[to + i]);
+            }
+            total += sum;
+            if (total >= limit) return total;
+        }
+        return total;
+    }
+
+    /** The best few positions so far, best first, no two within {@link #SEPARATION} of each other. */
+    static final class Candidates {
+        final int[] x;
+        final int[] y;
+        final long[] difference;
+        int size;
+
+        Candidates(int capacity){
+            x = new int[capacity];
+            y = new int[capacity];
+            difference = new long[capacity];
+        }
+
+        void clear(){
+            size = 0;
+        }
+
+        /** Differences at or above this cannot get in. */
+        long bound(){
+            return size < x.length ? Long.MAX_VALUE : difference[size - 1];
+        }
+
+        void offer(int px, int py, long d){
+            for (int i = 0; i < size; i++) {
+                if (Math.abs(x[i] - px) <= SEPARATION && Math.abs(y[i] - py) <= SEPARATION) {
+                    if (d >= difference[i]) return;
+                    remove(i);
+                    break;
+                }
+            }
+            if (d >= bound()) return;
+            int at = Math.min(size, x.length - 1);
+            while (at > 0 && difference[at - 1] > d) {
+                x[at] = x[at - 1];
+                y[at] = y[at - 1];
+                difference[at] = difference[at - 1];
+                at--;
+            }
+            x[at] = px;
+            y[at] = py;
+            difference[at] = d;
+            if (size < x.length) size++;
+        }
+
+        private void remove(int i){
+            System.arraycopy(x, i + 1, x, i, size - i - 1);
+            System.arraycopy(y, i + 1, y, i, size - i - 1);
+            System.arraycopy(difference, i + 1, difference, i, size - i - 1);
+            size--;
+        }
+
+        void addAll(Candidates other){
+            for (int i = 0; i < other.size; i++) offer(other.x[i], other.y[i], other.difference[i]);
+        }
+    }
+
+    /** Scans a band of rows, halving it until it is {@link #ROWS_PER_TASK} rows or fewer. */
+    private static final class ScanTask extends RecursiveTask<Candidates> {
+        private final GrayImage frame;
+        private final GrayImage template;
+        private final long templateSum;
+        private final int x0, x1, y0, y1;
+
+        ScanTask(GrayImage frame, GrayImage template, long templateSum, int x0, int x1, int y0, int y1){
+            this.frame = frame;
+            this.template = template;
+            this.templateSum = templateSum;
+            this.x0 = x0;
+            this.x1 = x1;
+            this.y0 = y0;
+            this.y1 = y1;
+        }
+
+        @Override
+        protected Candidates compute(){
+            if (y1 - y0 < ROWS_PER_TASK) {
+                Candidates found = new Candidates(CANDIDATES);
+                scan(frame, template, templateSum, x0, x1, y0, y1, found);
+                return found;
+            }
+            int mid = (y0 + y1) >>> 1;
+            ScanTask upper = new ScanTask(frame, template, templateSum, x0, x1, y0, mid);
+            upper.fork();
+            Candidates found = new ScanTask(frame, template, templateSum, x0, x1, mid + 1, y1).compute();
+            found.addAll(upper.join());
+            return found;
+        }
+    }
+}
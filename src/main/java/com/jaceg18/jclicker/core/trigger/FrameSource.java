@@ -0,0 +1,33 @@
+package com.jaceg18.jclicker.core.trigger;
+
+import java.awt.Rectangle;
+
+/**
+ * Where {@link TriggerMonitor} gets screen pixels from.
+ * <p>
+ * {@link RobotFrameSource} reads the real screen; {@link ImageFrameSource} reads an image,
+ * which stands in for the screen in tests and on machines without a display.
+ */
+public interface FrameSource {
+
+    /**
+     * Copies a rectangle of the screen into {@code dst}, row by row, one {@code 0xRRGGBB}
+     * pixel per element; the upper byte may hold anything. Called on the monitor thread
+     * with a buffer it reuses for every capture of the same region.
+     *
+     * @param dst at least {@code width * height} long
+     */
+    void capture(int x, int y, int width, int height, int[] dst) throws Exception;
+
+    /** The area there is something to capture in, such as the primary screen. */
+    Rectangle getBounds();
+
+    /**
+     * Creates a source. Called on the monitor thread, so sources that may fail to start
+     * are only built once a trigger is actually watched.
+     */
+    @FunctionalInterface
+    interface Factory {
+        FrameSource create() throws Exception;
+    }
+}
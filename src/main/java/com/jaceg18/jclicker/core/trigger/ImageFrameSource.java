@@ -0,0 +1,40 @@
+package com.jaceg18.jclicker.core.trigger;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Reads "screen" pixels from an image. Drawing on the image between polls is how tests
+ * simulate the screen changing. Pixels outside the image read as black.
+ */
+public class ImageFrameSource implements FrameSource {
+
+    private final BufferedImage image;
+
+    public ImageFrameSource(BufferedImage image){
+        this.image = image;
+    }
+
+    public BufferedImage getImage(){
+        return image;
+    }
+
+    @Override
+    public Rectangle getBounds(){
+        return new Rectangle(0, 0, image.getWidth(), image.getHeight());
+    }
+
+    @Override
+    public void capture(int x, int y, int width, int height, int[] dst){
+        int x0 = Math.max(x, 0);
+        int y0 = Math.max(y, 0);
+        int x1 = Math.min(x + width, image.getWidth());
+        int y1 = Math.min(y + height, image.getHeight());
+        if (x0 != x || y0 != y || x1 - x0 != width || y1 - y0 != height) {
+            Arrays.fill(dst, 0, width * height, 0);
+        }
+        if (x1 <= x0 || y1 <= y0) return;
+        image.getRGB(x0, y0, x1 - x0, y1 - y0, dst, (y0 - y) * width + (x0 - x), width);
+    }
+}
@@ -0,0 +1,176 @@
+package com.jaceg18.jclicker.core.trigger;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A screen condition a profile waits for before clicking.
+ * <p>
+ * Written as one line of text, which is how profiles store it:
+ * <pre>
+ * color   &lt;x&gt; &lt;y&gt; &lt;#rrggbb&gt; [tolerance &lt;0-255&gt;] [every &lt;ms&gt;]
+ * changed &lt;x&gt; &lt;y&gt; &lt;width&gt; &lt;height&gt; [every &lt;ms&gt;]
+ * stable  &lt;x&gt; &lt;y&gt; &lt;width&gt; &lt;height&gt; &lt;ms&gt; [every &lt;ms&gt;]
+ * </pre>
+ * {@code color} matches while the pixel is within {@code tolerance} of the colour on every
+ * channel. {@code changed} matches from the poll that sees the region change until a poll
+ * that sees it unchanged. {@code stable} matches once the region has not changed for the
+ * given time. {@code every} sets how often the region is captured, {@link #DEFAULT_POLL_MS}
+ * by default.
+ *
+ * @param rgb          colour to look for, {@code 0xRRGGBB}; {@code color} only
+ * @param tolerance    allowed difference per channel; {@code color} only
+ * @param stableNanos  how long the region must stay unchanged; {@code stable} only
+ * @param pollNanos    time between captures
+ */
+public record PixelTrigger(Type type, int x, int y, int width, int height, int rgb, int tolerance,
+                           long stableNanos, long pollNanos) {
+
+    public enum Type {COLOR, CHANGED, STABLE}
+
+    public static final int DEFAULT_POLL_MS = 20;
+    static final int MAX_POLL_MS = 60_000;
+    /** Largest region, in pixels, so the capture buffers stay bounded. */
+    public static final int MAX_PIXELS = 1 << 22;
+
+    public PixelTrigger {
+        if (type == null) throw new IllegalArgumentException("type must not be null");
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("region must not be empty");
+        if ((long) width * height > MAX_PIXELS) {
+            throw new IllegalArgumentException("region is larger than " + MAX_PIXELS + " pixels");
+        }
+        if (tolerance < 0 || tolerance > 255) throw new IllegalArgumentException("tolerance must be 0-255");
+        if (pollNanos < TimeUnit.MILLISECONDS.toNanos(1) || pollNanos > TimeUnit.MILLISECONDS.toNanos(MAX_POLL_MS)) {
+            throw new IllegalArgumentException("poll interval must be 1-" + MAX_POLL_MS + " ms");
+        }
+        rgb &= 0xFFFFFF;
+    }
+
+    public static PixelTrigger color(int x, int y, int rgb, int tolerance){
+        return new PixelTrigger(Type.COLOR, x, y, 1, 1, rgb, tolerance, 0, defaultPoll());
+    }
+
+    public static PixelTrigger changed(int x, int y, int width, int height){
+        return new PixelTrigger(Type.CHANGED, x, y, width, height, 0, 0, 0, defaultPoll());
+    }
+
+    public static PixelTrigger stable(int x, int y, int width, int height, long stableNanos){
+        return new PixelTrigger(Type.STABLE, x, y, width, height, 0, 0, stableNanos, defaultPoll());
+    }
+
+    public PixelTrigger withPollNanos(long pollNanos){
+        return new PixelTrigger(type, x, y, width, height, rgb, tolerance, stableNanos, pollNanos);
+    }
+
+    private static long defaultPoll(){
+        return TimeUnit.MILLISECONDS.toNanos(DEFAULT_POLL_MS);
+    }
+
+    /**
+     * @throws IllegalArgumentException with a message fit for the user if {@code spec} is not a valid trigger
+     */
+    public static PixelTrigger parse(String spec){
+        String[] words = spec.strip().split("\\s+");
+        String kind = words[0].toLowerCase(Locale.ROOT);
+        int positional = switch (kind) {
+            case "color" -> 3;
+            case "changed" -> 4;
+            case "stable" -> 5;
+            default -> throw new IllegalArgumentException("Unknown trigger '" + words[0] + "', expected color, changed or stable");
+        };
+        if (words.length < 1 + positional) {
+            throw new IllegalArgumentException("'" + kind + "' needs " + positional + " values: " + usage(kind));
+        }
+
+        int tolerance = 0;
+        long pollNanos = defaultPoll();
+        for (int i = 1 + positional; i < words.length; i += 2) {
+            String option = words[i].toLowerCase(Locale.ROOT);
+            if (i + 1 >= words.length) throw new IllegalArgumentException("'" + option + "' needs a value");
+            switch (option) {
+                case "tolerance" -> {
+                    if (!kind.equals("color")) throw new IllegalArgumentException("tolerance only applies to color");
+                    tolerance = integer(words[i + 1], "tolerance");
+                }
+                case "every" -> pollNanos = millis(words[i + 1], "every");
+                default -> throw new IllegalArgumentException("Unknown option '" + words[i] + "'");
+            }
+        }
+
+        int x = integer(words[1], "x");
+        int y = integer(words[2], "y");
+        PixelTrigger trigger = switch (kind) {
+            case "color" -> color(x, y, color(words[3]), tolerance);
+            case "changed" -> changed(x, y, integer(words[3], "width"), integer(words[4], "height"));
+            default -> stable(x, y, integer(words[3], "width"), integer(words[4], "height"), millis(words[5], "stable time"));
+        };
+        return trigger.withPollNanos(pollNanos);
+    }
+
+    private static String usage(String kind){
+        return switch (kind) {
+            case "color" -> "color <x> <y> <#rrggbb>";
+            case "changed" -> "changed <x> <y> <width> <height>";
+            default -> "stable <x> <y> <width> <height> <ms>";
+        };
+    }
+
+    private static int integer(String word, String what){
+        try {
+            return Integer.parseInt(word);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + what + ": " + word);
+        }
+    }
+
+    private static long millis(String word, String what){
+        try {
+            double ms = Double.parseDouble(word);
+            if (!(ms >= 0) || ms > MAX_POLL_MS * 60.0) throw new NumberFormatException();
+            return Math.round(ms * 1_000_000);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + what + ": " + word);
+        }
+    }
+
+    private static int color(String word){
+        String hex = word.startsWith("#") ? word.substring(1) : word;
+        if (hex.length() != 6) throw new IllegalArgumentException("Invalid colour: " + word + ", expected #rrggbb");
+        try {
+            return Integer.parseInt(hex, 16);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid colour: " + word + ", expected #rrggbb");
+        }
+    }
+
+    /** Whether {@code pixel} is within {@link #tolerance()} of {@link #rgb()} on every channel. */
+    public boolean matchesColor(int pixel){
+        return Math.abs(((pixel >> 16) & 0xFF) - ((rgb >> 16) & 0xFF)) <= tolerance
+                && Math.abs(((pixel >> 8) & 0xFF) - ((rgb >> 8) & 0xFF)) <= tolerance
+                && Math.abs((pixel & 0xFF) - (rgb & 0xFF)) <= tolerance;
+    }
+
+    /** The trigger in the form {@link #parse(String)} reads. */
+    @Override
+    public String toString(){
+        StringBuilder sb = new StringBuilder();
+        switch (type) {
+            case COLOR -> {
+                sb.append("color ").append(x).append(' ').append(y).append(' ')
+                        .append(String.format("#%06x", rgb));
+                if (tolerance > 0) sb.append(" tolerance ").append(tolerance);
+            }
+            case CHANGED -> sb.append("changed ").append(x).append(' ').append(y).append(' ')
+                    .append(width).append(' ').append(height);
+            case STABLE -> sb.append("stable ").append(x).append(' ').append(y).append(' ')
+                    .append(width).append(' ').append(height).append(' ').append(formatMillis(stableNanos));
+        }
+        if (pollNanos != defaultPoll()) sb.append(" every ").append(formatMillis(pollNanos));
+        return sb.toString();
+    }
+
+    private static String formatMillis(long nanos){
+        return nanos % 1_000_000 == 0 ? Long.toString(nanos / 1_000_000)
+                : Double.toString(nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,44 @@
+package com.jaceg18.jclicker.core.trigger;
+
+import java.awt.AWTException;
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.awt.Robot;
+import java.awt.image.BufferedImage;
+
+/**
+ * Reads the real screen through {@link Robot}.
+ * <p>
+ * Robot has no way to capture into an existing image, so each capture still allocates an
+ * image of the region's size; only the configured region is captured, never the whole
+ * screen, and single pixels go through {@link Robot#getPixelColor(int, int)}, which skips
+ * the image entirely.
+ */
+public class RobotFrameSource implements FrameSource {
+
+    private final Robot robot;
+
+    public RobotFrameSource() throws AWTException {
+        this(new Robot());
+    }
+
+    public RobotFrameSource(Robot robot){
+        this.robot = robot;
+    }
+
+    @Override
+    public Rectangle getBounds(){
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDefaultConfiguration().getBounds();
+    }
+
+    @Override
+    public void capture(int x, int y, int width, int height, int[] dst){
+        if (width == 1 && height == 1) {
+            dst[0] = robot.getPixelColor(x, y).getRGB();
+            return;
+        }
+        BufferedImage image = robot.createScreenCapture(new Rectangle(x, y, width, height));
+        image.getRGB(0, 0, width, height, dst, 0, width);
+    }
+}
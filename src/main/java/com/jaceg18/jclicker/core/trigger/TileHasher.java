@@ -0,0 +1,78 @@
+package com.jaceg18.jclicker.core.trigger;
+
+import java.util.Arrays;
+
+/**
+ * Detects which parts of a region changed between two captures without keeping the
+ * previous capture around.
+ * <p>
+ * The region is cut into square tiles and each tile is reduced to a 64-bit hash; a tile is
+ * dirty when its hash differs from the previous frame's. Frames are walked row by row in
+ * memory order and the two hash arrays are swapped, not reallocated, so an update costs one
+ * pass over the pixels and no allocation.
+ */
+final class TileHasher {
+
+    static final int TILE_SHIFT = 4;
+    static final int TILE_SIZE = 1 << TILE_SHIFT;
+
+    private final int width;
+    private final int height;
+    private final int tilesX;
+    private long[] current;
+    private long[] previous;
+    private boolean primed;
+
+    TileHasher(int width, int height){
+        this.width = width;
+        this.height = height;
+        this.tilesX = (width + TILE_SIZE - 1) >> TILE_SHIFT;
+        int tiles = tilesX * ((height + TILE_SIZE - 1) >> TILE_SHIFT);
+        current = new long[tiles];
+        previous = new long[tiles];
+    }
+
+    int tileCount(){
+        return current.length;
+    }
+
+    /**
+     * Hashes a new frame of the region.
+     *
+     * @param pixels {@code width * height} pixels, row by row
+     * @return tiles that changed since the previous frame, 0 for the first frame
+     */
+    int update(int[] pixels){
+        long[] hashes = previous;
+        previous = current;
+        current = hashes;
+
+        for (int y = 0; y < height; y++) {
+            int rowBase = (y >> TILE_SHIFT) * tilesX;
+            if ((y & (TILE_SIZE - 1)) == 0) {
+                Arrays.fill(hashes, rowBase, rowBase + tilesX, 0x9E3779B97F4A7C15L);
+            }
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                int tile = rowBase + (x >> TILE_SHIFT);
+                // Only the colour matters; some sources leave alpha or garbage in the top byte
+                hashes[tile] = (hashes[tile] ^ (pixels[offset + x] & 0xFFFFFF)) * 0x100000001B3L;
+            }
+        }
+
+        if (!primed) {
+            primed = true;
+            return 0;
+        }
+        int dirty = 0;
+        for (int i = 0; i < hashes.length; i++) {
+            if (hashes[i] != previous[i]) dirty++;
+        }
+        return dirty;
+    }
+
+    /** Forgets the previous frame; the next update counts as the first. */
+    void reset(){
+        primed = false;
+    }
+}
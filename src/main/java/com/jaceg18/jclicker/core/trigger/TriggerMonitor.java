@@ -0,0 +1,212 @@
+package com.jaceg18.jclicker.core.trigger;
+
+import com.jaceg18.jclicker.core.engine.LatencyHistogram;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Watches screen regions for {@link PixelTrigger}s on a thread of its own.
+ * <p>
+ * Each watched trigger is captured at its own poll interval, and only its region is
+ * captured. Every watch owns its pixel buffer and {@link TileHasher}, so a poll reuses the
+ * same arrays; change detection compares tile hashes instead of keeping a copy of the
+ * previous frame. The time each capture takes, hashing included, goes into
+ * {@link #getCaptureCost()}, which is what to look at before lowering a poll interval.
+ * <p>
+ * Watchers read {@link Watch#isMatched()}, a volatile flag, so checking a trigger from the
+ * click loop costs no more than checking whether the session is still active. The thread
+ * and the {@link FrameSource} are only created once the first trigger is watched.
+ */
+public class TriggerMonitor implements AutoCloseable {
+
+    /** How long to wait before trying again after the frame source failed. */
+    static final long RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final FrameSource.Factory sourceFactory;
+    private final LatencyHistogram captureCost = new LatencyHistogram();
+
+    /** Copy-on-write; replaced under {@code this}, read by the monitor thread. */
+    private volatile Watch[] watches = new Watch[0];
+    private volatile boolean closed;
+    private volatile Exception lastError;
+    private Thread thread;
+
+    // Monitor thread only
+    private FrameSource source;
+
+    public TriggerMonitor(FrameSource.Factory sourceFactory){
+        this.sourceFactory = sourceFactory;
+    }
+
+    /**
+     * Starts watching {@code trigger}. The watch is unmatched until its first poll.
+     */
+    public Watch watch(PixelTrigger trigger){
+        if (trigger == null) throw new IllegalArgumentException("trigger must not be null");
+        Watch watch = new Watch(trigger);
+        Thread t;
+        synchronized (this) {
+            if (closed) throw new IllegalStateException("monitor is closed");
+            Watch[] current = watches;
+            Watch[] next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = watch;
+            watches = next;
+            if (thread == null) {
+                thread = new Thread(this::run, "jclicker-trigger");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            t = thread;
+        }
+        LockSupport.unpark(t);
+        return watch;
+    }
+
+    private synchronized void remove(Watch watch){
+        Watch[] current = watches;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == watch) {
+                Watch[] next = new Watch[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, next.length - i);
+                watches = next;
+                return;
+            }
+        }
+    }
+
+    /** Where this monitor's frames come from; also used to locate click targets. */
+    public FrameSource.Factory getSourceFactory(){
+        return sourceFactory;
+    }
+
+    /** Time per capture, in nanoseconds, across all watches. */
+    public LatencyHistogram getCaptureCost(){
+        return captureCost;
+    }
+
+    /** The latest failure to create the frame source or capture from it, if any. */
+    public Exception getLastError(){
+        return lastError;
+    }
+
+    public int getWatchCount(){
+        return watches.length;
+    }
+
+    private void run(){
+        while (!closed) {
+            Watch[] current = watches;
+            long now = System.nanoTime();
+            long next = Long.MAX_VALUE;
+            for (Watch watch : current) {
+                if (now - watch.nextPollNanos >= 0) {
+                    poll(watch, now);
+                    now = System.nanoTime();
+                }
+                next = Math.min(next, watch.nextPollNanos - now);
+            }
+            if (closed || watches != current) continue;
+            if (next == Long.MAX_VALUE) {
+                LockSupport.park(this);
+            } else if (next > 0) {
+                LockSupport.parkNanos(this, next);
+            }
+        }
+    }
+
+    private void poll(Watch watch, long now){
+        PixelTrigger trigger = watch.trigger;
+        watch.nextPollNanos = now + trigger.pollNanos();
+        try {
+            if (source == null) source = sourceFactory.create();
+            source.capture(trigger.x(), trigger.y(), trigger.width(), trigger.height(), watch.pixels);
+            int dirty = watch.hasher != null ? watch.hasher.update(watch.pixels) : 0;
+            long captured = System.nanoTime();
+            captureCost.record(captured - now);
+            watch.update(dirty, captured);
+        } catch (Exception e) {
+            lastError = e;
+            watch.matched = false;
+            watch.nextPollNanos = now + Math.max(trigger.pollNanos(), RETRY_NANOS);
+        }
+    }
+
+    /**
+     * Stops the monitor thread. Every watch reads as unmatched from then on.
+     */
+    @Override
+    public void close(){
+        Thread t;
+        synchronized (this) {
+            closed = true;
+            t = thread;
+            for (Watch watch : watches) watch.matched = false;
+            watches = new Watch[0];
+        }
+        if (t == null) return;
+        LockSupport.unpark(t);
+        try {
+            t.join(1_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * One watched trigger. {@link #isMatched()} may be read from any thread; everything
+     * else belongs to the monitor thread.
+     */
+    public final class Watch {
+
+        private final PixelTrigger trigger;
+        private final int[] pixels;
+        private final TileHasher hasher;
+        private volatile boolean matched;
+        private volatile boolean cancelled;
+        private volatile long polls;
+        private volatile long changes;
+
+        // Monitor thread only
+        private long nextPollNanos = System.nanoTime();
+        private long lastChangeNanos;
+
+        private Watch(PixelTrigger trigger){
+            this.trigger = trigger;
+            this.pixels = new int[trigger.width() * trigger.height()];
+            this.hasher = trigger.type() == PixelTrigger.Type.COLOR ? null
+                    : new TileHasher(trigger.width(), trigger.height());
+        }
+
+        private void update(int dirty, long nanos){
+            boolean first = polls == 0;
+            if (dirty > 0) changes++;
+            boolean match = switch (trigger.type()) {
+                case COLOR -> trigger.matchesColor(pixels[0]);
+                case CHANGED -> dirty > 0;
+                case STABLE -> {
+                    if (first || dirty > 0) lastChangeNanos = nanos;
+                    yield nanos - lastChangeNanos >= trigger.stableNanos();
+                }
+            };
+            matched = match && !cancelled;
+            polls++;
+        }
+
+        public PixelTrigger getTrigger(){return trigger;}
+        public boolean isMatched(){return matched;}
+        /** Captures taken so far. */
+        public long getPolls(){return polls;}
+        /** Polls that saw the region change. */
+        public long getChanges(){return changes;}
+
+        /** Stops watching. The watch reads as unmatched afterwards. */
+        public void cancel(){
+            cancelled = true;
+            remove(this);
+            matched = false;
+        }
+    }
+}
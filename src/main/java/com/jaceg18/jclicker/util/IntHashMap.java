@@ -0,0 +1,180 @@
+package com.jaceg18.jclicker.util;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Open-addressing hash map from primitive {@code int} keys to objects.
+ * <p>
+ * Keys live unboxed in an {@code int[]} with linear probing, so {@link #get(int)} neither
+ * allocates nor chases pointers. Not thread-safe; share it by publishing a map that is
+ * no longer modified.
+ */
+public class IntHashMap<V> {
+
+    private static final int FREE = 0;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+
+    // Key 0 marks free slots, so it is stored on the side
+    private boolean hasZeroKey;
+    private Object zeroValue;
+
+    public IntHashMap() {
+        this(8);
+    }
+
+    public IntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (key == FREE) return hasZeroKey ? (V) zeroValue : null;
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == key) return (V) values[i];
+            if (k == FREE) return null;
+        }
+    }
+
+    public boolean containsKey(int key) {
+        if (key == FREE) return hasZeroKey;
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == key) return true;
+            if (k == FREE) return false;
+        }
+    }
+
+    /** @return the previous value, or {@code null} */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (key == FREE) {
+            V previous = hasZeroKey ? (V) zeroValue : null;
+            if (!hasZeroKey) size++;
+            hasZeroKey = true;
+            zeroValue = value;
+            return previous;
+        }
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != FREE) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > keys.length * LOAD_FACTOR) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    /** Like {@link java.util.Map#computeIfAbsent}. */
+    public V computeIfAbsent(int key, IntFunction<V> mapping) {
+        V value = get(key);
+        if (value == null) {
+            value = mapping.apply(key);
+            if (value != null) put(key, value);
+        }
+        return value;
+    }
+
+    /** @return the removed value, or {@code null} */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        if (key == FREE) {
+            V previous = hasZeroKey ? (V) zeroValue : null;
+            if (hasZeroKey) size--;
+            hasZeroKey = false;
+            zeroValue = null;
+            return previous;
+        }
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != key) {
+            if (keys[i] == FREE) return null;
+            i = (i + 1) & mask;
+        }
+        V previous = (V) values[i];
+        size--;
+
+        // Shift later entries of the probe chain back so lookups never stop early
+        int gap = i;
+        for (int j = (i + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+            int home = mix(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = FREE;
+        values[gap] = null;
+        return previous;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        Arrays.fill(values, null);
+        hasZeroKey = false;
+        zeroValue = null;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Calls {@code action} for every entry, in no particular order. */
+    @SuppressWarnings("unchecked")
+    public void forEach(Entries<? super V> action) {
+        if (hasZeroKey) action.accept(FREE, (V) zeroValue);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) action.accept(keys[i], (V) values[i]);
+        }
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            int key = oldKeys[j];
+            if (key == FREE) continue;
+            int i = mix(key) & mask;
+            while (keys[i] != FREE) i = (i + 1) & mask;
+            keys[i] = key;
+            values[i] = oldValues[j];
+        }
+    }
+
+    /** Spreads clustered keys (key codes, packed modifiers) over the table. */
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @FunctionalInterface
+    public interface Entries<V> {
+        void accept(int key, V value);
+    }
+}
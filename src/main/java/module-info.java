@@ -1,17 +1,18 @@
 module com.jaceg18.jclicker {
     requires javafx.controls;
     requires javafx.fxml;
-    requires javafx.web;
+    requires java.desktop;
+    requires java.logging;
 
-    requires org.controlsfx.controls;
-    requires com.dlsc.formsfx;
-    requires net.synedra.validatorfx;
-    requires org.kordamp.ikonli.javafx;
-    requires org.kordamp.bootstrapfx.core;
-    requires eu.hansolo.tilesfx;
-    requires com.almasb.fxgl.all;
     requires com.github.kwhat.jnativehook;
 
+    uses com.jaceg18.jclicker.core.input.ClickBackend;
+    provides com.jaceg18.jclicker.core.input.ClickBackend with
+            com.jaceg18.jclicker.core.input.RobotBackend,
+            com.jaceg18.jclicker.core.input.NativeHookBackend,
+            com.jaceg18.jclicker.core.input.NoOpBackend,
+            com.jaceg18.jclicker.core.input.RecordingBackend;
+
     opens com.jaceg18.jclicker to javafx.fxml;
     exports com.jaceg18.jclicker;
 }
\ No newline at end of file
@@ -0,0 +1,156 @@
+package com.jaceg18.jclicker;
+
+import com.jaceg18.jclicker.core.Profile;
+import com.jaceg18.jclicker.core.ProfileManager;
+import com.jaceg18.jclicker.core.engine.ClickGovernor;
+import com.jaceg18.jclicker.util.ClickType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CliTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    @Test
+    void testParseDuration() {
+        assertEquals(250_000_000L, Cli.parseDuration("250ms"));
+        assertEquals(60_000_000_000L, Cli.parseDuration("60s"));
+        assertEquals(60_000_000_000L, Cli.parseDuration("60"));
+        assertEquals(90_000_000_000L, Cli.parseDuration("1.5m"));
+        assertEquals(7_200_000_000_000L, Cli.parseDuration("2H"));
+        assertThrows(IllegalArgumentException.class, () -> Cli.parseDuration("soon"));
+        assertThrows(IllegalArgumentException.class, () -> Cli.parseDuration("0s"));
+        assertThrows(IllegalArgumentException.class, () -> Cli.parseDuration("-5s"));
+    }
+
+    @Test
+    void testUsageErrors() {
+        assertEquals(Cli.EXIT_USAGE, run());
+        assertEquals(Cli.EXIT_USAGE, run("--run"));
+        assertEquals(Cli.EXIT_USAGE, run("--run", "a", "--sink", "printer"));
+        assertEquals(Cli.EXIT_USAGE, run("--run", "a", "--bogus"));
+        assertEquals(Cli.EXIT_USAGE, run("--run", "a", "--max-cps", "-1"));
+        assertEquals(Cli.EXIT_USAGE, run("--run", "a", "--max-cps", "fast"));
+        assertTrue(err().contains("Usage:"));
+        assertEquals(Cli.EXIT_OK, run("--help"));
+    }
+
+    @Test
+    void testRunsProfileToCompletion() throws IOException {
+        saveProfile("Burst", 5);
+
+        int code = run("--run", "Burst", "--sink", "noop", "--stats", "--duration", "10s",
+                "--profiles-dir", tempDir.toString());
+
+        assertEquals(Cli.EXIT_OK, code, err());
+        assertTrue(out().startsWith("5 clicks"), out());
+    }
+
+    @Test
+    void testDurationStopsEndlessProfile() throws IOException {
+        saveProfile("Forever", 0);
+
+        long start = System.nanoTime();
+        int code = run("--run", "Forever", "--sink", "noop", "--stats", "--duration", "200ms",
+                "--profiles-dir", tempDir.toString());
+
+        assertEquals(Cli.EXIT_OK, code, err());
+        assertTrue(System.nanoTime() - start < 5_000_000_000L);
+        assertTrue(out().contains("stop "), out());
+    }
+
+    @Test
+    void testProfilePicksBackend() throws IOException {
+        saveProfile("Dry", 3, "noop");
+
+        // No --sink: the profile's backend is used, so this works without a display
+        int code = run("--run", "Dry", "--stats", "--profiles-dir", tempDir.toString());
+
+        assertEquals(Cli.EXIT_OK, code, err());
+        assertTrue(out().startsWith("3 clicks"), out());
+        assertEquals("recording", Cli.parse(new String[]{"--run", "Dry", "--sink", "recording"}).sink());
+        assertNull(Cli.parse(new String[]{"--run", "Dry"}).sink());
+    }
+
+    @Test
+    void testLimitsAreConfigurable() {
+        Cli.Options defaults = Cli.parse(new String[]{"--run", "Dry"});
+        assertEquals(ClickGovernor.DEFAULT_MAX_CPS, defaults.maxCps());
+        assertEquals(ClickGovernor.DEFAULT_MAX_BUTTON_CPS, defaults.maxButtonCps());
+
+        Cli.Options set = Cli.parse(new String[]{"--run", "Dry", "--max-cps", "0", "--max-button-cps", "3000"});
+        assertEquals(0, set.maxCps());
+        assertEquals(3000, set.maxButtonCps());
+        assertEquals(Cli.EXIT_USAGE, run("--run", "a", "--max-button-cps", "-1"));
+    }
+
+    @Test
+    void testBenchmarkBackends() {
+        assertEquals(Cli.EXIT_OK, run("--benchmark-backends"), err());
+
+        String report = out();
+        for (String name : new String[]{"robot", "jnativehook", "noop", "recording"}) {
+            assertTrue(report.contains(name), report);
+        }
+        assertTrue(report.contains("events/s"), report);
+        assertTrue(report.contains("Recommended: ") || report.contains("No backend"), report);
+    }
+
+    @Test
+    void testMissingProfile() {
+        assertEquals(Cli.EXIT_FAILED, run("--run", "Nope", "--sink", "noop", "--profiles-dir", tempDir.toString()));
+        assertTrue(err().contains("No such profile"), err());
+    }
+
+    @Test
+    void testList() throws IOException {
+        saveProfile("A", 1);
+        saveProfile("B", 1);
+
+        assertEquals(Cli.EXIT_OK, run("--list", "--profiles-dir", tempDir.toString()));
+        assertEquals(String.join(System.lineSeparator(), "A", "B", ""), out());
+    }
+
+    private void saveProfile(String name, int repeatTimes) throws IOException {
+        saveProfile(name, repeatTimes, null);
+    }
+
+    private void saveProfile(String name, int repeatTimes, String backend) throws IOException {
+        Profile profile = new Profile();
+        profile.setBackend(backend);
+        profile.setClickType(ClickType.LEFT);
+        profile.setUseCurrentLocation(true);
+        profile.setRepeatTilStopped(repeatTimes == 0);
+        profile.setRepeatTimes(repeatTimes);
+        profile.setDelayMS(1);
+        try (ProfileManager manager = new ProfileManager(tempDir)) {
+            manager.init();
+            manager.saveProfile(name, profile);
+        }
+    }
+
+    private int run(String... args) {
+        return Cli.run(args, new PrintStream(out, true, StandardCharsets.UTF_8),
+                new PrintStream(err, true, StandardCharsets.UTF_8));
+    }
+
+    private String out() {
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private String err() {
+        return err.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,184 @@
+package com.jaceg18.jclicker.core;
+
+import com.jaceg18.jclicker.util.ClickType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncProfileWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private CountingStore store;
+    private AsyncProfileWriter writer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new CountingStore(tempDir);
+        store.init();
+        writer = new AsyncProfileWriter(store, TimeUnit.SECONDS.toNanos(30));
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.close();
+        store.close();
+    }
+
+    @Test
+    void testSaveIsWrittenOnFlush() throws Exception {
+        CompletableFuture<Void> saved = writer.save("p", createTestProfile(1));
+        assertFalse(saved.isDone());
+        assertTrue(writer.isPending("P"));
+
+        writer.flush().get(5, TimeUnit.SECONDS);
+
+        assertTrue(saved.isDone());
+        assertFalse(writer.isPending("p"));
+        assertEquals(1, store.loadProfile("p").getRepeatTimes());
+    }
+
+    @Test
+    void testRepeatedSavesAreCoalesced() throws Exception {
+        Profile profile = createTestProfile(0);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            profile.setRepeatTimes(i);
+            futures.add(writer.save("p", profile));
+        }
+        writer.flush().get(5, TimeUnit.SECONDS);
+
+        assertSame(futures.get(0), futures.get(19));
+        assertEquals(1, store.batches);
+        assertEquals(1, store.profilesWritten);
+        assertEquals(20, store.loadProfile("p").getRepeatTimes());
+    }
+
+    @Test
+    void testSavesDifferingInCaseAreCoalesced() throws Exception {
+        Profile first = createTestProfile(1);
+        first.setName("mine");
+        CompletableFuture<Void> upper = writer.save("Foo", first);
+        CompletableFuture<Void> lower = writer.save("foo", createTestProfile(2));
+        writer.flush().get(5, TimeUnit.SECONDS);
+
+        assertSame(upper, lower);
+        assertEquals(1, store.profilesWritten);
+        assertEquals(2, store.loadProfile("foo").getRepeatTimes());
+        // The caller's profile is copied, not renamed
+        assertEquals("mine", first.getName());
+    }
+
+    @Test
+    void testCoalescingWindowFlushesOnItsOwn() throws Exception {
+        try (AsyncProfileWriter quick = new AsyncProfileWriter(store, TimeUnit.MILLISECONDS.toNanos(10))) {
+            quick.save("a", createTestProfile(1));
+            quick.save("b", createTestProfile(2)).get(5, TimeUnit.SECONDS);
+        }
+        assertTrue(store.containsProfile("a"));
+        assertEquals(2, store.loadProfile("b").getRepeatTimes());
+    }
+
+    @Test
+    void testBulkImportIsOneBatch() throws Exception {
+        Map<String, Profile> profiles = new LinkedHashMap<>();
+        for (int i = 0; i < 300; i++) {
+            profiles.put("Imported_" + i, createTestProfile(i));
+        }
+
+        writer.saveAll(profiles).get(30, TimeUnit.SECONDS);
+
+        assertEquals(1, store.batches);
+        assertEquals(300, store.listProfiles().size());
+        assertEquals(299, store.loadProfile("Imported_299").getRepeatTimes());
+    }
+
+    @Test
+    void testFailedWriteCompletesExceptionally() {
+        Profile broken = createTestProfile(1);
+        broken.setClickType(null);
+
+        CompletableFuture<Void> saved = writer.save("broken", broken);
+        writer.flush();
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> saved.get(5, TimeUnit.SECONDS));
+        assertNotNull(e.getCause());
+        assertFalse(store.containsProfile("broken"));
+    }
+
+    @Test
+    void testDeleteDropsPendingSave() throws Exception {
+        writer.save("gone", createTestProfile(1));
+        writer.flush().get(5, TimeUnit.SECONDS);
+        CompletableFuture<Void> resave = writer.save("gone", createTestProfile(2));
+        CompletableFuture<Void> kept = writer.save("kept", createTestProfile(3));
+
+        writer.delete("gone").get(5, TimeUnit.SECONDS);
+        writer.flush().get(5, TimeUnit.SECONDS);
+
+        assertTrue(resave.isCancelled());
+        assertFalse(store.containsProfile("gone"));
+        assertFalse(writer.isPending("gone"));
+        kept.get(5, TimeUnit.SECONDS);
+        assertEquals(3, store.loadProfile("kept").getRepeatTimes());
+    }
+
+    @Test
+    void testCloseWritesPendingSaves() throws IOException {
+        CompletableFuture<Void> saved = writer.save("late", createTestProfile(7));
+        writer.close();
+
+        assertTrue(saved.isDone());
+        assertEquals(7, store.loadProfile("late").getRepeatTimes());
+    }
+
+    @Test
+    void testNoTemporaryFilesAreLeftBehind() throws Exception {
+        writer.save("x", createTestProfile(1));
+        writer.flush().get(5, TimeUnit.SECONDS);
+
+        try (var files = Files.list(tempDir.resolve("profiles"))) {
+            assertEquals(List.of("x.properties"), files.map(f -> f.getFileName().toString()).toList());
+        }
+    }
+
+    private Profile createTestProfile(int repeatTimes) {
+        Profile profile = new Profile();
+        profile.setClickType(ClickType.LEFT);
+        profile.setUseCurrentLocation(true);
+        profile.setDelayMS(10);
+        profile.setRepeatTimes(repeatTimes);
+        return profile;
+    }
+
+    private static class CountingStore extends ProfileManager {
+        volatile int batches;
+        volatile int profilesWritten;
+
+        CountingStore(Path baseDir) {
+            super(baseDir);
+        }
+
+        @Override
+        public void saveProfiles(Map<String, Profile> profiles) throws IOException {
+            batches++;
+            profilesWritten += profiles.size();
+            super.saveProfiles(profiles);
+        }
+    }
+}
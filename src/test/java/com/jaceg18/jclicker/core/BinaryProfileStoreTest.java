@@ -0,0 +1,325 @@
+package com.jaceg18.jclicker.core;
+
+import com.jaceg18.jclicker.util.ClickType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryProfileStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BinaryProfileStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new BinaryProfileStore(tempDir);
+        store.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void testSaveAndLoadRoundTrip() throws IOException {
+        store.saveProfile("Fast", createTestProfile());
+
+        Profile loaded = store.loadProfile("Fast");
+
+        assertEquals("Fast", loaded.getName());
+        assertEquals(ClickType.RIGHT, loaded.getClickType());
+        assertTrue(loaded.isUseCustomLocation());
+        assertFalse(loaded.isUseCurrentLocation());
+        assertTrue(loaded.isRepeatTilStopped());
+        assertEquals(-150, loaded.getCustomX());
+        assertEquals(250, loaded.getCustomY());
+        assertEquals(65, loaded.getToggleBind());
+        assertEquals(0.25, loaded.getDelayMS());
+        assertEquals(10, loaded.getRepeatTimes());
+    }
+
+    @Test
+    void testProfilesSurviveReopen() throws IOException {
+        store.saveProfile("b", createTestProfile());
+        store.saveProfile("a", createTestProfile());
+        store.close();
+
+        store = new BinaryProfileStore(tempDir);
+        store.init();
+
+        assertEquals(List.of("a", "b"), store.listProfiles());
+        assertEquals(250, store.loadProfile("b").getCustomY());
+    }
+
+    @Test
+    void testOverwriteReplacesRecord() throws IOException {
+        Profile profile = createTestProfile();
+        store.saveProfile("p", profile);
+        profile.setDelayMS(42);
+        store.saveProfile("p", profile);
+
+        assertEquals(List.of("p"), store.listProfiles());
+        assertEquals(42, store.loadProfile("p").getDelayMS());
+    }
+
+    @Test
+    void testLookupIsCaseInsensitive() throws IOException {
+        store.saveProfile("MyProfile", createTestProfile());
+
+        assertTrue(store.containsProfile("myprofile"));
+        assertEquals("MyProfile", store.loadProfile("MYPROFILE").getName());
+    }
+
+    @Test
+    void testDeleteProfile() throws IOException {
+        store.saveProfile("gone", createTestProfile());
+        store.deleteProfile("gone");
+
+        assertFalse(store.containsProfile("gone"));
+        assertThrows(FileNotFoundException.class, () -> store.loadProfile("gone"));
+        assertThrows(RuntimeException.class, () -> store.deleteProfile("gone"));
+    }
+
+    @Test
+    void testManyRewritesStayCompact() throws IOException {
+        Profile profile = createTestProfile();
+        for (int i = 0; i < 2_000; i++) {
+            profile.setRepeatTimes(i);
+            store.saveProfile("p" + (i % 10), profile);
+        }
+        long size = Files.size(tempDir.resolve(BinaryProfileStore.FILE_NAME));
+        store.close();
+
+        store = new BinaryProfileStore(tempDir);
+        store.init();
+        assertEquals(10, store.listProfiles().size());
+        assertEquals(1_999, store.loadProfile("p9").getRepeatTimes());
+        // Dead records were reclaimed instead of growing the file for every save
+        assertTrue(size < 2_000L * BinaryProfileStore.RECORD_SIZE, "file grew to " + size);
+    }
+
+    @Test
+    void testInterruptedCompactionLosesNothing() throws IOException {
+        boolean finished = false;
+        for (int writes = 0; !finished; writes++) {
+            Path dir = tempDir.resolve("crash" + writes);
+            BinaryProfileStore crashing = new BinaryProfileStore(dir);
+            crashing.init();
+            for (int i = 0; i < 8; i++) {
+                crashing.saveProfile("p" + i, profileWithMacro(i));
+            }
+            crashing.deleteProfile("p0");
+            crashing.deleteProfile("p3");
+            crashing.deleteProfile("p4");
+            finished = crashing.compact(writes);
+            crashing.close();
+
+            BinaryProfileStore reopened = new BinaryProfileStore(dir);
+            reopened.init();
+            assertEquals(5, reopened.listProfiles().size(), "after " + writes + " writes");
+            for (int i : new int[]{1, 2, 5, 6, 7}) {
+                assertEquals(profileWithMacro(i).getMacro(), reopened.loadProfile("p" + i).getMacro(),
+                        "p" + i + " after " + writes + " writes");
+            }
+            reopened.close();
+        }
+    }
+
+    /** A profile with a macro of roughly {@code i % 4} records. */
+    private Profile profileWithMacro(int i) {
+        Profile profile = createTestProfile();
+        if (i % 4 > 0) {
+            profile.setMacro(("wait " + i + "\n").repeat((i % 4) * BinaryProfileStore.RECORD_SIZE / 7));
+        }
+        return profile;
+    }
+
+    @Test
+    void testMigratesPropertiesDirectoryOnFirstOpen() throws IOException {
+        Path other = tempDir.resolve("legacy");
+        try (ProfileManager legacy = new ProfileManager(other)) {
+            legacy.init();
+            legacy.saveProfile("Old", createTestProfile());
+            legacy.saveProfile("Older", createTestProfile());
+        }
+
+        try (BinaryProfileStore migrated = new BinaryProfileStore(other)) {
+            migrated.init();
+            assertEquals(List.of("Old", "Older"), migrated.listProfiles());
+            assertEquals(65, migrated.loadProfile("Older").getToggleBind());
+        }
+        assertTrue(Files.exists(other.resolve("profiles").resolve("Old.properties")));
+    }
+
+    @Test
+    void testLongMacrosSpanSeveralRecords() throws IOException {
+        StringBuilder macro = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            macro.append("click left at ").append(i).append(' ').append(i * 2).append("\nwait 5\n");
+        }
+        Profile profile = createTestProfile();
+        profile.setMacro(macro.toString());
+        store.saveProfile("Long", profile);
+        store.saveProfile("Plain", createTestProfile());
+        // Rewriting tombstones the continuation records along with the profile
+        profile.setMacro(macro.toString().replace("left", "right"));
+        store.saveProfile("Long", profile);
+        store.close();
+
+        store = new BinaryProfileStore(tempDir);
+        store.init();
+        assertEquals(macro.toString().replace("left", "right"), store.loadProfile("Long").getMacro());
+        assertNull(store.loadProfile("Plain").getMacro());
+        assertEquals(List.of("Long", "Plain"), store.listProfiles());
+
+        for (int i = 0; i < 200; i++) {
+            store.saveProfile("Long", profile);
+        }
+        assertEquals(profile.getMacro(), store.loadProfile("Long").getMacro());
+        assertEquals(10, store.loadProfile("Plain").getRepeatTimes());
+    }
+
+    @Test
+    void testTriggerIsStoredAfterTheMacro() throws IOException {
+        Profile profile = createTestProfile();
+        profile.setTrigger("stable 0 0 64 64 500 every 25");
+        store.saveProfile("Trigger", profile);
+        profile.setMacro("click left at 1 2\nwait 5\n".repeat(12));
+        store.saveProfile("Both", profile);
+        store.close();
+
+        store = new BinaryProfileStore(tempDir);
+        store.init();
+        Profile triggerOnly = store.loadProfile("Trigger");
+        assertEquals("stable 0 0 64 64 500 every 25", triggerOnly.getTrigger());
+        assertNull(triggerOnly.getMacro());
+        Profile both = store.loadProfile("Both");
+        assertEquals(profile.getMacro(), both.getMacro());
+        assertEquals(profile.getTrigger(), both.getTrigger());
+        assertEquals(0.25, both.getDelayMS());
+        assertNull(store.loadProfile("Trigger").getMacro());
+
+        profile.setTrigger("x".repeat(BinaryProfileStore.MAX_SETTINGS_BYTES + 1));
+        assertThrows(IOException.class, () -> store.saveProfile("Long", profile));
+    }
+
+    @Test
+    void testTargetIsStoredWithOrWithoutTrigger() throws IOException {
+        Profile profile = createTestProfile();
+        profile.setTarget("/home/me/.jclicker/targets/ok button.png");
+        store.saveProfile("Target", profile);
+        profile.setTrigger("changed 0 0 10 10");
+        profile.setMacro("click left\n");
+        store.saveProfile("All", profile);
+
+        Profile targetOnly = store.loadProfile("Target");
+        assertEquals(profile.getTarget(), targetOnly.getTarget());
+        assertNull(targetOnly.getTrigger());
+        assertNull(targetOnly.getMacro());
+        Profile all = store.loadProfile("All");
+        assertEquals(profile.getTarget(), all.getTarget());
+        assertEquals(profile.getTrigger(), all.getTrigger());
+        assertEquals(profile.getMacro(), all.getMacro());
+    }
+
+    @Test
+    void testBackendIsStoredAfterTargetAndTrigger() throws IOException {
+        Profile profile = createTestProfile();
+        profile.setBackend("jnativehook");
+        store.saveProfile("Backend", profile);
+        profile.setTrigger("changed 0 0 10 10");
+        store.saveProfile("Trigger", profile);
+        profile.setTarget("targets/ok.png");
+        store.saveProfile("All", profile);
+        profile.setBackend(null);
+        store.saveProfile("None", profile);
+
+        Profile backendOnly = store.loadProfile("Backend");
+        assertEquals("jnativehook", backendOnly.getBackend());
+        assertNull(backendOnly.getTrigger());
+        assertNull(backendOnly.getTarget());
+        Profile trigger = store.loadProfile("Trigger");
+        assertEquals("jnativehook", trigger.getBackend());
+        assertEquals(profile.getTrigger(), trigger.getTrigger());
+        assertNull(trigger.getTarget());
+        Profile all = store.loadProfile("All");
+        assertEquals("jnativehook", all.getBackend());
+        assertEquals(profile.getTarget(), all.getTarget());
+        Profile none = store.loadProfile("None");
+        assertNull(none.getBackend());
+        assertEquals(profile.getTarget(), none.getTarget());
+    }
+
+    @Test
+    void testTargetCpsIsStoredBesideDelay() throws IOException {
+        Profile profile = createTestProfile();
+        profile.setTargetCps(40);
+        store.saveProfile("Rate", profile);
+        store.saveProfile("Delay", createTestProfile());
+
+        Profile rate = store.loadProfile("Rate");
+        assertEquals(40, rate.getTargetCps());
+        assertEquals(createTestProfile().getDelayMS(), rate.getDelayMS());
+        Profile delay = store.loadProfile("Delay");
+        assertEquals(0, delay.getTargetCps());
+        assertEquals(createTestProfile().getDelayMS(), delay.getDelayMS());
+    }
+
+    @Test
+    void testLongSettingsFit() throws IOException {
+        Profile profile = createTestProfile();
+        profile.setTrigger("stable 0 0 64 64 500 every 25");
+        profile.setTarget("C:\\Users\\someone\\" + "Pictures\\".repeat(40) + "button.png");
+        profile.setBackend("robot");
+        store.saveProfile("Long", profile);
+        store.close();
+
+        store = new BinaryProfileStore(tempDir);
+        store.init();
+        Profile loaded = store.loadProfile("Long");
+        assertEquals(profile.getTarget(), loaded.getTarget());
+        assertEquals(profile.getTrigger(), loaded.getTrigger());
+        assertEquals("robot", loaded.getBackend());
+    }
+
+    @Test
+    void testRejectsOverlongNames() {
+        String name = "x".repeat(BinaryProfileStore.MAX_NAME_BYTES + 1);
+        assertThrows(IllegalArgumentException.class, () -> store.saveProfile(name, createTestProfile()));
+    }
+
+    @Test
+    void testRejectsForeignFile() throws IOException {
+        Path other = tempDir.resolve("foreign");
+        Files.createDirectories(other);
+        Files.write(other.resolve(BinaryProfileStore.FILE_NAME), new byte[64]);
+
+        BinaryProfileStore foreign = new BinaryProfileStore(other);
+        assertThrows(IOException.class, foreign::init);
+    }
+
+    private Profile createTestProfile() {
+        Profile profile = new Profile();
+        profile.setClickType(ClickType.RIGHT);
+        profile.setUseCustomLocation(true);
+        profile.setRepeatTilStopped(true);
+        profile.setCustomX(-150);
+        profile.setCustomY(250);
+        profile.setToggleBind(65);
+        profile.setDelayMS(0.25);
+        profile.setRepeatTimes(10);
+        return profile;
+    }
+}
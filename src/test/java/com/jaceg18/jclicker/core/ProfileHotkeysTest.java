@@ -0,0 +1,178 @@
+package com.jaceg18.jclicker.core;
+
+import com.github.kwhat.jnativehook.NativeInputEvent;
+import com.github.kwhat.jnativehook.keyboard.NativeKeyEvent;
+import com.jaceg18.jclicker.core.engine.MultiClickEngine;
+import com.jaceg18.jclicker.core.engine.RecordingClickSink;
+import com.jaceg18.jclicker.util.ClickType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfileHotkeysTest {
+
+    private static final int CTRL_F5 = Hotkeys.pack(NativeKeyEvent.VC_F5, Hotkeys.MOD_CTRL);
+    private static final int F5 = Hotkeys.pack(NativeKeyEvent.VC_F5, 0);
+
+    @TempDir
+    Path tempDir;
+
+    private ProfileManager store;
+    private RecordingClickSink sink;
+    private MultiClickEngine engine;
+    private ProfileHotkeys hotkeys;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new ProfileManager(tempDir);
+        store.init();
+        sink = new RecordingClickSink();
+        engine = new MultiClickEngine(() -> sink);
+        hotkeys = new ProfileHotkeys(engine);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+        store.close();
+    }
+
+    @Test
+    void testPackKeepsPlainKeysCompatible() {
+        assertEquals(NativeKeyEvent.VC_F6, Hotkeys.pack(NativeKeyEvent.VC_F6, 0));
+        assertEquals(NativeKeyEvent.VC_F5, Hotkeys.keyCode(CTRL_F5));
+        assertEquals(Hotkeys.MOD_CTRL, Hotkeys.modifiers(CTRL_F5));
+        assertNotEquals(F5, CTRL_F5);
+        assertEquals(Hotkeys.MOD_CTRL | Hotkeys.MOD_SHIFT,
+                Hotkeys.fromNativeModifiers(NativeInputEvent.CTRL_R_MASK | NativeInputEvent.SHIFT_L_MASK));
+    }
+
+    @Test
+    void testHotkeyIsPersisted() throws IOException {
+        store.saveProfile("p", profile(CTRL_F5));
+        store.close();
+
+        store = new ProfileManager(tempDir);
+        assertEquals(CTRL_F5, store.loadProfile("p").getHotkey());
+    }
+
+    @Test
+    void testOnlyBoundProfilesAreLoaded() throws IOException {
+        store.saveProfile("bound", profile(CTRL_F5));
+        store.saveProfile("unbound", profile(Hotkeys.NONE));
+
+        assertTrue(hotkeys.reload(store).isEmpty());
+
+        assertEquals(1, hotkeys.size());
+        assertEquals("bound", hotkeys.lookup(CTRL_F5).profileName());
+        assertNull(hotkeys.lookup(F5));
+    }
+
+    @Test
+    void testToggleStartsAndStopsProfile() throws Exception {
+        store.saveProfile("bound", profile(CTRL_F5));
+        hotkeys.reload(store);
+
+        ProfileHotkeys.Binding binding = hotkeys.toggle(CTRL_F5);
+        assertTrue(binding.isRunning());
+        waitFor(() -> sink.getClickCount() >= 3);
+
+        assertSame(binding, hotkeys.toggle(CTRL_F5));
+        assertFalse(binding.isRunning());
+        binding.job().finished().get(5, TimeUnit.SECONDS);
+        assertNull(hotkeys.toggle(F5));
+    }
+
+    @Test
+    void testProfilesRunSideBySide() throws Exception {
+        store.saveProfile("a", profile(CTRL_F5));
+        store.saveProfile("b", profile(F5));
+        hotkeys.reload(store);
+
+        ProfileHotkeys.Binding a = hotkeys.toggle(CTRL_F5);
+        ProfileHotkeys.Binding b = hotkeys.toggle(F5);
+        waitFor(() -> a.job().getTelemetry().getClicks() >= 3 && b.job().getTelemetry().getClicks() >= 3);
+
+        assertTrue(a.isRunning());
+        assertTrue(b.isRunning());
+        hotkeys.stopAll();
+        assertFalse(a.isRunning() || b.isRunning());
+    }
+
+    @Test
+    void testReloadKeepsRunningProfileAndStopsUnboundOne() throws Exception {
+        store.saveProfile("keep", profile(CTRL_F5));
+        store.saveProfile("drop", profile(F5));
+        hotkeys.reload(store);
+        ProfileHotkeys.Binding keep = hotkeys.toggle(CTRL_F5);
+        ProfileHotkeys.Binding drop = hotkeys.toggle(F5);
+
+        store.saveProfile("drop", profile(Hotkeys.NONE));
+        hotkeys.reload(store);
+
+        assertTrue(hotkeys.lookup(CTRL_F5).isRunning());
+        assertSame(keep.job(), hotkeys.lookup(CTRL_F5).job());
+        assertFalse(drop.isRunning());
+    }
+
+    @Test
+    void testDuplicateHotkeysAreReported() throws IOException {
+        store.saveProfile("first", profile(F5));
+        store.saveProfile("second", profile(F5));
+
+        assertEquals(List.of("second"), hotkeys.reload(store));
+        assertEquals("first", hotkeys.lookup(F5).profileName());
+    }
+
+    @Test
+    void testUpdateChangesOnlyThatProfile() throws Exception {
+        store.saveProfile("keep", profile(CTRL_F5));
+        store.saveProfile("move", profile(F5));
+        hotkeys.reload(store);
+        ProfileHotkeys.Binding keep = hotkeys.lookup(CTRL_F5);
+        ProfileHotkeys.Binding move = hotkeys.toggle(F5);
+
+        int altF5 = Hotkeys.pack(NativeKeyEvent.VC_F5, Hotkeys.MOD_ALT);
+        Profile moved = profile(altF5);
+        moved.setDelayMS(2);
+        assertFalse(hotkeys.update("move", moved));
+        assertNull(hotkeys.lookup(F5));
+        assertSame(keep, hotkeys.lookup(CTRL_F5));
+        assertSame(move.job(), hotkeys.lookup(altF5).job());
+        assertEquals(2, move.job().getConfig().delayMs());
+
+        assertTrue(hotkeys.update("other", profile(CTRL_F5)));
+        assertEquals("keep", hotkeys.lookup(CTRL_F5).profileName());
+
+        hotkeys.update("move", null);
+        assertNull(hotkeys.lookup(altF5));
+        assertEquals(1, hotkeys.size());
+        move.job().finished().get(1, TimeUnit.SECONDS);
+    }
+
+    private static Profile profile(int hotkey) {
+        Profile p = new Profile();
+        p.setClickType(ClickType.LEFT);
+        p.setRepeatTilStopped(true);
+        p.setUseCurrentLocation(true);
+        p.setDelayMS(1);
+        p.setHotkey(hotkey);
+        return p;
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(1);
+        }
+    }
+}
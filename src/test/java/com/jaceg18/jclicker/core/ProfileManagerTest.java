@@ -1,6 +1,7 @@
 package com.jaceg18.jclicker.core;
 
 import com.jaceg18.jclicker.util.ClickType;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -8,6 +9,7 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -25,6 +27,11 @@ class ProfileManagerTest {
         profileManager.init();
     }
 
+    @AfterEach
+    void tearDown() {
+        profileManager.close();
+    }
+
     @Test
     void testInitCreatesProfilesDirectory() {
         assertTrue(Files.exists(tempDir.resolve("profiles")));
@@ -229,6 +236,55 @@ class ProfileManagerTest {
         assertEquals(Integer.MAX_VALUE, loaded.getRepeatTimes());
     }
 
+    @Test
+    void testSaveAndLoadMacro() throws IOException {
+        Profile profile = createTestProfile();
+        profile.setMacro("loop 2\n  click left at 1 2\n  wait 10\nend");
+        profileManager.saveProfile("Macro", profile);
+        profileManager.saveProfile("Plain", createTestProfile());
+
+        assertEquals(profile.getMacro(), profileManager.loadProfile("Macro").getMacro());
+        assertNull(profileManager.loadProfile("Plain").getMacro());
+    }
+
+    @Test
+    void testSaveAndLoadTriggerAndTarget() throws IOException {
+        Profile profile = createTestProfile();
+        profile.setTrigger("color 10 20 #ff0000 tolerance 4");
+        profileManager.saveProfile("Trigger", profile);
+        profileManager.saveProfile("Plain", createTestProfile());
+
+        assertEquals(profile.getTrigger(), profileManager.loadProfile("Trigger").getTrigger());
+        assertNull(profileManager.loadProfile("Plain").getTrigger());
+
+        profile.setTarget("targets/button.png");
+        profileManager.saveProfile("Target", profile);
+        assertEquals("targets/button.png", profileManager.loadProfile("Target").getTarget());
+        assertNull(profileManager.loadProfile("Plain").getTarget());
+    }
+
+    @Test
+    void testSaveAndLoadTargetCps() throws IOException {
+        Profile profile = createTestProfile();
+        profile.setTargetCps(12.5);
+        profileManager.saveProfile("Rate", profile);
+        profileManager.saveProfile("Plain", createTestProfile());
+
+        assertEquals(12.5, profileManager.loadProfile("Rate").getTargetCps());
+        assertEquals(0, profileManager.loadProfile("Plain").getTargetCps());
+    }
+
+    @Test
+    void testSaveAndLoadBackend() throws IOException {
+        Profile profile = createTestProfile();
+        profile.setBackend("noop");
+        profileManager.saveProfile("Dry", profile);
+        profileManager.saveProfile("Plain", createTestProfile());
+
+        assertEquals("noop", profileManager.loadProfile("Dry").getBackend());
+        assertNull(profileManager.loadProfile("Plain").getBackend());
+    }
+
     @Test
     void testProfileNameIsSetOnSave() throws IOException {
         Profile profile = createTestProfile();
@@ -244,6 +300,79 @@ class ProfileManagerTest {
         assertEquals(profileName, loaded.getName());
     }
 
+    @Test
+    void testLoadProfileReturnsIndependentCopies() throws IOException {
+        profileManager.saveProfile("CopyTest", createTestProfile());
+
+        Profile first = profileManager.loadProfile("CopyTest");
+        first.setCustomX(-1);
+        Profile second = profileManager.loadProfile("CopyTest");
+
+        assertEquals(100, second.getCustomX());
+        assertNotSame(first, second);
+    }
+
+    @Test
+    void testExternalChangesAreDetected() throws Exception {
+        Path dir = tempDir.resolve("profiles");
+        ProfileManager other = new ProfileManager(tempDir);
+        other.init();
+        try {
+            Profile profile = createTestProfile();
+            other.saveProfile("External", profile);
+            awaitCondition(() -> profileManager.containsProfile("external"));
+            assertTrue(profileManager.listProfiles().contains("External"));
+            assertEquals(100, profileManager.loadProfile("External").getCustomX());
+
+            profile.setCustomX(4242);
+            Thread.sleep(20);
+            other.saveProfile("External", profile);
+            Files.setLastModifiedTime(dir.resolve("External.properties"),
+                    FileTime.fromMillis(System.currentTimeMillis() + 5_000));
+            awaitCondition(() -> profileManager.loadProfile("External").getCustomX() == 4242);
+
+            other.deleteProfile("External");
+            awaitCondition(() -> !profileManager.containsProfile("External"));
+            assertFalse(profileManager.listProfiles().contains("External"));
+        } finally {
+            other.close();
+        }
+    }
+
+    @Test
+    void testDeleteUpdatesIndexImmediately() throws IOException {
+        profileManager.saveProfile("Gone", createTestProfile());
+        profileManager.deleteProfile("Gone");
+
+        assertFalse(profileManager.containsProfile("Gone"));
+        assertFalse(profileManager.listProfiles().contains("Gone"));
+        assertThrows(java.io.FileNotFoundException.class, () -> profileManager.loadProfile("Gone"));
+    }
+
+    @Test
+    void testExistingProfilesAreIndexedOnInit() throws IOException {
+        profileManager.saveProfile("Existing", createTestProfile());
+        profileManager.close();
+
+        profileManager = new ProfileManager(tempDir);
+        profileManager.init();
+
+        assertTrue(profileManager.containsProfile("EXISTING"));
+        assertEquals(List.of("Existing"), profileManager.listProfiles());
+    }
+
+    private interface Condition {
+        boolean test() throws Exception;
+    }
+
+    private static void awaitCondition(Condition condition) throws Exception {
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (!condition.test()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+
     // Helper method to create a test profile with default values
     private Profile createTestProfile() {
         Profile profile = new Profile();
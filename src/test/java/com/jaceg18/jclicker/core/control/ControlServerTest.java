@@ -0,0 +1,200 @@
+package com.jaceg18.jclicker.core.control;
+
+import com.jaceg18.jclicker.core.Profile;
+import com.jaceg18.jclicker.core.ProfileManager;
+import com.jaceg18.jclicker.core.engine.ClickConfig;
+import com.jaceg18.jclicker.core.engine.ClickEngine;
+import com.jaceg18.jclicker.core.engine.NoOpClickSink;
+import com.jaceg18.jclicker.util.ClickType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ControlServerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ClickEngine engine = new ClickEngine(() -> NoOpClickSink.INSTANCE);
+    private final AtomicInteger started = new AtomicInteger();
+    private ProfileManager profiles;
+    private ClickConfig uiConfig;
+    private RuntimeException uiFailure;
+    private ControlServer server;
+    private SocketChannel channel;
+    private BufferedReader in;
+    private Writer out;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        profiles = new ProfileManager(tempDir);
+        profiles.init();
+        server = new ControlServer(engine, profiles, () -> {
+            if (uiFailure != null) throw uiFailure;
+            return uiConfig;
+        }, (clicks, error) -> {}, started::incrementAndGet);
+        server.start(tempDir.resolve(ControlServer.SOCKET_NAME));
+        connect();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        channel.close();
+        server.close();
+        engine.shutdown();
+        profiles.close();
+    }
+
+    @Test
+    void testStartAndStopDriveTheEngine() throws Exception {
+        uiConfig = ClickConfig.builder().delayMs(1).build();
+
+        assertEquals("OK started", send("start"));
+        assertTrue(engine.isRunning());
+        assertEquals(1, started.get());
+        awaitClicks(5);
+
+        assertEquals("OK stopped", send("stop"));
+        assertTrue(engine.stopAndWait(TimeUnit.SECONDS.toNanos(1)));
+
+        String stats = send("get-stats");
+        assertTrue(stats.startsWith("OK running=false profile=- clicks="), stats);
+        assertTrue(stats.contains(" commands=2 "), stats);
+        assertTrue(server.getCommandLatency().snapshot().max() > 0);
+    }
+
+    @Test
+    void testLoadProfileAndUpdateDelayApplyToRunningSession() throws Exception {
+        Profile profile = new Profile();
+        profile.setClickType(ClickType.RIGHT);
+        profile.setUseCurrentLocation(true);
+        profile.setRepeatTilStopped(true);
+        profile.setDelayMS(5);
+        profiles.saveProfile("Slow One", profile);
+
+        assertEquals("OK loaded Slow One", send("load-profile Slow One"));
+        assertEquals("OK started", send("start"));
+        assertEquals(ClickType.RIGHT, engine.getConfig().clickType());
+
+        assertEquals("OK delay 2.5", send("update-delay 2.5"));
+        assertEquals(2.5, engine.getConfig().delayMs());
+        assertEquals(ClickType.RIGHT, engine.getConfig().clickType());
+        assertTrue(send("get-stats").contains("running=true profile=Slow_One "));
+    }
+
+    @Test
+    void testTargetImageIsLoadedWithoutReorderingReplies() throws IOException {
+        Path image = tempDir.resolve("button.png");
+        ImageIO.write(new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB), "png", image.toFile());
+        Profile profile = new Profile();
+        profile.setClickType(ClickType.LEFT);
+        profile.setUseCurrentLocation(true);
+        profile.setDelayMS(5);
+        profile.setTarget(image.toString());
+        profiles.saveProfile("Button", profile);
+        profile.setTarget(tempDir.resolve("missing.png").toString());
+        profiles.saveProfile("Gone", profile);
+
+        out.write("load-profile Button\nping\nload-profile Gone\nget-stats\n");
+        out.flush();
+
+        assertEquals("OK loaded Button", in.readLine());
+        assertEquals("OK pong", in.readLine());
+        assertTrue(in.readLine().startsWith("ERR cannot load Gone: cannot read target image "));
+        // The failed load left the previous profile in place
+        assertTrue(in.readLine().contains(" profile=Button "));
+    }
+
+    @Test
+    void testRejectsBadCommands() throws IOException {
+        assertEquals("ERR no profile loaded and the UI settings are invalid", send("start"));
+        assertEquals("ERR unknown command: jump", send("jump"));
+        assertEquals("ERR no such profile: Missing", send("load-profile Missing"));
+        assertEquals("ERR usage: load-profile <name>", send("load-profile"));
+        assertEquals("ERR delay must be positive", send("update-delay 0"));
+        assertEquals("ERR usage: update-delay <ms>", send("update-delay fast"));
+        assertEquals("ERR line too long", send("x".repeat(ControlServer.MAX_LINE + 10)));
+        assertEquals("ERR unknown command: xxxxxxxxxx", in.readLine());
+        assertFalse(engine.isRunning());
+    }
+
+    @Test
+    void testFailingCommandIsAnsweredAndServerKeepsServing() throws IOException {
+        uiFailure = new IllegalStateException("settings are\nunreadable");
+
+        assertEquals("ERR settings are unreadable", send("start"));
+        assertEquals("OK pong", send("ping"));
+        assertFalse(engine.isRunning());
+    }
+
+    @Test
+    void testPipelinedCommandsAreAnsweredInOrder() throws IOException {
+        out.write("ping\nget-stats\nPING\n");
+        out.flush();
+
+        assertEquals("OK pong", in.readLine());
+        assertTrue(in.readLine().startsWith("OK running=false"));
+        assertEquals("OK pong", in.readLine());
+    }
+
+    @Test
+    void testSecondServerCannotTakeTheSocket() throws IOException {
+        ControlServer other = new ControlServer(engine, profiles, () -> null, (c, e) -> {}, () -> {});
+        assertThrows(IOException.class, () -> other.start(server.getSocket()));
+
+        // The first server is unaffected
+        assertEquals("OK pong", send("ping"));
+    }
+
+    @Test
+    void testReplacesStaleSocketAndRemovesItOnClose() throws IOException {
+        Path socket = tempDir.resolve("stale.sock");
+        Files.createFile(socket);
+        ControlServer other = new ControlServer(engine, profiles, () -> null, (c, e) -> {}, () -> {});
+        other.start(socket);
+        try (SocketChannel c = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            assertTrue(c.isConnected());
+        } finally {
+            other.close();
+        }
+        assertFalse(Files.exists(socket));
+    }
+
+    private void connect() throws IOException {
+        channel = SocketChannel.open(UnixDomainSocketAddress.of(server.getSocket()));
+        in = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+        out = Channels.newWriter(channel, StandardCharsets.UTF_8);
+    }
+
+    private String send(String command) throws IOException {
+        out.write(command + "\n");
+        out.flush();
+        return in.readLine();
+    }
+
+    private void awaitClicks(long clicks) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (engine.getTelemetry().getClicks() < clicks) {
+            assertTrue(System.nanoTime() < deadline, "engine did not reach " + clicks + " clicks");
+            Thread.sleep(1);
+        }
+    }
+}
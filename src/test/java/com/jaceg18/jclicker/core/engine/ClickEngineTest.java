@@ -0,0 +1,499 @@
+package com.jaceg18.jclicker.core.engine;
+
+import com.jaceg18.jclicker.core.Profile;
+import com.jaceg18.jclicker.core.input.ClickBackend;
+import com.jaceg18.jclicker.core.target.Template;
+import com.jaceg18.jclicker.core.trigger.ImageFrameSource;
+import com.jaceg18.jclicker.core.trigger.PixelTrigger;
+import com.jaceg18.jclicker.core.trigger.TriggerMonitor;
+import com.jaceg18.jclicker.util.ClickType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.event.InputEvent;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClickEngineTest {
+
+    private RecordingClickSink sink;
+    private ClickEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        sink = new RecordingClickSink();
+        engine = new ClickEngine(() -> sink);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void testRepeatCountIsHonoured() throws InterruptedException {
+        long clicks = engine.runNow(config(ClickType.LEFT, false, 25, 0.1, false), sink);
+
+        assertEquals(25, clicks);
+        assertEquals(25, sink.getClickCount());
+    }
+
+    @Test
+    void testTelemetryIsRecordedPerSession() throws InterruptedException {
+        engine.runNow(config(ClickType.LEFT, false, 50, 0.5, false), sink);
+
+        ClickTelemetry.Snapshot stats = engine.getTelemetry().snapshot();
+        assertEquals(50, stats.clicks());
+        assertEquals(49, stats.interval().count());
+        // Deadlines sit on a 0.5 ms grid, so the average rate can never exceed 2000 CPS
+        assertTrue(stats.achievedCps() > 0 && stats.achievedCps() <= 2000.0 * 49 / 48,
+                "achieved " + stats.achievedCps());
+
+        engine.runNow(config(ClickType.LEFT, false, 5, 0.5, false), sink);
+        assertEquals(5, engine.getTelemetry().snapshot().clicks());
+    }
+
+    @Test
+    void testPressAndReleaseUseButtonMask() throws InterruptedException {
+        engine.runNow(config(ClickType.MIDDLE, false, 1, 1, false), sink);
+
+        List<RecordingClickSink.Event> events = sink.getEvents();
+        assertEquals(2, events.size());
+        assertEquals(RecordingClickSink.Type.PRESS, events.get(0).type());
+        assertEquals(InputEvent.BUTTON2_DOWN_MASK, events.get(0).buttonMask());
+        assertEquals(RecordingClickSink.Type.RELEASE, events.get(1).type());
+        assertEquals(InputEvent.BUTTON2_DOWN_MASK, events.get(1).buttonMask());
+    }
+
+    @Test
+    void testCustomLocationMovesBeforeEachClick() throws InterruptedException {
+        engine.runNow(config(ClickType.LEFT, false, 3, 0.1, true), sink);
+
+        List<RecordingClickSink.Event> events = sink.getEvents();
+        assertEquals(9, events.size());
+        for (int i = 0; i < events.size(); i += 3) {
+            assertEquals(RecordingClickSink.Type.MOVE, events.get(i).type());
+            assertEquals(100, events.get(i).x());
+            assertEquals(200, events.get(i).y());
+        }
+    }
+
+    @Test
+    void testStartAndStopUntilStopped() throws Exception {
+        CompletableFuture<Long> finished = new CompletableFuture<>();
+        engine.start(config(ClickType.LEFT, true, 0, 1, false), (clicks, error) -> {
+            if (error != null) finished.completeExceptionally(error);
+            else finished.complete(clicks);
+        });
+
+        waitForClicks(5);
+        assertTrue(engine.isRunning());
+        engine.stop();
+
+        long clicks = finished.get(5, TimeUnit.SECONDS);
+        assertFalse(engine.isRunning());
+        assertEquals(sink.getClickCount(), clicks);
+    }
+
+    @Test
+    void testStopWakesLongDelayImmediately() throws Exception {
+        CompletableFuture<Long> finished = new CompletableFuture<>();
+        engine.start(config(ClickType.LEFT, true, 0, 10_000, false), (clicks, error) -> finished.complete(clicks));
+        waitForClicks(1);
+
+        long start = System.nanoTime();
+        assertTrue(engine.stopAndWait(TimeUnit.SECONDS.toNanos(2)));
+        long elapsed = System.nanoTime() - start;
+
+        assertTrue(elapsed < TimeUnit.MILLISECONDS.toNanos(500), "stop took " + elapsed + "ns");
+        assertEquals(1L, finished.get(1, TimeUnit.SECONDS));
+        long stopLatency = engine.getTelemetry().snapshot().stopLatency();
+        assertTrue(stopLatency >= 0 && stopLatency < TimeUnit.MILLISECONDS.toNanos(500));
+    }
+
+    @Test
+    void testNoClickAfterStopIsAcknowledged() throws Exception {
+        engine.start(config(ClickType.LEFT, true, 0, 0.05, false), null);
+        waitForClicks(20);
+
+        assertTrue(engine.stopAndWait(TimeUnit.SECONDS.toNanos(2)));
+        int clicksAtStop = sink.getClickCount();
+        Thread.sleep(50);
+
+        assertEquals(clicksAtStop, sink.getClickCount());
+        assertFalse(engine.isRunning());
+    }
+
+    @Test
+    void testToggleAlternatesStartAndStop() throws Exception {
+        ClickConfig config = config(ClickType.LEFT, true, 0, 1, false);
+
+        assertTrue(engine.toggle(config, null, System.nanoTime()));
+        assertTrue(engine.isRunning());
+        waitForClicks(1);
+
+        assertFalse(engine.toggle(config, null, System.nanoTime()));
+        assertFalse(engine.isRunning());
+        assertTrue(engine.stopAndWait(TimeUnit.SECONDS.toNanos(2)));
+    }
+
+    @Test
+    void testToggleWithoutConfigStillStops() throws Exception {
+        assertTrue(engine.toggle(config(ClickType.LEFT, true, 0, 1, false), null, System.nanoTime()));
+        waitForClicks(1);
+
+        // The UI passes null while its fields are invalid; that must not keep it from stopping
+        assertFalse(engine.toggle(null, null, System.nanoTime()));
+        assertFalse(engine.isRunning());
+        assertTrue(engine.stopAndWait(TimeUnit.SECONDS.toNanos(2)));
+
+        // Nothing to start with, so nothing starts
+        assertFalse(engine.toggle(null, null, System.nanoTime()));
+        assertFalse(engine.isRunning());
+    }
+
+    @Test
+    void testConcurrentTogglesNeverDoubleStart() throws Exception {
+        ClickConfig config = config(ClickType.LEFT, true, 0, 1, false);
+        int threads = 4;
+        int togglesPerThread = 250;
+        AtomicInteger starts = new AtomicInteger();
+        AtomicInteger stops = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread w = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < togglesPerThread; i++) {
+                    if (engine.toggle(config, null, System.nanoTime())) starts.incrementAndGet();
+                    else stops.incrementAndGet();
+                }
+            });
+            w.start();
+            workers.add(w);
+        }
+        go.countDown();
+        for (Thread w : workers) w.join();
+
+        // An even number of toggles overall has to leave the engine where it started
+        assertEquals(starts.get(), stops.get());
+        assertFalse(engine.isRunning());
+        assertTrue(engine.stopAndWait(TimeUnit.SECONDS.toNanos(5)));
+    }
+
+    @Test
+    void testUpdateConfigAppliesToRunningSession() throws Exception {
+        engine.start(config(ClickType.LEFT, true, 0, 10_000, false), null);
+        waitForClicks(1);
+
+        // From a 10 s delay to 1 ms: the pending wait is re-timed, no restart needed
+        engine.updateConfig(config(ClickType.RIGHT, true, 0, 1, true));
+        waitForClicks(5);
+
+        List<RecordingClickSink.Event> events = sink.getEvents();
+        RecordingClickSink.Event last = events.get(events.size() - 1);
+        assertEquals(InputEvent.BUTTON3_DOWN_MASK, last.buttonMask());
+        assertTrue(events.stream().anyMatch(e -> e.type() == RecordingClickSink.Type.MOVE));
+        assertTrue(engine.isRunning());
+        assertEquals(ClickType.RIGHT, engine.getConfig().clickType());
+        assertTrue(engine.stopAndWait(TimeUnit.SECONDS.toNanos(2)));
+    }
+
+    @Test
+    void testUpdateConfigCanEndSessionByRepeatCount() throws Exception {
+        CompletableFuture<Long> finished = new CompletableFuture<>();
+        engine.start(config(ClickType.LEFT, true, 0, 1, false), (clicks, error) -> finished.complete(clicks));
+        waitForClicks(3);
+
+        engine.updateConfig(config(ClickType.LEFT, false, 1, 1, false));
+
+        assertTrue(finished.get(5, TimeUnit.SECONDS) >= 3);
+        assertFalse(engine.isRunning());
+    }
+
+    @Test
+    void testStopAndWaitWhenIdle() throws InterruptedException {
+        assertTrue(engine.stopAndWait(TimeUnit.MILLISECONDS.toNanos(10)));
+    }
+
+    @Test
+    void testSinkFactoryFailureIsReported() throws Exception {
+        ClickEngine failing = new ClickEngine(() -> {
+            throw new IllegalStateException("no display");
+        });
+        CompletableFuture<Exception> finished = new CompletableFuture<>();
+        failing.start(config(ClickType.LEFT, true, 0, 1, false), (clicks, error) -> finished.complete(error));
+
+        Exception error = finished.get(5, TimeUnit.SECONDS);
+        assertInstanceOf(IllegalStateException.class, error);
+        assertFalse(failing.isRunning());
+        failing.shutdown();
+    }
+
+    @Test
+    void testWarmUpCreatesSinkOnceWithoutEmittingInput() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        ClickEngine warm = new ClickEngine(() -> {
+            created.incrementAndGet();
+            return sink;
+        });
+        try {
+            warm.warmUp().get(10, TimeUnit.SECONDS);
+            assertEquals(1, created.get());
+            assertTrue(sink.getEvents().isEmpty());
+            assertEquals(0, warm.getTelemetry().getClicks());
+
+            for (int i = 0; i < 2; i++) {
+                CompletableFuture<Long> finished = new CompletableFuture<>();
+                warm.start(config(ClickType.LEFT, false, 3, 0.1, false), (clicks, error) -> finished.complete(clicks));
+                assertEquals(3L, finished.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, created.get());
+            assertEquals(6, sink.getClickCount());
+        } finally {
+            warm.shutdown();
+        }
+    }
+
+    @Test
+    void testFirstClickLatencyIsMeasuredFromTrigger() throws Exception {
+        CompletableFuture<Long> finished = new CompletableFuture<>();
+        long trigger = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(5);
+        engine.start(config(ClickType.LEFT, false, 1, 1, false), (clicks, error) -> finished.complete(clicks), trigger);
+        finished.get(5, TimeUnit.SECONDS);
+
+        long latency = engine.getTelemetry().snapshot().firstClickLatency();
+        assertTrue(latency >= TimeUnit.MILLISECONDS.toNanos(5), "latency " + latency);
+        long pressed = sink.getEvents().get(0).nanoTime();
+        assertTrue(latency <= pressed - trigger);
+    }
+
+    @Test
+    void testFromProfile() {
+        Profile p = new Profile("p");
+        p.setClickType(ClickType.RIGHT);
+        p.setRepeatTilStopped(true);
+        p.setDelayMS(0.5);
+        p.setUseCustomLocation(true);
+        p.setCustomX(7);
+        p.setCustomY(9);
+
+        ClickConfig config = ClickConfig.fromProfile(p, null);
+
+        assertEquals(ClickType.RIGHT, config.clickType());
+        assertTrue(config.repeatUntilStopped());
+        assertEquals(500_000L, config.periodNanos());
+        assertTrue(config.useCustomLocation());
+        assertEquals(7, config.customX());
+        assertEquals(9, config.customY());
+    }
+
+    @Test
+    void testConfigBackendReplacesEngineSink() throws Exception {
+        RecordingClickSink other = new RecordingClickSink();
+        AtomicInteger created = new AtomicInteger();
+        ClickBackend backend = new ClickBackend() {
+            @Override public String name() {return "test";}
+            @Override public String description() {return "test";}
+            @Override public boolean postsInput() {return false;}
+            @Override public ClickSink create() {
+                created.incrementAndGet();
+                return other;
+            }
+        };
+
+        for (int i = 0; i < 2; i++) {
+            CompletableFuture<Long> finished = new CompletableFuture<>();
+            engine.start(config(ClickType.LEFT, false, 3, 0.1, false).withBackend(backend),
+                    (clicks, error) -> finished.complete(clicks));
+            assertEquals(3L, finished.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, created.get());
+        assertEquals(6, other.getClickCount());
+        assertTrue(sink.getEvents().isEmpty());
+
+        Profile p = new Profile("p");
+        p.setBackend("noop");
+        assertEquals("noop", ClickConfig.fromProfile(p, null).backend().name());
+        p.setBackend("printer");
+        assertThrows(IllegalArgumentException.class, () -> ClickConfig.fromProfile(p, null));
+    }
+
+    @Test
+    void testMacroRunsStepsInOrderForEachPass() throws InterruptedException {
+        CompiledMacro macro = MacroCompiler.compile("click left at 1 2\nwait 2\nclick right hold 1");
+        ClickConfig base = config(ClickType.LEFT, false, 3, 100, false);
+
+        long started = System.nanoTime();
+        long clicks = engine.runNow(base.withMacro(macro), sink);
+
+        assertEquals(6, clicks);
+        List<RecordingClickSink.Event> events = sink.getEvents();
+        assertEquals(3 * macro.length(), events.size());
+        for (int pass = 0; pass < 3; pass++) {
+            int i = pass * macro.length();
+            assertEquals(RecordingClickSink.Type.MOVE, events.get(i).type());
+            assertEquals(1, events.get(i).x());
+            assertEquals(ClickConfig.buttonMask(ClickType.LEFT), events.get(i + 1).buttonMask());
+            assertEquals(RecordingClickSink.Type.PRESS, events.get(i + 3).type());
+            assertEquals(ClickConfig.buttonMask(ClickType.RIGHT), events.get(i + 3).buttonMask());
+        }
+        // Steps run on deadlines, so three passes of 3 ms each can never finish sooner
+        assertTrue(events.get(events.size() - 1).nanoTime() - started >= 3 * macro.passNanos());
+        assertEquals(6, engine.getTelemetry().snapshot().clicks());
+    }
+
+    @Test
+    void testLeadingWaitAppliesToFirstPass() throws InterruptedException {
+        CompiledMacro macro = MacroCompiler.compile("wait 50\nclick left");
+        long started = System.nanoTime();
+        assertEquals(2, engine.runNow(config(ClickType.LEFT, false, 2, 100, false).withMacro(macro), sink));
+
+        List<RecordingClickSink.Event> events = sink.getEvents();
+        long ms = TimeUnit.MILLISECONDS.toNanos(1);
+        assertTrue(events.get(0).nanoTime() - started >= 50 * ms, "first press after " + (events.get(0).nanoTime() - started));
+        assertTrue(events.get(2).nanoTime() - started >= 100 * ms, "second press after " + (events.get(2).nanoTime() - started));
+    }
+
+    @Test
+    void testFromProfileCompilesMacro() {
+        Profile p = new Profile("p");
+        p.setClickType(ClickType.LEFT);
+        p.setMacro("loop 2\nclick middle\nend");
+
+        assertEquals(2, ClickConfig.fromProfile(p, null).macro().clicksPerPass());
+
+        p.setMacro("click nowhere");
+        assertThrows(IllegalArgumentException.class, () -> ClickConfig.fromProfile(p, null));
+
+        p.setMacro("  ");
+        assertNull(ClickConfig.fromProfile(p, null).macro());
+    }
+
+    @Test
+    void testTriggerGatesClicks() throws Exception {
+        ImageFrameSource screen = new ImageFrameSource(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB));
+        PixelTrigger red = PixelTrigger.color(3, 3, 0xFF0000, 0).withPollNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        ClickConfig triggered = config(ClickType.LEFT, true, 0, 1, false).withTrigger(red);
+        assertThrows(IllegalStateException.class, () -> engine.start(triggered, null));
+
+        try (TriggerMonitor monitor = new TriggerMonitor(() -> screen)) {
+            ClickEngine gated = new ClickEngine(() -> sink, monitor);
+            try {
+                gated.start(triggered, null);
+                Thread.sleep(30);
+                assertEquals(0, sink.getClickCount());
+                assertEquals(1, monitor.getWatchCount());
+
+                screen.getImage().setRGB(3, 3, 0xFF0000);
+                waitForClicks(5);
+
+                screen.getImage().setRGB(3, 3, 0);
+                Thread.sleep(10);
+                int clicks = sink.getClickCount();
+                Thread.sleep(30);
+                assertEquals(clicks, sink.getClickCount());
+
+                // Dropping the trigger clicks unconditionally again
+                gated.updateConfig(triggered.withTrigger(null));
+                waitForClicks(clicks + 5);
+                assertEquals(0, monitor.getWatchCount());
+            } finally {
+                gated.shutdown();
+            }
+            assertEquals(0, monitor.getWatchCount());
+        }
+    }
+
+    @Test
+    void testTargetMovesEachClickOntoTheImage() throws Exception {
+        BufferedImage screen = new BufferedImage(200, 120, BufferedImage.TYPE_INT_RGB);
+        BufferedImage button = new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 16; y++) {
+            for (int x = 0; x < 16; x++) button.setRGB(x, y, ((x / 4 + y / 4) & 1) == 0 ? 0xFF0000 : 0x0000FF);
+        }
+        Graphics2D g = screen.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, 200, 120);
+        g.drawImage(button, 50, 40, null);
+        // Custom location is on, but the target wins
+        ClickConfig located = config(ClickType.LEFT, false, 3, 1, true).withTarget(Template.of(button, "button", 8));
+        assertThrows(IllegalStateException.class, () -> engine.start(located, null));
+
+        try (TriggerMonitor monitor = new TriggerMonitor(() -> new ImageFrameSource(screen))) {
+            ClickEngine targeted = new ClickEngine(() -> sink, monitor);
+            try {
+                assertEquals(3, targeted.runNow(located, sink));
+                List<RecordingClickSink.Event> events = sink.getEvents();
+                assertEquals(9, events.size());
+                for (int i = 0; i < 9; i += 3) {
+                    assertEquals(RecordingClickSink.Type.MOVE, events.get(i).type());
+                    assertEquals(58, events.get(i).x());
+                    assertEquals(48, events.get(i).y());
+                }
+
+                // Gone from the screen: clicks are skipped until it shows up again
+                g.fillRect(0, 0, 200, 120);
+                targeted.start(located, null);
+                Thread.sleep(30);
+                assertEquals(3, sink.getClickCount());
+                g.drawImage(button, 120, 70, null);
+                waitForClicks(6);
+                List<RecordingClickSink.Event> moved = sink.getEvents();
+                assertEquals(128, moved.get(moved.size() - 3).x());
+                assertEquals(78, moved.get(moved.size() - 3).y());
+            } finally {
+                targeted.shutdown();
+            }
+        }
+    }
+
+    @Test
+    void testFromProfileParsesTrigger() {
+        Profile p = new Profile("p");
+        p.setClickType(ClickType.LEFT);
+        p.setTrigger("changed 0 0 10 10");
+
+        assertEquals(PixelTrigger.changed(0, 0, 10, 10), ClickConfig.fromProfile(p, null).trigger());
+
+        p.setTrigger("changed 0 0");
+        assertThrows(IllegalArgumentException.class, () -> ClickConfig.fromProfile(p, null));
+
+        p.setTrigger(null);
+        assertNull(ClickConfig.fromProfile(p, null).trigger());
+    }
+
+    private void waitForClicks(int clicks) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (sink.getClickCount() < clicks) {
+            assertTrue(System.nanoTime() < deadline, "engine did not click in time");
+            Thread.sleep(1);
+        }
+    }
+
+    static ClickConfig config(ClickType type, boolean untilStopped, int repeat, double delayMs, boolean custom) {
+        return ClickConfig.builder()
+                .clickType(type)
+                .repeatUntilStopped(untilStopped)
+                .repeatTimes(repeat)
+                .delayMs(delayMs)
+                .useCurrentLocation(!custom)
+                .useCustomLocation(custom)
+                .customLocation(100, 200)
+                .build();
+    }
+}
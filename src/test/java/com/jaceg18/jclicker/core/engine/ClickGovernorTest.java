@@ -0,0 +1,192 @@
+package com.jaceg18.jclicker.core.engine;
+
+import com.jaceg18.jclicker.util.ClickType;
+import org.junit.jupiter.api.Test;
+
+import java.awt.event.InputEvent;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.jaceg18.jclicker.core.engine.ClickEngineTest.config;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClickGovernorTest {
+
+    private static final int LEFT = InputEvent.BUTTON1_DOWN_MASK;
+    private static final int RIGHT = InputEvent.BUTTON3_DOWN_MASK;
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void testBurstThenLimit() {
+        ClickGovernor governor = new ClickGovernor(100, 0, 5);
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, governor.tryAcquire(LEFT, now), "burst click " + i);
+        }
+        long wait = governor.tryAcquire(LEFT, now);
+        assertTrue(wait > 0 && wait <= 10 * MS, "wait " + wait);
+        assertEquals(1, governor.getThrottled());
+
+        assertEquals(0, governor.tryAcquire(LEFT, now + wait));
+        assertTrue(governor.tryAcquire(LEFT, now + wait) > 0);
+
+        // A long pause refills the bucket, but only up to the burst
+        long later = now + TimeUnit.SECONDS.toNanos(10);
+        for (int i = 0; i < 5; i++) assertEquals(0, governor.tryAcquire(LEFT, later));
+        assertTrue(governor.tryAcquire(LEFT, later) > 0);
+        assertEquals(3, governor.getGlobalThrottled());
+    }
+
+    @Test
+    void testButtonLimitDoesNotUseUpGlobalTokens() {
+        ClickGovernor governor = new ClickGovernor(1000, 10, 1);
+        long now = System.nanoTime();
+
+        assertEquals(0, governor.tryAcquire(LEFT, now));
+        assertTrue(governor.tryAcquire(LEFT, now + MS) > 0);
+        assertEquals(1, governor.getButtonThrottled(LEFT));
+        assertEquals(0, governor.getButtonThrottled(RIGHT));
+        // The denied left click gave its global token back
+        assertEquals(0, governor.tryAcquire(RIGHT, now + 2 * MS));
+        assertEquals(0, governor.getGlobalThrottled());
+        // Keys only count against the global limit
+        assertEquals(0, governor.tryAcquire(0x41, now + 3 * MS));
+    }
+
+    @Test
+    void testNoLimits() {
+        ClickGovernor governor = new ClickGovernor(0, 0, 1);
+        long now = System.nanoTime();
+        for (int i = 0; i < 10_000; i++) assertEquals(0, governor.tryAcquire(LEFT, now));
+        assertEquals(0, governor.getThrottled());
+        assertThrows(IllegalArgumentException.class, () -> new ClickGovernor(-1, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ClickGovernor(10, 10, 0));
+    }
+
+    @Test
+    void testConcurrentProducersNeverExceedBurst() throws Exception {
+        int burst = 50;
+        ClickGovernor governor = new ClickGovernor(10, 0, burst);
+        long now = System.nanoTime();
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 1_000; i++) {
+                    if (governor.tryAcquire(LEFT, now) == 0) granted.incrementAndGet();
+                }
+            });
+            threads[t].start();
+        }
+        go.countDown();
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(burst, granted.get());
+        assertEquals(4_000 - burst, governor.getThrottled());
+    }
+
+    @Test
+    void testLimitsComeFromSystemProperties() {
+        ClickGovernor defaults = ClickGovernor.fromSystemProperties();
+        assertEquals(ClickGovernor.DEFAULT_MAX_CPS, defaults.getMaxCps());
+        // A single session may run at the 2000 CPS the engine supports without being throttled
+        assertTrue(defaults.getMaxButtonCps() > 2_000);
+
+        System.setProperty(ClickGovernor.MAX_CPS_PROPERTY, "0");
+        System.setProperty(ClickGovernor.MAX_BUTTON_CPS_PROPERTY, "4000");
+        try {
+            ClickGovernor set = ClickGovernor.fromSystemProperties();
+            assertEquals(0, set.getMaxCps());
+            assertEquals(4000, set.getMaxButtonCps());
+            System.setProperty(ClickGovernor.MAX_BUTTON_CPS_PROPERTY, "fast");
+            assertThrows(IllegalArgumentException.class, ClickGovernor::fromSystemProperties);
+        } finally {
+            System.clearProperty(ClickGovernor.MAX_CPS_PROPERTY);
+            System.clearProperty(ClickGovernor.MAX_BUTTON_CPS_PROPERTY);
+        }
+    }
+
+    @Test
+    void testEngineSkipsThrottledClicks() throws Exception {
+        RecordingClickSink sink = new RecordingClickSink();
+        ClickEngine engine = new ClickEngine(() -> sink, null, new ClickGovernor(200, 0, 1));
+        try {
+            long clicks = engine.runNow(config(ClickType.LEFT, false, 20, 1, false), sink);
+
+            assertEquals(20, clicks);
+            assertTrue(engine.getTelemetry().snapshot().throttled() > 0);
+            assertIntervalsAtLeast(presses(sink), 5 * MS);
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    void testMacroWaitsForItsToken() throws Exception {
+        RecordingClickSink sink = new RecordingClickSink();
+        ClickEngine engine = new ClickEngine(() -> sink, null, new ClickGovernor(100, 0, 1));
+        try {
+            ClickConfig config = config(ClickType.LEFT, false, 10, 0, false)
+                    .withMacro(MacroCompiler.compile("click left\nclick right"));
+            long clicks = engine.runNow(config, sink);
+
+            // Nothing is dropped: every press is made, and every press is followed by its release
+            assertEquals(20, clicks);
+            List<RecordingClickSink.Event> events = sink.getEvents();
+            assertEquals(40, events.size());
+            for (int i = 0; i < events.size(); i += 2) {
+                assertEquals(RecordingClickSink.Type.PRESS, events.get(i).type());
+                assertEquals(RecordingClickSink.Type.RELEASE, events.get(i + 1).type());
+                assertEquals(events.get(i).buttonMask(), events.get(i + 1).buttonMask());
+            }
+            assertTrue(engine.getTelemetry().snapshot().throttled() > 0);
+            assertIntervalsAtLeast(presses(sink), 10 * MS);
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    void testJobsShareOneLimit() throws Exception {
+        RecordingClickSink sink = new RecordingClickSink();
+        MultiClickEngine engine = new MultiClickEngine(() -> sink, null, new ClickGovernor(100, 0, 1));
+        try {
+            ClickJob a = engine.submit("a", config(ClickType.LEFT, true, 0, 1, false));
+            ClickJob b = engine.submit("b", config(ClickType.RIGHT, true, 0, 1, false));
+            Thread.sleep(300);
+            a.cancel();
+            b.cancel();
+            a.finished().get(1, TimeUnit.SECONDS);
+            b.finished().get(1, TimeUnit.SECONDS);
+
+            // 300 ms at 100 CPS, with slack for a slow machine, out of ~600 scheduled clicks
+            int clicks = sink.getClickCount();
+            assertTrue(clicks >= 5 && clicks <= 32, "clicks " + clicks);
+            assertIntervalsAtLeast(presses(sink), 10 * MS);
+            assertTrue(a.getTelemetry().snapshot().throttled() + b.getTelemetry().snapshot().throttled() > 0);
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    private static List<RecordingClickSink.Event> presses(RecordingClickSink sink) {
+        return sink.getEvents().stream().filter(e -> e.type() == RecordingClickSink.Type.PRESS).toList();
+    }
+
+    /** Leaves slack for the time between taking the token and making the press. */
+    private static void assertIntervalsAtLeast(List<RecordingClickSink.Event> presses, long intervalNanos) {
+        for (int i = 1; i < presses.size(); i++) {
+            long gap = presses.get(i).nanoTime() - presses.get(i - 1).nanoTime();
+            assertTrue(gap >= intervalNanos * 3 / 4, "press " + i + " came " + gap + " ns after the previous one");
+        }
+    }
+}
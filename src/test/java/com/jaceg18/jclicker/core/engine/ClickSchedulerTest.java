@@ -0,0 +1,143 @@
+package com.jaceg18.jclicker.core.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClickSchedulerTest {
+
+    @Test
+    void testPeriodFromMillisKeepsFractionalDelays() {
+        assertEquals(500_000L, ClickScheduler.periodFromMillis(0.5));
+        assertEquals(1_250_000L, ClickScheduler.periodFromMillis(1.25));
+        assertEquals(100_000_000L, ClickScheduler.periodFromMillis(100.0));
+    }
+
+    @Test
+    void testPeriodFromMillisClampsToMinimum() {
+        assertEquals(ClickScheduler.MIN_PERIOD_NANOS, ClickScheduler.periodFromMillis(0));
+        assertEquals(ClickScheduler.MIN_PERIOD_NANOS, ClickScheduler.periodFromMillis(-5));
+        assertEquals(ClickScheduler.MIN_PERIOD_NANOS, ClickScheduler.periodFromMillis(Double.NaN));
+        assertEquals(ClickScheduler.MIN_PERIOD_NANOS, ClickScheduler.periodFromMillis(0.001));
+    }
+
+    @Test
+    void testPeriodFromMillisSaturatesHugeDelays() {
+        assertEquals(Long.MAX_VALUE, ClickScheduler.periodFromMillis(Double.MAX_VALUE));
+    }
+
+    @Test
+    void testFirstDeadlineIsImmediate() throws InterruptedException {
+        ClickScheduler scheduler = new ClickScheduler(1_000_000_000L, ClickScheduler.OverrunPolicy.CATCH_UP);
+        long start = System.nanoTime();
+        scheduler.start(start);
+        scheduler.awaitNext();
+
+        assertTrue(System.nanoTime() - start < 500_000_000L);
+        assertEquals(start + 1_000_000_000L, scheduler.getNextDeadline());
+    }
+
+    @Test
+    void testDeadlinesDoNotDrift() throws InterruptedException {
+        long period = 500_000L;
+        ClickScheduler scheduler = new ClickScheduler(period, ClickScheduler.OverrunPolicy.CATCH_UP);
+        long start = System.nanoTime();
+        scheduler.start(start);
+
+        int clicks = 200;
+        for (int i = 0; i < clicks; i++) {
+            scheduler.awaitNext();
+        }
+
+        // Deadlines stay on the original grid no matter how late the wake-ups were
+        long offset = scheduler.getNextDeadline() - start;
+        assertEquals(0, offset % period);
+        assertEquals(clicks + scheduler.getSkipped(), offset / period);
+        long elapsed = System.nanoTime() - start;
+        assertTrue(elapsed >= (clicks - 1) * period, "finished early: " + elapsed);
+    }
+
+    @Test
+    void testSkipPolicyDropsMissedDeadlines() throws InterruptedException {
+        long period = 1_000_000L;
+        ClickScheduler scheduler = new ClickScheduler(period, ClickScheduler.OverrunPolicy.SKIP);
+        long start = System.nanoTime() - 10 * period;
+        scheduler.start(start);
+
+        long lateness = scheduler.awaitNext();
+
+        assertTrue(lateness >= 10 * period);
+        assertTrue(scheduler.getSkipped() >= 10);
+        assertTrue(scheduler.getNextDeadline() - System.nanoTime() > 0);
+    }
+
+    @Test
+    void testCatchUpPolicyKeepsMissedDeadlines() throws InterruptedException {
+        long period = 1_000_000L;
+        ClickScheduler scheduler = new ClickScheduler(period, ClickScheduler.OverrunPolicy.CATCH_UP);
+        long start = System.nanoTime() - 5 * period;
+        scheduler.start(start);
+
+        scheduler.awaitNext();
+
+        assertEquals(0, scheduler.getSkipped());
+        assertEquals(start + period, scheduler.getNextDeadline());
+    }
+
+    @Test
+    void testCatchUpBurstIsBounded() throws InterruptedException {
+        long period = 1_000_000L;
+        ClickScheduler scheduler = new ClickScheduler(period, ClickScheduler.OverrunPolicy.CATCH_UP);
+        scheduler.start(System.nanoTime() - (ClickScheduler.MAX_CATCH_UP_PERIODS + 10) * period);
+
+        scheduler.awaitNext();
+
+        assertTrue(scheduler.getSkipped() > 0);
+        assertTrue(scheduler.getNextDeadline() - System.nanoTime() > 0);
+    }
+
+    @Test
+    void testInterruptStopsWaiting() {
+        ClickScheduler scheduler = new ClickScheduler(60_000_000_000L, ClickScheduler.OverrunPolicy.CATCH_UP);
+        scheduler.start(System.nanoTime() + 60_000_000_000L);
+
+        Thread.currentThread().interrupt();
+        assertThrows(InterruptedException.class, scheduler::awaitNext);
+    }
+
+    @Test
+    void testUnparkAbandonsWait() throws Exception {
+        ClickScheduler scheduler = new ClickScheduler(60_000_000_000L, ClickScheduler.OverrunPolicy.CATCH_UP);
+        scheduler.start(System.nanoTime() + 60_000_000_000L);
+        java.util.concurrent.atomic.AtomicBoolean running = new java.util.concurrent.atomic.AtomicBoolean(true);
+        Thread waiter = Thread.currentThread();
+
+        Thread stopper = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException ignored) {}
+            running.set(false);
+            java.util.concurrent.locks.LockSupport.unpark(waiter);
+        });
+        stopper.start();
+
+        long start = System.nanoTime();
+        assertEquals(ClickScheduler.ABANDONED, scheduler.awaitNext(running::get));
+        assertTrue(System.nanoTime() - start < 5_000_000_000L);
+        stopper.join();
+    }
+
+    @Test
+    void testRescheduleKeepsGrid() {
+        ClickScheduler scheduler = new ClickScheduler(10_000_000L, ClickScheduler.OverrunPolicy.CATCH_UP);
+        scheduler.start(1_000_000_000L);
+        scheduler.reschedule(2_000_000L);
+        assertEquals(1_000_000_000L - 10_000_000L + 2_000_000L, scheduler.getNextDeadline());
+        assertEquals(2_000_000L, scheduler.getPeriodNanos());
+    }
+
+    @Test
+    void testRejectsNullPolicy() {
+        assertThrows(IllegalArgumentException.class, () -> new ClickScheduler(1_000_000L, null));
+    }
+}
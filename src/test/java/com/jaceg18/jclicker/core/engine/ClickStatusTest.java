@@ -0,0 +1,64 @@
+package com.jaceg18.jclicker.core.engine;
+
+import com.jaceg18.jclicker.util.ClickType;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.jaceg18.jclicker.core.engine.ClickEngineTest.config;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClickStatusTest {
+
+    @Test
+    void testCountersFollowClicks() {
+        ClickStatus status = new ClickStatus();
+        status.reset(1_000);
+
+        assertEquals(0, status.getClicks());
+        assertEquals(0, status.getAchievedCps());
+        assertEquals(500, status.getElapsedNanos(1_500));
+
+        status.click(2_000, 300);
+        status.click(2_000 + 10_000_000, 50);
+        status.click(2_000 + 20_000_000, 100);
+
+        assertEquals(3, status.getClicks());
+        assertEquals(100.0, status.getAchievedCps(), 1e-9);
+        assertEquals(100, status.getLastLatenessNanos());
+        assertEquals(300, status.getMaxLatenessNanos());
+        assertFalse(status.isEnded());
+
+        status.end(50_000_000);
+        assertTrue(status.isEnded());
+        assertEquals(50_000_000 - 1_000, status.getElapsedNanos(Long.MAX_VALUE));
+
+        status.reset(60_000_000);
+        assertEquals(0, status.getClicks());
+        assertEquals(0, status.getMaxLatenessNanos());
+        assertFalse(status.isEnded());
+    }
+
+    @Test
+    void testEngineSessionPublishesStatus() throws Exception {
+        ClickEngine engine = new ClickEngine(() -> NoOpClickSink.INSTANCE);
+        try {
+            engine.start(config(ClickType.LEFT, false, 20, 1, false), null);
+            ClickStatus status = engine.getTelemetry().getStatus();
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!status.isEnded() || engine.isRunning()) {
+                assertTrue(System.nanoTime() < deadline, "session did not end");
+                Thread.sleep(1);
+            }
+            assertEquals(20, status.getClicks());
+            assertEquals(engine.getTelemetry().snapshot().clicks(), status.getClicks());
+            assertTrue(status.getAchievedCps() > 0);
+            long elapsed = status.getElapsedNanos(System.nanoTime());
+            assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(19), "elapsed " + elapsed);
+            assertEquals(elapsed, status.getElapsedNanos(System.nanoTime() + 1_000_000_000L));
+        } finally {
+            engine.shutdown();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.jaceg18.jclicker.core.engine;
+
+import com.jaceg18.jclicker.util.ClickType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static com.jaceg18.jclicker.core.engine.ClickEngineTest.config;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Guards the click loops against allocating: a GC pause in the middle of a session shows
+ * up directly as click jitter.
+ * <p>
+ * Each check runs the same loop for N and for 2N clicks on the measuring thread and
+ * compares the bytes the thread allocated. Per-session setup costs the same both times, so
+ * any difference is allocation per click. {@link #SLACK_BYTES} absorbs one-off work such
+ * as lazy class initialisation.
+ */
+class EngineAllocationTest {
+
+    private static final int CLICKS = 5_000;
+    /** Well under one byte per click; even a single boxed value per click is 16 bytes. */
+    private static final long SLACK_BYTES = 1024;
+
+    private static com.sun.management.ThreadMXBean threads;
+
+    private ClickEngine engine;
+
+    @BeforeAll
+    static void enableAllocationCounting() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+                "thread allocation counters need a HotSpot-compatible JVM");
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @BeforeEach
+    void setUp() {
+        engine = new ClickEngine(() -> NoOpClickSink.INSTANCE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void testClickLoopDoesNotAllocate() throws Exception {
+        assertNoAllocationPerClick(clicks -> engine.runNow(
+                config(ClickType.LEFT, false, clicks, 0.001, false), NoOpClickSink.INSTANCE));
+    }
+
+    @Test
+    void testCustomLocationLoopDoesNotAllocate() throws Exception {
+        assertNoAllocationPerClick(clicks -> engine.runNow(
+                config(ClickType.RIGHT, false, clicks, 0.001, true), NoOpClickSink.INSTANCE));
+    }
+
+    @Test
+    void testMacroLoopDoesNotAllocate() throws Exception {
+        CompiledMacro macro = MacroCompiler.compile("""
+                click left at 10 10
+                move 20 20
+                press right
+                wait 0.001
+                release right
+                """);
+        // Two presses per pass
+        assertNoAllocationPerClick(clicks -> engine.runNow(
+                config(ClickType.LEFT, false, clicks / 2, 100, false).withMacro(macro), NoOpClickSink.INSTANCE));
+    }
+
+    @Test
+    void testTelemetryRecordingDoesNotAllocate() throws Exception {
+        ClickTelemetry telemetry = new ClickTelemetry();
+        assertNoAllocationPerClick(clicks -> {
+            long now = System.nanoTime();
+            for (int i = 0; i < clicks; i++) {
+                now += 1_000 + (i & 0xFFFF);
+                telemetry.recordClick(now, i & 0x3FF, i & 0xFFF);
+            }
+            return clicks;
+        });
+    }
+
+    @Test
+    void testTimerWheelThreadDoesNotAllocate() throws Exception {
+        MultiClickEngine multi = new MultiClickEngine(() -> NoOpClickSink.INSTANCE);
+        try {
+            ClickJob fast = multi.submit("fast", config(ClickType.LEFT, true, 0, 0.02, false));
+            ClickJob macro = multi.submit("macro", config(ClickType.LEFT, true, 0, 100, false)
+                    .withMacro(MacroCompiler.compile("click left at 1 1\nwait 0.03")));
+            Thread timer = findThread("jclicker-timer-wheel");
+
+            // Warm up until both jobs have been through the JIT
+            awaitClicks(fast, 20_000);
+            long clicksBefore = fast.getTelemetry().getClicks() + macro.getTelemetry().getClicks();
+            long before = threads.getThreadAllocatedBytes(timer.threadId());
+            awaitClicks(fast, fast.getTelemetry().getClicks() + 20_000);
+            long allocated = threads.getThreadAllocatedBytes(timer.threadId()) - before;
+            long clicks = fast.getTelemetry().getClicks() + macro.getTelemetry().getClicks() - clicksBefore;
+
+            assertTrue(allocated <= SLACK_BYTES, allocated + " bytes allocated over " + clicks + " clicks");
+        } finally {
+            multi.shutdown();
+        }
+    }
+
+    private void assertNoAllocationPerClick(ClickRun run) throws Exception {
+        // Get the loop compiled before measuring
+        for (int i = 0; i < 4; i++) {
+            run.clicks(CLICKS);
+        }
+        long once = allocatedBy(run, CLICKS);
+        long twice = allocatedBy(run, 2 * CLICKS);
+
+        long perClicks = twice - once;
+        assertTrue(perClicks <= SLACK_BYTES,
+                perClicks + " extra bytes for " + CLICKS + " extra clicks (" + once + " for the first " + CLICKS + ")");
+    }
+
+    private static long allocatedBy(ClickRun run, int clicks) throws Exception {
+        long id = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(id);
+        long done = run.clicks(clicks);
+        long allocated = threads.getThreadAllocatedBytes(id) - before;
+        assertTrue(done >= clicks - 1, "only " + done + " of " + clicks + " clicks ran");
+        return allocated;
+    }
+
+    private static void awaitClicks(ClickJob job, long clicks) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        while (job.getTelemetry().getClicks() < clicks) {
+            assertTrue(System.nanoTime() < deadline, "job did not reach " + clicks + " clicks");
+            Thread.sleep(5);
+        }
+    }
+
+    private static Thread findThread(String name) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            for (Thread t : Thread.getAllStackTraces().keySet()) {
+                if (t.getName().equals(name)) return t;
+            }
+            Thread.sleep(1);
+        }
+        return fail("no thread named " + name);
+    }
+
+    @FunctionalInterface
+    private interface ClickRun {
+        /** Runs {@code clicks} clicks and returns how many ran. */
+        long clicks(int clicks) throws Exception;
+    }
+}
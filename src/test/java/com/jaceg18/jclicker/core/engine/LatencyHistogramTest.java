@@ -0,0 +1,87 @@
+package com.jaceg18.jclicker.core.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testEmptySnapshot() {
+        LatencyHistogram.Snapshot s = new LatencyHistogram().snapshot();
+        assertEquals(0, s.count());
+        assertEquals(0, s.p50());
+        assertEquals(0, s.max());
+    }
+
+    @Test
+    void testSmallValuesAreExact() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 50; i++) {
+            h.record(i);
+        }
+        LatencyHistogram.Snapshot s = h.snapshot();
+        assertEquals(50, s.count());
+        assertEquals(25, s.p50());
+        assertEquals(50, s.p99());
+        assertEquals(50, s.max());
+        assertEquals(25.5, s.mean(), 0.0001);
+    }
+
+    @Test
+    void testPercentilesWithinRelativeError() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long v = 1; v <= 100_000; v++) {
+            h.record(v * 1_000);
+        }
+        LatencyHistogram.Snapshot s = h.snapshot();
+        assertEquals(50_000_000, s.p50(), 50_000_000 * 0.04);
+        assertEquals(99_000_000, s.p99(), 99_000_000 * 0.04);
+        assertEquals(99_900_000, s.p999(), 99_900_000 * 0.04);
+        assertEquals(100_000_000, s.max());
+    }
+
+    @Test
+    void testBucketIndexIsMonotonicAndInRange() {
+        int previous = -1;
+        for (long v = 0; v < 1_000_000; v += 7) {
+            int index = LatencyHistogram.bucketIndex(v);
+            assertTrue(index >= previous);
+            assertTrue(v <= LatencyHistogram.bucketUpperBound(index));
+            previous = index;
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.bucketUpperBound(LatencyHistogram.BUCKET_COUNT - 1));
+    }
+
+    @Test
+    void testNegativeValuesClampToZero() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(-5);
+        assertEquals(1, h.getCount());
+        assertEquals(0, h.snapshot().max());
+    }
+
+    @Test
+    void testReset() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(1_000);
+        h.reset();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.snapshot().count());
+    }
+
+    @Test
+    void testTelemetryAchievedCps() {
+        ClickTelemetry t = new ClickTelemetry();
+        for (int i = 0; i <= 100; i++) {
+            t.recordClick(i * 1_000_000L, 100, 10);
+        }
+        ClickTelemetry.Snapshot s = t.snapshot();
+        assertEquals(101, s.clicks());
+        assertEquals(1000.0, s.achievedCps(), 0.001);
+        assertEquals(100, s.interval().count());
+        assertEquals(1_000_000, s.interval().max());
+        assertEquals(101, s.dispatch().count());
+    }
+}
@@ -0,0 +1,110 @@
+package com.jaceg18.jclicker.core.engine;
+
+import com.jaceg18.jclicker.util.ClickType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MacroCompilerTest {
+
+    @Test
+    void testClickExpandsToPressAndRelease() {
+        CompiledMacro macro = MacroCompiler.compile("click right");
+
+        assertEquals(2, macro.length());
+        assertEquals(CompiledMacro.PRESS, macro.op(0));
+        assertEquals(CompiledMacro.RELEASE, macro.op(1));
+        assertEquals(ClickConfig.buttonMask(ClickType.RIGHT), macro.mask(0));
+        assertEquals(1, macro.clicksPerPass());
+    }
+
+    @Test
+    void testWaitsFoldIntoFollowingStep() {
+        CompiledMacro macro = MacroCompiler.compile("""
+                wait 1
+                click left at 10 20 hold 2.5
+                wait 3
+                wait 4
+                """);
+
+        assertEquals(3, macro.length());
+        assertEquals(CompiledMacro.MOVE, macro.op(0));
+        assertEquals(10, macro.x(0));
+        assertEquals(20, macro.y(0));
+        assertEquals(1_000_000L, macro.nanos(0));
+        assertEquals(0, macro.nanos(1));
+        assertEquals(CompiledMacro.RELEASE, macro.op(2));
+        assertEquals(2_500_000L, macro.nanos(2));
+        assertEquals(7_000_000L, macro.tailNanos());
+        assertEquals(10_500_000L, macro.passNanos());
+    }
+
+    @Test
+    void testNestedLoopsAreUnrolled() {
+        CompiledMacro macro = MacroCompiler.compile("""
+                # two rows of three
+                loop 2
+                  loop 3
+                    click left   # inner
+                    wait 1
+                  end
+                  move 0 0
+                end
+                """);
+
+        assertEquals(2 * (3 * 2 + 1), macro.length());
+        assertEquals(6, macro.clicksPerPass());
+        assertEquals(CompiledMacro.MOVE, macro.op(6));
+        assertEquals(1_000_000L, macro.nanos(2));
+    }
+
+    @Test
+    void testPressAndReleaseCanBeSplit() {
+        CompiledMacro macro = MacroCompiler.compile("PRESS Middle at 5 6\nmove 7 8\nrelease middle");
+
+        assertEquals(4, macro.length());
+        assertEquals(CompiledMacro.MOVE, macro.op(0));
+        assertEquals(CompiledMacro.PRESS, macro.op(1));
+        assertEquals(CompiledMacro.MOVE, macro.op(2));
+        assertEquals(CompiledMacro.RELEASE, macro.op(3));
+        assertEquals(ClickConfig.buttonMask(ClickType.MIDDLE), macro.mask(3));
+    }
+
+    @Test
+    void testErrorsNameTheLine() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> MacroCompiler.compile("click left\n\nclick sideways"));
+        assertTrue(e.getMessage().startsWith("Line 3:"), e.getMessage());
+
+        assertThrows(IllegalArgumentException.class, () -> MacroCompiler.compile("wait -1\nclick left"));
+        assertThrows(IllegalArgumentException.class, () -> MacroCompiler.compile("loop 2\nclick left"));
+        assertThrows(IllegalArgumentException.class, () -> MacroCompiler.compile("end"));
+        assertThrows(IllegalArgumentException.class, () -> MacroCompiler.compile("move 1"));
+        assertThrows(IllegalArgumentException.class, () -> MacroCompiler.compile("wait 5"));
+        assertThrows(IllegalArgumentException.class, () -> MacroCompiler.compile("  # nothing\n"));
+    }
+
+    @Test
+    void testRunawayLoopsAreRejected() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> MacroCompiler.compile("loop 100000\nloop 100000\nclick left\nend\nend"));
+        assertTrue(e.getMessage().contains(String.valueOf(MacroCompiler.MAX_STEPS)), e.getMessage());
+        assertThrows(IllegalArgumentException.class,
+                () -> MacroCompiler.compile("loop 100000\nloop 100000\nwait 1\nend\nend\nclick left"));
+    }
+
+    @Test
+    void testLoopsThatEmitNothingStillCount() {
+        // Neither loop emits a step, but unrolling them would still take 2^62 iterations
+        long start = System.nanoTime();
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> MacroCompiler.compile("loop 2147483647\nloop 2147483647\nend\nend\nclick left"));
+        assertTrue(e.getMessage().contains(String.valueOf(MacroCompiler.MAX_STEPS)), e.getMessage());
+        assertThrows(IllegalArgumentException.class,
+                () -> MacroCompiler.compile("loop 2147483647\nloop 0\nclick left\nend\nend\nclick left"));
+        assertTrue(System.nanoTime() - start < 1_000_000_000L);
+
+        // Small empty loops are harmless
+        assertEquals(MacroCompiler.compile("click left").length(), MacroCompiler.compile("loop 10\nend\nclick left").length());
+    }
+}
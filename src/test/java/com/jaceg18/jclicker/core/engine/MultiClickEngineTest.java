@@ -0,0 +1,243 @@
+package com.jaceg18.jclicker.core.engine;
+
+import com.jaceg18.jclicker.core.input.ClickBackend;
+import com.jaceg18.jclicker.core.trigger.ImageFrameSource;
+import com.jaceg18.jclicker.core.trigger.PixelTrigger;
+import com.jaceg18.jclicker.core.trigger.TriggerMonitor;
+import com.jaceg18.jclicker.util.ClickType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.event.InputEvent;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.jaceg18.jclicker.core.engine.ClickEngineTest.config;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultiClickEngineTest {
+
+    private RecordingClickSink sink;
+    private MultiClickEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        sink = new RecordingClickSink();
+        engine = new MultiClickEngine(() -> sink);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void testJobsRunToTheirRepeatCounts() throws Exception {
+        ClickJob left = engine.submit("left", config(ClickType.LEFT, false, 20, 0.5, false));
+        ClickJob right = engine.submit("right", config(ClickType.RIGHT, false, 7, 1, false));
+
+        assertEquals(20L, left.finished().get(5, TimeUnit.SECONDS));
+        assertEquals(7L, right.finished().get(5, TimeUnit.SECONDS));
+        assertEquals(27, sink.getClickCount());
+        assertEquals(27, engine.getTotalClicks());
+        assertEquals(20, left.getTelemetry().getClicks());
+        assertEquals(7, right.getTelemetry().getClicks());
+        assertTrue(engine.getJobs().isEmpty());
+    }
+
+    @Test
+    void testMacroJobRunsWholePasses() throws Exception {
+        CompiledMacro macro = MacroCompiler.compile("move 3 4\nclick right\nwait 1\nclick left");
+        ClickJob job = engine.submit("macro", config(ClickType.LEFT, false, 4, 100, false).withMacro(macro));
+
+        assertEquals(8L, job.finished().get(5, TimeUnit.SECONDS));
+        List<RecordingClickSink.Event> events = sink.getEvents();
+        assertEquals(4 * macro.length(), events.size());
+        assertEquals(RecordingClickSink.Type.MOVE, events.get(macro.length()).type());
+        assertEquals(ClickConfig.buttonMask(ClickType.LEFT), events.get(events.size() - 1).buttonMask());
+        assertEquals(8, job.getTelemetry().getClicks());
+    }
+
+    @Test
+    void testMacroJobWaitsBeforeFirstPass() throws Exception {
+        CompiledMacro macro = MacroCompiler.compile("wait 50\nclick left");
+        long started = System.nanoTime();
+        ClickJob job = engine.submit("macro", config(ClickType.LEFT, false, 2, 100, false).withMacro(macro));
+
+        assertEquals(2L, job.finished().get(5, TimeUnit.SECONDS));
+        List<RecordingClickSink.Event> events = sink.getEvents();
+        long ms = TimeUnit.MILLISECONDS.toNanos(1);
+        assertTrue(events.get(0).nanoTime() - started >= 50 * ms, "first press after " + (events.get(0).nanoTime() - started));
+        assertTrue(events.get(2).nanoTime() - started >= 100 * ms, "second press after " + (events.get(2).nanoTime() - started));
+    }
+
+    @Test
+    void testClicksInterleaveInDeadlineOrder() throws Exception {
+        ClickJob fast = engine.submit("fast", config(ClickType.LEFT, false, 10, 10, false));
+        ClickJob slow = engine.submit("slow", config(ClickType.RIGHT, false, 4, 25, false));
+        fast.finished().get(5, TimeUnit.SECONDS);
+        slow.finished().get(5, TimeUnit.SECONDS);
+
+        // fast is due at 0, 10, 20 ... 90 ms and slow a hair later at 0, 25, 50, 75 ms
+        List<Integer> expected = new ArrayList<>();
+        int f = 0, s = 0;
+        while (f < 10 || s < 4) {
+            if (s >= 4 || (f < 10 && f * 10 <= s * 25)) {
+                expected.add(InputEvent.BUTTON1_DOWN_MASK);
+                f++;
+            } else {
+                expected.add(InputEvent.BUTTON3_DOWN_MASK);
+                s++;
+            }
+        }
+        List<Integer> actual = sink.getEvents().stream()
+                .filter(e -> e.type() == RecordingClickSink.Type.PRESS)
+                .map(RecordingClickSink.Event::buttonMask)
+                .toList();
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void testCancelEndsOnlyThatJob() throws Exception {
+        ClickJob keep = engine.submit("keep", config(ClickType.LEFT, true, 0, 1, false));
+        ClickJob drop = engine.submit("drop", config(ClickType.RIGHT, true, 0, 1, false));
+        waitFor(() -> drop.getTelemetry().getClicks() >= 3);
+
+        drop.cancel();
+        long dropped = drop.finished().get(5, TimeUnit.SECONDS);
+        long keptBefore = keep.getTelemetry().getClicks();
+        waitFor(() -> keep.getTelemetry().getClicks() > keptBefore + 3);
+
+        assertFalse(drop.isRunning());
+        assertTrue(keep.isRunning());
+        assertEquals(dropped, drop.getTelemetry().getClicks());
+        assertEquals(List.of(keep), engine.getJobs());
+    }
+
+    @Test
+    void testUpdateConfigRetimesPendingClick() throws Exception {
+        ClickJob job = engine.submit("slow", config(ClickType.LEFT, true, 0, 10_000, false));
+        waitFor(() -> job.getTelemetry().getClicks() >= 1);
+
+        job.updateConfig(config(ClickType.MIDDLE, true, 0, 1, false));
+        waitFor(() -> job.getTelemetry().getClicks() >= 5);
+
+        List<RecordingClickSink.Event> events = sink.getEvents();
+        assertEquals(InputEvent.BUTTON2_DOWN_MASK, events.get(events.size() - 1).buttonMask());
+        job.cancel();
+    }
+
+    @Test
+    void testHundredsOfJobsShareOneThread() throws Exception {
+        int jobCount = 300;
+        List<ClickJob> jobs = new ArrayList<>();
+        for (int i = 0; i < jobCount; i++) {
+            jobs.add(engine.submit("job" + i, config(ClickType.LEFT, false, 5, 1 + i % 7, false)));
+        }
+        for (ClickJob job : jobs) {
+            assertEquals(5L, job.finished().get(10, TimeUnit.SECONDS));
+        }
+
+        assertEquals(jobCount * 5, sink.getClickCount());
+        long wheelThreads = Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().equals("jclicker-timer-wheel"))
+                .count();
+        assertTrue(wheelThreads <= 1, "timing threads: " + wheelThreads);
+    }
+
+    @Test
+    void testClicksAreNeverEarly() throws Exception {
+        ClickJob job = engine.submit("job", config(ClickType.LEFT, false, 30, 2, false));
+        job.finished().get(5, TimeUnit.SECONDS);
+
+        List<RecordingClickSink.Event> presses = sink.getEvents().stream()
+                .filter(e -> e.type() == RecordingClickSink.Type.PRESS)
+                .toList();
+        long first = presses.get(0).nanoTime();
+        for (int i = 1; i < presses.size(); i++) {
+            long offset = presses.get(i).nanoTime() - first;
+            assertTrue(offset >= (i - 1) * 2_000_000L, "click " + i + " at " + offset);
+        }
+    }
+
+    @Test
+    void testSinkFactoryFailureFailsJob() {
+        MultiClickEngine failing = new MultiClickEngine(() -> {
+            throw new IllegalStateException("no display");
+        });
+        try {
+            CompletableFuture<Long> finished = failing.submit("x", config(ClickType.LEFT, true, 0, 1, false)).finished();
+            ExecutionException e = assertThrows(ExecutionException.class, () -> finished.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        } finally {
+            failing.shutdown();
+        }
+    }
+
+    @Test
+    void testJobsClickThroughTheirOwnBackend() throws Exception {
+        RecordingClickSink other = new RecordingClickSink();
+        ClickBackend backend = new ClickBackend() {
+            @Override public String name() {return "test";}
+            @Override public String description() {return "test";}
+            @Override public boolean postsInput() {return false;}
+            @Override public ClickSink create() {return other;}
+        };
+
+        ClickJob own = engine.submit("own", config(ClickType.LEFT, false, 4, 0.5, false).withBackend(backend));
+        ClickJob plain = engine.submit("plain", config(ClickType.RIGHT, false, 3, 0.5, false));
+
+        assertEquals(4L, own.finished().get(5, TimeUnit.SECONDS));
+        assertEquals(3L, plain.finished().get(5, TimeUnit.SECONDS));
+        assertEquals(4, other.getClickCount());
+        assertEquals(3, sink.getClickCount());
+    }
+
+    @Test
+    void testShutdownEndsRunningJobs() throws Exception {
+        ClickJob job = engine.submit("job", config(ClickType.LEFT, true, 0, 1_000, false));
+        waitFor(() -> job.getTelemetry().getClicks() >= 1);
+
+        engine.shutdown();
+
+        assertEquals(1L, job.finished().get(5, TimeUnit.SECONDS));
+        assertThrows(IllegalStateException.class, () -> engine.submit("late", config(ClickType.LEFT, true, 0, 1, false)));
+    }
+
+    @Test
+    void testTriggeredJobSkipsClicksUntilMatched() throws Exception {
+        ImageFrameSource screen = new ImageFrameSource(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB));
+        PixelTrigger white = PixelTrigger.color(0, 0, 0xFFFFFF, 0).withPollNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        ClickConfig triggered = config(ClickType.LEFT, false, 10, 1, false).withTrigger(white);
+        assertThrows(IllegalStateException.class, () -> engine.submit("plain", triggered));
+
+        try (TriggerMonitor monitor = new TriggerMonitor(() -> screen)) {
+            MultiClickEngine gated = new MultiClickEngine(() -> sink, monitor);
+            try {
+                ClickJob job = gated.submit("gated", triggered);
+                Thread.sleep(30);
+                assertEquals(0, sink.getClickCount());
+                assertTrue(job.isRunning());
+
+                screen.getImage().setRGB(0, 0, 0xFFFFFF);
+                assertEquals(10L, job.finished().get(5, TimeUnit.SECONDS));
+                assertEquals(0, monitor.getWatchCount());
+            } finally {
+                gated.shutdown();
+            }
+        }
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(1);
+        }
+    }
+}
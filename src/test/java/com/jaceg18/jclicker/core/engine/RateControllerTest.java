@@ -0,0 +1,129 @@
+package com.jaceg18.jclicker.core.engine;
+
+import com.jaceg18.jclicker.util.ClickType;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.jaceg18.jclicker.core.engine.ClickEngineTest.config;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateControllerTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Clicks on a simulated clock: one click falls due every period the controller asks for,
+     * every {@code loseEvery}-th of them goes missing, and none come closer together than
+     * {@code minGapNanos}.
+     */
+    private static final class Plant {
+        final RateController rate;
+        long now;
+        long lastClick = Long.MIN_VALUE / 2;
+        long ticks;
+
+        Plant(RateController rate) {
+            this.rate = rate;
+        }
+
+        void run(long nanos, int loseEvery, long minGapNanos) {
+            long end = now + nanos;
+            while (now < end) {
+                now = Math.max(now + rate.getPeriodNanos(), lastClick + minGapNanos);
+                if (loseEvery > 0 && ++ticks % loseEvery == 0) continue;
+                lastClick = now;
+                rate.onClick(now);
+            }
+        }
+    }
+
+    @Test
+    void testMakesUpForLostClicks() {
+        RateController rate = new RateController(100);
+        assertEquals(10 * MS, rate.getTargetPeriodNanos());
+        assertTrue(Double.isNaN(rate.getSteadyStateError()));
+
+        Plant plant = new Plant(rate);
+        plant.run(TimeUnit.SECONDS.toNanos(10), 5, 0);
+
+        // One click in five is lost, so the period settles at four fifths of the target's
+        assertEquals(8 * MS, rate.getPeriodNanos(), 0.02 * 8 * MS);
+        assertEquals(0, rate.getSteadyStateError(), 0.01);
+    }
+
+    @Test
+    void testLeavesAnAccurateScheduleAlone() {
+        RateController rate = new RateController(250);
+        new Plant(rate).run(TimeUnit.SECONDS.toNanos(5), 0, 0);
+
+        assertEquals(rate.getTargetPeriodNanos(), rate.getPeriodNanos());
+        assertEquals(0, rate.getSteadyStateError(), 1e-9);
+    }
+
+    @Test
+    void testReportsUnreachableRateAndRecovers() {
+        RateController rate = new RateController(100);
+        Plant plant = new Plant(rate);
+        // The machine cannot click faster than 50 CPS
+        plant.run(TimeUnit.SECONDS.toNanos(10), 0, 20 * MS);
+
+        assertEquals(0.5, rate.getSteadyStateError(), 0.01);
+        assertEquals(Math.round(10 * MS / RateController.MAX_SPEED_UP), rate.getPeriodNanos());
+
+        // Once it can, the clamped integral lets the period come straight back
+        plant.run(TimeUnit.SECONDS.toNanos(3), 0, 0);
+        assertEquals(10 * MS, rate.getPeriodNanos(), 0.02 * 10 * MS);
+    }
+
+    @Test
+    void testRestartDropsTheWindow() {
+        RateController rate = new RateController(100);
+        long now = 0;
+        for (int i = 0; i < 10; i++) rate.onClick(now += 10 * MS);
+        // A long trigger pause must not count as a shortfall
+        rate.restart();
+        now += TimeUnit.SECONDS.toNanos(5);
+        for (int i = 0; i < 100; i++) rate.onClick(now += 10 * MS);
+
+        assertEquals(0, rate.getSteadyStateError(), 1e-9);
+        assertEquals(10 * MS, rate.getPeriodNanos());
+    }
+
+    @Test
+    void testFollowKeepsControllerForSameTarget() {
+        ClickConfig plain = config(ClickType.LEFT, true, 0, 10, false);
+        assertNull(RateController.follow(null, plain));
+
+        ClickConfig rated = plain.withTargetCps(50);
+        RateController rate = RateController.follow(null, rated);
+        assertNotNull(rate);
+        assertSame(rate, RateController.follow(rate, rated.withDelayMs(3).withTargetCps(50)));
+        assertNotSame(rate, RateController.follow(rate, rated.withTargetCps(60)));
+        assertNull(RateController.follow(rate, rated.withDelayMs(20)));
+
+        assertEquals(20 * MS, rated.periodNanos());
+        assertEquals(0, rated.withDelayMs(20).targetCps());
+        assertThrows(IllegalArgumentException.class, () -> plain.withTargetCps(-1));
+        assertThrows(IllegalArgumentException.class, () -> plain.withTargetCps(Double.NaN));
+    }
+
+    @Test
+    void testEngineReportsRateError() throws Exception {
+        RecordingClickSink sink = new RecordingClickSink();
+        ClickEngine engine = new ClickEngine(() -> sink);
+        try {
+            ClickConfig config = config(ClickType.LEFT, false, 200, 1_000, false).withTargetCps(400);
+            assertEquals(200, engine.runNow(config, sink));
+
+            ClickTelemetry.Snapshot stats = engine.getTelemetry().snapshot();
+            assertFalse(Double.isNaN(stats.rateError()), "no window closed");
+            assertEquals(0, stats.rateError(), 0.2);
+            assertTrue(stats.toStatusString().contains("rate error"), stats.toStatusString());
+            // The 1 s delay is ignored in favour of the rate
+            assertTrue(stats.achievedCps() > 100, "achieved " + stats.achievedCps());
+        } finally {
+            engine.shutdown();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.jaceg18.jclicker.core.engine;
+
+import com.jaceg18.jclicker.util.ClickType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import static com.jaceg18.jclicker.core.engine.ClickEngineTest.config;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTest {
+
+    private final PriorityQueue<ClickJob> due = new PriorityQueue<>(Comparator.comparingLong(ClickJob::deadline));
+
+    @Test
+    void testJobIsDueInTheTickCoveringItsDeadline() {
+        TimerWheel wheel = new TimerWheel(0, 100, 8);
+        ClickJob job = job(250);
+        assertTrue(wheel.schedule(job));
+
+        wheel.expire(2, due);
+        assertTrue(due.isEmpty());
+        assertEquals(3, wheel.nextOccupiedTick());
+
+        wheel.expire(3, due);
+        assertSame(job, due.poll());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testLaterRevolutionsStayFiled() {
+        TimerWheel wheel = new TimerWheel(0, 100, 8);
+        ClickJob job = job(100 * 20);
+        wheel.schedule(job);
+
+        for (long tick = 1; tick < 20; tick++) {
+            wheel.expire(tick, due);
+            assertTrue(due.isEmpty(), "due at tick " + tick);
+        }
+        wheel.expire(20, due);
+        assertSame(job, due.poll());
+    }
+
+    @Test
+    void testLongStallExpiresEverythingOnce() {
+        TimerWheel wheel = new TimerWheel(0, 100, 8);
+        for (int i = 1; i <= 30; i++) {
+            wheel.schedule(job(i * 100L));
+        }
+
+        wheel.expire(1_000, due);
+
+        assertEquals(30, due.size());
+        assertEquals(0, wheel.size());
+        assertEquals(-1, wheel.nextOccupiedTick());
+    }
+
+    @Test
+    void testPastDeadlineIsNotFiled() {
+        TimerWheel wheel = new TimerWheel(0, 100, 8);
+        wheel.expire(5, due);
+
+        assertFalse(wheel.schedule(job(450)));
+        assertTrue(wheel.schedule(job(501)));
+    }
+
+    @Test
+    void testRemove() {
+        TimerWheel wheel = new TimerWheel(0, 100, 8);
+        ClickJob a = job(300);
+        ClickJob b = job(300);
+        wheel.schedule(a);
+        wheel.schedule(b);
+
+        wheel.remove(a);
+        wheel.remove(a);
+        wheel.expire(3, due);
+
+        assertEquals(1, due.size());
+        assertSame(b, due.poll());
+    }
+
+    @Test
+    void testRejectsWheelSizeThatIsNotAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new TimerWheel(0, 100, 12));
+    }
+
+    private static ClickJob job(long deadline) {
+        ClickJob job = new ClickJob(null, 0, "test", config(ClickType.LEFT, true, 0, 1, false), 0);
+        job.scheduler = new ClickScheduler(1_000_000L, ClickScheduler.OverrunPolicy.CATCH_UP);
+        job.scheduler.start(deadline);
+        return job;
+    }
+}
@@ -0,0 +1,127 @@
+package com.jaceg18.jclicker.core.input;
+
+import com.github.kwhat.jnativehook.keyboard.NativeKeyEvent;
+import com.github.kwhat.jnativehook.mouse.NativeMouseEvent;
+import com.jaceg18.jclicker.core.engine.ClickSink;
+import com.jaceg18.jclicker.core.engine.NoOpClickSink;
+import com.jaceg18.jclicker.core.engine.RecordingClickSink;
+import org.junit.jupiter.api.Test;
+
+import java.awt.GraphicsEnvironment;
+import java.awt.Point;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClickBackendsTest {
+
+    @Test
+    void testServiceLoaderFindsEveryBackend() {
+        assertEquals(List.of("robot", "jnativehook", "noop", "recording"),
+                ClickBackends.all().stream().map(ClickBackend::name).toList());
+        assertEquals(ClickBackends.DEFAULT, ClickBackends.all().get(0).name());
+        assertSame(ClickBackends.find("noop"), ClickBackends.find("noop"));
+        assertTrue(ClickBackends.find("robot").postsInput());
+        assertTrue(ClickBackends.find("jnativehook").postsInput());
+        assertFalse(ClickBackends.find("noop").postsInput());
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ClickBackends.find("printer"));
+        assertTrue(e.getMessage().contains("robot, jnativehook, noop, recording"), e.getMessage());
+    }
+
+    @Test
+    void testStandInsCreateTheirSinks() throws Exception {
+        assertSame(NoOpClickSink.INSTANCE, ClickBackends.find("noop").create());
+        ClickSink recording = ClickBackends.find("recording").create();
+        assertInstanceOf(RecordingClickSink.class, recording);
+        assertNotSame(recording, ClickBackends.find("recording").create());
+    }
+
+    @Test
+    void testBenchmarkMeasuresEveryBackend() {
+        List<BackendBenchmark.Result> results = BackendBenchmark.run(ClickBackends.all(), 500);
+
+        assertEquals(4, results.size());
+        for (BackendBenchmark.Result result : results) {
+            if (!result.backend().postsInput()) {
+                assertTrue(result.isAvailable(), result.toString());
+                assertEquals(500, result.cost().count());
+                assertTrue(result.eventsPerSecond() > 0, result.toString());
+            } else if (GraphicsEnvironment.isHeadless()) {
+                // Nothing can post input without a display; the report says why instead of failing
+                assertFalse(result.isAvailable(), result.toString());
+                assertFalse(result.error().contains("\n"), result.error());
+            }
+        }
+        String report = BackendBenchmark.report(results);
+        assertEquals(5, report.lines().count(), report);
+        if (GraphicsEnvironment.isHeadless()) {
+            assertNull(BackendBenchmark.recommend(results));
+            assertTrue(report.endsWith("No backend that posts input works here."), report);
+        }
+    }
+
+    @Test
+    void testRecommendsFastestBackendThatPostsInput() {
+        ClickBackend slow = new FakeBackend("slow", true, 20_000);
+        ClickBackend fast = new FakeBackend("fast", true, 0);
+        ClickBackend standIn = new FakeBackend("stand-in", false, 0);
+        ClickBackend broken = new ClickBackend() {
+            @Override public String name(){return "broken";}
+            @Override public String description(){return "broken";}
+            @Override public boolean postsInput(){return true;}
+            @Override public ClickSink create(){throw new UnsatisfiedLinkError("no library");}
+        };
+
+        List<BackendBenchmark.Result> results = BackendBenchmark.run(List.of(slow, broken, standIn, fast), 200, new Point(5, 5));
+
+        BackendBenchmark.Result best = BackendBenchmark.recommend(results);
+        assertNotNull(best);
+        assertSame(fast, best.backend());
+        assertFalse(results.get(1).isAvailable());
+        assertEquals("no library", results.get(1).error());
+        assertTrue(results.get(0).cost().p50() >= 20_000, results.get(0).toString());
+        assertTrue(BackendBenchmark.report(results).endsWith("Recommended: fast (fast)"));
+        assertThrows(IllegalArgumentException.class, () -> BackendBenchmark.measure(fast, 0));
+    }
+
+    @Test
+    void testNativeHookMapping() {
+        assertEquals(NativeMouseEvent.BUTTON1, NativeHookClickSink.nativeButton(InputEvent.BUTTON1_DOWN_MASK));
+        // AWT's button 2 is the middle button, JNativeHook's the right one
+        assertEquals(NativeMouseEvent.BUTTON2, NativeHookClickSink.nativeButton(InputEvent.BUTTON3_DOWN_MASK));
+        assertEquals(NativeMouseEvent.BUTTON3, NativeHookClickSink.nativeButton(InputEvent.BUTTON2_DOWN_MASK));
+        assertEquals(NativeMouseEvent.NOBUTTON, NativeHookClickSink.nativeButton(0x41));
+
+        assertEquals(NativeKeyEvent.VC_A, NativeHookClickSink.nativeKeyCode(KeyEvent.VK_A));
+        assertEquals(NativeKeyEvent.VC_ENTER, NativeHookClickSink.nativeKeyCode(KeyEvent.VK_ENTER));
+        assertEquals(NativeKeyEvent.VC_F6, NativeHookClickSink.nativeKeyCode(KeyEvent.VK_F6));
+        assertEquals(NativeKeyEvent.VC_UNDEFINED, NativeHookClickSink.nativeKeyCode(KeyEvent.VK_UNDEFINED));
+    }
+
+    /** Stands in for a backend that posts input, spending {@code costNanos} per event. */
+    private record FakeBackend(String name, boolean postsInput, long costNanos) implements ClickBackend {
+        @Override
+        public String description(){return name;}
+
+        @Override
+        public ClickSink create(){
+            return new ClickSink() {
+                @Override
+                public void mouseMove(int x, int y){
+                    long end = System.nanoTime() + costNanos;
+                    while (System.nanoTime() < end) LockSupport.parkNanos(1);
+                }
+
+                @Override
+                public void mousePress(int buttonMask){}
+
+                @Override
+                public void mouseRelease(int buttonMask){}
+            };
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.jaceg18.jclicker.core.record;
+
+import com.github.kwhat.jnativehook.keyboard.NativeKeyEvent;
+import com.github.kwhat.jnativehook.mouse.NativeMouseEvent;
+import com.jaceg18.jclicker.core.engine.ClickConfig;
+import com.jaceg18.jclicker.core.engine.ClickEngine;
+import com.jaceg18.jclicker.core.engine.CompiledMacro;
+import com.jaceg18.jclicker.core.engine.RecordingClickSink;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InputLogTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRecordingCompilesToMacro() throws IOException {
+        Path file = record(
+                new long[]{InputLog.RELEASE, 5, 5, NativeMouseEvent.BUTTON1, 0},       // held before recording
+                new long[]{InputLog.MOVE, 10, 20, 0, 1_000_000},
+                new long[]{InputLog.PRESS, 10, 20, NativeMouseEvent.BUTTON2, 2_000_000},
+                new long[]{InputLog.RELEASE, 30, 40, NativeMouseEvent.BUTTON2, 3_000_000},
+                new long[]{InputLog.KEY_PRESS, 0, 0, NativeKeyEvent.VC_A, 4_000_000},
+                new long[]{InputLog.PRESS, 30, 40, NativeMouseEvent.BUTTON3, 5_000_000});  // still held
+
+        CompiledMacro macro = InputLog.toMacro(file);
+
+        assertNull(macro.source());
+        byte[] ops = {CompiledMacro.MOVE, CompiledMacro.PRESS, CompiledMacro.MOVE, CompiledMacro.RELEASE,
+                CompiledMacro.KEY_PRESS, CompiledMacro.PRESS, CompiledMacro.RELEASE, CompiledMacro.KEY_RELEASE};
+        assertEquals(ops.length, macro.length());
+        for (int i = 0; i < ops.length; i++) {
+            assertEquals(ops[i], macro.op(i), "step " + i);
+        }
+        assertEquals(InputEvent.BUTTON3_DOWN_MASK, macro.mask(1));
+        assertEquals(30, macro.x(2));
+        assertEquals(KeyEvent.VK_A, macro.mask(4));
+        assertEquals(InputEvent.BUTTON2_DOWN_MASK, macro.mask(5));
+        assertEquals(InputEvent.BUTTON2_DOWN_MASK, macro.mask(6));
+        // The dropped release's delay still counts towards the first step
+        assertTrue(macro.nanos(0) >= 1_000_000L);
+        assertEquals(1_000_000L, macro.nanos(1));
+        assertEquals(1_000_000L, macro.nanos(2));
+        assertEquals(0, macro.nanos(3));
+        assertEquals(macro.nanos(0) + 4_000_000L, macro.passNanos());
+    }
+
+    @Test
+    void testReplayKeepsRecordedTiming() throws Exception {
+        Path file = record(
+                new long[]{InputLog.MOVE, 1, 2, 0, 0},
+                new long[]{InputLog.PRESS, 1, 2, NativeMouseEvent.BUTTON1, 3_000_000},
+                new long[]{InputLog.RELEASE, 1, 2, NativeMouseEvent.BUTTON1, 4_000_000},
+                new long[]{InputLog.MOVE, 50, 60, 0, 10_000_000});
+        CompiledMacro macro = InputLog.toMacro(file);
+
+        RecordingClickSink sink = new RecordingClickSink();
+        ClickEngine engine = new ClickEngine(() -> sink);
+        long started = System.nanoTime();
+        try {
+            ClickConfig config = ClickConfig.builder().repeatUntilStopped(false).repeatTimes(1).macro(macro).build();
+            assertEquals(1, engine.runNow(config, sink));
+        } finally {
+            engine.shutdown();
+        }
+
+        List<RecordingClickSink.Event> events = sink.getEvents();
+        assertEquals(4, events.size());
+        assertEquals(RecordingClickSink.Type.MOVE, events.get(3).type());
+        assertEquals(60, events.get(3).y());
+        assertTrue(events.get(3).nanoTime() - started >= 10_000_000L);
+    }
+
+    @Test
+    void testRejectsOtherFiles() throws IOException {
+        Path file = tempDir.resolve("other" + InputLog.EXTENSION);
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+        assertThrows(IOException.class, () -> InputLog.open(file));
+
+        Path empty = record(new long[]{InputLog.RELEASE, 0, 0, NativeMouseEvent.BUTTON1, 0});
+        assertThrows(IOException.class, () -> InputLog.toMacro(empty));
+    }
+
+    /** Writes events given as {type, x, y, code, nanos after start}. */
+    private Path record(long[]... events) throws IOException {
+        Path file = Files.createTempFile(tempDir, "rec", InputLog.EXTENSION);
+        InputRecorder recorder = new InputRecorder(64);
+        recorder.start(file);
+        long start = System.nanoTime();
+        for (long[] e : events) {
+            recorder.record((byte) e[0], (int) e[1], (int) e[2], (int) e[3], start + e[4]);
+        }
+        assertEquals(events.length, recorder.stop().events());
+        return file;
+    }
+}
@@ -0,0 +1,139 @@
+package com.jaceg18.jclicker.core.record;
+
+import com.github.kwhat.jnativehook.keyboard.NativeKeyEvent;
+import com.github.kwhat.jnativehook.mouse.NativeMouseEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InputRecorderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final InputRecorder recorder = new InputRecorder(1024);
+
+    @AfterEach
+    void tearDown() throws IOException {
+        recorder.stop();
+    }
+
+    @Test
+    void testEventsRoundTripThroughFile() throws IOException {
+        Path file = tempDir.resolve("sub").resolve("a" + InputLog.EXTENSION);
+        recorder.start(file);
+        long t = System.nanoTime();
+        recorder.record(InputLog.MOVE, 100, 200, 0, t + 1_000);
+        recorder.record(InputLog.PRESS, 90, 210, NativeMouseEvent.BUTTON1, t + 5_000_000);
+        recorder.record(InputLog.KEY_PRESS, 0, 0, NativeKeyEvent.VC_A, t + 5_000_100);
+        recorder.record(InputLog.RELEASE, -4000, 3, NativeMouseEvent.BUTTON1, t + 3_000_000_000L);
+
+        InputRecorder.Summary summary = recorder.stop();
+        assertEquals(4, summary.events());
+        assertEquals(0, summary.dropped());
+        assertEquals(Files.size(file), summary.bytes());
+
+        try (InputLog.Reader in = InputLog.open(file)) {
+            assertTrue(in.next());
+            assertEquals(InputLog.MOVE, in.type());
+            assertEquals(100, in.x());
+            assertEquals(200, in.y());
+
+            assertTrue(in.next());
+            assertEquals(InputLog.PRESS, in.type());
+            assertEquals(5_000_000 - 1_000, in.deltaNanos());
+            assertEquals(90, in.x());
+            assertEquals(210, in.y());
+            assertEquals(NativeMouseEvent.BUTTON1, in.code());
+
+            assertTrue(in.next());
+            assertEquals(InputLog.KEY_PRESS, in.type());
+            assertEquals(100, in.deltaNanos());
+            assertEquals(NativeKeyEvent.VC_A, in.code());
+
+            assertTrue(in.next());
+            assertEquals(InputLog.RELEASE, in.type());
+            assertEquals(-4000, in.x());
+            assertEquals(3, in.y());
+            assertEquals(3_000_000_000L - 5_000_100, in.deltaNanos());
+
+            assertFalse(in.next());
+        }
+    }
+
+    @Test
+    void testMovesEncodeCompactly() throws IOException {
+        Path file = tempDir.resolve("moves" + InputLog.EXTENSION);
+        recorder.start(file);
+        long t = System.nanoTime();
+        for (int i = 0; i < 500; i++) {
+            recorder.record(InputLog.MOVE, 500 + i, 500 - i, 0, t + i * 8_000_000L);
+            if (i % 100 == 99) waitForDrain();
+        }
+        InputRecorder.Summary summary = recorder.stop();
+
+        assertEquals(500, summary.events());
+        // 1 type byte + 4-byte delta + 1 byte per coordinate delta
+        assertTrue(summary.bytes() <= InputLog.HEADER_SIZE + 500 * 7 + 10, "file is " + summary.bytes() + " bytes");
+    }
+
+    @Test
+    void testFullRingDropsInsteadOfBlocking() throws IOException {
+        InputRecorder tiny = new InputRecorder(16);
+        tiny.start(tempDir.resolve("tiny" + InputLog.EXTENSION));
+        try {
+            long t = System.nanoTime();
+            // The writer drains every few milliseconds, far slower than this loop
+            for (int i = 0; i < 10_000; i++) {
+                tiny.record(InputLog.MOVE, i, i, 0, t + i);
+            }
+        } finally {
+            InputRecorder.Summary summary = tiny.stop();
+            assertEquals(10_000, summary.events() + summary.dropped());
+            assertTrue(summary.dropped() > 0);
+        }
+    }
+
+    @Test
+    void testTruncatedRecordingReadsUpToLastCompleteEvent() throws IOException {
+        Path file = tempDir.resolve("cut" + InputLog.EXTENSION);
+        recorder.start(file);
+        long t = System.nanoTime();
+        recorder.record(InputLog.MOVE, 1, 1, 0, t);
+        recorder.record(InputLog.MOVE, 100_000, 100_000, 0, t + 1_000_000_000L);
+        recorder.stop();
+
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length - 1));
+        try (InputLog.Reader in = InputLog.open(file)) {
+            assertTrue(in.next());
+            assertFalse(in.next());
+        }
+    }
+
+    @Test
+    void testEventsOutsideARecordingAreIgnored() throws IOException {
+        recorder.record(InputLog.MOVE, 1, 1, 0, System.nanoTime());
+        Path file = tempDir.resolve("late" + InputLog.EXTENSION);
+        recorder.start(file);
+        recorder.record(InputLog.MOVE, 2, 2, 0, System.nanoTime());
+
+        assertEquals(1, recorder.stop().events());
+        assertNull(recorder.stop());
+        assertFalse(recorder.isRecording());
+    }
+
+    private void waitForDrain() {
+        try {
+            Thread.sleep(10);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
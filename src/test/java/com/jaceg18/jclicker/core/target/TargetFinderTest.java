@@ -0,0 +1,165 @@
+package com.jaceg18.jclicker.core.target;
+
+import com.jaceg18.jclicker.core.trigger.ImageFrameSource;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TargetFinderTest {
+
+    @Test
+    void testIntegralSumsMatchBruteForce() {
+        GrayImage image = new GrayImage();
+        int[] rgb = new int[23 * 17];
+        Random random = new Random(1);
+        for (int i = 0; i < rgb.length; i++) rgb[i] = random.nextInt(0x1000000);
+        image.wrapRgb(rgb, 23, 17);
+        image.integrate();
+
+        for (int trial = 0; trial < 200; trial++) {
+            int x = random.nextInt(23);
+            int y = random.nextInt(17);
+            int w = 1 + random.nextInt(23 - x);
+            int h = 1 + random.nextInt(17 - y);
+            long expected = 0;
+            for (int yy = y; yy < y + h; yy++) {
+                for (int xx = x; xx < x + w; xx++) expected += image.pixels[yy * 23 + xx];
+            }
+            assertEquals(expected, image.sum(x, y, w, h));
+        }
+    }
+
+    @Test
+    void testCandidatesKeepTheBestSeparatedPositions() {
+        TemplateMatcher.Candidates candidates = new TemplateMatcher.Candidates(3);
+        candidates.offer(10, 10, 50);
+        candidates.offer(11, 10, 40);
+        candidates.offer(30, 30, 60);
+        candidates.offer(50, 50, 10);
+        candidates.offer(70, 70, 100);
+
+        assertEquals(3, candidates.size);
+        assertArrayEquals(new long[]{10, 40, 60}, candidates.difference);
+        assertEquals(11, candidates.x[1]);
+        assertEquals(60, candidates.bound());
+    }
+
+    @Test
+    void testFindsTemplateAndReusesTheLastHit() throws Exception {
+        BufferedImage screen = scene(640, 360, 7);
+        Template template = Template.of(screen.getSubimage(401, 203, 64, 48), "button", Template.DEFAULT_TOLERANCE);
+        assertEquals(3, template.levels.length);
+        TargetFinder finder = new TargetFinder(new ImageFrameSource(screen));
+
+        Match match = finder.locate(template);
+        assertNotNull(match);
+        assertEquals(401, match.x());
+        assertEquals(203, match.y());
+        assertEquals(0.0, match.difference());
+        assertEquals(433, match.centerX());
+        assertEquals(1, finder.getFullSearches());
+
+        match = finder.locate(template);
+        assertEquals(401, match.x());
+        assertEquals(1, finder.getWindowHits());
+        assertEquals(1, finder.getFullSearches());
+        assertEquals(2, finder.getLookupLatency().getCount());
+
+        // Moved a few pixels: still inside the window around the last hit
+        BufferedImage button = copyOf(screen.getSubimage(401, 203, 64, 48));
+        screen.createGraphics().drawImage(scene(64, 48, 99), 401, 203, null);
+        screen.createGraphics().drawImage(button, 409, 198, null);
+        match = finder.locate(template);
+        assertNotNull(match);
+        assertEquals(409, match.x());
+        assertEquals(198, match.y());
+        assertEquals(2, finder.getWindowHits());
+        assertEquals(1, finder.getFullSearches());
+    }
+
+    @Test
+    void testFallsBackToFullSearchWhenTheTargetMovesAway() throws Exception {
+        BufferedImage screen = scene(640, 360, 11);
+        BufferedImage button = copyOf(screen.getSubimage(100, 50, 40, 40));
+        Template template = Template.of(button, "button", Template.DEFAULT_TOLERANCE);
+        ImageFrameSource source = new ImageFrameSource(screen);
+        TargetFinder finder = new TargetFinder(source);
+        assertEquals(100, finder.locate(template).x());
+
+        // Paint over the old spot and put the button elsewhere
+        screen.createGraphics().drawImage(scene(40, 40, 99), 100, 50, null);
+        screen.createGraphics().drawImage(button, 517, 287, null);
+        Match match = finder.locate(template);
+        assertNotNull(match);
+        assertEquals(517, match.x());
+        assertEquals(287, match.y());
+        assertEquals(2, finder.getFullSearches());
+        assertEquals(0, finder.getWindowHits());
+    }
+
+    @Test
+    void testMissingTargetIsNotFound() throws Exception {
+        Template template = Template.of(scene(32, 32, 3), "elsewhere", Template.DEFAULT_TOLERANCE);
+        TargetFinder finder = new TargetFinder(new ImageFrameSource(scene(320, 200, 4)));
+
+        assertNull(finder.locate(template));
+        assertNull(finder.locate(template));
+        assertEquals(2, finder.getFullSearches());
+
+        Template huge = Template.of(scene(400, 40, 3), "wide", Template.DEFAULT_TOLERANCE);
+        assertNull(finder.locate(huge));
+    }
+
+    @Test
+    void testToleranceAllowsSlightlyDifferentPixels() throws Exception {
+        BufferedImage screen = scene(320, 200, 5);
+        BufferedImage button = copyOf(screen.getSubimage(60, 70, 32, 32));
+        // Brighten the screen copy a little, as anti-aliasing or a hover effect would
+        for (int y = 70; y < 102; y++) {
+            for (int x = 60; x < 92; x++) {
+                int p = screen.getRGB(x, y);
+                screen.setRGB(x, y, p + (x % 3 == 0 ? 0x080808 : 0));
+            }
+        }
+        TargetFinder finder = new TargetFinder(new ImageFrameSource(screen));
+
+        Match match = finder.locate(Template.of(button, "button", 8));
+        assertNotNull(match);
+        assertEquals(60, match.x());
+        assertTrue(match.difference() > 0);
+        assertNull(finder.locate(Template.of(button, "button", 1)));
+    }
+
+    @Test
+    void testRejectsUnusableImages() {
+        assertThrows(IllegalArgumentException.class, () -> Template.of(scene(3, 20, 1), "tiny", 10));
+        assertThrows(IllegalArgumentException.class, () -> Template.of(scene(600, 20, 1), "wide", 10));
+        assertThrows(IllegalArgumentException.class, () -> Template.of(scene(20, 20, 1), "odd", 256));
+    }
+
+    /** Blocks of colour with some noise on top, roughly what a UI looks like to the matcher. */
+    static BufferedImage scene(int width, int height, long seed) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int block = 6;
+        int[] colours = new int[((width + block - 1) / block) * ((height + block - 1) / block)];
+        for (int i = 0; i < colours.length; i++) colours[i] = random.nextInt(0x1000000);
+        int columns = (width + block - 1) / block;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int noise = random.nextInt(8) * 0x010101;
+                image.setRGB(x, y, (colours[(y / block) * columns + x / block] & 0xF8F8F8) + noise);
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage copyOf(BufferedImage image) {
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        copy.createGraphics().drawImage(image, 0, 0, null);
+        return copy;
+    }
+}
@@ -0,0 +1,74 @@
+package com.jaceg18.jclicker.core.trigger;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PixelTriggerTest {
+
+    @Test
+    void testParsesEveryKind() {
+        PixelTrigger color = PixelTrigger.parse("color 10 20 #FF8000 tolerance 12");
+        assertEquals(PixelTrigger.Type.COLOR, color.type());
+        assertEquals(10, color.x());
+        assertEquals(20, color.y());
+        assertEquals(1, color.width());
+        assertEquals(0xFF8000, color.rgb());
+        assertEquals(12, color.tolerance());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(PixelTrigger.DEFAULT_POLL_MS), color.pollNanos());
+
+        PixelTrigger changed = PixelTrigger.parse("  CHANGED 0 0 64 32 every 5 ");
+        assertEquals(PixelTrigger.Type.CHANGED, changed.type());
+        assertEquals(64, changed.width());
+        assertEquals(32, changed.height());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(5), changed.pollNanos());
+
+        PixelTrigger stable = PixelTrigger.parse("stable 5 6 7 8 250.5");
+        assertEquals(PixelTrigger.Type.STABLE, stable.type());
+        assertEquals(250_500_000L, stable.stableNanos());
+    }
+
+    @Test
+    void testToStringParsesBack() {
+        for (String spec : new String[]{
+                "color 10 20 #ff8000 tolerance 12",
+                "color -5 0 #000000 every 100",
+                "changed 0 0 64 32",
+                "stable 5 6 7 8 250.5 every 2.5"}) {
+            assertEquals(spec, PixelTrigger.parse(spec).toString());
+            assertEquals(PixelTrigger.parse(spec), PixelTrigger.parse(PixelTrigger.parse(spec).toString()));
+        }
+    }
+
+    @Test
+    void testRejectsMalformedSpecs() {
+        assertThrows(IllegalArgumentException.class, () -> PixelTrigger.parse(""));
+        assertThrows(IllegalArgumentException.class, () -> PixelTrigger.parse("colour 1 2 #ffffff"));
+        assertThrows(IllegalArgumentException.class, () -> PixelTrigger.parse("color 1 2"));
+        assertThrows(IllegalArgumentException.class, () -> PixelTrigger.parse("color 1 2 #fff"));
+        assertThrows(IllegalArgumentException.class, () -> PixelTrigger.parse("color 1 2 #ffffff tolerance 300"));
+        assertThrows(IllegalArgumentException.class, () -> PixelTrigger.parse("color 1 2 #ffffff every"));
+        assertThrows(IllegalArgumentException.class, () -> PixelTrigger.parse("changed 1 2 0 10"));
+        assertThrows(IllegalArgumentException.class, () -> PixelTrigger.parse("changed 1 2 10 10 tolerance 4"));
+        assertThrows(IllegalArgumentException.class, () -> PixelTrigger.parse("changed 1 2 10 10 every 0"));
+        assertThrows(IllegalArgumentException.class, () -> PixelTrigger.parse("changed 0 0 4096 4096"));
+        assertThrows(IllegalArgumentException.class, () -> PixelTrigger.parse("stable 1 2 10 10 -1"));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> PixelTrigger.parse("changed 1 2 wide 10"));
+        assertEquals("Invalid width: wide", e.getMessage());
+    }
+
+    @Test
+    void testColorToleranceAppliesPerChannel() {
+        PixelTrigger trigger = PixelTrigger.color(0, 0, 0x804020, 16);
+
+        assertTrue(trigger.matchesColor(0x804020));
+        assertTrue(trigger.matchesColor(0xFF904F30));
+        assertTrue(trigger.matchesColor(0x703010));
+        assertFalse(trigger.matchesColor(0x914020));
+        assertFalse(trigger.matchesColor(0x804000));
+    }
+}
@@ -0,0 +1,144 @@
+package com.jaceg18.jclicker.core.trigger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TriggerMonitorTest {
+
+    private static final long POLL = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ImageFrameSource screen = new ImageFrameSource(new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB));
+    private final TriggerMonitor monitor = new TriggerMonitor(() -> screen);
+
+    @AfterEach
+    void tearDown() {
+        monitor.close();
+    }
+
+    @Test
+    void testTileHasherCountsChangedTiles() {
+        TileHasher hasher = new TileHasher(40, 20);
+        int[] pixels = new int[40 * 20];
+        assertEquals(6, hasher.tileCount());
+
+        assertEquals(0, hasher.update(pixels));
+        assertEquals(0, hasher.update(pixels));
+
+        pixels[0] = 0x010101;
+        pixels[40 + 19] = 0x020202;
+        pixels[19 * 40 + 39] = 0x030303;
+        assertEquals(3, hasher.update(pixels));
+        assertEquals(0, hasher.update(pixels));
+
+        // Only the colour counts
+        pixels[0] |= 0xFF000000;
+        assertEquals(0, hasher.update(pixels));
+
+        hasher.reset();
+        pixels[1] = 0x040404;
+        assertEquals(0, hasher.update(pixels));
+    }
+
+    @Test
+    void testImageSourceClipsToTheImage() {
+        screen.getImage().setRGB(0, 0, 0x123456);
+        screen.getImage().setRGB(199, 99, 0x654321);
+        int[] pixels = {-1, -1, -1, -1};
+
+        screen.capture(-1, -1, 2, 2, pixels);
+        assertArrayEquals(new int[]{0, 0, 0}, Arrays.copyOf(pixels, 3));
+        assertEquals(0x123456, pixels[3] & 0xFFFFFF);
+
+        screen.capture(199, 99, 2, 2, pixels);
+        assertEquals(0x654321, pixels[0] & 0xFFFFFF);
+        assertEquals(0, pixels[1]);
+
+        screen.capture(500, 500, 2, 2, pixels);
+        assertArrayEquals(new int[4], pixels);
+    }
+
+    @Test
+    void testColorWatchFollowsThePixel() throws InterruptedException {
+        TriggerMonitor.Watch watch = monitor.watch(PixelTrigger.color(10, 10, 0xFF0000, 8).withPollNanos(POLL));
+        waitFor(() -> watch.getPolls() > 2);
+        assertFalse(watch.isMatched());
+
+        screen.getImage().setRGB(10, 10, 0xF80404);
+        waitFor(watch::isMatched);
+
+        screen.getImage().setRGB(10, 10, 0x00FF00);
+        waitFor(() -> !watch.isMatched());
+
+        assertTrue(monitor.getCaptureCost().getCount() >= watch.getPolls() - 1);
+        assertNull(monitor.getLastError());
+    }
+
+    @Test
+    void testChangedAndStableWatches() throws InterruptedException {
+        TriggerMonitor.Watch changed = monitor.watch(PixelTrigger.changed(50, 20, 40, 40).withPollNanos(POLL));
+        TriggerMonitor.Watch stable = monitor.watch(
+                PixelTrigger.stable(50, 20, 40, 40, TimeUnit.MILLISECONDS.toNanos(30)).withPollNanos(POLL));
+        waitFor(stable::isMatched);
+        assertFalse(changed.isMatched());
+        assertEquals(0, changed.getChanges());
+
+        // Outside the region: nothing happens
+        screen.getImage().setRGB(10, 10, 0xFFFFFF);
+        long polls = changed.getPolls();
+        waitFor(() -> changed.getPolls() > polls + 3);
+        assertEquals(0, changed.getChanges());
+        assertTrue(stable.isMatched());
+
+        screen.getImage().setRGB(89, 59, 0xFFFFFF);
+        waitFor(() -> changed.getChanges() == 1);
+        waitFor(() -> stable.getChanges() == 1);
+        // Stable again only after another 30 ms without changes
+        waitFor(stable::isMatched);
+        assertEquals(1, changed.getChanges());
+        assertFalse(changed.isMatched());
+    }
+
+    @Test
+    void testCancelledWatchStopsPolling() throws InterruptedException {
+        TriggerMonitor.Watch watch = monitor.watch(PixelTrigger.color(0, 0, 0, 0).withPollNanos(POLL));
+        waitFor(watch::isMatched);
+        assertEquals(1, monitor.getWatchCount());
+
+        watch.cancel();
+        assertFalse(watch.isMatched());
+        assertEquals(0, monitor.getWatchCount());
+        long polls = watch.getPolls();
+        Thread.sleep(20);
+        assertTrue(watch.getPolls() <= polls + 1);
+        assertFalse(watch.isMatched());
+    }
+
+    @Test
+    void testFailingSourceIsReported() throws InterruptedException {
+        try (TriggerMonitor failing = new TriggerMonitor(() -> {
+            throw new IllegalStateException("no display");
+        })) {
+            TriggerMonitor.Watch watch = failing.watch(PixelTrigger.color(0, 0, 0, 0));
+            waitFor(() -> failing.getLastError() != null);
+            assertEquals("no display", failing.getLastError().getMessage());
+            assertFalse(watch.isMatched());
+        }
+        monitor.close();
+        assertThrows(IllegalStateException.class, () -> monitor.watch(PixelTrigger.color(0, 0, 0, 0)));
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(1);
+        }
+    }
+}
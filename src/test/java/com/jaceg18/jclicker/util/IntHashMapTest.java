@@ -0,0 +1,69 @@
+package com.jaceg18.jclicker.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntHashMapTest {
+
+    @Test
+    void testPutGetRemove() {
+        IntHashMap<String> map = new IntHashMap<>();
+        assertNull(map.put(5, "five"));
+        assertEquals("five", map.put(5, "FIVE"));
+        map.put(0, "zero");
+        map.put(-1, "minus one");
+
+        assertEquals("FIVE", map.get(5));
+        assertEquals("zero", map.get(0));
+        assertEquals("minus one", map.get(-1));
+        assertNull(map.get(6));
+        assertEquals(3, map.size());
+
+        assertEquals("zero", map.remove(0));
+        assertFalse(map.containsKey(0));
+        assertNull(map.remove(42));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void testMatchesHashMapUnderRandomOperations() {
+        IntHashMap<Integer> map = new IntHashMap<>(2);
+        Map<Integer, Integer> reference = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 50_000; i++) {
+            // Small key range so probe chains collide and removals have to backshift
+            int key = random.nextInt(512) - 16;
+            if (random.nextInt(3) == 0) {
+                assertEquals(reference.remove(key), map.remove(key));
+            } else {
+                assertEquals(reference.put(key, i), map.put(key, i));
+            }
+            assertEquals(reference.size(), map.size());
+        }
+        for (int key = -16; key < 496; key++) {
+            assertEquals(reference.get(key), map.get(key), "key " + key);
+        }
+
+        Map<Integer, Integer> seen = new HashMap<>();
+        map.forEach(seen::put);
+        assertEquals(reference, seen);
+    }
+
+    @Test
+    void testClear() {
+        IntHashMap<String> map = new IntHashMap<>();
+        map.put(1, "a");
+        map.put(0, "b");
+        map.clear();
+
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1));
+        assertNull(map.get(0));
+    }
+}